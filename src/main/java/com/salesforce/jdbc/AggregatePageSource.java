@@ -0,0 +1,475 @@
+package com.salesforce.jdbc;
+
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// Groups and aggregates rows in the driver, for grouping SOQL cannot run. At most maxGroups
+// groups are held in memory; rows of any further group are spilled to partition files by key
+// hash and aggregated once the groups in memory have been returned, partition by partition.
+// Sorted output is spilled the same way, as sorted runs merged while they are read.
+// DISTINCT aggregates hold their values in memory, at most maxGroups of them in total.
+class AggregatePageSource extends LookaheadPageSource {
+    private static final int PAGE_ROWS = 2000;
+    private static final int PARTITIONS = 16;
+    // Each level of repartitioning takes the next four bits of the key hash
+    private static final int MAX_LEVEL = 7;
+    // The key of the single group when there is no GROUP BY
+    private static final Object NO_KEY = new Object();
+
+    // The running value of one aggregate in one group
+    private static final class State {
+        long count;
+        Object value;
+        Set<Object> seen;
+    }
+
+    private static final class Group {
+        final Object[] keys;
+        final State[] states;
+
+        Group(Object[] keys, int aggregates) {
+            this.keys = keys;
+            this.states = new State[aggregates];
+            for (int i = 0; i < aggregates; i++) {
+                states[i] = new State();
+            }
+        }
+    }
+
+    // Spilled rows whose groups are aggregated in a later pass at level
+    private static final class Partition {
+        final SpillFile rows;
+        final int level;
+
+        Partition(SpillFile rows, int level) {
+            this.rows = rows;
+            this.level = level;
+        }
+    }
+
+    // A sorted run on disk and the row it is positioned at
+    private static final class Run {
+        final SpillFile rows;
+        final int index;
+        Object[] head;
+
+        Run(SpillFile rows, int index) {
+            this.rows = rows;
+            this.index = index;
+        }
+    }
+
+    private final PageSource input;
+    private final AggregatePlanner.LocalAggregate spec;
+    private final ColumnPlan plan;
+    private final int maxGroups;
+    private final int keyCount;
+    private final Map<Object, Group> table = new LinkedHashMap<>();
+    // Values held for DISTINCT aggregates by the groups in the table
+    private int distinctValues = 0;
+    private final SpillFile[] spills = new SpillFile[PARTITIONS];
+    private final Deque<Partition> partitions = new ArrayDeque<>();
+    private Iterator<Group> groups;
+    // Sorted output, from memory or merged from runs on disk
+    private Iterator<Object[]> sorted;
+    private PriorityQueue<Run> merge;
+    private final List<SpillFile> runs = new ArrayList<>();
+    private boolean aggregated = false;
+    private boolean done = false;
+    private long skip;
+    // Rows still to return, or -1 without a LIMIT
+    private long remaining;
+
+    AggregatePageSource(PageSource input, AggregatePlanner.LocalAggregate spec, ColumnPlan plan, int maxGroups) {
+        this.input = input;
+        this.spec = spec;
+        this.plan = plan;
+        this.maxGroups = Math.max(1, maxGroups);
+        this.keyCount = spec.keys.length;
+        this.skip = spec.offset;
+        this.remaining = spec.limit;
+    }
+
+    @Override
+    ColumnarPage readNextPage() throws SQLException {
+        if (done || remaining == 0) {
+            return finish();
+        }
+        if (!aggregated) {
+            aggregateInput();
+            aggregated = true;
+            if (spec.sortKeys.length > 0) {
+                sort();
+            }
+        }
+        ColumnarPage.Builder out = new ColumnarPage.Builder(plan, PAGE_ROWS);
+        int rows = 0;
+        while (rows < PAGE_ROWS && remaining != 0) {
+            Object[] row = spec.sortKeys.length > 0 ? nextSorted() : nextOutputRow();
+            if (row == null) {
+                break;
+            }
+            if (admit()) {
+                for (int column = 0; column < spec.outputs.length; column++) {
+                    put(out, column, row[column]);
+                }
+                out.endRow();
+                rows++;
+            }
+        }
+        return rows > 0 ? out.build() : finish();
+    }
+
+    private void aggregateInput() throws SQLException {
+        try {
+            ColumnPlan columns = input.getColumnPlan();
+            Object[] raw = null;
+            ColumnarPage page;
+            while ((page = input.nextPage()) != null) {
+                if (raw == null) {
+                    raw = new Object[(columns != null ? columns : page.getPlan()).getColumnCount()];
+                }
+                for (int row = 0; row < page.getRowCount(); row++) {
+                    for (int column = 0; column < raw.length; column++) {
+                        raw[column] = page.getObject(column, row);
+                    }
+                    add(entry(raw), 0);
+                }
+            }
+        } finally {
+            input.close();
+        }
+        endPass(0);
+        if (keyCount == 0 && table.isEmpty()) {
+            // Aggregates without GROUP BY give one row even over no rows at all
+            table.put(NO_KEY, new Group(new Object[0], spec.aggregates.length));
+        }
+        groups = table.values().iterator();
+    }
+
+    // The group's key values followed by each aggregate's argument
+    private Object[] entry(Object[] raw) throws SQLException {
+        Object[] entry = new Object[keyCount + spec.aggregates.length];
+        for (int i = 0; i < keyCount; i++) {
+            entry[i] = spec.keys[i].eval(raw);
+        }
+        for (int i = 0; i < spec.aggregates.length; i++) {
+            RowExpression argument = spec.aggregates[i].argument;
+            entry[keyCount + i] = argument != null ? argument.eval(raw) : null;
+        }
+        return entry;
+    }
+
+    private Object key(Object[] entry) {
+        if (keyCount == 0) {
+            return NO_KEY;
+        }
+        if (keyCount == 1) {
+            return RowExpression.groupKey(entry[0]);
+        }
+        Object[] key = new Object[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            key[i] = RowExpression.groupKey(entry[i]);
+        }
+        return Arrays.asList(key);
+    }
+
+    private void add(Object[] entry, int level) throws SQLException {
+        Object key = key(entry);
+        Group group = table.get(key);
+        if (group == null) {
+            if (table.size() >= maxGroups && level <= MAX_LEVEL) {
+                int partition = ((key != null ? key.hashCode() : 0) * 0x9E3779B9) >>> (28 - 4 * level) & (PARTITIONS - 1);
+                if (spills[partition] == null) {
+                    spills[partition] = SpillFile.create(entry.length);
+                }
+                spills[partition].write(entry);
+                return;
+            }
+            group = new Group(Arrays.copyOf(entry, keyCount), spec.aggregates.length);
+            table.put(key, group);
+        }
+        for (int i = 0; i < spec.aggregates.length; i++) {
+            accumulate(spec.aggregates[i], group.states[i], entry[keyCount + i]);
+        }
+    }
+
+    private void accumulate(AggregatePlanner.Aggregate aggregate, State state, Object value) throws SQLException {
+        if (aggregate.argument == null) {
+            state.count++;
+            return;
+        }
+        if (value == null) {
+            return;
+        }
+        if (aggregate.distinct) {
+            if (state.seen == null) {
+                state.seen = new HashSet<>();
+            }
+            if (!state.seen.add(RowExpression.groupKey(value))) {
+                return;
+            }
+            // Spilling groups cannot split the values of one group, so the query fails instead
+            if (++distinctValues > maxGroups) {
+                throw new SQLException(aggregate.function + "(DISTINCT) needs more than " + maxGroups
+                        + " values in memory; raise localAggregateGroups to allow more", "54000");
+            }
+        }
+        state.count++;
+        switch (aggregate.function) {
+            case "SUM":
+            case "AVG":
+                if (!(value instanceof Number)) {
+                    throw new SQLDataException(aggregate.function + "() needs numbers, not " + value);
+                }
+                state.value = state.value == null ? value : RowExpression.arithmetic("+", state.value, value);
+                break;
+            case "MIN":
+                if (state.value == null || RowExpression.compare(value, state.value) < 0) {
+                    state.value = value;
+                }
+                break;
+            case "MAX":
+                if (state.value == null || RowExpression.compare(value, state.value) > 0) {
+                    state.value = value;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static Object result(AggregatePlanner.Aggregate aggregate, State state) throws SQLException {
+        switch (aggregate.function) {
+            case "COUNT":
+                return state.count;
+            case "AVG":
+                if (state.count == 0) {
+                    return null;
+                }
+                return state.value instanceof Double ? (Double) state.value / state.count
+                        : RowExpression.arithmetic("/", state.value, state.count);
+            default:
+                return state.value;
+        }
+    }
+
+    // Queues the partitions a pass spilled, to be aggregated by a pass of their own
+    private void endPass(int level) {
+        for (int i = 0; i < PARTITIONS; i++) {
+            if (spills[i] != null) {
+                partitions.push(new Partition(spills[i], level + 1));
+                spills[i] = null;
+            }
+        }
+    }
+
+    // The next group passing HAVING as its key values and aggregate results, or null after the last
+    private Object[] nextGroupRow() throws SQLException {
+        while (true) {
+            while (groups.hasNext()) {
+                Group group = groups.next();
+                Object[] row = Arrays.copyOf(group.keys, keyCount + spec.aggregates.length);
+                for (int i = 0; i < spec.aggregates.length; i++) {
+                    row[keyCount + i] = result(spec.aggregates[i], group.states[i]);
+                }
+                if (spec.having == null || RowExpression.isTrue(spec.having.eval(row))) {
+                    return row;
+                }
+            }
+            table.clear();
+            distinctValues = 0;
+            if (partitions.isEmpty()) {
+                return null;
+            }
+            Partition partition = partitions.pop();
+            try (SpillFile rows = partition.rows) {
+                Object[] entry;
+                while ((entry = rows.read()) != null) {
+                    add(entry, partition.level);
+                }
+            }
+            endPass(partition.level);
+            groups = table.values().iterator();
+        }
+    }
+
+    // The select list of the next group, followed by its ORDER BY values
+    private Object[] nextOutputRow() throws SQLException {
+        Object[] group = nextGroupRow();
+        if (group == null) {
+            return null;
+        }
+        Object[] row = new Object[spec.outputs.length + spec.sortKeys.length];
+        for (int i = 0; i < spec.outputs.length; i++) {
+            row[i] = spec.outputs[i].eval(group);
+        }
+        for (int i = 0; i < spec.sortKeys.length; i++) {
+            row[spec.outputs.length + i] = spec.sortKeys[i].eval(group);
+        }
+        return row;
+    }
+
+    private void sort() throws SQLException {
+        List<Object[]> buffer = new ArrayList<>();
+        Object[] row;
+        while ((row = nextOutputRow()) != null) {
+            buffer.add(row);
+            if (buffer.size() >= maxGroups) {
+                runs.add(writeRun(buffer));
+                buffer.clear();
+            }
+        }
+        if (runs.isEmpty()) {
+            buffer.sort(this::compareRows);
+            sorted = buffer.iterator();
+            return;
+        }
+        if (!buffer.isEmpty()) {
+            runs.add(writeRun(buffer));
+        }
+        merge = new PriorityQueue<>(runs.size(), (a, b) -> {
+            int order = compareRows(a.head, b.head);
+            return order != 0 ? order : Integer.compare(a.index, b.index);
+        });
+        for (int i = 0; i < runs.size(); i++) {
+            Run run = new Run(runs.get(i), i);
+            run.head = run.rows.read();
+            if (run.head != null) {
+                merge.add(run);
+            }
+        }
+    }
+
+    private SpillFile writeRun(List<Object[]> rows) throws SQLException {
+        rows.sort(this::compareRows);
+        SpillFile run = SpillFile.create(spec.outputs.length + spec.sortKeys.length);
+        try {
+            for (Object[] row : rows) {
+                run.write(row);
+            }
+        } catch (SQLException e) {
+            run.close();
+            throw e;
+        }
+        return run;
+    }
+
+    private Object[] nextSorted() throws SQLException {
+        if (sorted != null) {
+            return sorted.hasNext() ? sorted.next() : null;
+        }
+        Run run = merge.poll();
+        if (run == null) {
+            return null;
+        }
+        Object[] row = run.head;
+        run.head = run.rows.read();
+        if (run.head != null) {
+            merge.add(run);
+        }
+        return row;
+    }
+
+    private int compareRows(Object[] a, Object[] b) {
+        int base = spec.outputs.length;
+        for (int i = 0; i < spec.sortKeys.length; i++) {
+            Object left = a[base + i];
+            Object right = b[base + i];
+            int order;
+            if (left == null || right == null) {
+                order = left == right ? 0 : (left == null) == spec.nullsFirst[i] ? -1 : 1;
+            } else {
+                order = RowExpression.order(left, right);
+                if (spec.descending[i]) {
+                    order = -order;
+                }
+            }
+            if (order != 0) {
+                return order;
+            }
+        }
+        return 0;
+    }
+
+    // Temporal values are stored by epoch, as the decoder stores them
+    private static void put(ColumnarPage.Builder out, int column, Object value) {
+        if (value instanceof LocalDate) {
+            out.setEpoch(column, ColumnarPage.Kind.DATE, ((LocalDate) value).toEpochDay());
+        } else if (value instanceof Instant) {
+            out.setEpoch(column, ColumnarPage.Kind.DATETIME, ((Instant) value).toEpochMilli());
+        } else if (value instanceof LocalTime) {
+            out.setEpoch(column, ColumnarPage.Kind.TIME, ((LocalTime) value).toNanoOfDay() / 1_000_000L);
+        } else {
+            out.set(column, value);
+        }
+    }
+
+    // OFFSET and LIMIT count result rows, not input rows
+    private boolean admit() {
+        if (skip > 0) {
+            skip--;
+            return false;
+        }
+        if (remaining > 0) {
+            remaining--;
+        }
+        return true;
+    }
+
+    private ColumnarPage finish() {
+        close();
+        return null;
+    }
+
+    @Override
+    public ColumnPlan getColumnPlan() {
+        return plan;
+    }
+
+    @Override
+    public int getBatchSize() {
+        return input.getBatchSize();
+    }
+
+    @Override
+    public void setBatchSize(int fetchSize) {
+        input.setBatchSize(fetchSize);
+    }
+
+    @Override
+    public void close() {
+        done = true;
+        input.close();
+        table.clear();
+        for (int i = 0; i < PARTITIONS; i++) {
+            if (spills[i] != null) {
+                spills[i].close();
+                spills[i] = null;
+            }
+        }
+        while (!partitions.isEmpty()) {
+            partitions.pop().rows.close();
+        }
+        for (SpillFile run : runs) {
+            run.close();
+        }
+        runs.clear();
+        merge = null;
+        sorted = null;
+    }
+}
@@ -0,0 +1,362 @@
+package com.salesforce.jdbc;
+
+import com.salesforce.jdbc.SqlAst.Expr;
+
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Plans grouping the driver does itself: SELECT DISTINCT, GROUP BY or aggregates over
+// expressions SOQL cannot evaluate, and any aggregate query marked /*+ LOCAL_AGGREGATE */
+// because it would pass SOQL's limit of 2,000 groups. The rows are read by a plain SOQL
+// query carrying the WHERE clause and streamed through an AggregatePageSource.
+final class AggregatePlanner {
+    private static final Pattern LOCAL_HINT = Pattern.compile("\\bLOCAL_AGGREGATE\\b", Pattern.CASE_INSENSITIVE);
+    // Groups held in memory before further groups are spilled to disk
+    static final int DEFAULT_MAX_GROUPS = 100_000;
+
+    // COUNT, SUM, AVG, MIN or MAX over an argument, or COUNT(*) without one
+    static final class Aggregate {
+        final String function;
+        final boolean distinct;
+        final RowExpression argument;
+
+        Aggregate(String function, boolean distinct, RowExpression argument) {
+            this.function = function;
+            this.distinct = distinct;
+            this.argument = argument;
+        }
+
+        FieldType type(ColumnPlan columns) {
+            if (function.equals("COUNT")) {
+                return FieldType.LONG;
+            }
+            FieldType argumentType = argument.slot() >= 0 ? columns.getType(argument.slot()) : null;
+            if (argumentType == null) {
+                return null;
+            }
+            switch (function) {
+                case "SUM":
+                    return argumentType == FieldType.INTEGER ? FieldType.LONG : argumentType;
+                case "AVG":
+                    return argumentType == FieldType.DOUBLE ? FieldType.DOUBLE : FieldType.DECIMAL;
+                default:
+                    return argumentType;
+            }
+        }
+    }
+
+    private final String sql;
+    private final SqlAst.Select select;
+    private final SoqlGenerator.FieldSource fields;
+    // Fields the SOQL query reads, as paths without the table qualifier
+    private final List<List<String>> columns = new ArrayList<>();
+    private final List<String> keyTexts = new ArrayList<>();
+    private final List<String> aggregateTexts = new ArrayList<>();
+    private final List<Aggregate> aggregates = new ArrayList<>();
+
+    private AggregatePlanner(String sql, SqlAst.Select select, SoqlGenerator.FieldSource fields) {
+        this.sql = sql;
+        this.select = select;
+        this.fields = fields;
+    }
+
+    // Statements that must be grouped by the driver whatever SOQL could do with them
+    static boolean isRequired(SqlAst.Select select) {
+        if (select.distinct) {
+            return true;
+        }
+        for (String hint : select.hints) {
+            if (LOCAL_HINT.matcher(hint).find()) {
+                return groups(select);
+            }
+        }
+        return false;
+    }
+
+    // Whether the statement groups rows at all, through GROUP BY, HAVING or an aggregate
+    static boolean groups(SqlAst.Select select) {
+        if (!select.groupBy.isEmpty() || select.having != null) {
+            return true;
+        }
+        for (SqlAst.SelectItem item : select.items) {
+            if (hasAggregate(item.expr)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasAggregate(Expr expr) {
+        if (expr instanceof SqlAst.Function) {
+            SqlAst.Function function = (SqlAst.Function) expr;
+            if (function.isAggregate()) {
+                return true;
+            }
+            for (Expr argument : function.arguments) {
+                if (hasAggregate(argument)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (expr instanceof SqlAst.Binary) {
+            return hasAggregate(((SqlAst.Binary) expr).left) || hasAggregate(((SqlAst.Binary) expr).right);
+        }
+        if (expr instanceof SqlAst.Unary) {
+            return hasAggregate(((SqlAst.Unary) expr).operand);
+        }
+        return false;
+    }
+
+    static TranslationPlan plan(String sql, SqlAst.Select select, SoqlGenerator.FieldSource fields) throws SQLException {
+        return new AggregatePlanner(sql, select, fields).plan();
+    }
+
+    private TranslationPlan plan() throws SQLException {
+        if (select.distinct && groups(select)) {
+            throw unsupported("SELECT DISTINCT cannot be combined with GROUP BY or aggregates");
+        }
+        List<SqlAst.SelectItem> items = new ArrayList<>();
+        for (SqlAst.SelectItem item : select.items) {
+            if (item.expr instanceof SqlAst.Subquery) {
+                throw unsupported("Child relationship subqueries cannot be grouped by the driver");
+            }
+            if (!(item.expr instanceof SqlAst.Star)) {
+                items.add(item);
+                continue;
+            }
+            if (fields == null) {
+                // Only the describe knows what * covers
+                return TranslationPlan.deferred(sql, select);
+            }
+            String qualifier = ((SqlAst.Star) item.expr).qualifier;
+            if (qualifier != null && !select.from.matches(qualifier)) {
+                throw new SQLSyntaxErrorException("Unknown table " + qualifier + " in: " + sql);
+            }
+            for (String field : fields.fieldsOf(select.from.name)) {
+                items.add(new SqlAst.SelectItem(new SqlAst.Column(List.of(field)), null));
+            }
+        }
+
+        // DISTINCT groups by the whole select list
+        List<Expr> groupBy = new ArrayList<>();
+        if (select.distinct) {
+            for (SqlAst.SelectItem item : items) {
+                groupBy.add(item.expr);
+            }
+        } else {
+            groupBy.addAll(select.groupBy);
+        }
+        RowExpression[] keys = new RowExpression[groupBy.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = RowExpression.compile(groupBy.get(i), this::column, sql);
+            keyTexts.add(text(groupBy.get(i)));
+        }
+
+        RowExpression[] outputs = new RowExpression[items.size()];
+        String[] labels = new String[items.size()];
+        int expression = 0;
+        for (int i = 0; i < items.size(); i++) {
+            SqlAst.SelectItem item = items.get(i);
+            outputs[i] = RowExpression.compile(item.expr, this::groupSlot, sql);
+            if (item.alias != null) {
+                labels[i] = item.alias;
+            } else if (item.expr instanceof SqlAst.Column) {
+                labels[i] = String.join(".", path((SqlAst.Column) item.expr));
+            } else {
+                // Named as SOQL names unaliased aggregates
+                labels[i] = "expr" + expression++;
+            }
+        }
+        RowExpression having = select.having != null ? RowExpression.compile(select.having, this::groupSlot, sql) : null;
+        RowExpression[] sortKeys = new RowExpression[select.orderBy.size()];
+        boolean[] descending = new boolean[sortKeys.length];
+        boolean[] nullsFirst = new boolean[sortKeys.length];
+        for (int i = 0; i < sortKeys.length; i++) {
+            SqlAst.OrderItem item = select.orderBy.get(i);
+            sortKeys[i] = RowExpression.compile(JoinPlanner.orderTarget(items, item.expr), this::groupSlot, sql);
+            descending[i] = item.descending;
+            // As in SOQL, nulls sort first unless the order is descending
+            nullsFirst[i] = item.nulls != null ? item.nulls.equals("FIRST") : !item.descending;
+        }
+
+        SqlAst.Select rows = new SqlAst.Select();
+        rows.from = select.from;
+        rows.where = select.where;
+        rows.modifiers.addAll(select.modifiers);
+        if (columns.isEmpty()) {
+            // COUNT(*) alone still needs a field to read
+            columns.add(List.of("Id"));
+        }
+        for (List<String> path : columns) {
+            rows.items.add(new SqlAst.SelectItem(new SqlAst.Column(path), null));
+        }
+        TranslationPlan plan = SoqlGenerator.generate(sql, rows, fields);
+        LocalAggregate aggregate = new LocalAggregate(plan.getColumns(), keys, aggregates.toArray(new Aggregate[0]), having,
+                outputs, labels, sortKeys, descending, nullsFirst,
+                JoinPlanner.count(sql, select.offset, 0), JoinPlanner.count(sql, select.limit, -1));
+        return plan.withOperator(aggregate);
+    }
+
+    // A field read from the SOQL rows, by its position in the query
+    private int column(Expr expr) throws SQLException {
+        if (expr instanceof SqlAst.Column) {
+            if (SoqlGenerator.isDateLiteral(expr)) {
+                throw unsupported("Date literals such as " + ((SqlAst.Column) expr).dotted() + " can only be used in WHERE"
+                        + " when the driver groups rows");
+            }
+            List<String> path = path((SqlAst.Column) expr);
+            String dotted = String.join(".", path);
+            for (int i = 0; i < columns.size(); i++) {
+                if (String.join(".", columns.get(i)).equalsIgnoreCase(dotted)) {
+                    return i;
+                }
+            }
+            columns.add(path);
+            return columns.size() - 1;
+        }
+        if (expr instanceof SqlAst.Function && ((SqlAst.Function) expr).isAggregate()) {
+            throw new SQLSyntaxErrorException("Aggregate functions cannot be nested or grouped by in: " + sql);
+        }
+        return -1;
+    }
+
+    // A value of a group: one of its keys, then its aggregates in order of appearance
+    private int groupSlot(Expr expr) throws SQLException {
+        int key = keyTexts.indexOf(text(expr));
+        if (key >= 0) {
+            return key;
+        }
+        if (expr instanceof SqlAst.Function && ((SqlAst.Function) expr).isAggregate()) {
+            return keyTexts.size() + aggregate((SqlAst.Function) expr);
+        }
+        if (expr instanceof SqlAst.Column && !SoqlGenerator.isDateLiteral(expr)) {
+            throw new SQLSyntaxErrorException(((SqlAst.Column) expr).dotted()
+                    + (select.distinct ? " must be selected to order SELECT DISTINCT by it" : " must be grouped by or aggregated")
+                    + " in: " + sql);
+        }
+        return column(expr);
+    }
+
+    private int aggregate(SqlAst.Function function) throws SQLException {
+        String name = function.name.toUpperCase(Locale.ROOT);
+        boolean distinct = function.distinct;
+        if (name.equals("COUNT_DISTINCT")) {
+            name = "COUNT";
+            distinct = true;
+        }
+        if (function.star ? !name.equals("COUNT") : function.arguments.size() != 1) {
+            throw new SQLSyntaxErrorException(name + (function.star ? "(*) is not valid" : "() takes one argument") + " in: " + sql);
+        }
+        String text = name + (distinct ? "(DISTINCT " : "(") + (function.star ? "*" : text(function.arguments.get(0))) + ")";
+        int index = aggregateTexts.indexOf(text);
+        if (index >= 0) {
+            return index;
+        }
+        RowExpression argument = function.star ? null : RowExpression.compile(function.arguments.get(0), this::column, sql);
+        aggregateTexts.add(text);
+        aggregates.add(new Aggregate(name, distinct && !function.star, argument));
+        return aggregates.size() - 1;
+    }
+
+    // A column's path with any qualifier naming the queried object dropped
+    private List<String> path(SqlAst.Column column) {
+        List<String> path = column.path;
+        return path.size() > 1 && select.from.matches(path.get(0)) ? path.subList(1, path.size()) : path;
+    }
+
+    // A canonical spelling, so that GROUP BY a.Name + 1 matches Name+1 in the select list
+    private String text(Expr expr) {
+        if (expr instanceof SqlAst.Column) {
+            return String.join(".", path((SqlAst.Column) expr)).toLowerCase(Locale.ROOT);
+        }
+        if (expr instanceof SqlAst.Literal) {
+            return "'" + ((SqlAst.Literal) expr).text + "'";
+        }
+        if (expr instanceof SqlAst.Parameter) {
+            return "?" + ((SqlAst.Parameter) expr).index;
+        }
+        if (expr instanceof SqlAst.Function) {
+            SqlAst.Function function = (SqlAst.Function) expr;
+            StringBuilder text = new StringBuilder(function.name.toUpperCase(Locale.ROOT)).append(function.distinct ? "(DISTINCT " : "(");
+            if (function.star) {
+                text.append('*');
+            }
+            for (int i = 0; i < function.arguments.size(); i++) {
+                text.append(i > 0 ? ", " : "").append(text(function.arguments.get(i)));
+            }
+            return text.append(')').toString();
+        }
+        if (expr instanceof SqlAst.Binary) {
+            SqlAst.Binary binary = (SqlAst.Binary) expr;
+            return "(" + text(binary.left) + " " + binary.operator + " " + text(binary.right) + ")";
+        }
+        if (expr instanceof SqlAst.Unary) {
+            return "(" + ((SqlAst.Unary) expr).operator + " " + text(((SqlAst.Unary) expr).operand) + ")";
+        }
+        // Anything else only matches itself
+        return "#" + System.identityHashCode(expr);
+    }
+
+    private SQLFeatureNotSupportedException unsupported(String message) {
+        return new SQLFeatureNotSupportedException(message + ": " + sql);
+    }
+
+    // Rows of a plain SOQL query grouped, filtered, sorted and cut to LIMIT in the driver
+    static final class LocalAggregate implements TranslationPlan.Operator {
+        final ColumnPlan columns;
+        // Over the SOQL row
+        final RowExpression[] keys;
+        final Aggregate[] aggregates;
+        // Over a group's keys followed by its aggregate results
+        final RowExpression having;
+        final RowExpression[] outputs;
+        final String[] labels;
+        final RowExpression[] sortKeys;
+        final boolean[] descending;
+        final boolean[] nullsFirst;
+        final long offset;
+        final long limit;
+
+        LocalAggregate(ColumnPlan columns, RowExpression[] keys, Aggregate[] aggregates, RowExpression having,
+                       RowExpression[] outputs, String[] labels, RowExpression[] sortKeys, boolean[] descending,
+                       boolean[] nullsFirst, long offset, long limit) {
+            this.columns = columns;
+            this.keys = keys;
+            this.aggregates = aggregates;
+            this.having = having;
+            this.outputs = outputs;
+            this.labels = labels;
+            this.sortKeys = sortKeys;
+            this.descending = descending;
+            this.nullsFirst = nullsFirst;
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        @Override
+        public PageSource open(SalesforceStatement statement, RestClient client, String soql, boolean bulkHint) throws SQLException {
+            SalesforceConnection connection = statement.getSalesforceConnection();
+            ColumnPlan typed = connection.typeColumns(columns, soql);
+            // Selected keys and aggregates of plain fields keep the field's type
+            FieldType[] types = new FieldType[outputs.length];
+            for (int i = 0; i < outputs.length; i++) {
+                int slot = outputs[i].slot();
+                if (slot >= keys.length) {
+                    types[i] = aggregates[slot - keys.length].type(typed);
+                } else if (slot >= 0 && keys[slot].slot() >= 0) {
+                    types[i] = typed.getType(keys[slot].slot());
+                }
+            }
+            ColumnPlan plan = ColumnPlan.fromFieldNames(List.of(labels)).withTypes(types);
+            PageSource rows = statement.openPages(client, soql, columns, bulkHint, 0);
+            return new AggregatePageSource(rows, this, plan,
+                    connection.getIntProperty("localAggregateGroups", DEFAULT_MAX_GROUPS));
+        }
+    }
+}
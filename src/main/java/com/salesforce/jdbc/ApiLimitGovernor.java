@@ -0,0 +1,100 @@
+package com.salesforce.jdbc;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Tracks an org's rolling 24-hour API allocation for every connection in the
+// process. Each response's Sforce-Limit-Info resets the count of calls left,
+// and each call made since is taken off it. As the allocation runs low, LOW
+// priority statements are refused and NORMAL ones are paced to the rate at
+// which the allocation comes back, leaving the rest to HIGH priority work.
+final class ApiLimitGovernor {
+    static final int DEFAULT_LOW_RESERVE_PERCENT = 20;
+    static final int DEFAULT_NORMAL_RESERVE_PERCENT = 5;
+
+    private static final long WINDOW_NANOS = TimeUnit.HOURS.toNanos(24);
+    private static final Map<String, ApiLimitGovernor> GOVERNORS = new ConcurrentHashMap<>();
+
+    private long limit = -1;
+    private long remaining = -1;
+    private long nextPacedCall;
+    private int lowReservePercent = DEFAULT_LOW_RESERVE_PERCENT;
+    private int normalReservePercent = DEFAULT_NORMAL_RESERVE_PERCENT;
+
+    ApiLimitGovernor() {
+    }
+
+    // All connections to one instance share its org's allocation
+    static ApiLimitGovernor forInstance(String instanceUrl) {
+        String key = instanceUrl.endsWith("/") ? instanceUrl.substring(0, instanceUrl.length() - 1) : instanceUrl;
+        return GOVERNORS.computeIfAbsent(key.toLowerCase(Locale.ROOT), url -> new ApiLimitGovernor());
+    }
+
+    synchronized void setReserves(int lowReservePercent, int normalReservePercent) {
+        this.lowReservePercent = lowReservePercent;
+        this.normalReservePercent = normalReservePercent;
+    }
+
+    // Takes one call from the allocation and returns how many nanoseconds the caller should
+    // wait before sending it. Until Salesforce has reported the allocation nothing is held back.
+    synchronized long acquire(SalesforceStatement.ApiPriority priority) throws SQLException {
+        if (limit <= 0) {
+            return 0;
+        }
+        long wait = 0;
+        if (priority == SalesforceStatement.ApiPriority.LOW && remaining <= limit * lowReservePercent / 100) {
+            throw new SQLTransientException("API allocation is reserved for higher priority statements: "
+                    + Math.max(remaining, 0) + " of " + limit + " calls left", "API_BUDGET_RESERVED");
+        }
+        if (priority == SalesforceStatement.ApiPriority.NORMAL && remaining <= limit * normalReservePercent / 100) {
+            // Spend no faster than the rolling window gives calls back
+            long interval = WINDOW_NANOS / limit;
+            long now = System.nanoTime();
+            long slot = nextPacedCall - now > 0 ? nextPacedCall : now;
+            nextPacedCall = slot + interval;
+            wait = slot - now;
+        }
+        remaining--;
+        return wait;
+    }
+
+    // Sforce-Limit-Info: api-usage=18/5000[; per-app-api-usage=17/250(appName=...)]
+    void report(String limitInfo) {
+        if (limitInfo == null) {
+            return;
+        }
+        for (String part : limitInfo.split(";")) {
+            String item = part.trim();
+            if (!item.startsWith("api-usage=")) {
+                continue;
+            }
+            int slash = item.indexOf('/');
+            if (slash < 0) {
+                return;
+            }
+            try {
+                long used = Long.parseLong(item.substring("api-usage=".length(), slash).trim());
+                long max = Long.parseLong(item.substring(slash + 1).trim());
+                synchronized (this) {
+                    limit = max;
+                    remaining = max - used;
+                }
+            } catch (NumberFormatException e) {
+                // Leave the last known allocation in place
+            }
+            return;
+        }
+    }
+
+    synchronized long getLimit() {
+        return limit;
+    }
+
+    synchronized long getRemaining() {
+        return limit <= 0 ? -1 : Math.max(remaining, 0);
+    }
+}
@@ -0,0 +1,251 @@
+package com.salesforce.jdbc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Reads a query through a Bulk API 2.0 query job. The job is polled with
+// exponential backoff until it completes, then its CSV results are streamed
+// chunk by chunk, following the Sforce-Locator header, into column pages.
+class BulkPageSource extends LookaheadPageSource {
+    static final int DEFAULT_PAGE_ROWS = 2000;
+
+    private static final long INITIAL_POLL_MILLIS = 250;
+    private static final long MAX_POLL_MILLIS = 10_000;
+    private static final Pattern BULK_HINT = Pattern.compile("/\\*\\+\\s*BULK\\s*\\*/", Pattern.CASE_INSENSITIVE);
+
+    private final RestClient client;
+    private final String jobId;
+    private ColumnPlan plan;
+    private boolean complete = false;
+    private boolean done = false;
+    private volatile boolean closed = false;
+    private volatile int batchSize;
+    private String locator;
+    private CsvReader reader;
+    private int[][] columnMap;
+
+    BulkPageSource(RestClient client, String jobId, ColumnPlan plan, int fetchSize) {
+        this.client = client;
+        this.jobId = jobId;
+        this.plan = plan;
+        setBatchSize(fetchSize);
+    }
+
+    static BulkPageSource start(RestClient client, String soql, ColumnPlan plan, int fetchSize) throws SQLException {
+        Map<String, Object> job = new LinkedHashMap<>();
+        job.put("operation", "query");
+        job.put("query", soql);
+        JsonNode created = client.sendJson("POST", jobPath(""), job);
+        String jobId = created.path("id").asText(null);
+        if (jobId == null) {
+            throw new SQLException("Bulk API did not return a query job id");
+        }
+        return new BulkPageSource(client, jobId, plan, fetchSize);
+    }
+
+    // Bulk API 2.0 rejects aggregates, OFFSET and child subqueries
+    static boolean isSupported(String soql, ColumnPlan plan) {
+        int from = ColumnPlan.indexOfKeyword(soql, "FROM", 0);
+        if (from < 0 || ColumnPlan.indexOfKeyword(soql, "GROUP", from) >= 0
+                || ColumnPlan.indexOfKeyword(soql, "OFFSET", from) >= 0) {
+            return false;
+        }
+        if (plan != null) {
+            for (int i = 0; i < plan.getColumnCount(); i++) {
+                String source = plan.getSource(i);
+                if (source == null || source.endsWith(")")) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // A /*+ BULK */ comment asks for the Bulk API regardless of the row-count threshold
+    static boolean hasHint(String sql) {
+        return sql != null && BULK_HINT.matcher(sql).find();
+    }
+
+    static String stripHint(String sql) {
+        return BULK_HINT.matcher(sql).replaceAll(" ").trim();
+    }
+
+    private static String jobPath(String resource) {
+        return RestClient.dataPath("/jobs/query" + resource);
+    }
+
+    String getJobId() {
+        return jobId;
+    }
+
+    @Override
+    ColumnarPage readNextPage() throws SQLException {
+        if (closed || done) {
+            return null;
+        }
+        if (!complete && !awaitCompletion()) {
+            // Closed while the job was still running; it has been aborted
+            return null;
+        }
+        try {
+            while (true) {
+                if (reader == null) {
+                    openChunk();
+                }
+                ColumnarPage page = readPage();
+                if (page != null) {
+                    return page;
+                }
+                closeChunk();
+                if (locator == null) {
+                    done = true;
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            throw client.readFailure("Failed to read Bulk API query results", e);
+        }
+    }
+
+    // Polls the job until it completes; false if the source was closed first
+    private boolean awaitCompletion() throws SQLException {
+        long delay = INITIAL_POLL_MILLIS;
+        while (!closed) {
+            JsonNode job = client.getJson(jobPath("/" + jobId));
+            String state = job.path("state").asText("");
+            switch (state) {
+                case "JobComplete":
+                    complete = true;
+                    return true;
+                case "Failed":
+                case "Aborted":
+                    throw new SQLException("Bulk API query job " + jobId + " " + state.toLowerCase(Locale.ROOT)
+                            + ": " + job.path("errorMessage").asText(""));
+                default:
+                    // cancel() and queryTimeout end the wait rather than the next poll
+                    client.pause(TimeUnit.MILLISECONDS.toNanos(delay));
+                    delay = Math.min(MAX_POLL_MILLIS, delay * 2);
+            }
+        }
+        return false;
+    }
+
+    private void openChunk() throws SQLException, IOException {
+        StringBuilder path = new StringBuilder(jobPath("/" + jobId + "/results"));
+        char separator = '?';
+        if (batchSize > 0) {
+            path.append(separator).append("maxRecords=").append(batchSize);
+            separator = '&';
+        }
+        if (locator != null) {
+            path.append(separator).append("locator=").append(URLEncoder.encode(locator, StandardCharsets.UTF_8));
+        }
+        HttpResponse<InputStream> response = client.send(client.request(path.toString(), "text/csv").GET());
+        String next = response.headers().firstValue("Sforce-Locator").orElse(null);
+        locator = next == null || next.isEmpty() || next.equals("null") ? null : next;
+        reader = new CsvReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+        String[] header = reader.readRow();
+        if (header == null) {
+            header = new String[0];
+        }
+        if (plan == null) {
+            plan = ColumnPlan.fromFieldNames(Arrays.asList(header));
+        }
+        columnMap = new int[header.length][];
+        for (int i = 0; i < header.length; i++) {
+            columnMap[i] = columnsOf(header[i]);
+        }
+    }
+
+    // A field selected more than once, e.g. by * and by name, fills each of its columns
+    private int[] columnsOf(String name) {
+        int[] columns = new int[plan.getColumnCount()];
+        int count = 0;
+        for (int column = 0; column < plan.getColumnCount(); column++) {
+            if (plan.getResponsePath(column).equalsIgnoreCase(name)) {
+                columns[count++] = column;
+            }
+        }
+        return Arrays.copyOf(columns, count);
+    }
+
+    private ColumnarPage readPage() throws IOException {
+        int pageRows = batchSize > 0 ? batchSize : DEFAULT_PAGE_ROWS;
+        ColumnarPage.Builder builder = null;
+        int rows = 0;
+        String[] row;
+        while (rows < pageRows && (row = reader.readRow()) != null) {
+            if (builder == null) {
+                builder = new ColumnarPage.Builder(plan, pageRows);
+            }
+            for (int i = 0; i < row.length && i < columnMap.length; i++) {
+                for (int column : columnMap[i]) {
+                    builder.set(column, row[i]);
+                }
+            }
+            builder.endRow();
+            rows++;
+        }
+        return builder != null ? builder.build() : null;
+    }
+
+    private void closeChunk() {
+        try {
+            if (reader != null) {
+                reader.close();
+            }
+        } catch (IOException e) {
+            // The chunk has been read; a failure to release it is not worth surfacing
+        }
+        reader = null;
+    }
+
+    @Override
+    public ColumnPlan getColumnPlan() {
+        return plan;
+    }
+
+    @Override
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    // Bulk result chunks are not limited to the REST page sizes; any positive size is sent as maxRecords
+    @Override
+    public void setBatchSize(int fetchSize) {
+        this.batchSize = Math.max(0, fetchSize);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closeChunk();
+        if (!complete) {
+            // Stop the job from running on after the caller has gone away
+            Map<String, Object> abort = new LinkedHashMap<>();
+            abort.put("state", "Aborted");
+            try {
+                // Sent outside the query's control, which may be what cancelled it
+                client.withControl(null).sendJson("PATCH", jobPath("/" + jobId), abort);
+            } catch (SQLException e) {
+                // Best effort; unfinished jobs also expire on their own
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.salesforce.jdbc;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Flattens parent records carrying a child relationship subquery into one row per child
+// record, as the SQL join the query was compiled from returns them. Children past the
+// subquery's first batch are fetched through its nextRecordsUrl, one batch at a time, so a
+// parent with many children spreads over several pages instead of filling one.
+class ChildRowsPageSource implements PageSource {
+    private final PageSource parents;
+    private final RestClient client;
+    private final JoinPlanner.ChildJoin join;
+    private final QueryResponseDecoder childDecoder;
+    private final String[][] childPaths;
+    private final ColumnPlan plan;
+    private long skip;
+    // Rows still to return, or -1 without a LIMIT
+    private long remaining;
+    private boolean done = false;
+    // The parent page being flattened, the parent row within it, and the nextRecordsUrl
+    // of that row's children when they continue past what has been returned so far
+    private ColumnarPage parentPage;
+    private int parentRow;
+    private String pendingChildren;
+    private boolean parentsExhausted = false;
+
+    ChildRowsPageSource(PageSource parents, RestClient client, JoinPlanner.ChildJoin join, ColumnPlan childColumns) {
+        this.parents = parents;
+        this.client = client;
+        this.join = join;
+        this.childDecoder = new QueryResponseDecoder(childColumns);
+        this.childPaths = new String[childColumns.getColumnCount()][];
+        for (int i = 0; i < childPaths.length; i++) {
+            childPaths[i] = childColumns.getResponsePath(i).split("\\.");
+        }
+        this.skip = join.offset;
+        this.remaining = join.limit;
+        ColumnPlan parentColumns = parents.getColumnPlan();
+        FieldType[] types = new FieldType[join.sources.length];
+        for (int i = 0; i < types.length; i++) {
+            int source = join.sources[i];
+            types[i] = source >= 0 ? parentColumns.getType(source) : childColumns.getType(-1 - source);
+        }
+        this.plan = ColumnPlan.fromFieldNames(Arrays.asList(join.labels)).withTypes(types);
+    }
+
+    @Override
+    public ColumnarPage nextPage() throws SQLException {
+        int target = parents.getBatchSize() > 0 ? parents.getBatchSize() : QueryCursor.MAX_BATCH_SIZE;
+        ColumnarPage.Builder out = null;
+        int rows = 0;
+        while (!done && remaining != 0 && rows < target) {
+            if (pendingChildren != null) {
+                // One more batch of the current parent's children; the rest wait for the next page
+                QueryPage more = client.queryMore(pendingChildren, childDecoder, 0);
+                out = out != null ? out : new ColumnarPage.Builder(plan, target);
+                rows += writeFetched(more.getPage(), out);
+                pendingChildren = more.isDone() ? null : more.getNextRecordsUrl();
+                if (pendingChildren == null) {
+                    parentRow++;
+                }
+                continue;
+            }
+            if (parentPage == null || parentRow >= parentPage.getRowCount()) {
+                parentPage = parentsExhausted ? null : parents.nextPage();
+                parentRow = 0;
+                if (parentPage == null) {
+                    parentsExhausted = true;
+                    break;
+                }
+                continue;
+            }
+            out = out != null ? out : new ColumnarPage.Builder(plan, target);
+            rows += flatten(out);
+            if (pendingChildren == null) {
+                parentRow++;
+            }
+        }
+        if (rows > 0) {
+            return out.build();
+        }
+        close();
+        return null;
+    }
+
+    // Writes the current parent's inline child records, leaving pendingChildren set when the
+    // subquery has more batches, and returns how many rows were kept
+    private int flatten(ColumnarPage.Builder out) {
+        int rows = 0;
+        boolean matched = false;
+        Object children = parentPage.getObject(join.childColumn, parentRow);
+        if (children instanceof Map) {
+            Map<?, ?> batch = (Map<?, ?>) children;
+            Object records = batch.get("records");
+            if (records instanceof List) {
+                for (Object record : (List<?>) records) {
+                    matched = true;
+                    if (admit()) {
+                        writeParent(out);
+                        for (int i = 0; i < join.sources.length; i++) {
+                            if (join.sources[i] < 0) {
+                                out.set(i, read(record, childPaths[-1 - join.sources[i]]));
+                            }
+                        }
+                        out.endRow();
+                        rows++;
+                    }
+                }
+            }
+            Object next = batch.get("nextRecordsUrl");
+            if (Boolean.FALSE.equals(batch.get("done")) && next instanceof String && remaining != 0) {
+                pendingChildren = (String) next;
+                matched = true;
+            }
+        }
+        if (!matched && join.outer && admit()) {
+            writeParent(out);
+            out.endRow();
+            rows++;
+        }
+        return rows;
+    }
+
+    private int writeFetched(ColumnarPage fetched, ColumnarPage.Builder out) {
+        int rows = 0;
+        for (int child = 0; child < fetched.getRowCount(); child++) {
+            if (admit()) {
+                writeParent(out);
+                for (int i = 0; i < join.sources.length; i++) {
+                    if (join.sources[i] < 0) {
+                        out.copy(i, fetched, -1 - join.sources[i], child);
+                    }
+                }
+                out.endRow();
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private void writeParent(ColumnarPage.Builder out) {
+        for (int i = 0; i < join.sources.length; i++) {
+            if (join.sources[i] >= 0) {
+                out.copy(i, parentPage, join.sources[i], parentRow);
+            }
+        }
+    }
+
+    // OFFSET and LIMIT count joined rows, not parents
+    private boolean admit() {
+        if (skip > 0) {
+            skip--;
+            return false;
+        }
+        if (remaining > 0) {
+            remaining--;
+        }
+        return true;
+    }
+
+    // Child records arrive as maps keyed by the API's spelling of each field
+    private static Object read(Object record, String[] path) {
+        Object value = record;
+        for (String segment : path) {
+            if (!(value instanceof Map)) {
+                return null;
+            }
+            Map<?, ?> fields = (Map<?, ?>) value;
+            value = fields.get(segment);
+            if (value == null) {
+                for (Map.Entry<?, ?> entry : fields.entrySet()) {
+                    if (segment.equalsIgnoreCase(String.valueOf(entry.getKey()))) {
+                        value = entry.getValue();
+                        break;
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done || remaining == 0 || pendingChildren == null && parents.isDone()
+                && (parentPage == null || parentRow >= parentPage.getRowCount());
+    }
+
+    @Override
+    public ColumnPlan getColumnPlan() {
+        return plan;
+    }
+
+    @Override
+    public int getBatchSize() {
+        return parents.getBatchSize();
+    }
+
+    @Override
+    public void setBatchSize(int fetchSize) {
+        parents.setBatchSize(fetchSize);
+    }
+
+    @Override
+    public void close() {
+        done = true;
+        parents.close();
+    }
+}
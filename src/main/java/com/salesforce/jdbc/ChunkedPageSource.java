@@ -0,0 +1,160 @@
+package com.salesforce.jdbc;
+
+import com.salesforce.jdbc.PrefetchingPageSource.Slot;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs the chunk queries of a split SELECT on up to `parallelism` workers and
+// merges their pages into one stream. Ordered mode returns chunks in range
+// order, each through its own small queue; unordered mode shares one queue
+// and hands pages over as soon as any chunk produces them.
+class ChunkedPageSource extends LookaheadPageSource {
+    static final int CHUNKS_PER_WORKER = 4;
+
+    private static final int PAGES_PER_CHUNK = 2;
+    private static final ExecutorService WORKERS = DriverThreads.newExecutor("salesforce-chunk-");
+
+    private final RestClient client;
+    private final List<String> chunks;
+    private final ColumnPlan plan;
+    private final List<BlockingQueue<Slot>> queues = new ArrayList<>();
+    private final int endsPerQueue;
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final List<Future<?>> workers = new ArrayList<>();
+    private volatile boolean closed = false;
+    private volatile int batchSize;
+    private int currentQueue = 0;
+    private int endsSeen = 0;
+    private boolean done = false;
+
+    ChunkedPageSource(RestClient client, List<String> chunks, ColumnPlan plan,
+                      int parallelism, boolean ordered, int fetchSize) {
+        this.client = client;
+        this.chunks = chunks;
+        this.plan = plan;
+        setBatchSize(fetchSize);
+        if (ordered) {
+            for (int i = 0; i < chunks.size(); i++) {
+                queues.add(new ArrayBlockingQueue<>(PAGES_PER_CHUNK));
+            }
+            endsPerQueue = 1;
+        } else {
+            queues.add(new ArrayBlockingQueue<>(PAGES_PER_CHUNK * parallelism));
+            endsPerQueue = chunks.size();
+        }
+        for (int i = 0; i < Math.min(parallelism, chunks.size()); i++) {
+            workers.add(WORKERS.submit(this::runChunks));
+        }
+    }
+
+    // Returns null when the query cannot be split, leaving it to a single cursor
+    static ChunkedPageSource open(RestClient client, String soql, ColumnPlan plan,
+                                  int parallelism, boolean ordered, int fetchSize) {
+        List<String> chunks = QueryChunker.split(client, soql, plan, parallelism * CHUNKS_PER_WORKER);
+        return chunks == null ? null : new ChunkedPageSource(client, chunks, plan, parallelism, ordered, fetchSize);
+    }
+
+    // Workers claim chunks in range order, so in ordered mode the running chunks
+    // always directly follow the one the caller is reading and cannot starve it
+    private void runChunks() {
+        int index;
+        while (!closed && (index = nextChunk.getAndIncrement()) < chunks.size()) {
+            BlockingQueue<Slot> queue = queues.size() == 1 ? queues.get(0) : queues.get(index);
+            try {
+                QueryResponseDecoder decoder = new QueryResponseDecoder(plan);
+                QueryCursor cursor = new QueryCursor(client, client.query(chunks.get(index), decoder, batchSize),
+                        decoder, batchSize);
+                ColumnarPage page;
+                while (!closed && (page = cursor.nextPage()) != null) {
+                    if (page.getRowCount() > 0) {
+                        queue.put(new Slot(page, null, false));
+                    }
+                }
+                queue.put(PrefetchingPageSource.END);
+            } catch (SQLException e) {
+                offerQuietly(queue, new Slot(null, e, true));
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                offerQuietly(queue, new Slot(null, new SQLException("Failed to fetch query chunk", e), true));
+                return;
+            }
+        }
+    }
+
+    private void offerQuietly(BlockingQueue<Slot> queue, Slot slot) {
+        try {
+            queue.put(slot);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    ColumnarPage readNextPage() throws SQLException {
+        while (!closed && !done) {
+            Slot slot;
+            try {
+                slot = queues.get(currentQueue).take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for the next query page", e);
+            }
+            if (slot == PrefetchingPageSource.END) {
+                if (++endsSeen == endsPerQueue) {
+                    endsSeen = 0;
+                    done = ++currentQueue == queues.size();
+                }
+                continue;
+            }
+            if (slot.error != null) {
+                done = true;
+                throw slot.error;
+            }
+            return slot.page;
+        }
+        return null;
+    }
+
+    @Override
+    public ColumnPlan getColumnPlan() {
+        return plan;
+    }
+
+    @Override
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    // Applies to chunks that have not started yet
+    @Override
+    public void setBatchSize(int fetchSize) {
+        this.batchSize = QueryCursor.clampBatchSize(fetchSize);
+    }
+
+    int getChunkCount() {
+        return chunks.size();
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            for (Future<?> worker : workers) {
+                worker.cancel(true);
+            }
+            for (BlockingQueue<Slot> queue : queues) {
+                queue.clear();
+            }
+        }
+    }
+}
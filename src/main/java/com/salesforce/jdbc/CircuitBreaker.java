@@ -0,0 +1,73 @@
+package com.salesforce.jdbc;
+
+import java.sql.SQLTransientConnectionException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-instance breaker that stops sending once requests keep failing at the
+// network or gateway level. While open, requests fail at once instead of
+// queueing behind timeouts; after the cooldown a single trial request decides
+// whether traffic resumes.
+final class CircuitBreaker {
+    static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    static final long DEFAULT_COOLDOWN_MILLIS = 30_000;
+
+    private static final Map<String, CircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private long cooldownMillis = DEFAULT_COOLDOWN_MILLIS;
+    private int consecutiveFailures = 0;
+    private long openedAt = -1;
+    private boolean trialInFlight = false;
+
+    CircuitBreaker() {
+    }
+
+    static CircuitBreaker forInstance(String instanceUrl) {
+        String key = instanceUrl.endsWith("/") ? instanceUrl.substring(0, instanceUrl.length() - 1) : instanceUrl;
+        return BREAKERS.computeIfAbsent(key.toLowerCase(Locale.ROOT), url -> new CircuitBreaker());
+    }
+
+    synchronized void configure(int failureThreshold, long cooldownMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.cooldownMillis = Math.max(0, cooldownMillis);
+    }
+
+    // Lets a request through, or fails it while the breaker is open
+    synchronized void check() throws SQLTransientConnectionException {
+        if (openedAt < 0) {
+            return;
+        }
+        long waited = System.currentTimeMillis() - openedAt;
+        if (waited >= cooldownMillis && !trialInFlight) {
+            trialInFlight = true;
+            return;
+        }
+        throw new SQLTransientConnectionException("Salesforce instance is failing; requests are paused for "
+                + Math.max(cooldownMillis - waited, 0) + " ms", "CIRCUIT_OPEN");
+    }
+
+    synchronized boolean isOpen() {
+        return openedAt >= 0;
+    }
+
+    synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        openedAt = -1;
+        trialInFlight = false;
+    }
+
+    // The request ended without an answer either way, e.g. it was cancelled
+    synchronized void recordAbandoned() {
+        trialInFlight = false;
+    }
+
+    synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (trialInFlight || consecutiveFailures >= failureThreshold) {
+            openedAt = System.currentTimeMillis();
+        }
+        trialInFlight = false;
+    }
+}
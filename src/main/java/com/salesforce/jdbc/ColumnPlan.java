@@ -0,0 +1,300 @@
+package com.salesforce.jdbc;
+
+import com.salesforce.api.ForceRecord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Ordered columns of a result set, built once per query from the SOQL select
+// list. Index to label is an array load; label to index is a single hash
+// lookup, exact first and then case-insensitive as JDBC requires.
+class ColumnPlan {
+    static final ColumnPlan EMPTY = new ColumnPlan(new String[0], new String[0], new String[0], new FieldType[0]);
+
+    // Reads one column's value out of a record, following relationship paths
+    interface ColumnAccessor {
+        Object read(ForceRecord record);
+    }
+
+    private final String[] labels;
+    private final String[] sources;
+    private final String[] responsePaths;
+    private final ColumnAccessor[] accessors;
+    private final FieldType[] types;
+    private final Map<String, Integer> exactIndex = new HashMap<>();
+    private final Map<String, Integer> foldedIndex = new HashMap<>();
+
+    private ColumnPlan(String[] labels, String[] sources, String[] responsePaths, FieldType[] types) {
+        this.labels = labels;
+        this.sources = sources;
+        this.responsePaths = responsePaths;
+        this.accessors = new ColumnAccessor[responsePaths.length];
+        this.types = types;
+        for (int i = 0; i < responsePaths.length; i++) {
+            accessors[i] = pathAccessor(responsePaths[i]);
+        }
+        for (int i = labels.length - 1; i >= 0; i--) {
+            exactIndex.put(labels[i], i);
+            foldedIndex.put(labels[i].toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    // Returns null when the select list cannot be read, e.g. for SELECT *
+    static ColumnPlan fromSoql(String soql) {
+        String selectList = selectList(soql);
+        if (selectList == null) {
+            return null;
+        }
+        List<String> items = splitTopLevel(selectList);
+        String[] labels = new String[items.size()];
+        String[] sources = new String[items.size()];
+        String[] responsePaths = new String[items.size()];
+        int expression = 0;
+        for (int i = 0; i < items.size(); i++) {
+            String item = items.get(i).trim();
+            if (item.isEmpty() || item.equals("*")) {
+                return null;
+            }
+            if (item.startsWith("(")) {
+                // Child relationship subquery: the column is named after the relationship
+                String inner = item.substring(1, item.lastIndexOf(')'));
+                int from = indexOfKeyword(inner, "FROM", 0);
+                if (from < 0) {
+                    return null;
+                }
+                String relationship = firstWord(inner.substring(from + "FROM".length()));
+                labels[i] = relationship;
+                responsePaths[i] = relationship;
+                continue;
+            }
+            String path = item;
+            String alias = null;
+            int close = item.lastIndexOf(')');
+            String tail = close >= 0 ? item.substring(close + 1).trim() : null;
+            if (tail != null) {
+                path = item.substring(0, close + 1).trim();
+                alias = tail.isEmpty() ? null : tail;
+            } else {
+                String[] words = item.split("\\s+");
+                if (words.length == 2) {
+                    path = words[0];
+                    alias = words[1];
+                } else if (words.length > 2) {
+                    return null;
+                }
+            }
+            String wrapped = wrappedField(path);
+            if (wrapped != null) {
+                // toLabel(), convertCurrency() and FORMAT() keep the field's own name
+                labels[i] = alias != null ? alias : wrapped;
+                sources[i] = wrapped;
+                responsePaths[i] = alias != null ? alias : wrapped;
+            } else if (path.endsWith(")")) {
+                // Unaliased aggregates come back as expr0, expr1, ...
+                labels[i] = alias != null ? alias : "expr" + expression++;
+                sources[i] = path;
+                responsePaths[i] = labels[i];
+            } else {
+                labels[i] = alias != null ? alias : path;
+                sources[i] = path;
+                responsePaths[i] = alias != null ? alias : path;
+            }
+        }
+        return new ColumnPlan(labels, sources, responsePaths, new FieldType[labels.length]);
+    }
+
+    static ColumnPlan fromRecord(ForceRecord record) {
+        return fromFieldNames(record.getFields().keySet());
+    }
+
+    static ColumnPlan fromFieldNames(Collection<String> fieldNames) {
+        String[] labels = fieldNames.toArray(new String[0]);
+        return new ColumnPlan(labels, labels, labels, new FieldType[labels.length]);
+    }
+
+    // The sObject named by the top-level FROM clause
+    static String sObjectOf(String soql) {
+        int from = indexOfKeyword(soql, "FROM", 0);
+        return from < 0 ? null : firstWord(soql.substring(from + "FROM".length()));
+    }
+
+    ColumnPlan withTypes(FieldType[] resolved) {
+        return new ColumnPlan(labels, sources, responsePaths, resolved);
+    }
+
+    // One column per entry of columns, reading that column of this plan; several may read the same one
+    ColumnPlan project(int[] columns) {
+        boolean identity = columns.length == labels.length;
+        for (int i = 0; i < columns.length && identity; i++) {
+            identity = columns[i] == i;
+        }
+        if (identity) {
+            return this;
+        }
+        String[] projectedLabels = new String[columns.length];
+        String[] projectedSources = new String[columns.length];
+        String[] projectedPaths = new String[columns.length];
+        FieldType[] projectedTypes = new FieldType[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            projectedLabels[i] = labels[columns[i]];
+            projectedSources[i] = sources[columns[i]];
+            projectedPaths[i] = responsePaths[columns[i]];
+            projectedTypes[i] = types[columns[i]];
+        }
+        return new ColumnPlan(projectedLabels, projectedSources, projectedPaths, projectedTypes);
+    }
+
+    // Replaces the labels that are non-null, e.g. with SQL aliases the SOQL text could not carry
+    ColumnPlan withLabels(String[] renamed) {
+        String[] relabelled = labels.clone();
+        boolean changed = false;
+        for (int i = 0; i < relabelled.length && i < renamed.length; i++) {
+            if (renamed[i] != null) {
+                relabelled[i] = renamed[i];
+                changed = true;
+            }
+        }
+        return changed ? new ColumnPlan(relabelled, sources, responsePaths, types) : this;
+    }
+
+    int getColumnCount() {
+        return labels.length;
+    }
+
+    String getLabel(int column) {
+        return labels[column];
+    }
+
+    String[] getLabels() {
+        return labels;
+    }
+
+    // The field path or expression a column was selected from, or null for subqueries
+    String getSource(int column) {
+        return sources[column];
+    }
+
+    // The describe type of a column, or null when it is only known from the values
+    FieldType getType(int column) {
+        return types[column];
+    }
+
+    // Where the column's value sits in a query response record, e.g. Account.Name or expr0
+    String getResponsePath(int column) {
+        return responsePaths[column];
+    }
+
+    ColumnAccessor getAccessor(int column) {
+        return accessors[column];
+    }
+
+    // Returns the 0-based column for a label, or -1 if there is none
+    int indexOf(String label) {
+        Integer index = exactIndex.get(label);
+        if (index == null) {
+            index = foldedIndex.get(label.toLowerCase(Locale.ROOT));
+        }
+        return index != null ? index : -1;
+    }
+
+    private static ColumnAccessor pathAccessor(String path) {
+        String[] segments = path.split("\\.");
+        if (segments.length == 1) {
+            return record -> record.getField(path);
+        }
+        return record -> {
+            Object value = record.getField(segments[0]);
+            for (int i = 1; i < segments.length && value != null; i++) {
+                if (value instanceof ForceRecord) {
+                    value = ((ForceRecord) value).getField(segments[i]);
+                } else if (value instanceof Map) {
+                    value = ((Map<?, ?>) value).get(segments[i]);
+                } else {
+                    return null;
+                }
+            }
+            return value;
+        };
+    }
+
+    private static String selectList(String soql) {
+        int start = indexOfKeyword(soql, "SELECT", 0);
+        if (start < 0) {
+            return null;
+        }
+        start += "SELECT".length();
+        int end = indexOfKeyword(soql, "FROM", start);
+        return end < 0 ? null : soql.substring(start, end);
+    }
+
+    // Finds a keyword at parenthesis depth 0 and outside string literals
+    static int indexOfKeyword(String text, String keyword, int from) {
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '\'') {
+                    quoted = false;
+                }
+            } else if (c == '\'') {
+                quoted = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && text.regionMatches(true, i, keyword, 0, keyword.length())
+                    && (i == 0 || !isWordChar(text.charAt(i - 1)))
+                    && (i + keyword.length() == text.length() || !isWordChar(text.charAt(i + keyword.length())))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Custom names such as Date_From__c must not be split at an underscore
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static List<String> splitTopLevel(String list) {
+        List<String> items = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < list.length(); i++) {
+            char c = list.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                items.add(list.substring(start, i));
+                start = i + 1;
+            }
+        }
+        items.add(list.substring(start));
+        return items;
+    }
+
+    private static String wrappedField(String path) {
+        int open = path.indexOf('(');
+        if (open < 0 || !path.endsWith(")")) {
+            return null;
+        }
+        String function = path.substring(0, open).trim().toLowerCase(Locale.ROOT);
+        if (!function.equals("tolabel") && !function.equals("convertcurrency") && !function.equals("format")) {
+            return null;
+        }
+        return path.substring(open + 1, path.length() - 1).trim();
+    }
+
+    private static String firstWord(String text) {
+        return text.trim().split("\\s+")[0];
+    }
+}
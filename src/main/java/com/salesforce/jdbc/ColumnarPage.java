@@ -0,0 +1,548 @@
+package com.salesforce.jdbc;
+
+import com.salesforce.api.ForceRecord;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+// One page of query results stored column by column. Numeric, boolean and
+// temporal columns live in primitive arrays, text in a shared String array,
+// and nulls in a bitmap, so indexed reads need neither hashing nor boxing.
+class ColumnarPage {
+    // DATE holds epoch days, DATETIME epoch milliseconds and TIME milliseconds of the day
+    enum Kind { EMPTY, BOOLEAN, LONG, DOUBLE, DECIMAL, DATE, DATETIME, TIME, STRING, OBJECT }
+
+    private final ColumnPlan plan;
+    private final Column[] columns;
+    private final int rowCount;
+
+    private ColumnarPage(ColumnPlan plan, Column[] columns, int rowCount) {
+        this.plan = plan;
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    static ColumnarPage fromRecords(List<ForceRecord> records, ColumnPlan plan) {
+        Builder builder = new Builder(plan, records.size());
+        int columnCount = plan.getColumnCount();
+        for (ForceRecord record : records) {
+            for (int column = 0; column < columnCount; column++) {
+                builder.set(column, plan.getAccessor(column).read(record));
+            }
+            builder.endRow();
+        }
+        return builder.build();
+    }
+
+    ColumnPlan getPlan() {
+        return plan;
+    }
+
+    int getColumnCount() {
+        return columns.length;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    Kind getKind(int column) {
+        return columns[column].kind;
+    }
+
+    boolean isNull(int column, int row) {
+        return !columns[column].isPresent(row);
+    }
+
+    // The stored epoch value of a DATE, DATETIME or TIME cell
+    long getEpoch(int column, int row) {
+        return columns[column].longs[row];
+    }
+
+    boolean getBoolean(int column, int row) {
+        Column c = columns[column];
+        switch (c.kind) {
+            case BOOLEAN:
+            case LONG:
+                return c.longs[row] != 0;
+            case DOUBLE:
+            case DECIMAL:
+                return c.doubles[row] != 0;
+            case STRING:
+            case OBJECT:
+                return Boolean.parseBoolean(String.valueOf(c.objects[row]));
+            default:
+                return false;
+        }
+    }
+
+    long getLong(int column, int row) {
+        Column c = columns[column];
+        switch (c.kind) {
+            case BOOLEAN:
+            case LONG:
+                return c.longs[row];
+            case DOUBLE:
+            case DECIMAL:
+                return (long) c.doubles[row];
+            case DATE:
+            case DATETIME:
+            case TIME:
+                throw new NumberFormatException("Not a number: " + getString(column, row));
+            case STRING:
+            case OBJECT:
+                return c.objects[row] != null ? Long.parseLong(c.objects[row].toString()) : 0;
+            default:
+                return 0;
+        }
+    }
+
+    double getDouble(int column, int row) {
+        Column c = columns[column];
+        switch (c.kind) {
+            case BOOLEAN:
+            case LONG:
+                return c.longs[row];
+            case DOUBLE:
+            case DECIMAL:
+                return c.doubles[row];
+            case DATE:
+            case DATETIME:
+            case TIME:
+                throw new NumberFormatException("Not a number: " + getString(column, row));
+            case STRING:
+            case OBJECT:
+                return c.objects[row] != null ? Double.parseDouble(c.objects[row].toString()) : 0;
+            default:
+                return 0;
+        }
+    }
+
+    BigDecimal getBigDecimal(int column, int row) {
+        Column c = columns[column];
+        if (!c.isPresent(row)) {
+            return null;
+        }
+        switch (c.kind) {
+            case BOOLEAN:
+            case LONG:
+                return BigDecimal.valueOf(c.longs[row]);
+            case DOUBLE:
+                return BigDecimal.valueOf(c.doubles[row]);
+            case DECIMAL:
+                return (BigDecimal) c.objects[row];
+            default:
+                return new BigDecimal(getString(column, row));
+        }
+    }
+
+    String getString(int column, int row) {
+        Column c = columns[column];
+        if (!c.isPresent(row)) {
+            return null;
+        }
+        switch (c.kind) {
+            case BOOLEAN:
+                return c.longs[row] != 0 ? "true" : "false";
+            case LONG:
+                return Long.toString(c.longs[row]);
+            case DOUBLE:
+                return Double.toString(c.doubles[row]);
+            case DATE:
+            case DATETIME:
+            case TIME:
+                return format(c.kind, c.longs[row]);
+            default:
+                return String.valueOf(c.objects[row]);
+        }
+    }
+
+    Object getObject(int column, int row) {
+        Column c = columns[column];
+        if (!c.isPresent(row)) {
+            return null;
+        }
+        switch (c.kind) {
+            case BOOLEAN:
+                return c.longs[row] != 0;
+            case LONG:
+                return c.longs[row];
+            case DOUBLE:
+                return c.doubles[row];
+            case DATE:
+                return LocalDate.ofEpochDay(c.longs[row]);
+            case DATETIME:
+                return Instant.ofEpochMilli(c.longs[row]);
+            case TIME:
+                return LocalTime.ofNanoOfDay(c.longs[row] * 1_000_000L);
+            default:
+                return c.objects[row];
+        }
+    }
+
+    private static String format(Kind kind, long value) {
+        switch (kind) {
+            case DATE:
+                return IsoTemporal.formatDate(value);
+            case DATETIME:
+                return IsoTemporal.formatDateTime(value);
+            default:
+                return IsoTemporal.formatTime(value);
+        }
+    }
+
+    static final class Builder {
+        private final ColumnPlan plan;
+        private final Column[] columns;
+        private int row = 0;
+
+        Builder(ColumnPlan plan, int expectedRows) {
+            this.plan = plan;
+            this.columns = new Column[plan.getColumnCount()];
+            int capacity = Math.max(16, expectedRows);
+            for (int i = 0; i < columns.length; i++) {
+                FieldType type = plan.getType(i);
+                columns[i] = new Column(capacity, type != null ? type.getKind() : Kind.EMPTY);
+            }
+        }
+
+        // Decodes a raw value once, by the column's describe type when it has one
+        void set(int column, Object value) {
+            if (value == null) {
+                return;
+            }
+            if (value instanceof String) {
+                String text = (String) value;
+                try {
+                    switch (columns[column].kind) {
+                        case BOOLEAN:
+                            setBoolean(column, Boolean.parseBoolean(text));
+                            return;
+                        case LONG:
+                            setLong(column, Long.parseLong(text));
+                            return;
+                        case DOUBLE:
+                            setDouble(column, Double.parseDouble(text));
+                            return;
+                        case DECIMAL:
+                            setDecimal(column, new BigDecimal(text));
+                            return;
+                        case DATE:
+                        case DATETIME:
+                        case TIME:
+                            setTemporal(column, text);
+                            return;
+                        default:
+                            setString(column, text);
+                            return;
+                    }
+                } catch (NumberFormatException e) {
+                    setString(column, text);
+                    return;
+                }
+            }
+            if (value instanceof Boolean) {
+                setBoolean(column, (Boolean) value);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                setLong(column, ((Number) value).longValue());
+            } else if (value instanceof BigDecimal) {
+                setDecimal(column, (BigDecimal) value);
+            } else if (value instanceof Number) {
+                setDouble(column, ((Number) value).doubleValue());
+            } else if (value instanceof CharSequence) {
+                setString(column, value.toString());
+            } else {
+                setObject(column, value);
+            }
+        }
+
+        void setBoolean(int column, boolean value) {
+            Column c = columns[column].prepare(Kind.BOOLEAN, row);
+            if (c.kind == Kind.BOOLEAN) {
+                c.longs[row] = value ? 1 : 0;
+            } else {
+                c.setFallback(row, value);
+            }
+        }
+
+        void setLong(int column, long value) {
+            Column c = columns[column].prepare(Kind.LONG, row);
+            switch (c.kind) {
+                case LONG:
+                    c.longs[row] = value;
+                    break;
+                case DOUBLE:
+                    c.doubles[row] = value;
+                    break;
+                case DECIMAL:
+                    c.doubles[row] = value;
+                    c.objects[row] = BigDecimal.valueOf(value);
+                    break;
+                default:
+                    c.setFallback(row, value);
+            }
+        }
+
+        void setDouble(int column, double value) {
+            Column c = columns[column].prepare(Kind.DOUBLE, row);
+            switch (c.kind) {
+                case DOUBLE:
+                    c.doubles[row] = value;
+                    break;
+                case DECIMAL:
+                    c.doubles[row] = value;
+                    c.objects[row] = BigDecimal.valueOf(value);
+                    break;
+                default:
+                    c.setFallback(row, value);
+            }
+        }
+
+        void setDecimal(int column, BigDecimal value) {
+            Column c = columns[column].prepare(Kind.DECIMAL, row);
+            switch (c.kind) {
+                case DOUBLE:
+                    c.doubles[row] = value.doubleValue();
+                    break;
+                case DECIMAL:
+                    c.doubles[row] = value.doubleValue();
+                    c.objects[row] = value;
+                    break;
+                default:
+                    c.setFallback(row, value);
+            }
+        }
+
+        // Parses Salesforce ISO-8601 text by the column's temporal kind, keeping text that does not parse
+        void setTemporal(int column, CharSequence text) {
+            Kind kind = columns[column].kind;
+            long value;
+            switch (kind) {
+                case DATE:
+                    value = IsoTemporal.parseDate(text);
+                    break;
+                case DATETIME:
+                    value = IsoTemporal.parseDateTime(text);
+                    break;
+                case TIME:
+                    value = IsoTemporal.parseTime(text);
+                    break;
+                default:
+                    value = IsoTemporal.INVALID;
+            }
+            if (value == IsoTemporal.INVALID) {
+                setString(column, text.toString());
+            } else {
+                setEpoch(column, kind, value);
+            }
+        }
+
+        void setEpoch(int column, Kind kind, long value) {
+            Column c = columns[column].prepare(kind, row);
+            if (c.kind == kind) {
+                c.longs[row] = value;
+            } else {
+                c.setFallback(row, format(kind, value));
+            }
+        }
+
+        // Copies a cell of another page without going through its boxed value
+        void copy(int column, ColumnarPage from, int fromColumn, int fromRow) {
+            if (from.isNull(fromColumn, fromRow)) {
+                return;
+            }
+            Kind kind = from.getKind(fromColumn);
+            switch (kind) {
+                case BOOLEAN:
+                    setBoolean(column, from.getBoolean(fromColumn, fromRow));
+                    break;
+                case LONG:
+                    setLong(column, from.getLong(fromColumn, fromRow));
+                    break;
+                case DOUBLE:
+                    setDouble(column, from.getDouble(fromColumn, fromRow));
+                    break;
+                case DECIMAL:
+                    setDecimal(column, from.getBigDecimal(fromColumn, fromRow));
+                    break;
+                case DATE:
+                case DATETIME:
+                case TIME:
+                    setEpoch(column, kind, from.getEpoch(fromColumn, fromRow));
+                    break;
+                case STRING:
+                    setString(column, from.getString(fromColumn, fromRow));
+                    break;
+                default:
+                    setObject(column, from.getObject(fromColumn, fromRow));
+            }
+        }
+
+        void setString(int column, String value) {
+            columns[column].prepare(Kind.STRING, row).setFallback(row, value);
+        }
+
+        void setObject(int column, Object value) {
+            columns[column].prepare(Kind.OBJECT, row).setFallback(row, value);
+        }
+
+        Kind getKind(int column) {
+            return columns[column].kind;
+        }
+
+        void endRow() {
+            row++;
+        }
+
+        ColumnarPage build() {
+            return new ColumnarPage(plan, columns, row);
+        }
+    }
+
+    // A single column vector. The kind comes from the describe type, or else from
+    // the first non-null value, and is widened (LONG -> DOUBLE -> STRING -> OBJECT)
+    // when a later value does not fit.
+    private static final class Column {
+        private Kind kind;
+        private long[] present;
+        private long[] longs;
+        private double[] doubles;
+        private Object[] objects;
+        private int capacity;
+
+        private Column(int capacity, Kind declared) {
+            this.capacity = capacity;
+            this.present = new long[(capacity + 63) >>> 6];
+            this.kind = declared;
+            if (declared != Kind.EMPTY) {
+                allocate();
+            }
+        }
+
+        private boolean isPresent(int row) {
+            int word = row >>> 6;
+            return word < present.length && (present[word] & (1L << row)) != 0;
+        }
+
+        private Column prepare(Kind wanted, int row) {
+            ensureCapacity(row + 1);
+            if (kind != wanted) {
+                widen(wanted, row);
+            }
+            present[row >>> 6] |= 1L << row;
+            return this;
+        }
+
+        private void setFallback(int row, Object value) {
+            if (kind == Kind.STRING && !(value instanceof String)) {
+                objects[row] = String.valueOf(value);
+            } else {
+                objects[row] = value;
+            }
+        }
+
+        private void widen(Kind wanted, int row) {
+            if (kind == Kind.EMPTY) {
+                kind = wanted;
+                allocate();
+                return;
+            }
+            boolean numeric = wanted == Kind.LONG || wanted == Kind.DOUBLE || wanted == Kind.DECIMAL;
+            if ((kind == Kind.DOUBLE || kind == Kind.DECIMAL) && numeric || kind == Kind.OBJECT) {
+                return;
+            }
+            Kind target;
+            if (kind == Kind.LONG && (wanted == Kind.DOUBLE || wanted == Kind.DECIMAL)) {
+                target = wanted;
+            } else if (wanted == Kind.OBJECT) {
+                target = Kind.OBJECT;
+            } else if (kind == Kind.STRING) {
+                // Scalars arriving in a text column are kept as their text form
+                return;
+            } else {
+                target = Kind.STRING;
+            }
+            Column widened = new Column(capacity, target);
+            for (int r = 0; r < row; r++) {
+                if (isPresent(r)) {
+                    Object value = boxed(r);
+                    if (target == Kind.DOUBLE) {
+                        widened.doubles[r] = ((Number) value).doubleValue();
+                    } else if (target == Kind.DECIMAL) {
+                        widened.doubles[r] = ((Number) value).doubleValue();
+                        widened.objects[r] = BigDecimal.valueOf(((Number) value).longValue());
+                    } else {
+                        widened.setFallback(r, value);
+                    }
+                }
+            }
+            kind = target;
+            longs = widened.longs;
+            doubles = widened.doubles;
+            objects = widened.objects;
+        }
+
+        private Object boxed(int row) {
+            switch (kind) {
+                case BOOLEAN:
+                    return longs[row] != 0;
+                case LONG:
+                    return longs[row];
+                case DOUBLE:
+                    return doubles[row];
+                case DATE:
+                case DATETIME:
+                case TIME:
+                    return format(kind, longs[row]);
+                default:
+                    return objects[row];
+            }
+        }
+
+        private void allocate() {
+            longs = null;
+            doubles = null;
+            objects = null;
+            switch (kind) {
+                case BOOLEAN:
+                case LONG:
+                case DATE:
+                case DATETIME:
+                case TIME:
+                    longs = new long[capacity];
+                    break;
+                case DOUBLE:
+                    doubles = new double[capacity];
+                    break;
+                case DECIMAL:
+                    doubles = new double[capacity];
+                    objects = new Object[capacity];
+                    break;
+                default:
+                    objects = new Object[capacity];
+            }
+        }
+
+        private void ensureCapacity(int rows) {
+            if (rows <= capacity) {
+                return;
+            }
+            int newCapacity = Math.max(rows, capacity * 2);
+            present = Arrays.copyOf(present, (newCapacity + 63) >>> 6);
+            if (longs != null) {
+                longs = Arrays.copyOf(longs, newCapacity);
+            }
+            if (doubles != null) {
+                doubles = Arrays.copyOf(doubles, newCapacity);
+            }
+            if (objects != null) {
+                objects = Arrays.copyOf(objects, newCapacity);
+            }
+            capacity = newCapacity;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.salesforce.jdbc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Sends up to 25 statements as one Composite Batch request, so a whole batch costs a single
+// API call and round trip. Queries run as-is; DML is limited to single-record forms that map
+// directly onto the sObject resources:
+//   INSERT INTO Account (Name, NumberOfEmployees) VALUES ('Acme', 12)
+//   UPDATE Account SET Name = 'Acme' WHERE Id = '001...'
+//   DELETE FROM Account WHERE Id = '001...'
+final class CompositeBatch {
+    static final int MAX_SUBREQUESTS = 25;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern RECORD_ID = Pattern.compile("[a-zA-Z0-9]{15}|[a-zA-Z0-9]{18}");
+    private static final Pattern NAME = Pattern.compile("[A-Za-z][A-Za-z0-9_]*");
+
+    private CompositeBatch() {
+    }
+
+    static final class Subrequest {
+        private final String method;
+        private final String url;
+        private final Map<String, Object> body;
+        private final String soql;
+        private final ColumnPlan columns;
+
+        private Subrequest(String method, String url, Map<String, Object> body, String soql, ColumnPlan columns) {
+            this.method = method;
+            this.url = url;
+            this.body = body;
+            this.soql = soql;
+            this.columns = columns;
+        }
+
+        boolean isQuery() {
+            return soql != null;
+        }
+
+        String getSoql() {
+            return soql;
+        }
+
+        ColumnPlan getColumns() {
+            return columns;
+        }
+
+        private Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("method", method);
+            json.put("url", url);
+            if (body != null) {
+                json.put("richInput", body);
+            }
+            return json;
+        }
+    }
+
+    static boolean isQuery(String sql) {
+        String trimmed = sql.trim();
+        return trimmed.regionMatches(true, 0, "SELECT", 0, 6)
+                && (trimmed.length() == 6 || !Character.isLetterOrDigit(trimmed.charAt(6)));
+    }
+
+    static Subrequest query(String soql, ColumnPlan columns) {
+        return new Subrequest("GET", RestClient.API_VERSION + "/query?q=" + URLEncoder.encode(soql, StandardCharsets.UTF_8), null,
+                soql, columns);
+    }
+
+    // Statements are checked when they are added, so an unsupported one never reaches the server
+    static Subrequest dml(String sql) throws SQLException {
+        Tokens tokens = new Tokens(sql);
+        String verb = tokens.keyword();
+        Subrequest subrequest;
+        switch (verb) {
+            case "INSERT":
+                subrequest = insert(tokens);
+                break;
+            case "UPDATE":
+                subrequest = update(tokens);
+                break;
+            case "DELETE":
+                subrequest = delete(tokens);
+                break;
+            default:
+                throw new SQLFeatureNotSupportedException("Unsupported batch statement: " + sql);
+        }
+        tokens.expectEnd();
+        return subrequest;
+    }
+
+    private static Subrequest insert(Tokens tokens) throws SQLException {
+        tokens.expectKeyword("INTO");
+        String sObject = tokens.name();
+        List<String> fields = new ArrayList<>();
+        tokens.expect("(");
+        do {
+            fields.add(tokens.name());
+        } while (tokens.accept(","));
+        tokens.expect(")");
+        tokens.expectKeyword("VALUES");
+        tokens.expect("(");
+        Map<String, Object> record = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                tokens.expect(",");
+            }
+            record.put(fields.get(i), tokens.literal());
+        }
+        tokens.expect(")");
+        return new Subrequest("POST", sObjectUrl(sObject), record, null, null);
+    }
+
+    private static Subrequest update(Tokens tokens) throws SQLException {
+        String sObject = tokens.name();
+        tokens.expectKeyword("SET");
+        Map<String, Object> record = new LinkedHashMap<>();
+        do {
+            String field = tokens.name();
+            tokens.expect("=");
+            record.put(field, tokens.literal());
+        } while (tokens.accept(","));
+        return new Subrequest("PATCH", sObjectUrl(sObject) + "/" + whereId(tokens), record, null, null);
+    }
+
+    private static Subrequest delete(Tokens tokens) throws SQLException {
+        tokens.expectKeyword("FROM");
+        String sObject = tokens.name();
+        return new Subrequest("DELETE", sObjectUrl(sObject) + "/" + whereId(tokens), null, null, null);
+    }
+
+    private static String whereId(Tokens tokens) throws SQLException {
+        tokens.expectKeyword("WHERE");
+        if (!tokens.name().equalsIgnoreCase("Id")) {
+            throw new SQLFeatureNotSupportedException("Batched UPDATE and DELETE must select a single record by Id");
+        }
+        tokens.expect("=");
+        Object id = tokens.literal();
+        if (!(id instanceof String) || !RECORD_ID.matcher((String) id).matches()) {
+            throw new SQLException("Invalid record Id: " + id);
+        }
+        return (String) id;
+    }
+
+    private static String sObjectUrl(String sObject) {
+        return RestClient.API_VERSION + "/sobjects/" + sObject;
+    }
+
+    // Runs one group of subrequests; the result nodes line up with the subrequests. Subrequests
+    // fail independently, so one failure does not stop the ones after it.
+    static List<JsonNode> execute(RestClient client, List<Subrequest> subrequests) throws SQLException {
+        if (subrequests.size() > MAX_SUBREQUESTS) {
+            throw new SQLException("A composite batch holds at most " + MAX_SUBREQUESTS + " subrequests");
+        }
+        List<Map<String, Object>> batchRequests = new ArrayList<>(subrequests.size());
+        for (Subrequest subrequest : subrequests) {
+            batchRequests.add(subrequest.toJson());
+        }
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("haltOnError", false);
+        request.put("batchRequests", batchRequests);
+        JsonNode results = client.sendJson("POST", RestClient.dataPath("/composite/batch"), request).path("results");
+        if (!results.isArray() || results.size() != subrequests.size()) {
+            throw new SQLException("Composite batch returned " + results.size() + " results for " + subrequests.size() + " subrequests");
+        }
+        List<JsonNode> nodes = new ArrayList<>(results.size());
+        results.forEach(nodes::add);
+        return nodes;
+    }
+
+    static boolean succeeded(JsonNode result) {
+        int status = result.path("statusCode").asInt();
+        return status >= 200 && status < 300;
+    }
+
+    static SQLException failure(JsonNode result) {
+        byte[] body;
+        try {
+            body = MAPPER.writeValueAsBytes(result.path("result"));
+        } catch (IOException e) {
+            body = new byte[0];
+        }
+        return RestClient.error(result.path("statusCode").asInt(), new ByteArrayInputStream(body));
+    }
+
+    // The embedded query result has the same shape as a /query response, so it goes through the page decoder
+    static QueryPage decodeQuery(JsonNode result, QueryResponseDecoder decoder) throws SQLException {
+        try {
+            return decoder.decode(new ByteArrayInputStream(MAPPER.writeValueAsBytes(result.path("result"))));
+        } catch (IOException e) {
+            throw new SQLException("Failed to read batched query result", e);
+        }
+    }
+
+    // Just enough of a lexer for the DML forms above: names, literals and ( ) , =
+    private static final class Tokens {
+        private final String sql;
+        private int pos;
+
+        Tokens(String sql) {
+            this.sql = sql;
+        }
+
+        private void skipSpace() {
+            while (pos < sql.length() && Character.isWhitespace(sql.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean accept(String symbol) {
+            skipSpace();
+            if (sql.startsWith(symbol, pos)) {
+                pos += symbol.length();
+                return true;
+            }
+            return false;
+        }
+
+        void expect(String symbol) throws SQLException {
+            if (!accept(symbol)) {
+                throw unexpected("'" + symbol + "'");
+            }
+        }
+
+        String name() throws SQLException {
+            skipSpace();
+            int start = pos;
+            while (pos < sql.length() && (Character.isLetterOrDigit(sql.charAt(pos)) || sql.charAt(pos) == '_')) {
+                pos++;
+            }
+            String name = sql.substring(start, pos);
+            if (!NAME.matcher(name).matches()) {
+                pos = start;
+                throw unexpected("a name");
+            }
+            return name;
+        }
+
+        String keyword() throws SQLException {
+            return name().toUpperCase(Locale.ROOT);
+        }
+
+        void expectKeyword(String keyword) throws SQLException {
+            int start = pos;
+            if (!keyword().equals(keyword)) {
+                pos = start;
+                throw unexpected(keyword);
+            }
+        }
+
+        Object literal() throws SQLException {
+            skipSpace();
+            if (pos < sql.length() && sql.charAt(pos) == '\'') {
+                StringBuilder value = new StringBuilder();
+                for (pos++; pos < sql.length(); pos++) {
+                    char c = sql.charAt(pos);
+                    if (c == '\'') {
+                        if (pos + 1 < sql.length() && sql.charAt(pos + 1) == '\'') {
+                            value.append('\'');
+                            pos++;
+                        } else {
+                            pos++;
+                            return value.toString();
+                        }
+                    } else {
+                        value.append(c);
+                    }
+                }
+                throw new SQLException("Unterminated string literal in: " + sql);
+            }
+            int start = pos;
+            if (pos < sql.length() && (sql.charAt(pos) == '-' || sql.charAt(pos) == '+')) {
+                pos++;
+            }
+            while (pos < sql.length() && (Character.isDigit(sql.charAt(pos)) || sql.charAt(pos) == '.')) {
+                pos++;
+            }
+            if (pos > start) {
+                try {
+                    return new BigDecimal(sql.substring(start, pos));
+                } catch (NumberFormatException e) {
+                    pos = start;
+                    throw unexpected("a literal");
+                }
+            }
+            switch (keyword()) {
+                case "NULL":
+                    return null;
+                case "TRUE":
+                    return Boolean.TRUE;
+                case "FALSE":
+                    return Boolean.FALSE;
+                default:
+                    pos = start;
+                    throw unexpected("a literal");
+            }
+        }
+
+        void expectEnd() throws SQLException {
+            accept(";");
+            skipSpace();
+            if (pos < sql.length()) {
+                throw unexpected("end of statement");
+            }
+        }
+
+        private SQLException unexpected(String expected) {
+            return new SQLSyntaxErrorException("Expected " + expected + " at position " + pos + " in: " + sql);
+        }
+    }
+}
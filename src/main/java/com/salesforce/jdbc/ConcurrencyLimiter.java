@@ -0,0 +1,141 @@
+package com.salesforce.jdbc;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Adaptive cap on the requests one process has in flight against an org.
+// The limit grows by one per round of requests while latency stays near its
+// unloaded level, halves when Salesforce reports throttling, and backs off
+// gently when latency climbs. Requests over the limit wait in arrival order.
+final class ConcurrencyLimiter {
+    static final int DEFAULT_MAX_LIMIT = 25;
+
+    private static final int INITIAL_LIMIT = 4;
+    // Latency this far above the unloaded baseline counts as congestion
+    private static final double CONGESTION_RATIO = 2.0;
+    private static final double LATENCY_BACKOFF = 0.9;
+    private static final double THROTTLE_BACKOFF = 0.5;
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final Map<String, ConcurrencyLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<Object> waiters = new ArrayDeque<>();
+    private int maxLimit = DEFAULT_MAX_LIMIT;
+    private double limit = INITIAL_LIMIT;
+    private int inFlight = 0;
+    private double baselineNanos = 0;
+    private double smoothedNanos = 0;
+
+    ConcurrencyLimiter() {
+    }
+
+    // All connections to one instance share its org's concurrency
+    static ConcurrencyLimiter forInstance(String instanceUrl) {
+        String key = instanceUrl.endsWith("/") ? instanceUrl.substring(0, instanceUrl.length() - 1) : instanceUrl;
+        return LIMITERS.computeIfAbsent(key.toLowerCase(Locale.ROOT), url -> new ConcurrencyLimiter());
+    }
+
+    void setMaxLimit(int maxLimit) {
+        lock.lock();
+        try {
+            this.maxLimit = Math.max(1, maxLimit);
+            limit = Math.min(limit, this.maxLimit);
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks until a slot is free and this caller is first in line. The wait is
+    // checked against the execution's cancel and deadline every few milliseconds.
+    void acquire(QueryControl control) throws SQLException, InterruptedException {
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                return;
+            }
+            Object ticket = new Object();
+            waiters.addLast(ticket);
+            try {
+                while (waiters.peekFirst() != ticket || inFlight >= (int) limit) {
+                    if (control != null) {
+                        control.check();
+                    }
+                    available.awaitNanos(WAIT_SLICE_NANOS);
+                }
+            } finally {
+                waiters.remove(ticket);
+                available.signalAll();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Frees the slot and adapts the limit to how the request went; latencyNanos < 0 means it failed without a response
+    void release(long latencyNanos, boolean throttled) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (throttled) {
+                limit = Math.max(1, limit * THROTTLE_BACKOFF);
+            } else if (latencyNanos >= 0) {
+                adapt(latencyNanos);
+            }
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Salesforce said too many requests after the response had already been counted as fine
+    void throttled() {
+        lock.lock();
+        try {
+            limit = Math.max(1, limit * THROTTLE_BACKOFF);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adapt(long latencyNanos) {
+        // The baseline follows the fastest responses and drifts up slowly, so a lasting
+        // change in the workload becomes the new normal instead of a permanent brake
+        baselineNanos = baselineNanos == 0 ? latencyNanos : Math.min(latencyNanos, baselineNanos * 1.01);
+        smoothedNanos = smoothedNanos == 0 ? latencyNanos : smoothedNanos * 0.9 + latencyNanos * 0.1;
+        if (smoothedNanos > baselineNanos * CONGESTION_RATIO) {
+            limit = Math.max(1, limit * LATENCY_BACKOFF);
+        } else if (inFlight + 1 >= (int) limit) {
+            // Only grow when the current limit is actually being used
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
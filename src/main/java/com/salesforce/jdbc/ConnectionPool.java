@@ -0,0 +1,315 @@
+package com.salesforce.jdbc;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded pool of physical connections. Idle connections are reused most
+// recently returned first, retired once they outlive maxLifetime, and only
+// re-validated against the server after sitting idle for a while.
+class ConnectionPool implements ConnectionEventListener {
+    interface Factory {
+        SalesforcePooledConnection create() throws SQLException;
+    }
+
+    static final class Config {
+        int minIdle = 0;
+        int maxIdle = 8;
+        int maxPoolSize = 8;
+        long maxLifetimeMillis = TimeUnit.MINUTES.toMillis(30);
+        long borrowTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+        long validateAfterIdleMillis = TimeUnit.SECONDS.toMillis(30);
+        int validationTimeoutSeconds = 5;
+    }
+
+    private static final long MAINTENANCE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ScheduledExecutorService MAINTENANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "salesforce-pool-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Factory factory;
+    private final Config config;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<Entry> idle = new ArrayDeque<>();
+    private final Map<SalesforcePooledConnection, Entry> entries = new IdentityHashMap<>();
+    private final ScheduledFuture<?> maintenance;
+    private int creating = 0;
+    private boolean closed = false;
+
+    ConnectionPool(Factory factory, Config config) {
+        this.factory = factory;
+        this.config = config;
+        this.maintenance = MAINTENANCE.scheduleWithFixedDelay(this::maintain,
+                0, MAINTENANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    Connection borrow() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.borrowTimeoutMillis);
+        while (true) {
+            Entry entry = null;
+            lock.lock();
+            try {
+                while (entry == null) {
+                    if (closed) {
+                        throw new SQLException("DataSource is closed");
+                    }
+                    entry = idle.pollFirst();
+                    if (entry == null && entries.size() + creating < config.maxPoolSize) {
+                        creating++;
+                        break;
+                    }
+                    if (entry == null) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            throw new SQLTransientConnectionException("Timed out after " + config.borrowTimeoutMillis
+                                    + " ms waiting for a connection; all " + config.maxPoolSize + " are in use");
+                        }
+                        available.awaitNanos(remaining);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            } finally {
+                lock.unlock();
+            }
+            if (entry == null) {
+                entry = create();
+            } else if (!isUsable(entry)) {
+                destroy(entry);
+                continue;
+            }
+            try {
+                return entry.pooled.getConnection();
+            } catch (SQLException e) {
+                destroy(entry);
+                throw e;
+            }
+        }
+    }
+
+    private Entry create() throws SQLException {
+        SalesforcePooledConnection pooled = null;
+        try {
+            pooled = factory.create();
+            pooled.addConnectionEventListener(this);
+            return register(pooled);
+        } finally {
+            lock.lock();
+            try {
+                creating--;
+                if (pooled == null) {
+                    available.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Entry register(SalesforcePooledConnection pooled) {
+        Entry entry = new Entry(pooled);
+        lock.lock();
+        try {
+            entries.put(pooled, entry);
+        } finally {
+            lock.unlock();
+        }
+        return entry;
+    }
+
+    // Lifetime and liveness are checked locally; the server is asked only about connections idle past the threshold
+    private boolean isUsable(Entry entry) {
+        long now = System.currentTimeMillis();
+        try {
+            if (isExpired(entry, now) || entry.pooled.getPhysicalConnection().isClosed()) {
+                return false;
+            }
+            if (now - entry.lastReturned >= config.validateAfterIdleMillis) {
+                return entry.pooled.getPhysicalConnection().isValid(config.validationTimeoutSeconds);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return config.maxLifetimeMillis > 0 && now - entry.createdAt >= config.maxLifetimeMillis;
+    }
+
+    @Override
+    public void connectionClosed(ConnectionEvent event) {
+        SalesforcePooledConnection pooled = (SalesforcePooledConnection) event.getSource();
+        Entry entry;
+        boolean keep;
+        lock.lock();
+        try {
+            entry = entries.get(pooled);
+            if (entry == null) {
+                return;
+            }
+            keep = !closed && idle.size() < config.maxIdle && !isExpired(entry, System.currentTimeMillis());
+            if (keep) {
+                entry.lastReturned = System.currentTimeMillis();
+                idle.addFirst(entry);
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!keep) {
+            destroy(entry);
+        }
+    }
+
+    @Override
+    public void connectionErrorOccurred(ConnectionEvent event) {
+        Entry entry;
+        lock.lock();
+        try {
+            entry = entries.get((SalesforcePooledConnection) event.getSource());
+        } finally {
+            lock.unlock();
+        }
+        if (entry != null) {
+            destroy(entry);
+        }
+    }
+
+    private void destroy(Entry entry) {
+        lock.lock();
+        try {
+            entries.remove(entry.pooled);
+            idle.remove(entry);
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        entry.pooled.removeConnectionEventListener(this);
+        try {
+            entry.pooled.close();
+        } catch (SQLException e) {
+            // Already unusable; nothing more to release
+        }
+    }
+
+    // Retires expired idle connections and tops the pool back up to minIdle
+    private void maintain() {
+        List<Entry> expired = new ArrayList<>();
+        int missing;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            idle.removeIf(entry -> {
+                if (isExpired(entry, now)) {
+                    expired.add(entry);
+                    return true;
+                }
+                return false;
+            });
+            missing = Math.min(config.minIdle - idle.size(),
+                    config.maxPoolSize - (entries.size() - expired.size()) - creating);
+            if (missing > 0) {
+                creating += missing;
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Entry entry : expired) {
+            destroy(entry);
+        }
+        for (int i = 0; i < missing; i++) {
+            try {
+                Entry entry = create();
+                connectionClosed(new ConnectionEvent(entry.pooled));
+            } catch (SQLException | RuntimeException e) {
+                // Retried on the next run; borrowers create connections on demand meanwhile
+                for (int j = i + 1; j < missing; j++) {
+                    releaseCreateSlot();
+                }
+                return;
+            }
+        }
+    }
+
+    private void releaseCreateSlot() {
+        lock.lock();
+        try {
+            creating--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getTotalCount() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        List<Entry> all;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            maintenance.cancel(false);
+            all = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        // Connections still borrowed are closed when their handles are returned
+        for (Entry entry : all) {
+            destroy(entry);
+        }
+    }
+
+    private static final class Entry {
+        private final SalesforcePooledConnection pooled;
+        private final long createdAt = System.currentTimeMillis();
+        private long lastReturned = createdAt;
+
+        private Entry(SalesforcePooledConnection pooled) {
+            this.pooled = pooled;
+        }
+    }
+}
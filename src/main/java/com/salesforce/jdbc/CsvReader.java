@@ -0,0 +1,79 @@
+package com.salesforce.jdbc;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Minimal RFC 4180 reader for Bulk API result files. Rows are read one at a
+// time from a fixed buffer, so a result chunk is never held in memory whole.
+// Salesforce stores no empty strings, so an empty field, quoted or not, is a null.
+class CsvReader implements AutoCloseable {
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position = 0;
+    private int limit = 0;
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> row = new ArrayList<>();
+
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    // Returns the next row, or null at the end of the input
+    String[] readRow() throws IOException {
+        if (!fill()) {
+            return null;
+        }
+        row.clear();
+        while (true) {
+            field.setLength(0);
+            int c = read();
+            if (c == '"') {
+                while (true) {
+                    c = read();
+                    if (c < 0) {
+                        throw new IOException("Unterminated quoted field in CSV result");
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            break;
+                        }
+                    }
+                    field.append((char) c);
+                }
+            }
+            while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                field.append((char) c);
+                c = read();
+            }
+            row.add(field.length() > 0 ? field.toString() : null);
+            if (c == ',') {
+                continue;
+            }
+            if (c == '\r' && fill() && buffer[position] == '\n') {
+                position++;
+            }
+            return row.toArray(new String[0]);
+        }
+    }
+
+    private int read() throws IOException {
+        return fill() ? buffer[position++] : -1;
+    }
+
+    private boolean fill() throws IOException {
+        if (position < limit) {
+            return true;
+        }
+        limit = in.read(buffer, 0, buffer.length);
+        position = 0;
+        return limit > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
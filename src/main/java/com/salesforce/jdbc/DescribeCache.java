@@ -0,0 +1,201 @@
+package com.salesforce.jdbc;
+
+import com.salesforce.api.DescribeSObject;
+
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// sObject describes fetched once per connection and indexed by lower-case field name
+class DescribeCache implements SoqlGenerator.FieldSource {
+    private final SalesforceConnection connection;
+    private final Map<String, SObjectFields> describes = new ConcurrentHashMap<>();
+    // Query sObjects whose columns could not be typed; they are not described again for it
+    private final Set<String> untyped = ConcurrentHashMap.newKeySet();
+
+    DescribeCache(SalesforceConnection connection) {
+        this.connection = connection;
+    }
+
+    SObjectFields get(String sObject) throws SQLException {
+        String key = sObject.toLowerCase(Locale.ROOT);
+        SObjectFields fields = describes.get(key);
+        if (fields == null) {
+            fields = new SObjectFields(connection.describeSObject(sObject));
+            describes.put(key, fields);
+        }
+        return fields;
+    }
+
+    @Override
+    public List<String> fieldsOf(String sObject) throws SQLException {
+        return get(sObject).selectableFields();
+    }
+
+    @Override
+    public String childSObject(String parentSObject, String relationshipName) throws SQLException {
+        String child = get(parentSObject).childOf(relationshipName);
+        if (child == null) {
+            throw new SQLSyntaxErrorException("No child relationship " + relationshipName + " on " + parentSObject);
+        }
+        return child;
+    }
+
+    @Override
+    public String parentRelationship(String sObject, String field, String parentSObject) throws SQLException {
+        DescribeSObject.Field lookup = get(sObject).field(field);
+        if (lookup == null || lookup.getRelationshipName() == null || lookup.getReferenceTo() == null) {
+            return null;
+        }
+        // Polymorphic lookups such as WhoId only offer a few common fields through the relationship
+        List<String> referenceTo = lookup.getReferenceTo();
+        return referenceTo.size() == 1 && referenceTo.get(0).equalsIgnoreCase(parentSObject) ? lookup.getRelationshipName() : null;
+    }
+
+    @Override
+    public String childRelationship(String parentSObject, String childSObject, String field) throws SQLException {
+        return get(parentSObject).childRelationship(childSObject, field);
+    }
+
+    // Best effort: columns whose type cannot be resolved stay null and are typed from their values.
+    // A failed describe leaves every column of the sObject's queries untyped for the connection's life.
+    FieldType[] resolveTypes(String sObject, ColumnPlan plan) {
+        FieldType[] types = new FieldType[plan.getColumnCount()];
+        if (sObject == null || untyped.contains(sObject.toLowerCase(Locale.ROOT))) {
+            return types;
+        }
+        for (int i = 0; i < types.length; i++) {
+            String source = plan.getSource(i);
+            if (source == null) {
+                continue;
+            }
+            try {
+                types[i] = resolve(sObject, source);
+            } catch (SQLException e) {
+                untyped.add(sObject.toLowerCase(Locale.ROOT));
+                return new FieldType[types.length];
+            }
+        }
+        return types;
+    }
+
+    private FieldType resolve(String sObject, String source) throws SQLException {
+        int open = source.indexOf('(');
+        if (open >= 0) {
+            String function = source.substring(0, open).trim().toUpperCase(Locale.ROOT);
+            String argument = source.substring(open + 1, source.lastIndexOf(')')).trim();
+            switch (function) {
+                case "COUNT":
+                case "COUNT_DISTINCT":
+                    return FieldType.INTEGER;
+                case "AVG":
+                    return FieldType.DOUBLE;
+                case "SUM":
+                case "MIN":
+                case "MAX":
+                    return argument.isEmpty() ? null : resolve(sObject, argument);
+                default:
+                    return null;
+            }
+        }
+        String[] segments = source.split("\\.");
+        SObjectFields fields = get(sObject);
+        for (int i = 0; i < segments.length - 1; i++) {
+            String parent = fields.parentOf(segments[i]);
+            if (parent == null) {
+                return null;
+            }
+            fields = get(parent);
+        }
+        DescribeSObject.Field field = fields.field(segments[segments.length - 1]);
+        return field != null ? FieldType.fromDescribe(field.getType()) : null;
+    }
+
+    static final class SObjectFields {
+        private final DescribeSObject describe;
+        private final Map<String, DescribeSObject.Field> byName = new HashMap<>();
+        private final Map<String, DescribeSObject.Field> byRelationship = new HashMap<>();
+        private final Map<String, DescribeSObject.ChildRelationship> children = new HashMap<>();
+        private final List<String> selectable = new ArrayList<>();
+
+        private SObjectFields(DescribeSObject describe) {
+            this.describe = describe;
+            for (DescribeSObject.Field field : describe.getFields()) {
+                byName.put(field.getName().toLowerCase(Locale.ROOT), field);
+                if (field.getRelationshipName() != null) {
+                    byRelationship.put(field.getRelationshipName().toLowerCase(Locale.ROOT), field);
+                }
+                if (isSelectable(field)) {
+                    selectable.add(field.getName());
+                }
+            }
+            if (describe.getChildRelationships() != null) {
+                for (DescribeSObject.ChildRelationship child : describe.getChildRelationships()) {
+                    if (child.getRelationshipName() != null) {
+                        children.put(child.getRelationshipName().toLowerCase(Locale.ROOT), child);
+                    }
+                }
+            }
+        }
+
+        // Compound address and location fields repeat their component fields, and base64
+        // bodies can only be queried one record at a time, so * leaves them out
+        private static boolean isSelectable(DescribeSObject.Field field) {
+            String type = field.getType() != null ? field.getType().toLowerCase(Locale.ROOT) : "";
+            switch (type) {
+                case "address":
+                case "location":
+                case "base64":
+                    return false;
+                default:
+                    return true;
+            }
+        }
+
+        // The fields SELECT * stands for, in describe order
+        List<String> selectableFields() {
+            return Collections.unmodifiableList(selectable);
+        }
+
+        DescribeSObject getDescribe() {
+            return describe;
+        }
+
+        DescribeSObject.Field field(String name) {
+            return byName.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        // The sObject a parent relationship such as Account or Owner points to
+        String parentOf(String relationshipName) {
+            DescribeSObject.Field field = byRelationship.get(relationshipName.toLowerCase(Locale.ROOT));
+            if (field == null) {
+                return null;
+            }
+            List<String> referenceTo = field.getReferenceTo();
+            return referenceTo != null && !referenceTo.isEmpty() ? referenceTo.get(0) : null;
+        }
+
+        // The sObject a child relationship such as Contacts holds
+        String childOf(String relationshipName) {
+            DescribeSObject.ChildRelationship child = children.get(relationshipName.toLowerCase(Locale.ROOT));
+            return child != null ? child.getChildSObject() : null;
+        }
+
+        // The name of the child relationship formed by childSObject's lookup field, if it has one
+        String childRelationship(String childSObject, String field) {
+            for (DescribeSObject.ChildRelationship child : children.values()) {
+                if (child.getChildSObject().equalsIgnoreCase(childSObject) && child.getField().equalsIgnoreCase(field)) {
+                    return child.getRelationshipName();
+                }
+            }
+            return null;
+        }
+    }
+}
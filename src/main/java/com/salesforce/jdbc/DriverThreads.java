@@ -0,0 +1,47 @@
+package com.salesforce.jdbc;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Executors for the driver's background I/O. Work that spends its life blocked
+// on the network runs on virtual threads when the JVM has them (Java 21+),
+// found reflectively so the driver still targets Java 11; older JVMs get a
+// cached pool of daemon platform threads.
+final class DriverThreads {
+    private static final boolean VIRTUAL = !"false".equalsIgnoreCase(System.getProperty("salesforce.jdbc.virtualThreads"));
+
+    private DriverThreads() {
+    }
+
+    static ExecutorService newExecutor(String namePrefix) {
+        if (VIRTUAL) {
+            ExecutorService virtual = newVirtualExecutor(namePrefix);
+            if (virtual != null) {
+                return virtual;
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 1).factory())
+    private static ExecutorService newVirtualExecutor(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 1L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.salesforce.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.Locale;
+
+// Driver-side view of a Salesforce describe field type: how its values are
+// stored in a page and how they are reported through ResultSetMetaData
+enum FieldType {
+    BOOLEAN(ColumnarPage.Kind.BOOLEAN, Types.BOOLEAN, "BOOLEAN", Boolean.class),
+    INTEGER(ColumnarPage.Kind.LONG, Types.INTEGER, "INTEGER", Integer.class),
+    LONG(ColumnarPage.Kind.LONG, Types.BIGINT, "BIGINT", Long.class),
+    DOUBLE(ColumnarPage.Kind.DOUBLE, Types.DOUBLE, "DOUBLE", Double.class),
+    DECIMAL(ColumnarPage.Kind.DECIMAL, Types.DECIMAL, "DECIMAL", BigDecimal.class),
+    DATE(ColumnarPage.Kind.DATE, Types.DATE, "DATE", java.sql.Date.class),
+    DATETIME(ColumnarPage.Kind.DATETIME, Types.TIMESTAMP, "TIMESTAMP", java.sql.Timestamp.class),
+    TIME(ColumnarPage.Kind.TIME, Types.TIME, "TIME", java.sql.Time.class),
+    STRING(ColumnarPage.Kind.STRING, Types.VARCHAR, "VARCHAR", String.class),
+    OBJECT(ColumnarPage.Kind.OBJECT, Types.JAVA_OBJECT, "OBJECT", Object.class);
+
+    private final ColumnarPage.Kind kind;
+    private final int sqlType;
+    private final String sqlTypeName;
+    private final Class<?> javaClass;
+
+    FieldType(ColumnarPage.Kind kind, int sqlType, String sqlTypeName, Class<?> javaClass) {
+        this.kind = kind;
+        this.sqlType = sqlType;
+        this.sqlTypeName = sqlTypeName;
+        this.javaClass = javaClass;
+    }
+
+    static FieldType fromDescribe(String soapType) {
+        if (soapType == null) {
+            return null;
+        }
+        switch (soapType.toLowerCase(Locale.ROOT)) {
+            case "boolean":
+                return BOOLEAN;
+            case "int":
+                return INTEGER;
+            case "long":
+                return LONG;
+            case "double":
+            case "percent":
+                return DOUBLE;
+            case "currency":
+                return DECIMAL;
+            case "date":
+                return DATE;
+            case "datetime":
+                return DATETIME;
+            case "time":
+                return TIME;
+            case "address":
+            case "location":
+            case "anytype":
+                return OBJECT;
+            default:
+                return STRING;
+        }
+    }
+
+    ColumnarPage.Kind getKind() {
+        return kind;
+    }
+
+    int getSqlType() {
+        return sqlType;
+    }
+
+    String getSqlTypeName() {
+        return sqlTypeName;
+    }
+
+    String getJavaClassName() {
+        return javaClass.getName();
+    }
+}
@@ -0,0 +1,236 @@
+package com.salesforce.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Joins two queries in the driver. The build side, the smaller of the two, is read in full
+// and indexed by its key columns; the probe side is then streamed past that index a page at
+// a time, so only the smaller result is ever held in memory.
+class HashJoinPageSource extends LookaheadPageSource {
+    // Rows of a kept build side that found no match are returned in pages of this size
+    private static final int UNMATCHED_PAGE_ROWS = 2000;
+    // The key of every row when the join has no key columns, as in a CROSS JOIN
+    private static final Object NO_KEY = new Object();
+
+    private final PageSource probe;
+    private final int[] probeKeys;
+    private final boolean keepProbe;
+    private final boolean keepBuild;
+    private final boolean[] fromBuild;
+    private final int[] columns;
+    private final ColumnPlan plan;
+    // Build rows are chained per key in the order they arrived: chains maps a key to its first
+    // and last row, next links each row to the one after it
+    private final List<ColumnarPage> buildPages = new ArrayList<>();
+    private final Map<Object, int[]> chains = new HashMap<>();
+    private int[] next = new int[64];
+    private int[] pageOf = new int[64];
+    private int[] rowOf = new int[64];
+    private int buildRows;
+    private final BitSet matched = new BitSet();
+    private int unmatchedFrom = 0;
+    private boolean probing = true;
+    private boolean done = false;
+    private long skip;
+    // Rows still to return, or -1 without a LIMIT
+    private long remaining;
+
+    HashJoinPageSource(PageSource build, int[] buildKeys, boolean keepBuild, PageSource probe, int[] probeKeys, boolean keepProbe,
+                       boolean[] fromBuild, int[] columns, String[] labels, long offset, long limit) throws SQLException {
+        this.probe = probe;
+        this.probeKeys = probeKeys;
+        this.keepProbe = keepProbe;
+        this.keepBuild = keepBuild;
+        this.fromBuild = fromBuild;
+        this.columns = columns;
+        this.skip = offset;
+        this.remaining = limit;
+        ColumnPlan buildPlan = build.getColumnPlan();
+        ColumnPlan probePlan = probe.getColumnPlan();
+        FieldType[] types = new FieldType[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            types[i] = (fromBuild[i] ? buildPlan : probePlan).getType(columns[i]);
+        }
+        this.plan = ColumnPlan.fromFieldNames(Arrays.asList(labels)).withTypes(types);
+        try {
+            ColumnarPage page;
+            while ((page = build.nextPage()) != null) {
+                index(page, buildKeys);
+            }
+        } finally {
+            build.close();
+        }
+    }
+
+    private void index(ColumnarPage page, int[] keys) {
+        int pageIndex = buildPages.size();
+        buildPages.add(page);
+        for (int row = 0; row < page.getRowCount(); row++) {
+            if (buildRows == next.length) {
+                next = Arrays.copyOf(next, buildRows * 2);
+                pageOf = Arrays.copyOf(pageOf, buildRows * 2);
+                rowOf = Arrays.copyOf(rowOf, buildRows * 2);
+            }
+            pageOf[buildRows] = pageIndex;
+            rowOf[buildRows] = row;
+            Object key = key(page, keys, row);
+            next[buildRows] = -1;
+            // Rows with a null key never match, but a kept build side still returns them
+            if (key != null) {
+                int[] chain = chains.get(key);
+                if (chain == null) {
+                    chains.put(key, new int[] {buildRows, buildRows});
+                } else {
+                    next[chain[1]] = buildRows;
+                    chain[1] = buildRows;
+                }
+            }
+            buildRows++;
+        }
+    }
+
+    private static Object key(ColumnarPage page, int[] keys, int row) {
+        if (keys.length == 0) {
+            return NO_KEY;
+        }
+        if (keys.length == 1) {
+            return keyValue(page, keys[0], row);
+        }
+        Object[] values = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = keyValue(page, keys[i], row);
+            if (values[i] == null) {
+                return null;
+            }
+        }
+        return Arrays.asList(values);
+    }
+
+    // Numbers match by value whatever their column kind, so 5 joins with 5.0
+    private static Object keyValue(ColumnarPage page, int column, int row) {
+        if (page.isNull(column, row)) {
+            return null;
+        }
+        switch (page.getKind(column)) {
+            case LONG:
+                return BigDecimal.valueOf(page.getLong(column, row)).stripTrailingZeros();
+            case DOUBLE:
+            case DECIMAL:
+                return page.getBigDecimal(column, row).stripTrailingZeros();
+            default:
+                return page.getObject(column, row);
+        }
+    }
+
+    @Override
+    ColumnarPage readNextPage() throws SQLException {
+        while (!done && remaining != 0) {
+            if (!probing) {
+                return keepBuild ? unmatchedPage() : finish();
+            }
+            ColumnarPage page = probe.nextPage();
+            if (page == null) {
+                probing = false;
+                continue;
+            }
+            ColumnarPage.Builder out = new ColumnarPage.Builder(plan, page.getRowCount());
+            int rows = 0;
+            for (int row = 0; row < page.getRowCount() && remaining != 0; row++) {
+                Object key = key(page, probeKeys, row);
+                int[] chain = key != null ? chains.get(key) : null;
+                for (int match = chain != null ? chain[0] : -1; match >= 0 && remaining != 0; match = next[match]) {
+                    matched.set(match);
+                    if (admit()) {
+                        write(out, page, row, match);
+                        rows++;
+                    }
+                }
+                if (chain == null && keepProbe && admit()) {
+                    write(out, page, row, -1);
+                    rows++;
+                }
+            }
+            if (rows > 0) {
+                return out.build();
+            }
+        }
+        return finish();
+    }
+
+    // Build rows no probe row matched, padded with nulls on the probe side
+    private ColumnarPage unmatchedPage() {
+        ColumnarPage.Builder out = new ColumnarPage.Builder(plan, Math.min(UNMATCHED_PAGE_ROWS, buildRows - unmatchedFrom));
+        int rows = 0;
+        while (rows < UNMATCHED_PAGE_ROWS && remaining != 0) {
+            int row = matched.nextClearBit(unmatchedFrom);
+            if (row >= buildRows) {
+                break;
+            }
+            unmatchedFrom = row + 1;
+            if (admit()) {
+                write(out, null, -1, row);
+                rows++;
+            }
+        }
+        return rows > 0 ? out.build() : finish();
+    }
+
+    private void write(ColumnarPage.Builder out, ColumnarPage probePage, int probeRow, int buildRow) {
+        for (int i = 0; i < columns.length; i++) {
+            if (!fromBuild[i]) {
+                if (probePage != null) {
+                    out.copy(i, probePage, columns[i], probeRow);
+                }
+            } else if (buildRow >= 0) {
+                out.copy(i, buildPages.get(pageOf[buildRow]), columns[i], rowOf[buildRow]);
+            }
+        }
+        out.endRow();
+    }
+
+    // OFFSET and LIMIT count joined rows
+    private boolean admit() {
+        if (skip > 0) {
+            skip--;
+            return false;
+        }
+        if (remaining > 0) {
+            remaining--;
+        }
+        return true;
+    }
+
+    private ColumnarPage finish() {
+        close();
+        return null;
+    }
+
+    @Override
+    public ColumnPlan getColumnPlan() {
+        return plan;
+    }
+
+    @Override
+    public int getBatchSize() {
+        return probe.getBatchSize();
+    }
+
+    @Override
+    public void setBatchSize(int fetchSize) {
+        probe.setBatchSize(fetchSize);
+    }
+
+    @Override
+    public void close() {
+        done = true;
+        probe.close();
+        buildPages.clear();
+        chains.clear();
+    }
+}
@@ -0,0 +1,26 @@
+package com.salesforce.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+
+// Sends the driver's REST requests. The default shares multiplexed HTTP/2
+// clients across all connections; set the httpTransport connection property
+// to a class with a public no-argument constructor to replace it.
+public interface HttpTransport {
+    HttpResponse<InputStream> send(HttpRequest request) throws IOException, InterruptedException;
+
+    // Cancelling the returned future should abort the exchange; the default sends synchronously
+    default CompletableFuture<HttpResponse<InputStream>> sendAsync(HttpRequest request) {
+        try {
+            return CompletableFuture.completedFuture(send(request));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.salesforce.jdbc;
+
+// Parses and formats the ISO-8601 forms Salesforce uses for date, dateTime
+// and time values, e.g. 2024-01-01, 2024-01-01T10:00:00.000+0000 and
+// 10:00:00.000Z. Values are kept as epoch days, epoch milliseconds and
+// milliseconds of the day; parsing reads the characters in place and
+// allocates nothing.
+final class IsoTemporal {
+    // Returned by the parse methods for text that is not in the expected form
+    static final long INVALID = Long.MIN_VALUE;
+
+    static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private IsoTemporal() {
+    }
+
+    // yyyy-MM-dd; a time part after the date is ignored
+    static long parseDate(CharSequence text) {
+        if (text.length() < 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return INVALID;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) {
+            return INVALID;
+        }
+        return epochDay(year, month, day);
+    }
+
+    // yyyy-MM-ddTHH:mm:ss[.fraction][Z|+hh:mm|+hhmm|+hh]; a bare date is read as midnight UTC
+    static long parseDateTime(CharSequence text) {
+        long day = parseDate(text);
+        if (day == INVALID) {
+            return INVALID;
+        }
+        if (text.length() == 10) {
+            return day * MILLIS_PER_DAY;
+        }
+        char separator = text.charAt(10);
+        if (separator != 'T' && separator != 't') {
+            return INVALID;
+        }
+        long time = parseTimeAt(text, 11);
+        return time == INVALID ? INVALID : day * MILLIS_PER_DAY + time;
+    }
+
+    // HH:mm[:ss[.fraction]][Z|offset], normalized to UTC milliseconds of the day
+    static long parseTime(CharSequence text) {
+        long time = parseTimeAt(text, 0);
+        return time == INVALID ? INVALID : Math.floorMod(time, MILLIS_PER_DAY);
+    }
+
+    // Returns UTC milliseconds relative to the start of the day, which may fall outside the day once an offset is applied
+    private static long parseTimeAt(CharSequence text, int start) {
+        int length = text.length();
+        if (length < start + 5 || text.charAt(start + 2) != ':') {
+            return INVALID;
+        }
+        int hour = digits(text, start, 2);
+        int minute = digits(text, start + 3, 2);
+        int second = 0;
+        int millis = 0;
+        int i = start + 5;
+        if (i < length && text.charAt(i) == ':') {
+            second = digits(text, i + 1, 2);
+            i += 3;
+            if (i < length && (text.charAt(i) == '.' || text.charAt(i) == ',')) {
+                i++;
+                int scale = 100;
+                int fractionStart = i;
+                while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                    millis += (text.charAt(i) - '0') * scale;
+                    scale /= 10;
+                    i++;
+                }
+                if (i == fractionStart) {
+                    return INVALID;
+                }
+            }
+        }
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+        long offset = 0;
+        if (i < length) {
+            char sign = text.charAt(i);
+            if (sign == 'Z' || sign == 'z') {
+                i++;
+            } else if (sign == '+' || sign == '-') {
+                int offsetHours = digits(text, i + 1, 2);
+                int offsetMinutes = 0;
+                i += 3;
+                if (i < length && text.charAt(i) == ':') {
+                    i++;
+                }
+                if (i < length) {
+                    offsetMinutes = digits(text, i, 2);
+                    i += 2;
+                }
+                if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                    return INVALID;
+                }
+                offset = (offsetHours * 60L + offsetMinutes) * 60_000L;
+                if (sign == '-') {
+                    offset = -offset;
+                }
+            }
+            if (i != length) {
+                return INVALID;
+            }
+        }
+        return ((hour * 60L + minute) * 60 + second) * 1000 + millis - offset;
+    }
+
+    // Days since 1970-01-01 in the proleptic Gregorian calendar
+    static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    static String formatDate(long epochDay) {
+        char[] out = new char[10];
+        writeDate(out, epochDay);
+        return new String(out);
+    }
+
+    // Salesforce's own form, always in UTC: 2024-01-01T10:00:00.000+0000
+    static String formatDateTime(long epochMillis) {
+        char[] out = new char[28];
+        writeDate(out, Math.floorDiv(epochMillis, MILLIS_PER_DAY));
+        out[10] = 'T';
+        writeTime(out, 11, Math.floorMod(epochMillis, MILLIS_PER_DAY));
+        out[23] = '+';
+        out[24] = '0';
+        out[25] = '0';
+        out[26] = '0';
+        out[27] = '0';
+        return new String(out);
+    }
+
+    static String formatTime(long millisOfDay) {
+        char[] out = new char[13];
+        writeTime(out, 0, millisOfDay);
+        out[12] = 'Z';
+        return new String(out);
+    }
+
+    private static void writeDate(char[] out, long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        write(out, 0, year, 4);
+        out[4] = '-';
+        write(out, 5, month, 2);
+        out[7] = '-';
+        write(out, 8, day, 2);
+    }
+
+    private static void writeTime(char[] out, int start, long millisOfDay) {
+        int millis = (int) millisOfDay;
+        write(out, start, millis / 3_600_000, 2);
+        out[start + 2] = ':';
+        write(out, start + 3, millis / 60_000 % 60, 2);
+        out[start + 5] = ':';
+        write(out, start + 6, millis / 1000 % 60, 2);
+        out[start + 8] = '.';
+        write(out, start + 9, millis % 1000, 3);
+    }
+
+    private static void write(char[] out, int start, int value, int width) {
+        for (int i = start + width - 1; i >= start; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static int digits(CharSequence text, int start, int count) {
+        if (start + count > text.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
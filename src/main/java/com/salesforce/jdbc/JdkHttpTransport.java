@@ -0,0 +1,46 @@
+package com.salesforce.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+// HttpTransport on java.net.http. One client per connect timeout is shared by
+// the whole process, so concurrent queries multiplex over a few HTTP/2
+// connections instead of each connection paying for its own TLS handshakes.
+class JdkHttpTransport implements HttpTransport {
+    static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10_000;
+
+    private static final Map<Long, JdkHttpTransport> SHARED = new ConcurrentHashMap<>();
+
+    private final HttpClient client;
+
+    private JdkHttpTransport(long connectTimeoutMillis) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (connectTimeoutMillis > 0) {
+            builder.connectTimeout(Duration.ofMillis(connectTimeoutMillis));
+        }
+        this.client = builder.build();
+    }
+
+    static JdkHttpTransport shared(long connectTimeoutMillis) {
+        return SHARED.computeIfAbsent(Math.max(connectTimeoutMillis, 0), JdkHttpTransport::new);
+    }
+
+    @Override
+    public HttpResponse<InputStream> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    @Override
+    public CompletableFuture<HttpResponse<InputStream>> sendAsync(HttpRequest request) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+    }
+}
@@ -0,0 +1,777 @@
+package com.salesforce.jdbc;
+
+import com.salesforce.jdbc.SqlAst.Expr;
+
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Plans a SELECT with joins against the objects' describes. Joins along lookup relationships
+// compile into one SOQL query: parents become dot-notation paths and one child object becomes
+// a relationship subquery whose records are flattened back into rows. Two objects with no
+// relationship between them are queried separately and hash-joined in the driver.
+final class JoinPlanner {
+    private enum Role { ROOT, PARENT, CHILD }
+
+    private static final class Table {
+        final SqlAst.TableRef ref;
+        // INNER, LEFT, RIGHT, FULL or CROSS; null for the FROM table
+        String type;
+        final List<Expr> on = new ArrayList<>();
+        Role role;
+        // Relationship path from the FROM object, e.g. [Account, Owner]
+        List<String> prefix = Collections.emptyList();
+        String relationship;
+        // The lookup field of the link, and the table holding it
+        String linkField;
+        Table linkedTo;
+        // ON conditions other than the link itself
+        final List<Expr> filters = new ArrayList<>();
+
+        Table(SqlAst.TableRef ref, String type) {
+            this.ref = ref;
+            this.type = type;
+        }
+
+        String qualifier() {
+            return ref.alias != null ? ref.alias : ref.name;
+        }
+    }
+
+    // a.x = b.y between columns of two different tables
+    private static final class Link {
+        final Table left;
+        final SqlAst.Column leftColumn;
+        final Table right;
+        final SqlAst.Column rightColumn;
+
+        Link(Table left, SqlAst.Column leftColumn, Table right, SqlAst.Column rightColumn) {
+            this.left = left;
+            this.leftColumn = leftColumn;
+            this.right = right;
+            this.rightColumn = rightColumn;
+        }
+
+        SqlAst.Column columnOf(Table table) {
+            return left == table ? leftColumn : rightColumn;
+        }
+    }
+
+    private final String sql;
+    private final SqlAst.Select select;
+    private final SoqlGenerator.FieldSource fields;
+    private final List<Table> tables = new ArrayList<>();
+    private final List<Expr> where = new ArrayList<>();
+
+    private JoinPlanner(String sql, SqlAst.Select select, SoqlGenerator.FieldSource fields) {
+        this.sql = sql;
+        this.select = select;
+        this.fields = fields;
+    }
+
+    static TranslationPlan plan(String sql, SqlAst.Select select, SoqlGenerator.FieldSource fields) throws SQLException {
+        return new JoinPlanner(sql, select, fields).plan();
+    }
+
+    private TranslationPlan plan() throws SQLException {
+        if (select.distinct) {
+            throw unsupported("SELECT DISTINCT is not supported");
+        }
+        tables.add(new Table(select.from, null));
+        for (SqlAst.Join join : select.joins) {
+            Table table = new Table(join.table, join.type);
+            if (join.condition != null) {
+                conjuncts(join.condition, table.on);
+            }
+            tables.add(table);
+        }
+        if (select.where != null) {
+            conjuncts(select.where, where);
+        }
+        // FROM a, b WHERE a.x = b.y is an inner join on a.x = b.y
+        for (int i = 1; i < tables.size(); i++) {
+            Table table = tables.get(i);
+            if (table.type.equals("CROSS")) {
+                for (Expr conjunct : new ArrayList<>(where)) {
+                    Link link = link(conjunct);
+                    if (link != null && (link.left == table || link.right == table)
+                            && tables.indexOf(link.left) <= i && tables.indexOf(link.right) <= i) {
+                        table.on.add(conjunct);
+                        where.remove(conjunct);
+                        table.type = "INNER";
+                    }
+                }
+            }
+        }
+        List<SqlAst.SelectItem> items = expandStars();
+        List<SqlAst.OrderItem> orderBy = new ArrayList<>();
+        for (SqlAst.OrderItem item : select.orderBy) {
+            orderBy.add(new SqlAst.OrderItem(orderTarget(items, item.expr), item.descending, item.nulls));
+        }
+        if (followsRelationships()) {
+            return relationshipPlan(items, orderBy);
+        }
+        if (tables.size() == 2) {
+            return hashJoinPlan(items, orderBy);
+        }
+        throw unsupported("Joins across more than two objects must follow lookup relationships");
+    }
+
+    private static void conjuncts(Expr expr, List<Expr> into) {
+        if (expr instanceof SqlAst.Binary && ((SqlAst.Binary) expr).operator.equals("AND")) {
+            conjuncts(((SqlAst.Binary) expr).left, into);
+            conjuncts(((SqlAst.Binary) expr).right, into);
+        } else {
+            into.add(expr);
+        }
+    }
+
+    private static Expr and(List<Expr> conjuncts) {
+        Expr result = null;
+        for (Expr conjunct : conjuncts) {
+            result = result == null ? conjunct : new SqlAst.Binary("AND", result, conjunct);
+        }
+        return result;
+    }
+
+    // * and t.* become the columns of the tables they cover, qualified by table
+    private List<SqlAst.SelectItem> expandStars() throws SQLException {
+        List<SqlAst.SelectItem> items = new ArrayList<>();
+        for (SqlAst.SelectItem item : select.items) {
+            if (!(item.expr instanceof SqlAst.Star)) {
+                items.add(item);
+                continue;
+            }
+            String qualifier = ((SqlAst.Star) item.expr).qualifier;
+            boolean found = false;
+            for (Table table : tables) {
+                if (qualifier == null || table.ref.matches(qualifier)) {
+                    found = true;
+                    for (String field : fields.fieldsOf(table.ref.name)) {
+                        items.add(new SqlAst.SelectItem(new SqlAst.Column(List.of(table.qualifier(), field)), null));
+                    }
+                }
+            }
+            if (!found) {
+                throw new SQLSyntaxErrorException("Unknown table " + qualifier + " in: " + sql);
+            }
+        }
+        return items;
+    }
+
+    // ORDER BY 2 and ORDER BY alias refer to select items
+    static Expr orderTarget(List<SqlAst.SelectItem> items, Expr expr) throws SQLException {
+        if (expr instanceof SqlAst.Literal && ((SqlAst.Literal) expr).kind == SqlAst.Literal.Kind.NUMBER) {
+            String text = ((SqlAst.Literal) expr).text;
+            int ordinal = text.chars().allMatch(Character::isDigit) && text.length() < 10 ? Integer.parseInt(text) : 0;
+            if (ordinal < 1 || ordinal > items.size()) {
+                throw new SQLSyntaxErrorException("ORDER BY position " + text + " is not in the select list");
+            }
+            return items.get(ordinal - 1).expr;
+        }
+        if (expr instanceof SqlAst.Column && ((SqlAst.Column) expr).path.size() == 1) {
+            String name = ((SqlAst.Column) expr).path.get(0);
+            for (SqlAst.SelectItem item : items) {
+                if (item.alias != null && item.alias.equalsIgnoreCase(name)) {
+                    return item.expr;
+                }
+            }
+        }
+        return expr;
+    }
+
+    // Qualified columns name their table; a bare name belongs to the one object that has
+    // such a field, and otherwise to the FROM object
+    private Table tableOf(SqlAst.Column column) throws SQLException {
+        List<String> path = column.path;
+        if (path.size() > 1) {
+            for (Table table : tables) {
+                if (table.ref.matches(path.get(0))) {
+                    return table;
+                }
+            }
+            return tables.get(0);
+        }
+        Table found = null;
+        for (Table table : tables) {
+            for (String field : fields.fieldsOf(table.ref.name)) {
+                if (field.equalsIgnoreCase(path.get(0))) {
+                    if (found != null) {
+                        throw new SQLSyntaxErrorException("Column " + path.get(0) + " is ambiguous in: " + sql);
+                    }
+                    found = table;
+                    break;
+                }
+            }
+        }
+        return found != null ? found : tables.get(0);
+    }
+
+    private static List<String> pathIn(Table table, SqlAst.Column column) {
+        List<String> path = column.path;
+        return path.size() > 1 && table.ref.matches(path.get(0)) ? path.subList(1, path.size()) : path;
+    }
+
+    private Set<Table> tablesOf(Expr expr) throws SQLException {
+        Set<Table> found = new LinkedHashSet<>();
+        collectTables(expr, found);
+        return found;
+    }
+
+    // Subqueries are left out: SOQL semi-joins are not correlated with the outer query
+    private void collectTables(Expr expr, Set<Table> found) throws SQLException {
+        if (expr instanceof SqlAst.Column) {
+            if (!SoqlGenerator.isDateLiteral(expr)) {
+                found.add(tableOf((SqlAst.Column) expr));
+            }
+        } else if (expr instanceof SqlAst.Binary) {
+            collectTables(((SqlAst.Binary) expr).left, found);
+            collectTables(((SqlAst.Binary) expr).right, found);
+        } else if (expr instanceof SqlAst.Unary) {
+            collectTables(((SqlAst.Unary) expr).operand, found);
+        } else if (expr instanceof SqlAst.In) {
+            SqlAst.In in = (SqlAst.In) expr;
+            collectTables(in.operand, found);
+            if (in.values != null) {
+                for (Expr value : in.values) {
+                    collectTables(value, found);
+                }
+            }
+        } else if (expr instanceof SqlAst.Between) {
+            SqlAst.Between between = (SqlAst.Between) expr;
+            collectTables(between.operand, found);
+            collectTables(between.low, found);
+            collectTables(between.high, found);
+        } else if (expr instanceof SqlAst.IsNull) {
+            collectTables(((SqlAst.IsNull) expr).operand, found);
+        } else if (expr instanceof SqlAst.Function) {
+            for (Expr argument : ((SqlAst.Function) expr).arguments) {
+                collectTables(argument, found);
+            }
+        }
+    }
+
+    // Rewrites columns relative to the object a query runs on: t.Name becomes Name, and a
+    // parent's p.Name becomes its relationship path such as Account.Name
+    private Expr rewrite(Expr expr) throws SQLException {
+        if (expr instanceof SqlAst.Column && !SoqlGenerator.isDateLiteral(expr)) {
+            SqlAst.Column column = (SqlAst.Column) expr;
+            Table table = tableOf(column);
+            List<String> path = new ArrayList<>(table.prefix);
+            path.addAll(pathIn(table, column));
+            return new SqlAst.Column(path);
+        } else if (expr instanceof SqlAst.Binary) {
+            SqlAst.Binary binary = (SqlAst.Binary) expr;
+            return new SqlAst.Binary(binary.operator, rewrite(binary.left), rewrite(binary.right));
+        } else if (expr instanceof SqlAst.Unary) {
+            SqlAst.Unary unary = (SqlAst.Unary) expr;
+            return new SqlAst.Unary(unary.operator, rewrite(unary.operand));
+        } else if (expr instanceof SqlAst.In) {
+            SqlAst.In in = (SqlAst.In) expr;
+            return new SqlAst.In(rewrite(in.operand), in.operator, in.values != null ? rewriteAll(in.values) : null, in.subquery);
+        } else if (expr instanceof SqlAst.Between) {
+            SqlAst.Between between = (SqlAst.Between) expr;
+            return new SqlAst.Between(rewrite(between.operand), rewrite(between.low), rewrite(between.high), between.negated);
+        } else if (expr instanceof SqlAst.IsNull) {
+            SqlAst.IsNull isNull = (SqlAst.IsNull) expr;
+            return new SqlAst.IsNull(rewrite(isNull.operand), isNull.negated);
+        } else if (expr instanceof SqlAst.Function) {
+            SqlAst.Function function = (SqlAst.Function) expr;
+            return new SqlAst.Function(function.name, rewriteAll(function.arguments), function.distinct, function.star);
+        }
+        return expr;
+    }
+
+    private List<Expr> rewriteAll(List<Expr> exprs) throws SQLException {
+        List<Expr> rewritten = new ArrayList<>(exprs.size());
+        for (Expr expr : exprs) {
+            rewritten.add(rewrite(expr));
+        }
+        return rewritten;
+    }
+
+    private Link link(Expr expr) throws SQLException {
+        if (!(expr instanceof SqlAst.Binary) || !((SqlAst.Binary) expr).operator.equals("=")) {
+            return null;
+        }
+        Expr left = ((SqlAst.Binary) expr).left;
+        Expr right = ((SqlAst.Binary) expr).right;
+        if (!(left instanceof SqlAst.Column) || !(right instanceof SqlAst.Column)
+                || SoqlGenerator.isDateLiteral(left) || SoqlGenerator.isDateLiteral(right)) {
+            return null;
+        }
+        Table leftTable = tableOf((SqlAst.Column) left);
+        Table rightTable = tableOf((SqlAst.Column) right);
+        return leftTable != rightTable ? new Link(leftTable, (SqlAst.Column) left, rightTable, (SqlAst.Column) right) : null;
+    }
+
+    // Whether a condition fails when its table's columns are all null, as they are on the
+    // rows an outer join pads out; such a condition turns the outer join into an inner one
+    private static boolean rejectsNull(Expr expr) {
+        if (expr instanceof SqlAst.IsNull) {
+            return ((SqlAst.IsNull) expr).negated;
+        }
+        return !mentionsNull(expr);
+    }
+
+    private static boolean mentionsNull(Expr expr) {
+        if (expr instanceof SqlAst.IsNull) {
+            return true;
+        } else if (expr instanceof SqlAst.Literal) {
+            return ((SqlAst.Literal) expr).kind == SqlAst.Literal.Kind.NULL;
+        } else if (expr instanceof SqlAst.Binary) {
+            return mentionsNull(((SqlAst.Binary) expr).left) || mentionsNull(((SqlAst.Binary) expr).right);
+        } else if (expr instanceof SqlAst.Unary) {
+            return mentionsNull(((SqlAst.Unary) expr).operand);
+        } else if (expr instanceof SqlAst.In && ((SqlAst.In) expr).values != null) {
+            for (Expr value : ((SqlAst.In) expr).values) {
+                if (mentionsNull(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isId(List<String> path) {
+        return path.size() == 1 && path.get(0).equalsIgnoreCase("Id");
+    }
+
+    // Works out, join by join, whether each table is a parent reached through a lookup of
+    // an earlier one or the single child object of the FROM object
+    private boolean followsRelationships() throws SQLException {
+        Table root = tables.get(0);
+        root.role = Role.ROOT;
+        boolean child = false;
+        for (int i = 1; i < tables.size(); i++) {
+            Table table = tables.get(i);
+            if (!table.type.equals("INNER") && !table.type.equals("LEFT")) {
+                return false;
+            }
+            Link link = null;
+            table.filters.clear();
+            for (Expr conjunct : table.on) {
+                Link candidate = link(conjunct);
+                Set<Table> used = tablesOf(conjunct);
+                if (candidate != null && link == null && used.contains(table) && tables.indexOf(candidate.left) <= i
+                        && tables.indexOf(candidate.right) <= i) {
+                    link = candidate;
+                } else if (used.size() == 1 && used.contains(table)) {
+                    table.filters.add(conjunct);
+                } else {
+                    return false;
+                }
+            }
+            if (link == null) {
+                return false;
+            }
+            Table other = link.left == table ? link.right : link.left;
+            List<String> own = pathIn(table, link.columnOf(table));
+            List<String> theirs = pathIn(other, link.columnOf(other));
+            if (isId(own) && other.role != Role.CHILD && theirs.size() == 1) {
+                String relationship = fields.parentRelationship(other.ref.name, theirs.get(0), table.ref.name);
+                // A LEFT JOIN's ON conditions only decide whether the parent shows, which a path cannot say
+                if (relationship == null || (table.type.equals("LEFT") && !table.filters.isEmpty())) {
+                    return false;
+                }
+                table.role = Role.PARENT;
+                table.prefix = new ArrayList<>(other.prefix);
+                table.prefix.add(relationship);
+                table.linkField = theirs.get(0);
+                table.linkedTo = other;
+            } else if (isId(theirs) && other == root && !child && own.size() == 1) {
+                String relationship = fields.childRelationship(root.ref.name, table.ref.name, own.get(0));
+                if (relationship == null) {
+                    return false;
+                }
+                table.role = Role.CHILD;
+                table.relationship = relationship;
+                table.linkField = own.get(0);
+                table.linkedTo = root;
+                child = true;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private TranslationPlan relationshipPlan(List<SqlAst.SelectItem> items, List<SqlAst.OrderItem> orderBy) throws SQLException {
+        Table child = null;
+        List<Expr> rootWhere = new ArrayList<>();
+        for (Table table : tables) {
+            if (table.role == Role.CHILD) {
+                child = table;
+            } else if (table.role == Role.PARENT && table.type.equals("INNER")) {
+                // An inner join drops rows without a parent
+                rootWhere.addAll(table.filters);
+                rootWhere.add(new SqlAst.IsNull(new SqlAst.Column(List.of(table.linkedTo.qualifier(), table.linkField)), true));
+            }
+        }
+        boolean outer = child != null && child.type.equals("LEFT");
+        List<Expr> childWhere = new ArrayList<>();
+        if (child != null) {
+            childWhere.addAll(child.filters);
+        }
+        for (Expr conjunct : where) {
+            Set<Table> used = tablesOf(conjunct);
+            if (child == null || !used.contains(child)) {
+                rootWhere.add(conjunct);
+                continue;
+            }
+            if (used.size() > 1) {
+                throw unsupported("Conditions comparing " + child.ref.name + " with its parent are not supported");
+            }
+            if (outer) {
+                if (!rejectsNull(conjunct)) {
+                    throw unsupported("IS NULL tests on the optional side of a LEFT JOIN are not supported");
+                }
+                outer = false;
+            }
+            childWhere.add(conjunct);
+        }
+
+        SqlAst.Select root = new SqlAst.Select();
+        root.from = new SqlAst.TableRef(tables.get(0).ref.name, null);
+        SqlAst.Select rows = new SqlAst.Select();
+        int[] sources = new int[items.size()];
+        String[] labels = new String[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            SqlAst.SelectItem item = items.get(i);
+            Set<Table> used = tablesOf(item.expr);
+            if (item.expr instanceof SqlAst.Column) {
+                labels[i] = item.alias != null ? item.alias : String.join(".", pathIn(tableOf((SqlAst.Column) item.expr), (SqlAst.Column) item.expr));
+            }
+            if (child != null && used.contains(child)) {
+                if (!(item.expr instanceof SqlAst.Column)) {
+                    throw unsupported("Only columns of " + child.ref.name + " can be selected through a child relationship");
+                }
+                sources[i] = -1 - rows.items.size();
+                rows.items.add(new SqlAst.SelectItem(rewrite(item.expr), null));
+            } else {
+                if (child != null && item.expr instanceof SqlAst.Function && ((SqlAst.Function) item.expr).isAggregate()) {
+                    throw unsupported("Aggregates over a join with a child object are not supported");
+                }
+                sources[i] = root.items.size();
+                // SOQL keeps aliases on aggregates only; field labels are applied to the plan instead
+                root.items.add(new SqlAst.SelectItem(rewrite(item.expr), item.expr instanceof SqlAst.Column ? null : item.alias));
+            }
+        }
+        root.where = and(rewriteAll(rootWhere));
+        root.groupBy.addAll(rewriteAll(select.groupBy));
+        root.having = select.having != null ? rewrite(select.having) : null;
+        root.modifiers.addAll(select.modifiers);
+        if (child != null && (!root.groupBy.isEmpty() || root.having != null)) {
+            throw unsupported("GROUP BY over a join with a child object is not supported");
+        }
+        for (SqlAst.OrderItem item : orderBy) {
+            SqlAst.OrderItem rewritten = new SqlAst.OrderItem(rewrite(item.expr), item.descending, item.nulls);
+            if (child != null && tablesOf(item.expr).contains(child)) {
+                if (tablesOf(item.expr).size() > 1) {
+                    throw unsupported("ORDER BY cannot mix " + child.ref.name + " with its parent in one expression");
+                }
+                rows.orderBy.add(rewritten);
+            } else if (!rows.orderBy.isEmpty()) {
+                throw unsupported("ORDER BY must list the parent's columns before those of " + child.ref.name);
+            } else {
+                root.orderBy.add(rewritten);
+            }
+        }
+        if (child == null) {
+            root.limit = select.limit;
+            root.offset = select.offset;
+            return SoqlGenerator.generate(sql, root, fields).withLabels(labels);
+        }
+
+        if (root.items.isEmpty()) {
+            root.items.add(new SqlAst.SelectItem(new SqlAst.Column(List.of("Id")), null));
+        }
+        if (rows.items.isEmpty()) {
+            rows.items.add(new SqlAst.SelectItem(new SqlAst.Column(List.of("Id")), null));
+        }
+        rows.from = new SqlAst.TableRef(child.ref.name, null);
+        // Typing and decoding the child records goes by the child object's own query
+        TranslationPlan childPlan = SoqlGenerator.generate(sql, rows, fields);
+        SqlAst.Select subquery = new SqlAst.Select();
+        subquery.from = new SqlAst.TableRef(child.relationship, null);
+        subquery.items.addAll(rows.items);
+        subquery.where = and(rewriteAll(childWhere));
+        subquery.orderBy.addAll(rows.orderBy);
+        root.items.add(new SqlAst.SelectItem(new SqlAst.Subquery(subquery), null));
+        if (!outer) {
+            // Parents without a matching child are filtered out by the server rather than fetched
+            SqlAst.Select semiJoin = new SqlAst.Select();
+            semiJoin.from = new SqlAst.TableRef(child.ref.name, null);
+            semiJoin.items.add(new SqlAst.SelectItem(new SqlAst.Column(List.of(child.linkField)), null));
+            semiJoin.where = subquery.where;
+            SqlAst.In in = new SqlAst.In(new SqlAst.Column(List.of("Id")), "IN", null, semiJoin);
+            root.where = root.where != null ? new SqlAst.Binary("AND", root.where, in) : in;
+        }
+        TranslationPlan plan = SoqlGenerator.generate(sql, root, fields);
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i] == null) {
+                labels[i] = plan.getColumns().getLabel(sources[i]);
+            }
+        }
+        ChildJoin join = new ChildJoin(plan.getColumns(), root.items.size() - 1, childPlan, sources, labels, outer,
+                count(sql, select.offset, 0), count(sql, select.limit, -1));
+        return plan.withOperator(join);
+    }
+
+    private TranslationPlan hashJoinPlan(List<SqlAst.SelectItem> items, List<SqlAst.OrderItem> orderBy) throws SQLException {
+        Table left = tables.get(0);
+        Table right = tables.get(1);
+        boolean keepLeft = right.type.equals("LEFT") || right.type.equals("FULL");
+        boolean keepRight = right.type.equals("RIGHT") || right.type.equals("FULL");
+        List<SqlAst.Column> leftKeys = new ArrayList<>();
+        List<SqlAst.Column> rightKeys = new ArrayList<>();
+        List<Expr> leftWhere = new ArrayList<>();
+        List<Expr> rightWhere = new ArrayList<>();
+        for (Expr conjunct : right.on) {
+            Link link = link(conjunct);
+            if (link != null) {
+                leftKeys.add(link.columnOf(left));
+                rightKeys.add(link.columnOf(right));
+                continue;
+            }
+            Set<Table> used = tablesOf(conjunct);
+            Table side = used.size() == 1 ? used.iterator().next() : null;
+            if (side == null) {
+                throw unsupported("Join conditions other than equalities between the two objects are not supported");
+            }
+            // An ON condition on a kept side only decides whether its rows find a match
+            if (side == left ? keepLeft : keepRight) {
+                throw unsupported("ON conditions on the preserved side of an outer join are not supported");
+            }
+            (side == left ? leftWhere : rightWhere).add(conjunct);
+        }
+        List<Expr> conditions = new ArrayList<>();
+        for (Expr conjunct : where) {
+            Link link = link(conjunct);
+            if (link != null) {
+                keepLeft = false;
+                keepRight = false;
+                leftKeys.add(link.columnOf(left));
+                rightKeys.add(link.columnOf(right));
+                continue;
+            }
+            if (tablesOf(conjunct).size() > 1) {
+                throw unsupported("Conditions comparing the two objects must be equalities");
+            }
+            conditions.add(conjunct);
+            Table side = tablesOf(conjunct).contains(right) ? right : left;
+            if (rejectsNull(conjunct)) {
+                // Padded rows cannot pass, so the other side no longer needs keeping
+                if (side == left) {
+                    keepRight = false;
+                } else {
+                    keepLeft = false;
+                }
+            }
+        }
+        for (Expr conjunct : conditions) {
+            Table side = tablesOf(conjunct).contains(right) ? right : left;
+            if ((side == left ? keepRight : keepLeft) && !rejectsNull(conjunct)) {
+                throw unsupported("IS NULL tests on the optional side of an outer join are not supported");
+            }
+            (side == left ? leftWhere : rightWhere).add(conjunct);
+        }
+        if (leftKeys.isEmpty() && !right.type.equals("CROSS")) {
+            throw unsupported("Joining objects without a relationship needs an equality between them");
+        }
+        if (!select.groupBy.isEmpty() || select.having != null) {
+            throw unsupported("GROUP BY over objects without a relationship is not supported");
+        }
+
+        SqlAst.Select leftSelect = sideSelect(left, leftWhere);
+        SqlAst.Select rightSelect = sideSelect(right, rightWhere);
+        int[] leftKeyColumns = new int[leftKeys.size()];
+        int[] rightKeyColumns = new int[rightKeys.size()];
+        for (int i = 0; i < leftKeyColumns.length; i++) {
+            leftKeyColumns[i] = column(leftSelect, left, leftKeys.get(i));
+            rightKeyColumns[i] = column(rightSelect, right, rightKeys.get(i));
+        }
+        boolean[] fromRight = new boolean[items.size()];
+        int[] columns = new int[items.size()];
+        String[] labels = new String[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            SqlAst.SelectItem item = items.get(i);
+            if (!(item.expr instanceof SqlAst.Column)) {
+                throw unsupported("Only columns can be selected from objects without a relationship");
+            }
+            SqlAst.Column column = (SqlAst.Column) item.expr;
+            Table table = tableOf(column);
+            fromRight[i] = table == right;
+            columns[i] = column(table == right ? rightSelect : leftSelect, table, column);
+            labels[i] = item.alias != null ? item.alias : String.join(".", pathIn(table, column));
+        }
+        // The side streamed against the hash table keeps its SOQL order, so it can be sorted by the server
+        Boolean probeLeft = null;
+        if (!orderBy.isEmpty()) {
+            Set<Table> used = new LinkedHashSet<>();
+            for (SqlAst.OrderItem item : orderBy) {
+                used.addAll(tablesOf(item.expr));
+            }
+            Table sorted = used.size() == 1 ? used.iterator().next() : left;
+            if (used.size() > 1 || (sorted == left ? keepRight : keepLeft)) {
+                throw unsupported("ORDER BY over objects without a relationship must use one object, and not the optional side");
+            }
+            for (SqlAst.OrderItem item : orderBy) {
+                (sorted == left ? leftSelect : rightSelect).orderBy.add(new SqlAst.OrderItem(rewrite(item.expr), item.descending, item.nulls));
+            }
+            probeLeft = sorted == left;
+        }
+        TranslationPlan leftPlan = SoqlGenerator.generate(sql, leftSelect, fields);
+        TranslationPlan rightPlan = SoqlGenerator.generate(sql, rightSelect, fields);
+        if (leftPlan.getSlotCount() > 0 || rightPlan.getSlotCount() > 0) {
+            throw unsupported("Parameter markers are not supported when joining objects without a relationship");
+        }
+        HashJoin join = new HashJoin(leftPlan, rightPlan, leftKeyColumns, rightKeyColumns, keepLeft, keepRight,
+                fromRight, columns, labels, probeLeft, count(sql, select.offset, 0), count(sql, select.limit, -1));
+        return leftPlan.withOperator(join, leftPlan.getSoql() + ";\n" + rightPlan.getSoql());
+    }
+
+    private SqlAst.Select sideSelect(Table table, List<Expr> conditions) throws SQLException {
+        SqlAst.Select side = new SqlAst.Select();
+        side.from = new SqlAst.TableRef(table.ref.name, null);
+        side.where = and(rewriteAll(conditions));
+        side.modifiers.addAll(select.modifiers);
+        return side;
+    }
+
+    // The position of a column in one side's select list, adding it when it is not there yet
+    private int column(SqlAst.Select side, Table table, SqlAst.Column column) {
+        String path = String.join(".", pathIn(table, column));
+        for (int i = 0; i < side.items.size(); i++) {
+            if (((SqlAst.Column) side.items.get(i).expr).dotted().equalsIgnoreCase(path)) {
+                return i;
+            }
+        }
+        side.items.add(new SqlAst.SelectItem(new SqlAst.Column(pathIn(table, column)), null));
+        return side.items.size() - 1;
+    }
+
+    // LIMIT and OFFSET applied by the driver once rows are joined or grouped
+    static long count(String sql, Expr expr, long absent) throws SQLException {
+        if (expr == null) {
+            return absent;
+        }
+        if (expr instanceof SqlAst.Literal && ((SqlAst.Literal) expr).kind == SqlAst.Literal.Kind.NUMBER
+                && ((SqlAst.Literal) expr).text.chars().allMatch(Character::isDigit)) {
+            try {
+                return Long.parseLong(((SqlAst.Literal) expr).text);
+            } catch (NumberFormatException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+        if (expr instanceof SqlAst.Parameter) {
+            throw new SQLFeatureNotSupportedException("LIMIT and OFFSET cannot be parameters in a query the driver completes: " + sql);
+        }
+        throw new SQLSyntaxErrorException("LIMIT and OFFSET take a whole number in: " + sql);
+    }
+
+    private SQLFeatureNotSupportedException unsupported(String message) {
+        return new SQLFeatureNotSupportedException(message + ": " + sql);
+    }
+
+    // A parent query whose last column is a child relationship subquery, flattened to one row per child
+    static final class ChildJoin implements TranslationPlan.Operator {
+        final ColumnPlan parentColumns;
+        final int childColumn;
+        final TranslationPlan childPlan;
+        // Per output column: a parent column, or -1 - k for column k of the child records
+        final int[] sources;
+        final String[] labels;
+        // LEFT JOIN: parents without children still give a row
+        final boolean outer;
+        final long offset;
+        final long limit;
+
+        ChildJoin(ColumnPlan parentColumns, int childColumn, TranslationPlan childPlan, int[] sources, String[] labels,
+                  boolean outer, long offset, long limit) {
+            this.parentColumns = parentColumns;
+            this.childColumn = childColumn;
+            this.childPlan = childPlan;
+            this.sources = sources;
+            this.labels = labels;
+            this.outer = outer;
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        @Override
+        public PageSource open(SalesforceStatement statement, RestClient client, String soql, boolean bulkHint) throws SQLException {
+            ColumnPlan childColumns = statement.getSalesforceConnection().typeColumns(childPlan.getColumns(), childPlan.getSoql());
+            PageSource parents = statement.prefetch(statement.openCursor(client, soql, parentColumns));
+            return new ChildRowsPageSource(parents, client, this, childColumns);
+        }
+    }
+
+    // Two queries joined in the driver on equal key columns
+    static final class HashJoin implements TranslationPlan.Operator {
+        final TranslationPlan left;
+        final TranslationPlan right;
+        final int[] leftKeys;
+        final int[] rightKeys;
+        // Whether rows without a match are kept, padded with nulls
+        final boolean keepLeft;
+        final boolean keepRight;
+        // Per output column: the side and the column within that side's query
+        final boolean[] fromRight;
+        final int[] columns;
+        final String[] labels;
+        // The side that must be streamed to keep its order, or null to stream the larger one
+        final Boolean probeLeft;
+        final long offset;
+        final long limit;
+
+        HashJoin(TranslationPlan left, TranslationPlan right, int[] leftKeys, int[] rightKeys, boolean keepLeft, boolean keepRight,
+                 boolean[] fromRight, int[] columns, String[] labels, Boolean probeLeft, long offset, long limit) {
+            this.left = left;
+            this.right = right;
+            this.leftKeys = leftKeys;
+            this.rightKeys = rightKeys;
+            this.keepLeft = keepLeft;
+            this.keepRight = keepRight;
+            this.fromRight = fromRight;
+            this.columns = columns;
+            this.labels = labels;
+            this.probeLeft = probeLeft;
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        @Override
+        public PageSource open(SalesforceStatement statement, RestClient client, String soql, boolean bulkHint) throws SQLException {
+            QueryCursor leftRows = statement.openCursor(client, left.getSoql(), left.getColumns());
+            QueryCursor rightRows;
+            try {
+                rightRows = statement.openCursor(client, right.getSoql(), right.getColumns());
+            } catch (SQLException e) {
+                leftRows.close();
+                throw e;
+            }
+            boolean buildLeft = probeLeft != null ? !probeLeft : leftRows.getTotalSize() < rightRows.getTotalSize();
+            QueryCursor build = buildLeft ? leftRows : rightRows;
+            QueryCursor probe = buildLeft ? rightRows : leftRows;
+            boolean[] fromBuild = new boolean[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                fromBuild[i] = fromRight[i] != buildLeft;
+            }
+            try {
+                return new HashJoinPageSource(build, buildLeft ? leftKeys : rightKeys, buildLeft ? keepLeft : keepRight,
+                        statement.prefetch(probe), buildLeft ? rightKeys : leftKeys, buildLeft ? keepRight : keepLeft,
+                        fromBuild, columns, labels, offset, limit);
+            } catch (SQLException e) {
+                build.close();
+                probe.close();
+                throw e;
+            }
+        }
+    }
+}
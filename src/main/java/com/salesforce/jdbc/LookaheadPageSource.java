@@ -0,0 +1,47 @@
+package com.salesforce.jdbc;
+
+import java.sql.SQLException;
+
+// A PageSource that reads one page ahead of its caller, so isDone() is true as
+// soon as the last page is handed out rather than after a further nextPage()
+// has come back empty. A failure reading ahead is held until that page is asked for.
+abstract class LookaheadPageSource implements PageSource {
+    private ColumnarPage ahead;
+    private SQLException failure;
+    private boolean started = false;
+    private boolean exhausted = false;
+
+    // The source's next page, or null once it has no more
+    abstract ColumnarPage readNextPage() throws SQLException;
+
+    @Override
+    public final ColumnarPage nextPage() throws SQLException {
+        if (!started) {
+            started = true;
+            ahead = readNextPage();
+            exhausted = ahead == null;
+        }
+        if (failure != null) {
+            SQLException e = failure;
+            failure = null;
+            exhausted = true;
+            throw e;
+        }
+        ColumnarPage page = ahead;
+        ahead = null;
+        if (page != null && !exhausted) {
+            try {
+                ahead = readNextPage();
+                exhausted = ahead == null;
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public final boolean isDone() {
+        return started && exhausted && ahead == null;
+    }
+}
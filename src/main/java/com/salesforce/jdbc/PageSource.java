@@ -0,0 +1,20 @@
+package com.salesforce.jdbc;
+
+import java.sql.SQLException;
+
+// Supplies the pages behind a SalesforceResultSet, one at a time
+interface PageSource {
+    // Returns the next page of records, or null once the query is exhausted
+    ColumnarPage nextPage() throws SQLException;
+
+    boolean isDone();
+
+    // The result's columns, or null while they are still to be read from the first record
+    ColumnPlan getColumnPlan();
+
+    int getBatchSize();
+
+    void setBatchSize(int fetchSize);
+
+    void close();
+}
@@ -0,0 +1,266 @@
+package com.salesforce.jdbc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Backing store for scroll-insensitive result sets. Pages are appended to a
+// temp file as they arrive and indexed by their first row; reading a row maps
+// its page back in, so only a handful of decoded pages are ever on the heap.
+class PageSpool implements AutoCloseable {
+    private static final int CACHED_PAGES = 4;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final PageSource source;
+    private final int maxRows;
+    private FileChannel channel;
+    private ColumnPlan plan;
+    private long[] offsets = new long[16];
+    private int[] lengths = new int[16];
+    private int[] firstRows = new int[16];
+    private int pageCount = 0;
+    private int rowCount = 0;
+    private long fileSize = 0;
+    private boolean complete = false;
+    private final Map<Integer, ColumnarPage> cache = new LinkedHashMap<Integer, ColumnarPage>(CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ColumnarPage> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    PageSpool(PageSource source, int maxRows) {
+        this.source = source;
+        this.maxRows = maxRows > 0 ? maxRows : Integer.MAX_VALUE;
+    }
+
+    // Reads pages from the source until at least `rows` rows are spooled or it is exhausted; returns the row count
+    int fill(int rows) throws SQLException {
+        while (rowCount < rows && !complete) {
+            ColumnarPage page = rowCount < maxRows ? source.nextPage() : null;
+            if (page == null) {
+                complete();
+                break;
+            }
+            if (page.getRowCount() > 0) {
+                append(page);
+            }
+        }
+        return Math.min(rowCount, maxRows);
+    }
+
+    int fillAll() throws SQLException {
+        return fill(Integer.MAX_VALUE);
+    }
+
+    // The spooled row count, capped at maxRows
+    int getRowCount() {
+        return Math.min(rowCount, maxRows);
+    }
+
+    boolean isComplete() {
+        return complete;
+    }
+
+    ColumnPlan getColumnPlan() {
+        return plan != null ? plan : source.getColumnPlan();
+    }
+
+    // Index of the page holding a 0-based row that has already been spooled
+    int pageIndexOf(int row) {
+        int index = Arrays.binarySearch(firstRows, 0, pageCount, row);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    int firstRowOf(int pageIndex) {
+        return firstRows[pageIndex];
+    }
+
+    ColumnarPage page(int pageIndex) throws SQLException {
+        ColumnarPage page = cache.get(pageIndex);
+        if (page == null) {
+            try {
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offsets[pageIndex], lengths[pageIndex]);
+                page = read(buffer);
+            } catch (IOException e) {
+                throw new SQLException("Failed to read spooled result page", e);
+            }
+            cache.put(pageIndex, page);
+        }
+        return page;
+    }
+
+    private void append(ColumnarPage page) throws SQLException {
+        try {
+            if (channel == null) {
+                Path file = Files.createTempFile("salesforce-resultset-", ".pages");
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE);
+                plan = page.getPlan();
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(write(page));
+            int length = bytes.remaining();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes, fileSize + length - bytes.remaining());
+            }
+            if (pageCount == offsets.length) {
+                offsets = Arrays.copyOf(offsets, pageCount * 2);
+                lengths = Arrays.copyOf(lengths, pageCount * 2);
+                firstRows = Arrays.copyOf(firstRows, pageCount * 2);
+            }
+            offsets[pageCount] = fileSize;
+            lengths[pageCount] = length;
+            firstRows[pageCount] = rowCount;
+            cache.put(pageCount, page);
+            pageCount++;
+            fileSize += length;
+            rowCount += page.getRowCount();
+        } catch (IOException e) {
+            throw new SQLException("Failed to spool result page to disk", e);
+        }
+    }
+
+    private void complete() {
+        complete = true;
+        source.close();
+    }
+
+    // Layout: row and column counts, each column's kind and null bitmap, then the present values row by row
+    private static byte[] write(ColumnarPage page) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int rows = page.getRowCount();
+        int columns = page.getColumnCount();
+        out.writeInt(rows);
+        out.writeInt(columns);
+        for (int column = 0; column < columns; column++) {
+            out.writeByte(page.getKind(column).ordinal());
+            long word = 0;
+            for (int row = 0; row < rows; row++) {
+                if (!page.isNull(column, row)) {
+                    word |= 1L << row;
+                }
+                if ((row & 63) == 63 || row == rows - 1) {
+                    out.writeLong(word);
+                    word = 0;
+                }
+            }
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (page.isNull(column, row)) {
+                    continue;
+                }
+                switch (page.getKind(column)) {
+                    case BOOLEAN:
+                    case LONG:
+                        out.writeLong(page.getLong(column, row));
+                        break;
+                    case DATE:
+                    case DATETIME:
+                    case TIME:
+                        out.writeLong(page.getEpoch(column, row));
+                        break;
+                    case DOUBLE:
+                        out.writeDouble(page.getDouble(column, row));
+                        break;
+                    case DECIMAL:
+                    case STRING:
+                        writeBytes(out, page.getString(column, row).getBytes(StandardCharsets.UTF_8));
+                        break;
+                    default:
+                        writeBytes(out, MAPPER.writeValueAsBytes(page.getObject(column, row)));
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private ColumnarPage read(ByteBuffer in) throws IOException {
+        int rows = in.getInt();
+        int columns = in.getInt();
+        ColumnarPage.Kind[] kinds = new ColumnarPage.Kind[columns];
+        long[][] present = new long[columns][(rows + 63) >>> 6];
+        for (int column = 0; column < columns; column++) {
+            kinds[column] = ColumnarPage.Kind.values()[in.get()];
+            for (int i = 0; i < present[column].length; i++) {
+                present[column][i] = in.getLong();
+            }
+        }
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(plan, rows);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if ((present[column][row >>> 6] & (1L << row)) == 0) {
+                    continue;
+                }
+                switch (kinds[column]) {
+                    case BOOLEAN:
+                        builder.setBoolean(column, in.getLong() != 0);
+                        break;
+                    case LONG:
+                        builder.setLong(column, in.getLong());
+                        break;
+                    case DOUBLE:
+                        builder.setDouble(column, in.getDouble());
+                        break;
+                    case DATE:
+                    case DATETIME:
+                    case TIME:
+                        builder.setEpoch(column, kinds[column], in.getLong());
+                        break;
+                    case DECIMAL:
+                        builder.setDecimal(column, new BigDecimal(readString(in)));
+                        break;
+                    case STRING:
+                        builder.setString(column, readString(in));
+                        break;
+                    default:
+                        byte[] json = new byte[in.getInt()];
+                        in.get(json);
+                        builder.setObject(column, MAPPER.readValue(json, Object.class));
+                }
+            }
+            builder.endRow();
+        }
+        return builder.build();
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] value = new byte[in.getInt()];
+        in.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        cache.clear();
+        source.close();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The file is deleted on close; nothing else to release
+            }
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.salesforce.jdbc;
+
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Double-buffers a PageSource: while the caller iterates page N a background
+// fetcher requests the following pages, holding at most prefetchDepth of them
+class PrefetchingPageSource implements PageSource {
+    private static final ExecutorService FETCHERS = DriverThreads.newExecutor("salesforce-prefetch-");
+
+    // Marks the end of the query in the hand-off queue
+    static final Slot END = new Slot(null, null, true);
+
+    private final PageSource delegate;
+    private final BlockingQueue<Slot> ready;
+    private final Future<?> fetcher;
+    // Claimed by whichever runs first: the fetcher, or a close() that keeps it from ever starting
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private final CountDownLatch exited = new CountDownLatch(1);
+    private volatile boolean closed = false;
+    private boolean done = false;
+
+    PrefetchingPageSource(PageSource delegate, int prefetchDepth) {
+        this.delegate = delegate;
+        this.ready = new ArrayBlockingQueue<>(Math.max(1, prefetchDepth));
+        this.fetcher = FETCHERS.submit(this::fetchAll);
+    }
+
+    private void fetchAll() {
+        if (!claimed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ColumnarPage page;
+            while (!closed && (page = delegate.nextPage()) != null) {
+                // Read on this thread, straight after the page, so the caller learns it was the last one without racing END
+                boolean last = delegate.isDone();
+                ready.put(new Slot(page, null, last));
+                if (last) {
+                    return;
+                }
+            }
+            ready.put(END);
+        } catch (SQLException e) {
+            offerQuietly(new Slot(null, e, true));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            offerQuietly(new Slot(null, new SQLException("Failed to prefetch query page", e), true));
+        } finally {
+            exited.countDown();
+        }
+    }
+
+    private void offerQuietly(Slot slot) {
+        try {
+            ready.put(slot);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public ColumnarPage nextPage() throws SQLException {
+        if (closed || done) {
+            return null;
+        }
+        Slot slot;
+        try {
+            slot = ready.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the next query page", e);
+        }
+        if (slot == END) {
+            done = true;
+            return null;
+        }
+        done = slot.last;
+        if (slot.error != null) {
+            throw slot.error;
+        }
+        return slot.page;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public ColumnPlan getColumnPlan() {
+        return delegate.getColumnPlan();
+    }
+
+    @Override
+    public int getBatchSize() {
+        return delegate.getBatchSize();
+    }
+
+    @Override
+    public void setBatchSize(int fetchSize) {
+        delegate.setBatchSize(fetchSize);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            if (!claimed.compareAndSet(false, true)) {
+                // The fetcher may be inside the delegate: stop it and let it leave before the delegate goes away
+                fetcher.cancel(true);
+                awaitFetcher();
+            }
+            ready.clear();
+            delegate.close();
+        }
+    }
+
+    private void awaitFetcher() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                exited.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A fetched page, or the error that ended the fetch, handed from a background thread to the caller.
+    // last is set when nothing follows it.
+    static final class Slot {
+        final ColumnarPage page;
+        final SQLException error;
+        final boolean last;
+
+        Slot(ColumnarPage page, SQLException error, boolean last) {
+            this.page = page;
+            this.error = error;
+            this.last = last;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.salesforce.jdbc;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+// Splits a full-object SELECT into queries over disjoint key ranges. Ids are
+// split by interpolating their base62 record counter between the lowest and
+// highest Id; objects whose Ids span pods fall back to CreatedDate ranges.
+class QueryChunker {
+    static final int MAX_CHUNKS = 512;
+
+    private static final String BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final int ID_PREFIX_LENGTH = 6;
+    private static final int ID_COUNTER_LENGTH = 9;
+    private static final DateTimeFormatter SALESFORCE_DATETIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+    // Clauses that fix the row set or order; chunking such a query would change its result
+    private static final String[] UNCHUNKABLE_CLAUSES = {"ORDER", "LIMIT", "OFFSET", "GROUP", "HAVING", "WITH", "FOR"};
+
+    private QueryChunker() {
+    }
+
+    // Returns the chunk queries, or null when the query has to run as a single cursor
+    static List<String> split(RestClient client, String soql, ColumnPlan plan, int chunkCount) {
+        if (!isChunkable(soql, plan)) {
+            return null;
+        }
+        int from = ColumnPlan.indexOfKeyword(soql, "FROM", 0);
+        String sObject = ColumnPlan.sObjectOf(soql);
+        int where = ColumnPlan.indexOfKeyword(soql, "WHERE", from);
+        String filter = where < 0 ? "" : " WHERE " + soql.substring(where + "WHERE".length()).trim();
+        chunkCount = Math.min(chunkCount, MAX_CHUNKS);
+
+        List<String> predicates = idRanges(client, sObject, filter, chunkCount);
+        if (predicates == null) {
+            predicates = createdDateRanges(client, sObject, filter, chunkCount);
+        }
+        if (predicates == null || predicates.size() < 2) {
+            return null;
+        }
+        List<String> chunks = new ArrayList<>(predicates.size());
+        for (String predicate : predicates) {
+            if (where < 0) {
+                chunks.add(soql.trim() + " WHERE " + predicate);
+            } else {
+                chunks.add(soql.substring(0, where) + "WHERE (" + soql.substring(where + "WHERE".length()).trim() + ") AND " + predicate);
+            }
+        }
+        return chunks;
+    }
+
+    static boolean isChunkable(String soql, ColumnPlan plan) {
+        if (plan == null || ColumnPlan.sObjectOf(soql) == null) {
+            return false;
+        }
+        int from = ColumnPlan.indexOfKeyword(soql, "FROM", 0);
+        for (String clause : UNCHUNKABLE_CLAUSES) {
+            if (ColumnPlan.indexOfKeyword(soql, clause, from) >= 0) {
+                return false;
+            }
+        }
+        for (int i = 0; i < plan.getColumnCount(); i++) {
+            String source = plan.getSource(i);
+            if (source != null && source.endsWith(")")) {
+                // Aggregates collapse the rows; they cannot be computed per chunk
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> idRanges(RestClient client, String sObject, String filter, int chunkCount) {
+        String low = firstValue(client, "SELECT Id FROM " + sObject + filter + " ORDER BY Id ASC LIMIT 1");
+        String high = firstValue(client, "SELECT Id FROM " + sObject + filter + " ORDER BY Id DESC LIMIT 1");
+        int idLength = ID_PREFIX_LENGTH + ID_COUNTER_LENGTH;
+        if (low == null || high == null || low.length() < idLength || high.length() < idLength
+                || !low.regionMatches(0, high, 0, ID_PREFIX_LENGTH)) {
+            return null;
+        }
+        long start = decodeBase62(low.substring(ID_PREFIX_LENGTH, idLength));
+        long end = decodeBase62(high.substring(ID_PREFIX_LENGTH, idLength));
+        if (start < 0 || end <= start) {
+            return null;
+        }
+        String prefix = low.substring(0, ID_PREFIX_LENGTH);
+        List<String> bounds = new ArrayList<>();
+        long step = Math.max(1, (end - start) / chunkCount);
+        for (long counter = start + step; counter <= end && bounds.size() < chunkCount - 1; counter += step) {
+            bounds.add("'" + prefix + encodeBase62(counter) + "'");
+        }
+        return rangePredicates("Id", bounds);
+    }
+
+    private static List<String> createdDateRanges(RestClient client, String sObject, String filter, int chunkCount) {
+        String soql = "SELECT MIN(CreatedDate) lo, MAX(CreatedDate) hi FROM " + sObject + filter;
+        QueryPage page = run(client, soql);
+        if (page == null || page.getPage().getRowCount() == 0 || page.getPage().getColumnCount() < 2) {
+            return null;
+        }
+        Instant low = parseDateTime(page.getPage().getString(0, 0));
+        Instant high = parseDateTime(page.getPage().getString(1, 0));
+        if (low == null || high == null) {
+            return null;
+        }
+        long start = low.getEpochSecond();
+        long end = high.getEpochSecond();
+        if (end <= start) {
+            return null;
+        }
+        List<String> bounds = new ArrayList<>();
+        long step = Math.max(1, (end - start) / chunkCount);
+        for (long second = start + step; second <= end && bounds.size() < chunkCount - 1; second += step) {
+            bounds.add(Instant.ofEpochSecond(second).truncatedTo(ChronoUnit.SECONDS).toString());
+        }
+        return rangePredicates("CreatedDate", bounds);
+    }
+
+    // The first range is open below and the last open above, so rows outside the sampled bounds are still read
+    static List<String> rangePredicates(String field, List<String> bounds) {
+        if (bounds.isEmpty()) {
+            return null;
+        }
+        List<String> predicates = new ArrayList<>(bounds.size() + 1);
+        predicates.add(field + " < " + bounds.get(0));
+        for (int i = 1; i < bounds.size(); i++) {
+            predicates.add(field + " >= " + bounds.get(i - 1) + " AND " + field + " < " + bounds.get(i));
+        }
+        predicates.add(field + " >= " + bounds.get(bounds.size() - 1));
+        return predicates;
+    }
+
+    private static String firstValue(RestClient client, String soql) {
+        QueryPage page = run(client, soql);
+        if (page == null || page.getPage().getRowCount() == 0 || page.getPage().getColumnCount() == 0) {
+            return null;
+        }
+        return page.getPage().getString(0, 0);
+    }
+
+    // Probe queries are best effort; an object that rejects them is read with a single cursor
+    private static QueryPage run(RestClient client, String soql) {
+        try {
+            return client.query(soql, new QueryResponseDecoder(null), 0);
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    private static Instant parseDateTime(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(value, SALESFORCE_DATETIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    static long decodeBase62(String digits) {
+        long value = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int digit = BASE62.indexOf(digits.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * 62 + digit;
+        }
+        return value;
+    }
+
+    static String encodeBase62(long value) {
+        char[] digits = new char[ID_COUNTER_LENGTH];
+        for (int i = ID_COUNTER_LENGTH - 1; i >= 0; i--) {
+            digits[i] = BASE62.charAt((int) (value % 62));
+            value /= 62;
+        }
+        return new String(digits);
+    }
+}
@@ -0,0 +1,182 @@
+package com.salesforce.jdbc;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cancellation and the queryTimeout deadline of one statement execution.
+// Every request made for it, including later pages and the prefetch and
+// chunk workers, checks in here first. Cancelling, or reaching the deadline,
+// aborts the exchanges in flight and closes the response bodies being read.
+class QueryControl {
+    private static final int RUNNING = 0;
+    private static final int CANCELLED = 1;
+    private static final int TIMED_OUT = 2;
+
+    private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "salesforce-query-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        // Most queries finish well inside their timeout; their cancelled timers leave the queue at once
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private final int timeoutSeconds;
+    private final SalesforceStatement.ApiPriority priority;
+    private final AtomicLong apiCalls;
+    private final Set<Object> inFlight = ConcurrentHashMap.newKeySet();
+    private final ScheduledFuture<?> timer;
+    private volatile int state = RUNNING;
+
+    QueryControl(int timeoutSeconds) {
+        this(timeoutSeconds, SalesforceStatement.ApiPriority.NORMAL, new AtomicLong());
+    }
+
+    // apiCalls is the statement's running count of the calls made on its behalf
+    QueryControl(int timeoutSeconds, SalesforceStatement.ApiPriority priority, AtomicLong apiCalls) {
+        this.timeoutSeconds = timeoutSeconds;
+        this.priority = priority;
+        this.apiCalls = apiCalls;
+        this.timer = timeoutSeconds > 0 ? TIMER.schedule(() -> abort(TIMED_OUT), timeoutSeconds, TimeUnit.SECONDS) : null;
+    }
+
+    SalesforceStatement.ApiPriority getPriority() {
+        return priority;
+    }
+
+    void recordApiCall() {
+        apiCalls.incrementAndGet();
+    }
+
+    // Waits out API back-pressure; cancel() and the deadline end the wait early
+    void pause(long nanos) throws IOException, InterruptedException, SQLException {
+        await(new CompletableFuture<Void>().completeOnTimeout(null, nanos, TimeUnit.NANOSECONDS));
+    }
+
+    void cancel() {
+        abort(CANCELLED);
+    }
+
+    // The execution's results are gone; no deadline is needed any more
+    void finish() {
+        if (timer != null) {
+            timer.cancel(false);
+        }
+    }
+
+    boolean isAborted() {
+        return state != RUNNING;
+    }
+
+    private void abort(int reason) {
+        synchronized (this) {
+            if (state != RUNNING) {
+                return;
+            }
+            state = reason;
+        }
+        finish();
+        for (Object exchange : inFlight) {
+            release(exchange);
+        }
+    }
+
+    private static void release(Object exchange) {
+        if (exchange instanceof CompletableFuture) {
+            ((CompletableFuture<?>) exchange).cancel(true);
+        } else {
+            try {
+                ((InputStream) exchange).close();
+            } catch (IOException e) {
+                // The exchange is being abandoned either way
+            }
+        }
+    }
+
+    void check() throws SQLException {
+        if (state != RUNNING) {
+            throw abortedException();
+        }
+    }
+
+    SQLException abortedException() {
+        if (state == TIMED_OUT) {
+            return new SQLTimeoutException("Query timed out after " + timeoutSeconds + " seconds", "HYT00");
+        }
+        return new SQLException("Query was cancelled", "57014");
+    }
+
+    // Waits for a response that cancel() can abort while it is outstanding
+    <T> T await(CompletableFuture<T> exchange) throws IOException, InterruptedException, SQLException {
+        inFlight.add(exchange);
+        try {
+            if (state != RUNNING) {
+                exchange.cancel(true);
+            }
+            return exchange.get();
+        } catch (CancellationException e) {
+            throw abortedException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (state != RUNNING) {
+                throw abortedException();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            // The caller is giving up: abort the exchange, or release a response that arrived first
+            if (!exchange.cancel(true)) {
+                discard(exchange);
+            }
+            throw e;
+        } finally {
+            inFlight.remove(exchange);
+        }
+    }
+
+    private static void discard(CompletableFuture<?> exchange) {
+        if (exchange.isCompletedExceptionally()) {
+            return;
+        }
+        Object result = exchange.getNow(null);
+        if (result instanceof HttpResponse && ((HttpResponse<?>) result).body() instanceof InputStream) {
+            release(((HttpResponse<?>) result).body());
+        }
+    }
+
+    // A body that is closed under its reader when the execution is aborted
+    InputStream track(InputStream body) {
+        InputStream tracked = new FilterInputStream(body) {
+            @Override
+            public void close() throws IOException {
+                inFlight.remove(this);
+                super.close();
+            }
+        };
+        inFlight.add(tracked);
+        if (state != RUNNING) {
+            release(tracked);
+        }
+        return tracked;
+    }
+}
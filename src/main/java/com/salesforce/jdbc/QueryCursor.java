@@ -0,0 +1,98 @@
+package com.salesforce.jdbc;
+
+import com.salesforce.api.ForceResult;
+
+import java.sql.SQLException;
+
+// Forward-only cursor over the pages of a SOQL query. It keeps only the locator
+// of the next page, so consumed pages can be collected as soon as the caller drops them.
+class QueryCursor implements PageSource {
+    static final int MIN_BATCH_SIZE = 200;
+    static final int MAX_BATCH_SIZE = 2000;
+
+    private final RestClient client;
+    private final QueryResponseDecoder decoder;
+    private QueryPage pending;
+    private String nextRecordsUrl;
+    private boolean done;
+    private volatile boolean closed = false;
+    private volatile int batchSize;
+    private final int totalSize;
+
+    QueryCursor(RestClient client, QueryPage firstPage, QueryResponseDecoder decoder, int fetchSize) {
+        this.client = client;
+        this.decoder = decoder;
+        this.pending = firstPage;
+        this.done = firstPage == null;
+        this.totalSize = firstPage != null ? firstPage.getTotalSize() : 0;
+        setBatchSize(fetchSize);
+    }
+
+    // For results already fetched through force-api; later pages come back through the decoder
+    static QueryCursor fromForceResult(SalesforceConnection connection, ForceResult result) {
+        QueryPage first = QueryPage.fromForceResult(result, null);
+        ColumnPlan plan = first != null && first.getPage().getColumnCount() > 0 ? first.getPage().getPlan() : null;
+        return new QueryCursor(connection != null ? connection.getRestClient() : null, first, new QueryResponseDecoder(plan), 0);
+    }
+
+    static int clampBatchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            return 0;
+        }
+        return Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, fetchSize));
+    }
+
+    @Override
+    public ColumnarPage nextPage() throws SQLException {
+        if (closed) {
+            return null;
+        }
+        if (pending != null) {
+            QueryPage page = pending;
+            pending = null;
+            return accept(page);
+        }
+        if (done) {
+            return null;
+        }
+        // Pages are decoded on the fetching thread, so prefetching also moves this work off the caller
+        return accept(client.queryMore(nextRecordsUrl, decoder, batchSize));
+    }
+
+    private ColumnarPage accept(QueryPage page) {
+        nextRecordsUrl = page.getNextRecordsUrl();
+        done = page.isDone();
+        return page.getPage();
+    }
+
+    @Override
+    public boolean isDone() {
+        return pending == null && done;
+    }
+
+    @Override
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void setBatchSize(int fetchSize) {
+        this.batchSize = clampBatchSize(fetchSize);
+    }
+
+    @Override
+    public ColumnPlan getColumnPlan() {
+        return decoder.getPlan();
+    }
+
+    int getTotalSize() {
+        return totalSize;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        pending = null;
+        nextRecordsUrl = null;
+    }
+}
@@ -0,0 +1,49 @@
+package com.salesforce.jdbc;
+
+import com.salesforce.api.ForceRecord;
+import com.salesforce.api.ForceResult;
+
+import java.util.List;
+
+// One decoded query response: its rows plus the locator of the page after it
+class QueryPage {
+    private final ColumnarPage page;
+    private final int totalSize;
+    private final boolean done;
+    private final String nextRecordsUrl;
+
+    QueryPage(ColumnarPage page, int totalSize, boolean done, String nextRecordsUrl) {
+        this.page = page;
+        this.totalSize = totalSize;
+        this.done = done || nextRecordsUrl == null;
+        this.nextRecordsUrl = nextRecordsUrl;
+    }
+
+    static QueryPage fromForceResult(ForceResult result, ColumnPlan plan) {
+        if (result == null) {
+            return null;
+        }
+        List<ForceRecord> records = result.getRecords() != null ? result.getRecords() : List.of();
+        if (plan == null) {
+            plan = records.isEmpty() ? ColumnPlan.EMPTY : ColumnPlan.fromRecord(records.get(0));
+        }
+        return new QueryPage(ColumnarPage.fromRecords(records, plan), result.getTotalSize(),
+                result.isDone(), result.getNextRecordsUrl());
+    }
+
+    ColumnarPage getPage() {
+        return page;
+    }
+
+    int getTotalSize() {
+        return totalSize;
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    String getNextRecordsUrl() {
+        return nextRecordsUrl;
+    }
+}
@@ -0,0 +1,214 @@
+package com.salesforce.jdbc;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Reads a query response token by token straight into a ColumnarPage. The
+// attributes objects and any field the plan does not select are skipped
+// without being materialized, so a page never exists as a tree and a list
+// of maps at the same time.
+class QueryResponseDecoder {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory JSON = MAPPER.getFactory();
+    private static final int MAX_PAGE_ROWS = QueryCursor.MAX_BATCH_SIZE;
+
+    private ColumnPlan plan;
+    private PathNode root;
+
+    QueryResponseDecoder(ColumnPlan plan) {
+        this.plan = plan;
+        this.root = plan != null ? PathNode.of(plan) : null;
+    }
+
+    // The plan used for decoding; discovered from the first record when the select list was unreadable
+    ColumnPlan getPlan() {
+        return plan;
+    }
+
+    QueryPage decode(InputStream in) throws IOException {
+        try (JsonParser parser = JSON.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Query response is not a JSON object");
+            }
+            int totalSize = 0;
+            boolean done = true;
+            String nextRecordsUrl = null;
+            ColumnarPage page = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "totalSize":
+                        totalSize = parser.getIntValue();
+                        break;
+                    case "done":
+                        done = token == JsonToken.VALUE_TRUE;
+                        break;
+                    case "nextRecordsUrl":
+                        nextRecordsUrl = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                        break;
+                    case "records":
+                        page = readRecords(parser, Math.min(totalSize, MAX_PAGE_ROWS));
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            if (page == null) {
+                page = new ColumnarPage.Builder(plan != null ? plan : ColumnPlan.EMPTY, 0).build();
+            }
+            return new QueryPage(page, totalSize, done, nextRecordsUrl);
+        }
+    }
+
+    private ColumnarPage readRecords(JsonParser parser, int expectedRows) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        ColumnarPage.Builder builder = plan != null ? new ColumnarPage.Builder(plan, expectedRows) : null;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            if (builder == null) {
+                builder = discoverPlan(parser, expectedRows);
+            } else {
+                readRecord(parser, root, builder);
+            }
+            builder.endRow();
+        }
+        return builder != null ? builder.build() : null;
+    }
+
+    // Without a select list the first record names the columns, so it alone is read as a tree
+    private ColumnarPage.Builder discoverPlan(JsonParser parser, int expectedRows) throws IOException {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> record = MAPPER.readValue(parser, LinkedHashMap.class);
+        record.remove("attributes");
+        plan = ColumnPlan.fromFieldNames(record.keySet());
+        root = PathNode.of(plan);
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(plan, expectedRows);
+        int column = 0;
+        for (Object value : record.values()) {
+            builder.set(column++, value);
+        }
+        return builder;
+    }
+
+    private void readRecord(JsonParser parser, PathNode node, ColumnarPage.Builder builder) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            PathNode child = node.child(parser.getCurrentName());
+            JsonToken token = parser.nextToken();
+            if (child == null) {
+                parser.skipChildren();
+            } else if (child.columns != null) {
+                readValue(parser, token, child.columns, builder);
+            } else if (token == JsonToken.START_OBJECT) {
+                readRecord(parser, child, builder);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    // A field selected more than once, e.g. by * and by name, fills each of its columns
+    private void readValue(JsonParser parser, JsonToken token, int[] columns, ColumnarPage.Builder builder) throws IOException {
+        if (token.isStructStart()) {
+            Object value = MAPPER.readValue(parser, Object.class);
+            for (int column : columns) {
+                builder.setObject(column, value);
+            }
+            return;
+        }
+        for (int column : columns) {
+            readValue(parser, token, column, builder);
+        }
+    }
+
+    private void readValue(JsonParser parser, JsonToken token, int column, ColumnarPage.Builder builder) throws IOException {
+        switch (token) {
+            case VALUE_NULL:
+                break;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                builder.setBoolean(column, token == JsonToken.VALUE_TRUE);
+                break;
+            case VALUE_NUMBER_INT:
+                if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                    builder.setDecimal(column, new BigDecimal(parser.getBigIntegerValue()));
+                } else {
+                    builder.setLong(column, parser.getLongValue());
+                }
+                break;
+            case VALUE_NUMBER_FLOAT:
+                if (builder.getKind(column) == ColumnarPage.Kind.DECIMAL) {
+                    builder.setDecimal(column, parser.getDecimalValue());
+                } else {
+                    builder.setDouble(column, parser.getDoubleValue());
+                }
+                break;
+            case VALUE_STRING:
+                if (isTemporal(builder.getKind(column))) {
+                    // Dates are parsed from the parser's buffer; no String is built for them
+                    builder.setTemporal(column, CharBuffer.wrap(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()));
+                } else {
+                    builder.set(column, parser.getText());
+                }
+                break;
+            default:
+                // Compound fields and child subqueries keep their structure
+                builder.setObject(column, MAPPER.readValue(parser, Object.class));
+        }
+    }
+
+    private static boolean isTemporal(ColumnarPage.Kind kind) {
+        return kind == ColumnarPage.Kind.DATE || kind == ColumnarPage.Kind.DATETIME || kind == ColumnarPage.Kind.TIME;
+    }
+
+    // Trie over the plan's response paths. Field names are matched exactly
+    // first; a case-insensitive hit is remembered under the response's own spelling.
+    private static final class PathNode {
+        private static final PathNode SKIP = new PathNode();
+
+        private int[] columns;
+        private final Map<String, PathNode> exact = new HashMap<>();
+        private final Map<String, PathNode> folded = new HashMap<>();
+
+        static PathNode of(ColumnPlan plan) {
+            PathNode root = new PathNode();
+            for (int i = 0; i < plan.getColumnCount(); i++) {
+                PathNode node = root;
+                for (String segment : plan.getResponsePath(i).split("\\.")) {
+                    node = node.folded.computeIfAbsent(segment.toLowerCase(Locale.ROOT), k -> new PathNode());
+                }
+                node.columns = node.columns == null ? new int[] {i} : append(node.columns, i);
+            }
+            return root;
+        }
+
+        private static int[] append(int[] columns, int column) {
+            int[] appended = Arrays.copyOf(columns, columns.length + 1);
+            appended[columns.length] = column;
+            return appended;
+        }
+
+        PathNode child(String name) {
+            PathNode node = exact.get(name);
+            if (node == null) {
+                node = folded.get(name.toLowerCase(Locale.ROOT));
+                exact.put(name, node != null ? node : SKIP);
+            }
+            return node == SKIP ? null : node;
+        }
+    }
+}
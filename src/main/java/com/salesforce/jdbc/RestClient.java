@@ -0,0 +1,467 @@
+package com.salesforce.jdbc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.net.ssl.SSLSession;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Direct REST access for the query and Bulk API endpoints. force-api hands back
+// fully built records, so these responses are fetched here and decoded from the stream.
+class RestClient {
+    static final String API_VERSION = "v57.0";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    // Below this a gzip header and dictionary cost more than they save
+    private static final int MIN_COMPRESSED_BODY = 1024;
+
+    private final SalesforceSession session;
+    private final HttpTransport transport;
+    private final AtomicLong requestTimeoutMillis;
+    private final boolean compression;
+    private final QueryControl control;
+    private final ApiLimitGovernor governor;
+    private final ConcurrencyLimiter limiter;
+    private final CircuitBreaker breaker;
+    private final RetryPolicy retryPolicy;
+
+    RestClient(String instanceUrl, String sessionId) {
+        this(new SalesforceSession(instanceUrl, sessionId), JdkHttpTransport.shared(JdkHttpTransport.DEFAULT_CONNECT_TIMEOUT_MILLIS), 0, true);
+    }
+
+    // readTimeoutMillis bounds the wait for response headers; 0 waits indefinitely.
+    // With compression, responses are requested gzipped and larger request bodies are sent gzipped.
+    RestClient(SalesforceSession session, HttpTransport transport, long readTimeoutMillis, boolean compression) {
+        this(session, transport, new AtomicLong(Math.max(readTimeoutMillis, 0)), compression, new RetryPolicy(), null);
+    }
+
+    private RestClient(SalesforceSession session, HttpTransport transport, AtomicLong requestTimeoutMillis,
+                       boolean compression, RetryPolicy retryPolicy, QueryControl control) {
+        this.session = session;
+        this.transport = transport;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.compression = compression;
+        this.retryPolicy = retryPolicy;
+        this.control = control;
+        this.governor = ApiLimitGovernor.forInstance(session.getInstanceUrl());
+        this.limiter = ConcurrencyLimiter.forInstance(session.getInstanceUrl());
+        this.breaker = CircuitBreaker.forInstance(session.getInstanceUrl());
+    }
+
+    // A view whose requests can be cancelled and are bound by the control's deadline; null removes it
+    RestClient withControl(QueryControl control) {
+        return new RestClient(session, transport, requestTimeoutMillis, compression, retryPolicy, control);
+    }
+
+    // Shared with every view of this client, so Connection.setNetworkTimeout reaches running statements
+    void setRequestTimeout(long millis) {
+        requestTimeoutMillis.set(Math.max(millis, 0));
+    }
+
+    long getRequestTimeout() {
+        return requestTimeoutMillis.get();
+    }
+
+    QueryPage query(String soql, QueryResponseDecoder decoder, int batchSize) throws SQLException {
+        String path = dataPath("/query?q=" + URLEncoder.encode(soql, StandardCharsets.UTF_8));
+        return fetchPage(path, decoder, batchSize);
+    }
+
+    QueryPage queryMore(String nextRecordsUrl, QueryResponseDecoder decoder, int batchSize) throws SQLException {
+        return fetchPage(nextRecordsUrl, decoder, batchSize);
+    }
+
+    private QueryPage fetchPage(String path, QueryResponseDecoder decoder, int batchSize) throws SQLException {
+        HttpRequest.Builder request = request(path, "application/json").GET();
+        if (batchSize > 0) {
+            request.header("Sforce-Query-Options", "batchSize=" + batchSize);
+        }
+        // A page that fails midway is fetched again from the same locator, so the cursor resumes where it was
+        return withRetries(() -> {
+            HttpResponse<InputStream> response = exchange(request);
+            try (InputStream body = response.body()) {
+                return decoder.decode(body);
+            } catch (IOException e) {
+                throw readFailure("Failed to read query response", e);
+            }
+        });
+    }
+
+    private interface Attempt<T> {
+        T run() throws SQLException;
+    }
+
+    // Runs an idempotent request, repeating it after transient failures until the policy gives up
+    private <T> T withRetries(Attempt<T> attempt) throws SQLException {
+        for (int retry = 0; ; retry++) {
+            try {
+                return attempt.run();
+            } catch (SQLException e) {
+                boolean aborted = control != null && control.isAborted();
+                if (aborted || retry >= retryPolicy.getMaxRetries() || breaker.isOpen() || !RetryPolicy.isRetryable(e)) {
+                    throw e;
+                }
+                backoff(retryPolicy.backoffNanos(retry), e);
+            }
+        }
+    }
+
+    private void backoff(long nanos, SQLException failure) throws SQLException {
+        try {
+            if (control != null) {
+                control.pause(nanos);
+            } else {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            }
+        } catch (IOException e) {
+            throw failure;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+
+    // Waits between polls of a long-running job; cancel() and the deadline cut the wait short
+    void pause(long nanos) throws SQLException {
+        try {
+            if (control != null) {
+                control.pause(nanos);
+            } else {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed while waiting", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting", e);
+        }
+    }
+
+    // Versioned REST path, e.g. /services/data/v57.0/jobs/query
+    static String dataPath(String resource) {
+        return "/services/data/" + API_VERSION + resource;
+    }
+
+    HttpRequest.Builder request(String path, String accept) {
+        String instanceUrl = session.getInstanceUrl();
+        if (instanceUrl.endsWith("/")) {
+            instanceUrl = instanceUrl.substring(0, instanceUrl.length() - 1);
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(instanceUrl + path)).header("Accept", accept);
+        if (compression) {
+            request.header("Accept-Encoding", "gzip");
+        }
+        return request;
+    }
+
+    // One request for the resource list, bypassing retries, the governor and the limiters, so the answer
+    // comes within timeoutSeconds; 0 falls back to the request timeout. For Connection.isValid.
+    boolean ping(int timeoutSeconds) {
+        long timeoutMillis = timeoutSeconds > 0 ? TimeUnit.SECONDS.toMillis(timeoutSeconds) : requestTimeoutMillis.get();
+        HttpRequest.Builder request = request(dataPath("/"), "application/json").GET()
+                .header("Authorization", "Bearer " + session.getSessionId());
+        if (timeoutMillis > 0) {
+            request.timeout(Duration.ofMillis(timeoutMillis));
+        }
+        // The request timeout only covers the wait for headers, so the connect is bounded here as well
+        CompletableFuture<HttpResponse<InputStream>> sent = transport.sendAsync(request.build());
+        try {
+            HttpResponse<InputStream> response = timeoutMillis > 0 ? sent.get(timeoutMillis, TimeUnit.MILLISECONDS) : sent.get();
+            response.body().close();
+            return response.statusCode() < 400;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sent.cancel(true);
+            return false;
+        } catch (ExecutionException | TimeoutException | IOException e) {
+            sent.cancel(true);
+            return false;
+        }
+    }
+
+    JsonNode getJson(String path) throws SQLException {
+        HttpRequest.Builder request = request(path, "application/json").GET();
+        return withRetries(() -> readJson(exchange(request)));
+    }
+
+    JsonNode sendJson(String method, String path, Object body) throws SQLException {
+        byte[] json;
+        try {
+            json = MAPPER.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new SQLException("Failed to encode request body", e);
+        }
+        HttpRequest.Builder request = request(path, "application/json").header("Content-Type", "application/json");
+        if (compression && json.length >= MIN_COMPRESSED_BODY) {
+            json = gzip(json);
+            request.header("Content-Encoding", "gzip");
+        }
+        request.method(method, HttpRequest.BodyPublishers.ofByteArray(json));
+        return readJson(send(request));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws SQLException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new SQLException("Failed to compress request body", e);
+        }
+        return out.toByteArray();
+    }
+
+    // Returns the open response stream; the caller must close it. Failures are raised as SQLException.
+    // GET requests are retried on transient failures up to the point the response is returned.
+    HttpResponse<InputStream> send(HttpRequest.Builder request) throws SQLException {
+        if (request.build().method().equals("GET")) {
+            return withRetries(() -> exchange(request));
+        }
+        return exchange(request);
+    }
+
+    // One exchange; a request rejected for an expired session is sent once more with a renewed token
+    private HttpResponse<InputStream> exchange(HttpRequest.Builder request) throws SQLException {
+        try {
+            if (control != null) {
+                control.check();
+            }
+            String sessionId = session.getSessionId();
+            HttpResponse<InputStream> response = send(request, sessionId);
+            if (response.statusCode() == 401) {
+                SQLException rejected;
+                try (InputStream body = response.body()) {
+                    rejected = error(response.statusCode(), body);
+                }
+                String renewed = session.renew(sessionId);
+                if (renewed == null) {
+                    throw rejected;
+                }
+                response = send(request, renewed);
+            }
+            if (response.statusCode() >= 400) {
+                SQLException failure;
+                try (InputStream body = response.body()) {
+                    failure = error(response.statusCode(), body);
+                }
+                if ("REQUEST_LIMIT_EXCEEDED".equals(SalesforceApiException.apiErrorCode(failure))) {
+                    limiter.throttled();
+                }
+                throw failure;
+            }
+            return response;
+        } catch (HttpConnectTimeoutException e) {
+            // Nothing was sent, so unlike a response timeout this one can be retried
+            throw readFailure("Could not connect to Salesforce in time", e);
+        } catch (HttpTimeoutException e) {
+            throw new SQLTimeoutException("Salesforce did not respond in time", e);
+        } catch (IOException e) {
+            throw readFailure("Request to Salesforce failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Request to Salesforce was interrupted", e);
+        }
+    }
+
+    private HttpResponse<InputStream> send(HttpRequest.Builder request, String sessionId)
+            throws IOException, InterruptedException, SQLException {
+        request.setHeader("Authorization", "Bearer " + sessionId);
+        long timeout = requestTimeoutMillis.get();
+        if (timeout > 0) {
+            request.timeout(Duration.ofMillis(timeout));
+        }
+        HttpRequest built = request.build();
+        // Requests outside a statement, such as describes and validation, are governed at NORMAL priority
+        long wait = governor.acquire(control != null ? control.getPriority() : SalesforceStatement.ApiPriority.NORMAL);
+        if (wait > 0) {
+            if (control != null) {
+                control.pause(wait);
+            } else {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+        breaker.check();
+        // The slot is held until the response headers arrive; bodies stream outside the limit
+        try {
+            limiter.acquire(control);
+        } catch (SQLException | InterruptedException e) {
+            breaker.recordAbandoned();
+            throw e;
+        }
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response;
+        try {
+            response = control != null ? control.await(transport.sendAsync(built)) : transport.send(built);
+        } catch (IOException e) {
+            limiter.release(-1, false);
+            if (control != null && control.isAborted()) {
+                breaker.recordAbandoned();
+            } else {
+                breaker.recordFailure();
+            }
+            throw e;
+        } catch (InterruptedException | SQLException | RuntimeException e) {
+            limiter.release(-1, false);
+            breaker.recordAbandoned();
+            throw e;
+        }
+        int status = response.statusCode();
+        limiter.release(System.nanoTime() - start, status == 429 || status == 503);
+        if (status == 502 || status == 503 || status == 504) {
+            breaker.recordFailure();
+        } else {
+            breaker.recordSuccess();
+        }
+        governor.report(response.headers().firstValue("Sforce-Limit-Info").orElse(null));
+        if (control == null) {
+            return decode(response);
+        }
+        control.recordApiCall();
+        return new DecodedResponse(response, control.track(response.body()));
+    }
+
+    ApiLimitGovernor getGovernor() {
+        return governor;
+    }
+
+    ConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    private static HttpResponse<InputStream> decode(HttpResponse<InputStream> response) throws IOException {
+        return isGzipped(response) ? new DecodedResponse(response, response.body()) : response;
+    }
+
+    private static boolean isGzipped(HttpResponse<InputStream> response) {
+        return response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.trim().equalsIgnoreCase("gzip")).orElse(false);
+    }
+
+    // An I/O failure caused by cancel() or the query deadline is reported as such
+    SQLException readFailure(String message, IOException e) {
+        if (control != null && control.isAborted()) {
+            return control.abortedException();
+        }
+        return new SQLException(message, e);
+    }
+
+    // Carries the body that is actually read: inflated when gzipped, so decoders
+    // still stream straight from the socket, and tracked when it can be cancelled
+    private static final class DecodedResponse implements HttpResponse<InputStream> {
+        private final HttpResponse<InputStream> response;
+        private final InputStream body;
+
+        private DecodedResponse(HttpResponse<InputStream> response, InputStream raw) throws IOException {
+            this.response = response;
+            InputStream decoded = raw;
+            if (isGzipped(response)) {
+                try {
+                    decoded = new GZIPInputStream(raw, 8192);
+                } catch (EOFException e) {
+                    // Empty bodies carry no gzip header
+                    raw.close();
+                    decoded = InputStream.nullInputStream();
+                }
+            }
+            this.body = decoded;
+        }
+
+        @Override
+        public int statusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public HttpRequest request() {
+            return response.request();
+        }
+
+        @Override
+        public Optional<HttpResponse<InputStream>> previousResponse() {
+            return response.previousResponse();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return response.headers();
+        }
+
+        @Override
+        public InputStream body() {
+            return body;
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return response.sslSession();
+        }
+
+        @Override
+        public URI uri() {
+            return response.uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return response.version();
+        }
+    }
+
+    private JsonNode readJson(HttpResponse<InputStream> response) throws SQLException {
+        try (InputStream body = response.body()) {
+            JsonNode node = MAPPER.readTree(body);
+            return node != null ? node : MAPPER.nullNode();
+        } catch (IOException e) {
+            throw readFailure("Failed to read Salesforce response", e);
+        }
+    }
+
+    // Salesforce reports failures as [{"message": ..., "errorCode": ...}]
+    static SQLException error(int status, InputStream body) {
+        String message = "HTTP " + status;
+        String errorCode = null;
+        try {
+            JsonNode node = MAPPER.readTree(body);
+            if (node != null && node.isArray() && node.size() > 0) {
+                node = node.get(0);
+            }
+            if (node != null && node.hasNonNull("message")) {
+                message = node.get("message").asText();
+                errorCode = node.path("errorCode").asText(null);
+            }
+        } catch (IOException e) {
+            // Keep the status line when the body is not JSON
+        }
+        return new SalesforceApiException(errorCode != null ? errorCode + ": " + message : message, status, errorCode);
+    }
+}
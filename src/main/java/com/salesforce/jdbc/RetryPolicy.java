@@ -0,0 +1,78 @@
+package com.salesforce.jdbc;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Which failures of an idempotent request are worth another attempt, and how
+// long to wait first: exponential backoff with full jitter, so clients that
+// failed together do not come back together.
+final class RetryPolicy {
+    static final int DEFAULT_MAX_RETRIES = 3;
+
+    private static final long BASE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long MAX_DELAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private volatile int maxRetries = DEFAULT_MAX_RETRIES;
+
+    int getMaxRetries() {
+        return maxRetries;
+    }
+
+    void setMaxRetries(int maxRetries) {
+        this.maxRetries = Math.max(0, maxRetries);
+    }
+
+    long backoffNanos(int attempt) {
+        long ceiling = Math.min(MAX_DELAY_NANOS, BASE_DELAY_NANOS << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    // Connection failures, gateway errors and the error codes Salesforce uses for contention
+    static boolean isRetryable(SQLException e) {
+        if (isConnectionFailure(e.getCause())) {
+            return true;
+        }
+        return isTransient(e.getErrorCode(), SalesforceApiException.apiErrorCode(e), e.getMessage());
+    }
+
+    // The connection could not be made or was lost mid-exchange. Other I/O failures, such as a
+    // response body that does not parse, would only fail the same way again, and a request that
+    // timed out waiting for its response may still be running on the server.
+    static boolean isConnectionFailure(Throwable cause) {
+        if (cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException
+                || cause instanceof EOFException || cause instanceof SocketException) {
+            return true;
+        }
+        if (cause instanceof HttpTimeoutException || cause instanceof SocketTimeoutException) {
+            return false;
+        }
+        if (!(cause instanceof IOException) || cause instanceof JsonProcessingException) {
+            return false;
+        }
+        // The JDK client reports a dropped HTTP/1.1 connection or a reset HTTP/2 stream as a plain IOException
+        String message = cause.getMessage();
+        return message != null && (message.contains("Connection reset") || message.contains("RST_STREAM")
+                || message.contains("received no bytes") || message.contains("connection closed locally"));
+    }
+
+    static boolean isTransient(int status, String errorCode, String message) {
+        if (status == 502 || status == 503 || status == 504) {
+            return true;
+        }
+        if ("UNABLE_TO_LOCK_ROW".equals(errorCode) || "SERVER_UNAVAILABLE".equals(errorCode)) {
+            return true;
+        }
+        // The concurrent request cap clears within seconds; the daily allocation does not
+        return "REQUEST_LIMIT_EXCEEDED".equals(errorCode) && message != null && message.contains("Concurrent");
+    }
+}
@@ -0,0 +1,463 @@
+package com.salesforce.jdbc;
+
+import com.salesforce.jdbc.SqlAst.Expr;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// An expression the driver evaluates itself over a row of values, for the parts of a
+// statement SOQL cannot run, such as grouping by arithmetic. Values are the types
+// ColumnarPage.getObject returns; null follows SQL's three-valued logic.
+abstract class RowExpression {
+    // Maps a column or aggregate to its position in the row, or returns -1 when the
+    // expression is to be compiled from its parts
+    interface Resolver {
+        int resolve(Expr expr) throws SQLException;
+    }
+
+    abstract Object eval(Object[] row) throws SQLException;
+
+    // The row position this expression reads as it is, or -1 when it computes a value
+    int slot() {
+        return -1;
+    }
+
+    static RowExpression compile(Expr expr, Resolver resolver, String sql) throws SQLException {
+        int slot = resolver.resolve(expr);
+        if (slot >= 0) {
+            return new Slot(slot);
+        }
+        if (expr instanceof SqlAst.Literal) {
+            return new Constant(literal((SqlAst.Literal) expr, sql));
+        }
+        if (expr instanceof SqlAst.Parameter) {
+            throw unsupported("Parameters can only be used in WHERE when the driver aggregates", sql);
+        }
+        if (expr instanceof SqlAst.Binary) {
+            SqlAst.Binary binary = (SqlAst.Binary) expr;
+            return new Binary(binary.operator, compile(binary.left, resolver, sql), compile(binary.right, resolver, sql));
+        }
+        if (expr instanceof SqlAst.Unary) {
+            SqlAst.Unary unary = (SqlAst.Unary) expr;
+            return new Unary(unary.operator, compile(unary.operand, resolver, sql));
+        }
+        if (expr instanceof SqlAst.IsNull) {
+            SqlAst.IsNull isNull = (SqlAst.IsNull) expr;
+            RowExpression operand = compile(isNull.operand, resolver, sql);
+            return new RowExpression() {
+                @Override
+                Object eval(Object[] row) throws SQLException {
+                    return (operand.eval(row) == null) != isNull.negated;
+                }
+            };
+        }
+        if (expr instanceof SqlAst.Between) {
+            SqlAst.Between between = (SqlAst.Between) expr;
+            RowExpression operand = compile(between.operand, resolver, sql);
+            RowExpression range = new Binary("AND", new Binary(">=", operand, compile(between.low, resolver, sql)),
+                    new Binary("<=", operand, compile(between.high, resolver, sql)));
+            return between.negated ? new Unary("NOT", range) : range;
+        }
+        if (expr instanceof SqlAst.In) {
+            SqlAst.In in = (SqlAst.In) expr;
+            if (in.subquery != null || !(in.operator.equals("IN") || in.operator.equals("NOT IN"))) {
+                throw unsupported(in.operator + " can only be used in WHERE when the driver aggregates", sql);
+            }
+            List<RowExpression> values = new ArrayList<>();
+            for (Expr value : in.values) {
+                values.add(compile(value, resolver, sql));
+            }
+            return new In(compile(in.operand, resolver, sql), values, in.operator.equals("NOT IN"));
+        }
+        if (expr instanceof SqlAst.Function) {
+            throw unsupported(((SqlAst.Function) expr).name + "() cannot be evaluated by the driver", sql);
+        }
+        throw unsupported("Unsupported expression", sql);
+    }
+
+    private static Object literal(SqlAst.Literal literal, String sql) throws SQLException {
+        switch (literal.kind) {
+            case STRING:
+                return unescape(literal.text);
+            case NUMBER:
+                BigDecimal number = new BigDecimal(literal.text);
+                try {
+                    return number.scale() <= 0 ? (Object) number.longValueExact() : number;
+                } catch (ArithmeticException e) {
+                    return number;
+                }
+            case BOOLEAN:
+                return Boolean.parseBoolean(literal.text);
+            case NULL:
+                return null;
+            case DATE:
+                try {
+                    return LocalDate.parse(literal.text);
+                } catch (DateTimeParseException e) {
+                    throw new SQLDataException("Invalid DATE literal '" + literal.text + "' in: " + sql);
+                }
+            default:
+                throw unsupported(literal.kind + " literals can only be used in WHERE when the driver aggregates", sql);
+        }
+    }
+
+    // String literals arrive SOQL-escaped from the lexer
+    private static String unescape(String text) {
+        StringBuilder value = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                c = text.charAt(++i);
+                switch (c) {
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case '%':
+                    case '_':
+                        // Stays escaped so a LIKE pattern can tell it from a wildcard
+                        value.append('\\');
+                        break;
+                    default:
+                        break;
+                }
+            }
+            value.append(c);
+        }
+        return value.toString();
+    }
+
+    static boolean isTrue(Object value) {
+        return Boolean.TRUE.equals(value);
+    }
+
+    // Equal values group together: numbers by value whatever their type, so 5 meets 5.0
+    static Object groupKey(Object value) {
+        BigDecimal number;
+        if (value instanceof Double && Double.isFinite((Double) value)) {
+            number = BigDecimal.valueOf((Double) value);
+        } else if (value instanceof BigDecimal) {
+            number = (BigDecimal) value;
+        } else {
+            return value;
+        }
+        number = number.stripTrailingZeros();
+        if (number.scale() <= 0) {
+            try {
+                return number.longValueExact();
+            } catch (ArithmeticException e) {
+                // Beyond a long; kept as a decimal
+            }
+        }
+        return number;
+    }
+
+    // Orders two non-null values of comparable types, failing for values SQL cannot compare
+    static int compare(Object left, Object right) throws SQLException {
+        if (left instanceof Number && right instanceof Number) {
+            if (left instanceof Long && right instanceof Long) {
+                return Long.compare((Long) left, (Long) right);
+            }
+            if (left instanceof Double || right instanceof Double) {
+                return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+            }
+            return decimal(left).compareTo(decimal(right));
+        }
+        if (left.getClass() == right.getClass() && left instanceof Comparable) {
+            @SuppressWarnings("unchecked")
+            Comparable<Object> comparable = (Comparable<Object>) left;
+            return comparable.compareTo(right);
+        }
+        throw new SQLDataException("Cannot compare " + typeName(left) + " with " + typeName(right));
+    }
+
+    // A total order for sorting, placing values that cannot be compared by their type
+    static int order(Object left, Object right) {
+        try {
+            return compare(left, right);
+        } catch (SQLException e) {
+            int byType = typeName(left).compareTo(typeName(right));
+            return byType != 0 ? byType : String.valueOf(left).compareTo(String.valueOf(right));
+        }
+    }
+
+    private static String typeName(Object value) {
+        return value.getClass().getSimpleName().toLowerCase(Locale.ROOT);
+    }
+
+    static BigDecimal decimal(Object number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        }
+        if (number instanceof Long) {
+            return BigDecimal.valueOf((Long) number);
+        }
+        return BigDecimal.valueOf(((Number) number).doubleValue());
+    }
+
+    static Object arithmetic(String operator, Object left, Object right) throws SQLException {
+        if (left == null || right == null) {
+            return null;
+        }
+        if (!(left instanceof Number) || !(right instanceof Number)) {
+            throw new SQLDataException("Arithmetic needs numbers, not " + typeName(left) + " " + operator + " " + typeName(right));
+        }
+        if (left instanceof Double || right instanceof Double) {
+            double a = ((Number) left).doubleValue();
+            double b = ((Number) right).doubleValue();
+            switch (operator) {
+                case "+":
+                    return a + b;
+                case "-":
+                    return a - b;
+                case "*":
+                    return a * b;
+                default:
+                    if (b == 0) {
+                        throw new SQLDataException("Division by zero", "22012");
+                    }
+                    return a / b;
+            }
+        }
+        if (left instanceof Long && right instanceof Long && !operator.equals("/")) {
+            long a = (Long) left;
+            long b = (Long) right;
+            try {
+                switch (operator) {
+                    case "+":
+                        return Math.addExact(a, b);
+                    case "-":
+                        return Math.subtractExact(a, b);
+                    default:
+                        return Math.multiplyExact(a, b);
+                }
+            } catch (ArithmeticException e) {
+                // Past the range of a long; carried on exactly as a decimal
+            }
+        }
+        BigDecimal a = decimal(left);
+        BigDecimal b = decimal(right);
+        switch (operator) {
+            case "+":
+                return a.add(b);
+            case "-":
+                return a.subtract(b);
+            case "*":
+                return a.multiply(b);
+            default:
+                if (b.signum() == 0) {
+                    throw new SQLDataException("Division by zero", "22012");
+                }
+                // Salesforce divides into decimals, so 7 / 2 is 3.5 and not 3
+                BigDecimal quotient = a.divide(b, MathContext.DECIMAL128).stripTrailingZeros();
+                return quotient.scale() < 0 ? quotient.setScale(0) : quotient;
+        }
+    }
+
+    private static SQLFeatureNotSupportedException unsupported(String message, String sql) {
+        return new SQLFeatureNotSupportedException(message + ": " + sql);
+    }
+
+    private static final class Slot extends RowExpression {
+        private final int index;
+
+        Slot(int index) {
+            this.index = index;
+        }
+
+        @Override
+        Object eval(Object[] row) {
+            return row[index];
+        }
+
+        @Override
+        int slot() {
+            return index;
+        }
+    }
+
+    private static final class Constant extends RowExpression {
+        private final Object value;
+
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        Object eval(Object[] row) {
+            return value;
+        }
+    }
+
+    private static final class Unary extends RowExpression {
+        private final String operator;
+        private final RowExpression operand;
+
+        Unary(String operator, RowExpression operand) {
+            this.operator = operator;
+            this.operand = operand;
+        }
+
+        @Override
+        Object eval(Object[] row) throws SQLException {
+            Object value = operand.eval(row);
+            if (value == null) {
+                return null;
+            }
+            if (operator.equals("NOT")) {
+                return !isTrue(value);
+            }
+            return arithmetic("-", 0L, value);
+        }
+    }
+
+    private static final class Binary extends RowExpression {
+        private final String operator;
+        private final RowExpression left;
+        private final RowExpression right;
+        private final Pattern like;
+
+        Binary(String operator, RowExpression left, RowExpression right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+            // A constant pattern is compiled once
+            this.like = operator.equals("LIKE") && right instanceof Constant && ((Constant) right).value instanceof String
+                    ? like((String) ((Constant) right).value) : null;
+        }
+
+        @Override
+        Object eval(Object[] row) throws SQLException {
+            switch (operator) {
+                case "AND": {
+                    Object a = left.eval(row);
+                    if (Boolean.FALSE.equals(a)) {
+                        return false;
+                    }
+                    Object b = right.eval(row);
+                    if (Boolean.FALSE.equals(b)) {
+                        return false;
+                    }
+                    return a == null || b == null ? null : true;
+                }
+                case "OR": {
+                    Object a = left.eval(row);
+                    if (isTrue(a)) {
+                        return true;
+                    }
+                    Object b = right.eval(row);
+                    if (isTrue(b)) {
+                        return true;
+                    }
+                    return a == null || b == null ? null : false;
+                }
+                case "+":
+                case "-":
+                case "*":
+                case "/":
+                    return arithmetic(operator, left.eval(row), right.eval(row));
+                default:
+                    break;
+            }
+            Object a = left.eval(row);
+            Object b = right.eval(row);
+            if (a == null || b == null) {
+                return null;
+            }
+            if (operator.equals("LIKE")) {
+                return (like != null ? like : like(String.valueOf(b))).matcher(String.valueOf(a)).matches();
+            }
+            int order = compare(a, b);
+            switch (operator) {
+                case "=":
+                    return order == 0;
+                case "!=":
+                    return order != 0;
+                case "<":
+                    return order < 0;
+                case "<=":
+                    return order <= 0;
+                case ">":
+                    return order > 0;
+                case ">=":
+                    return order >= 0;
+                default:
+                    throw new SQLFeatureNotSupportedException("Operator " + operator + " cannot be evaluated by the driver");
+            }
+        }
+
+        // LIKE is case-insensitive in SOQL; \% and \_ match themselves
+        private static Pattern like(String pattern) {
+            StringBuilder regex = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '\\' && i + 1 < pattern.length()) {
+                    literal.append(pattern.charAt(++i));
+                } else if (c == '%' || c == '_') {
+                    if (literal.length() > 0) {
+                        regex.append(Pattern.quote(literal.toString()));
+                        literal.setLength(0);
+                    }
+                    regex.append(c == '%' ? ".*" : ".");
+                } else {
+                    literal.append(c);
+                }
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+            }
+            return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+        }
+    }
+
+    private static final class In extends RowExpression {
+        private final RowExpression operand;
+        private final List<RowExpression> values;
+        private final boolean negated;
+
+        In(RowExpression operand, List<RowExpression> values, boolean negated) {
+            this.operand = operand;
+            this.values = values;
+            this.negated = negated;
+        }
+
+        @Override
+        Object eval(Object[] row) throws SQLException {
+            Object value = operand.eval(row);
+            if (value == null) {
+                return null;
+            }
+            boolean unknown = false;
+            for (RowExpression candidate : values) {
+                Object other = candidate.eval(row);
+                if (other == null) {
+                    unknown = true;
+                } else if (compare(value, other) == 0) {
+                    return !negated;
+                }
+            }
+            return unknown ? null : negated;
+        }
+    }
+}
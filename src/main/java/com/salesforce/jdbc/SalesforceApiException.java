@@ -0,0 +1,36 @@
+package com.salesforce.jdbc;
+
+import java.sql.SQLException;
+
+// A failure Salesforce reported, e.g. INVALID_SESSION_ID. The API error code is kept apart from
+// the SQLSTATE, which is only set where an X/Open class fits: 08006 for a session Salesforce no
+// longer accepts and 40001 for a row lock it could not get. The error code is the HTTP status.
+public class SalesforceApiException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    private final String apiErrorCode;
+
+    public SalesforceApiException(String reason, int status, String apiErrorCode) {
+        super(reason, sqlState(status, apiErrorCode), status);
+        this.apiErrorCode = apiErrorCode;
+    }
+
+    public String getApiErrorCode() {
+        return apiErrorCode;
+    }
+
+    // The API error code behind any SQLException, or null when Salesforce did not report one
+    static String apiErrorCode(SQLException e) {
+        return e instanceof SalesforceApiException ? ((SalesforceApiException) e).getApiErrorCode() : null;
+    }
+
+    private static String sqlState(int status, String apiErrorCode) {
+        if (status == 401 || "INVALID_SESSION_ID".equals(apiErrorCode) || "INVALID_AUTH_HEADER".equals(apiErrorCode)) {
+            return "08006";
+        }
+        if ("UNABLE_TO_LOCK_ROW".equals(apiErrorCode)) {
+            return "40001";
+        }
+        return null;
+    }
+}
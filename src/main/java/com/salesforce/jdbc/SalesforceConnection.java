@@ -1,40 +1,134 @@
 package com.salesforce.jdbc;
 
+import com.salesforce.api.DescribeSObject;
 import com.salesforce.api.ForceApi;
 import com.salesforce.api.ForceException;
-import com.salesforce.api.ForceConnection;
-import com.salesforce.api.ForceResult;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.WeakHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 public class SalesforceConnection implements Connection {
-    private final ForceApi forceApi;
+    private static final ExecutorService ASYNC_EXECUTOR = DriverThreads.newExecutor("salesforce-async-");
+    private static final Pattern TRANSIENT_STATUS = Pattern.compile("\\b50[234]\\b");
+
+    private final SalesforceSession session;
+    private final RestClient restClient;
     private boolean closed = false;
     private boolean autoCommit = true;
     private int transactionIsolation = Connection.TRANSACTION_NONE;
     private final List<Statement> statements = new ArrayList<>();
+    private SQLWarning warnings;
+    private final Properties info;
+    private final DescribeCache describeCache = new DescribeCache(this);
+    // Weak so plans evicted from the shared cache do not linger here
+    private final Map<TranslationPlan, TranslationPlan> expandedPlans = Collections.synchronizedMap(new WeakHashMap<>());
+    private volatile Executor asyncExecutor = ASYNC_EXECUTOR;
+    private final SalesforceStatement.ApiPriority apiPriority;
 
     public SalesforceConnection(String instanceUrl, String username, String password, String securityToken) throws SQLException {
+        this(instanceUrl, username, password, securityToken, new Properties());
+    }
+
+    public SalesforceConnection(String instanceUrl, String username, String password, String securityToken, Properties info) throws SQLException {
+        this(openSession(instanceUrl, username, password, securityToken, info != null ? info : new Properties()), info);
+    }
+
+    // Opens a connection on a session that has already logged in and been retained for it
+    SalesforceConnection(SalesforceSession session, Properties info) throws SQLException {
+        this.info = info != null ? info : new Properties();
+        this.session = session;
         try {
-            ForceConnection forceConnection = new ForceConnection(instanceUrl, username, password + securityToken);
-            this.forceApi = new ForceApi(forceConnection);
-        } catch (ForceException e) {
-            throw new SQLException("Failed to connect to Salesforce", e);
+            this.restClient = new RestClient(session, createTransport(this.info), getLongProperty(this.info, "readTimeout", 0),
+                    getBooleanProperty("compression", true));
+            this.apiPriority = parseApiPriority(this.info.getProperty("apiPriority"));
+            restClient.getRetryPolicy().setMaxRetries(getIntProperty("maxRetries", RetryPolicy.DEFAULT_MAX_RETRIES));
+            if (this.info.getProperty("circuitBreakerThreshold") != null || this.info.getProperty("circuitBreakerCooldown") != null) {
+                restClient.getBreaker().configure(getIntProperty("circuitBreakerThreshold", CircuitBreaker.DEFAULT_FAILURE_THRESHOLD),
+                        getLongProperty(this.info, "circuitBreakerCooldown", CircuitBreaker.DEFAULT_COOLDOWN_MILLIS));
+            }
+            if (this.info.getProperty("maxConcurrentRequests") != null) {
+                restClient.getLimiter().setMaxLimit(getIntProperty("maxConcurrentRequests", ConcurrencyLimiter.DEFAULT_MAX_LIMIT));
+            }
+            if (this.info.getProperty("apiLowReserve") != null || this.info.getProperty("apiNormalReserve") != null) {
+                // The governor is shared by the org, so the last connection to set reserves decides them
+                restClient.getGovernor().setReserves(getIntProperty("apiLowReserve", ApiLimitGovernor.DEFAULT_LOW_RESERVE_PERCENT),
+                        getIntProperty("apiNormalReserve", ApiLimitGovernor.DEFAULT_NORMAL_RESERVE_PERCENT));
+            }
+        } catch (SQLException e) {
+            session.release();
+            throw e;
+        }
+    }
+
+    private static SalesforceStatement.ApiPriority parseApiPriority(String value) throws SQLException {
+        if (value == null || value.isBlank()) {
+            return SalesforceStatement.ApiPriority.NORMAL;
+        }
+        try {
+            return SalesforceStatement.ApiPriority.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Invalid value for connection property apiPriority: " + value, e);
+        }
+    }
+
+    private static HttpTransport createTransport(Properties info) throws SQLException {
+        String className = info.getProperty("httpTransport");
+        if (className == null || className.isBlank()) {
+            return JdkHttpTransport.shared(getLongProperty(info, "connectTimeout", JdkHttpTransport.DEFAULT_CONNECT_TIMEOUT_MILLIS));
+        }
+        try {
+            Class<?> type = Class.forName(className.trim());
+            return (HttpTransport) type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new SQLException("Cannot create HttpTransport " + className, e);
+        }
+    }
+
+    private static long getLongProperty(Properties info, String name, long defaultValue) throws SQLException {
+        String value = info.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new SQLException("Invalid value for connection property " + name + ": " + value, e);
         }
     }
 
+    // Connections of the same user share a session unless shareSession=false
+    static SalesforceSession openSession(String instanceUrl, String username, String password, String securityToken,
+                                         Properties info) throws SQLException {
+        String share = info.getProperty("shareSession");
+        if (share != null && !share.isBlank() && !Boolean.parseBoolean(share.trim())) {
+            return SessionRegistry.unshared(instanceUrl, username, password, securityToken);
+        }
+        String timeout = info.getProperty("sessionTimeout");
+        int timeoutMinutes = SessionRegistry.DEFAULT_SESSION_TIMEOUT_MINUTES;
+        if (timeout != null && !timeout.isBlank()) {
+            try {
+                timeoutMinutes = Integer.parseInt(timeout.trim());
+            } catch (NumberFormatException e) {
+                throw new SQLException("Invalid value for connection property sessionTimeout: " + timeout, e);
+            }
+        }
+        return SessionRegistry.acquire(instanceUrl, username, password, securityToken, timeoutMinutes);
+    }
+
     @Override
     public Statement createStatement() throws SQLException {
-        checkClosed();
-        SalesforceStatement statement = new SalesforceStatement(this);
-        statements.add(statement);
-        return statement;
+        return createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
     }
 
     @Override
@@ -53,8 +147,7 @@ public class SalesforceConnection implements Connection {
     @Override
     public String nativeSQL(String sql) throws SQLException {
         checkClosed();
-        // Convert SQL to SOQL
-        return convertSQLToSOQL(sql);
+        return translate(sql).getSoql();
     }
 
     @Override
@@ -89,7 +182,18 @@ public class SalesforceConnection implements Connection {
             }
             statements.clear();
             closed = true;
+            session.release();
+        }
+    }
+
+    // Returns the connection to its initial state before a pool hands it to the next caller
+    void reset() throws SQLException {
+        for (Statement stmt : statements) {
+            stmt.close();
         }
+        statements.clear();
+        warnings = null;
+        autoCommit = true;
     }
 
     @Override
@@ -145,22 +249,35 @@ public class SalesforceConnection implements Connection {
     @Override
     public SQLWarning getWarnings() throws SQLException {
         checkClosed();
-        return null;
+        return warnings;
     }
 
     @Override
     public void clearWarnings() throws SQLException {
         checkClosed();
+        warnings = null;
     }
 
     @Override
     public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
-        return createStatement();
+        checkClosed();
+        if (resultSetConcurrency != ResultSet.CONCUR_READ_ONLY) {
+            throw new SQLFeatureNotSupportedException("Only CONCUR_READ_ONLY is supported");
+        }
+        SalesforceStatement statement = new SalesforceStatement(this, supportedResultSetType(resultSetType));
+        statements.add(statement);
+        return statement;
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
-        return prepareStatement(sql);
+        checkClosed();
+        if (resultSetConcurrency != ResultSet.CONCUR_READ_ONLY) {
+            throw new SQLFeatureNotSupportedException("Only CONCUR_READ_ONLY is supported");
+        }
+        SalesforcePreparedStatement statement = new SalesforcePreparedStatement(this, sql, supportedResultSetType(resultSetType));
+        statements.add(statement);
+        return statement;
     }
 
     @Override
@@ -218,12 +335,12 @@ public class SalesforceConnection implements Connection {
 
     @Override
     public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
-        return createStatement();
+        return createStatement(resultSetType, resultSetConcurrency);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
-        return prepareStatement(sql);
+        return prepareStatement(sql, resultSetType, resultSetConcurrency);
     }
 
     @Override
@@ -272,12 +389,14 @@ public class SalesforceConnection implements Connection {
 
     @Override
     public boolean isValid(int timeout) throws SQLException {
-        try {
-            forceApi.query("SELECT Id FROM User LIMIT 1");
-            return true;
-        } catch (ForceException e) {
+        if (timeout < 0) {
+            throw new SQLException("Timeout must be >= 0");
+        }
+        if (closed) {
             return false;
         }
+        // The resource list of the API version is the cheapest authenticated call
+        return restClient.ping(timeout);
     }
 
     @Override
@@ -331,16 +450,52 @@ public class SalesforceConnection implements Connection {
         close();
     }
 
+    // Where executeQueryAsync runs queries; null restores the shared default
+    public void setAsyncExecutor(Executor executor) throws SQLException {
+        checkClosed();
+        this.asyncExecutor = executor != null ? executor : ASYNC_EXECUTOR;
+    }
+
+    public Executor getAsyncExecutor() {
+        return asyncExecutor;
+    }
+
     @Override
     public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
         checkClosed();
-        // Not supported
+        if (milliseconds < 0) {
+            throw new SQLException("Network timeout must be >= 0");
+        }
+        // Applied per request by the HTTP client, so the executor is not needed
+        restClient.setRequestTimeout(milliseconds);
     }
 
     @Override
     public int getNetworkTimeout() throws SQLException {
         checkClosed();
-        return 0;
+        return (int) Math.min(restClient.getRequestTimeout(), Integer.MAX_VALUE);
+    }
+
+    // Results are snapshots of the query, so a scroll-sensitive request is served scroll-insensitive
+    private int supportedResultSetType(int resultSetType) throws SQLException {
+        switch (resultSetType) {
+            case ResultSet.TYPE_FORWARD_ONLY:
+            case ResultSet.TYPE_SCROLL_INSENSITIVE:
+                return resultSetType;
+            case ResultSet.TYPE_SCROLL_SENSITIVE:
+                addWarning(new SQLWarning("TYPE_SCROLL_SENSITIVE is not supported, using TYPE_SCROLL_INSENSITIVE"));
+                return ResultSet.TYPE_SCROLL_INSENSITIVE;
+            default:
+                throw new SQLException("Invalid result set type: " + resultSetType);
+        }
+    }
+
+    private void addWarning(SQLWarning warning) {
+        if (warnings == null) {
+            warnings = warning;
+        } else {
+            warnings.setNextWarning(warning);
+        }
     }
 
     private void checkClosed() throws SQLException {
@@ -349,21 +504,112 @@ public class SalesforceConnection implements Connection {
         }
     }
 
-    private String convertSQLToSOQL(String sql) {
-        // Basic SQL to SOQL conversion
-        // This is a simplified version and should be enhanced based on requirements
-        return sql.replaceAll("(?i)SELECT\\s+\\*\\s+FROM", "SELECT Id FROM")
-                  .replaceAll("(?i)WHERE\\s+", "WHERE ")
-                  .replaceAll("(?i)AND\\s+", "AND ")
-                  .replaceAll("(?i)OR\\s+", "OR ");
+    boolean getBooleanProperty(String name, boolean defaultValue) {
+        String value = info.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    int getIntProperty(String name, int defaultValue) throws SQLException {
+        String value = info.getProperty(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new SQLException("Invalid value for connection property " + name + ": " + value, e);
+        }
+    }
+
+    // Compiled once per distinct statement text and then served from the plan cache. A
+    // SELECT * plan is shared across orgs, so its expansion is kept per connection.
+    TranslationPlan translate(String sql) throws SQLException {
+        TranslationPlan plan = SqlTranslator.SHARED.translate(sql);
+        if (!plan.needsExpansion()) {
+            return plan;
+        }
+        TranslationPlan expanded = expandedPlans.get(plan);
+        if (expanded == null) {
+            expanded = plan.expand(describeCache);
+            expandedPlans.put(plan, expanded);
+        }
+        return expanded;
     }
 
-    // Internal method to execute SOQL query
-    ForceResult executeQuery(String soql) throws SQLException {
+    DescribeSObject describeSObject(String sObject) throws SQLException {
+        checkClosed();
         try {
-            return forceApi.query(soql);
+            return callForceApi(api -> api.describeSObject(sObject));
         } catch (ForceException e) {
-            throw new SQLException("Failed to execute query", e);
+            throw new SQLException("Failed to describe " + sObject, e);
+        }
+    }
+
+    private interface ForceCall<T> {
+        T call(ForceApi api);
+    }
+
+    // Runs a force-api call, renewing the session once if the token was rejected and
+    // backing off and retrying when Salesforce reports a transient failure
+    private <T> T callForceApi(ForceCall<T> call) throws SQLException {
+        RetryPolicy policy = restClient.getRetryPolicy();
+        boolean renewed = false;
+        for (int retry = 0; ; retry++) {
+            String sessionId = session.getSessionId();
+            try {
+                return call.call(session.getForceApi());
+            } catch (ForceException e) {
+                if (!renewed && SalesforceSession.isExpiredSession(e) && session.renew(sessionId) != null) {
+                    renewed = true;
+                    continue;
+                }
+                if (retry >= policy.getMaxRetries() || !isTransient(e)) {
+                    throw e;
+                }
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(policy.backoffNanos(retry));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while retrying a Salesforce call", e);
+            }
         }
     }
-} 
\ No newline at end of file
+
+    // force-api only reports failures as text, so the error code is looked for in the message
+    private static boolean isTransient(ForceException e) {
+        String message = e.getMessage();
+        return message != null && (message.contains("UNABLE_TO_LOCK_ROW") || message.contains("SERVER_UNAVAILABLE")
+                || TRANSIENT_STATUS.matcher(message).find());
+    }
+
+    DescribeCache getDescribeCache() {
+        return describeCache;
+    }
+
+    // Attaches describe types to a plan so pages can decode values once at ingest
+    ColumnPlan typeColumns(ColumnPlan plan, String soql) throws SQLException {
+        if (plan == null || !getBooleanProperty("describeTypes", true)) {
+            return plan;
+        }
+        return plan.withTypes(describeCache.resolveTypes(ColumnPlan.sObjectOf(soql), plan));
+    }
+
+    // The priority new statements start with, from the apiPriority property
+    SalesforceStatement.ApiPriority getApiPriority() {
+        return apiPriority;
+    }
+
+    // Calls left in the org's rolling 24-hour API allocation as last reported, or -1 before any response
+    public long getApiCallsRemaining() {
+        return restClient.getGovernor().getRemaining();
+    }
+
+    public long getApiCallLimit() {
+        return restClient.getGovernor().getLimit();
+    }
+
+    RestClient getRestClient() {
+        return restClient;
+    }
+}
@@ -0,0 +1,280 @@
+package com.salesforce.jdbc;
+
+import javax.sql.ConnectionPoolDataSource;
+import javax.sql.DataSource;
+import javax.sql.PooledConnection;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+// Pooling DataSource. It logs in once and every physical connection shares
+// that session, so growing the pool costs no extra logins; borrowed
+// connections go back to the pool when the caller closes them. loginTimeout
+// bounds both the login and the wait for a pooled connection. There is no
+// statement cache: translated plans are already shared by normalized SQL, so
+// preparing a statement again costs no parse and only the poolable hint is kept.
+public class SalesforceDataSource implements DataSource, ConnectionPoolDataSource {
+    private static final ExecutorService LOGINS = DriverThreads.newExecutor("salesforce-login-");
+
+    private String url;
+    private String user;
+    private String password;
+    private String securityToken;
+    private Properties properties = new Properties();
+    private int minIdle = 0;
+    private int maxIdle = 8;
+    private int maxPoolSize = 8;
+    private long maxLifetime = 30 * 60 * 1000L;
+    private long borrowTimeout = 30 * 1000L;
+    private int loginTimeout = 0;
+    private PrintWriter logWriter;
+
+    private final ConnectionPool.Factory factory;
+    private ConnectionPool pool;
+
+    public SalesforceDataSource() {
+        this.factory = this::sharedSessionConnection;
+    }
+
+    // Pools the factory's connections instead of logging in with the configured user
+    SalesforceDataSource(ConnectionPool.Factory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return pool().borrow();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (Objects.equals(username, user) && Objects.equals(password, this.password)) {
+            return getConnection();
+        }
+        // Other credentials get a connection outside the pool
+        return connect(username, password);
+    }
+
+    @Override
+    public PooledConnection getPooledConnection() throws SQLException {
+        return sharedSessionConnection();
+    }
+
+    // The session registry gives every physical connection of the configured user the same session
+    private SalesforcePooledConnection sharedSessionConnection() throws SQLException {
+        if (user == null || password == null) {
+            throw new SQLException("Username and password are required");
+        }
+        return new SalesforcePooledConnection(connect(user, password));
+    }
+
+    @Override
+    public PooledConnection getPooledConnection(String username, String password) throws SQLException {
+        return new SalesforcePooledConnection(connect(username, password));
+    }
+
+    // Opens a physical connection, giving up on a login that takes longer than loginTimeout
+    private SalesforceConnection connect(String username, String password) throws SQLException {
+        String instanceUrl = instanceUrl();
+        Properties info = connectionProperties();
+        int timeout = loginTimeout;
+        if (timeout <= 0) {
+            return new SalesforceConnection(instanceUrl, username, password, securityToken, info);
+        }
+        CompletableFuture<SalesforceConnection> login = new CompletableFuture<>();
+        LOGINS.execute(() -> {
+            try {
+                login.complete(new SalesforceConnection(instanceUrl, username, password, securityToken, info));
+            } catch (SQLException | RuntimeException | Error e) {
+                login.completeExceptionally(e);
+            }
+        });
+        try {
+            return login.get(timeout, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Failed to connect to Salesforce", e.getCause());
+        } catch (TimeoutException e) {
+            abandon(login);
+            throw new SQLTimeoutException("Login did not complete within " + timeout + " seconds", "HYT00");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(login);
+            throw new SQLException("Interrupted while logging in", e);
+        }
+    }
+
+    // The login carries on in the background; a connection it still makes is closed unused
+    private static void abandon(CompletableFuture<SalesforceConnection> login) {
+        login.thenAccept(connection -> {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // Nobody is waiting for it
+            }
+        });
+    }
+
+    private synchronized ConnectionPool pool() throws SQLException {
+        if (pool == null) {
+            ConnectionPool.Config config = new ConnectionPool.Config();
+            config.minIdle = minIdle;
+            config.maxIdle = Math.max(maxIdle, minIdle);
+            config.maxPoolSize = Math.max(maxPoolSize, 1);
+            config.maxLifetimeMillis = maxLifetime;
+            config.borrowTimeoutMillis = loginTimeout > 0
+                    ? Math.min(borrowTimeout, TimeUnit.SECONDS.toMillis(loginTimeout)) : borrowTimeout;
+            pool = new ConnectionPool(factory, config);
+        }
+        return pool;
+    }
+
+    private String instanceUrl() throws SQLException {
+        if (url == null) {
+            throw new SQLException("No url configured");
+        }
+        return url.startsWith(SalesforceDriver.URL_PREFIX) ? url.substring(SalesforceDriver.URL_PREFIX.length()) : url;
+    }
+
+    private Properties connectionProperties() {
+        Properties info = new Properties();
+        info.putAll(properties);
+        if (user != null) {
+            info.setProperty("user", user);
+        }
+        return info;
+    }
+
+    // Closes idle connections; borrowed ones are closed as they are returned
+    public synchronized void close() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(String user) {
+        this.user = user;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public void setSecurityToken(String securityToken) {
+        this.securityToken = securityToken;
+    }
+
+    public Properties getProperties() {
+        return properties;
+    }
+
+    public void setProperties(Properties properties) {
+        this.properties = properties != null ? properties : new Properties();
+    }
+
+    public int getMinIdle() {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public int getMaxIdle() {
+        return maxIdle;
+    }
+
+    public void setMaxIdle(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public long getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    // Milliseconds a physical connection is kept before it is retired; 0 keeps it forever
+    public void setMaxLifetime(long maxLifetime) {
+        this.maxLifetime = maxLifetime;
+    }
+
+    public long getBorrowTimeout() {
+        return borrowTimeout;
+    }
+
+    // Milliseconds getConnection() waits for a free connection when the pool is exhausted
+    public void setBorrowTimeout(long borrowTimeout) {
+        this.borrowTimeout = borrowTimeout;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.logWriter = out;
+    }
+
+    // Seconds getConnection() may take, logging in or waiting for the pool; 0 leaves it to borrowTimeout.
+    // Applies to a pool created after it is set.
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return loginTimeout;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+}
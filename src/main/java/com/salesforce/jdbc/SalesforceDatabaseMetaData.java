@@ -303,7 +303,7 @@ public class SalesforceDatabaseMetaData implements DatabaseMetaData {
 
     @Override
     public boolean supportsFullOuterJoins() throws SQLException {
-        return false;
+        return true;
     }
 
     @Override
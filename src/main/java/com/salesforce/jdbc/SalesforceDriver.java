@@ -7,7 +7,7 @@ import java.util.Properties;
 import java.util.logging.Logger;
 
 public class SalesforceDriver implements java.sql.Driver {
-    private static final String URL_PREFIX = "jdbc:salesforce:";
+    static final String URL_PREFIX = "jdbc:salesforce:";
     private static final int MAJOR_VERSION = 1;
     private static final int MINOR_VERSION = 0;
 
@@ -40,7 +40,7 @@ public class SalesforceDriver implements java.sql.Driver {
             throw new SQLException("Username and password are required");
         }
 
-        return new SalesforceConnection(instanceUrl, username, password, securityToken);
+        return new SalesforceConnection(instanceUrl, username, password, securityToken, info);
     }
 
     @Override
@@ -48,7 +48,27 @@ public class SalesforceDriver implements java.sql.Driver {
         return new DriverPropertyInfo[]{
             new DriverPropertyInfo("user", info.getProperty("user")),
             new DriverPropertyInfo("password", info.getProperty("password")),
-            new DriverPropertyInfo("securityToken", info.getProperty("securityToken"))
+            new DriverPropertyInfo("securityToken", info.getProperty("securityToken")),
+            new DriverPropertyInfo("prefetchDepth", info.getProperty("prefetchDepth")),
+            new DriverPropertyInfo("describeTypes", info.getProperty("describeTypes")),
+            new DriverPropertyInfo("chunkParallelism", info.getProperty("chunkParallelism")),
+            new DriverPropertyInfo("chunkOrdered", info.getProperty("chunkOrdered")),
+            new DriverPropertyInfo("bulkThreshold", info.getProperty("bulkThreshold")),
+            new DriverPropertyInfo("useBulkQuery", info.getProperty("useBulkQuery")),
+            new DriverPropertyInfo("shareSession", info.getProperty("shareSession")),
+            new DriverPropertyInfo("sessionTimeout", info.getProperty("sessionTimeout")),
+            new DriverPropertyInfo("connectTimeout", info.getProperty("connectTimeout")),
+            new DriverPropertyInfo("readTimeout", info.getProperty("readTimeout")),
+            new DriverPropertyInfo("httpTransport", info.getProperty("httpTransport")),
+            new DriverPropertyInfo("compression", info.getProperty("compression")),
+            new DriverPropertyInfo("apiPriority", info.getProperty("apiPriority")),
+            new DriverPropertyInfo("apiLowReserve", info.getProperty("apiLowReserve")),
+            new DriverPropertyInfo("apiNormalReserve", info.getProperty("apiNormalReserve")),
+            new DriverPropertyInfo("maxConcurrentRequests", info.getProperty("maxConcurrentRequests")),
+            new DriverPropertyInfo("maxRetries", info.getProperty("maxRetries")),
+            new DriverPropertyInfo("circuitBreakerThreshold", info.getProperty("circuitBreakerThreshold")),
+            new DriverPropertyInfo("circuitBreakerCooldown", info.getProperty("circuitBreakerCooldown")),
+            new DriverPropertyInfo("localAggregateGroups", info.getProperty("localAggregateGroups"))
         };
     }
 
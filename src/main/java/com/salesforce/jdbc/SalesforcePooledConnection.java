@@ -0,0 +1,212 @@
+package com.salesforce.jdbc;
+
+import javax.sql.ConnectionEvent;
+import javax.sql.ConnectionEventListener;
+import javax.sql.PooledConnection;
+import javax.sql.StatementEventListener;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// A physical SalesforceConnection handed out through short-lived logical
+// handles. Closing a handle resets the physical connection and tells the
+// listeners it can be reused; it is only really closed with close().
+// Statements and result sets are handed out wrapped too, so a fatal error
+// raised by a query reaches the listeners as well.
+public class SalesforcePooledConnection implements PooledConnection {
+    private final SalesforceConnection physical;
+    private final List<ConnectionEventListener> connectionListeners = new CopyOnWriteArrayList<>();
+    private final List<StatementEventListener> statementListeners = new CopyOnWriteArrayList<>();
+    private LogicalHandle handle;
+    private boolean closed = false;
+
+    SalesforcePooledConnection(SalesforceConnection physical) {
+        this.physical = physical;
+    }
+
+    @Override
+    public synchronized Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("PooledConnection is closed");
+        }
+        if (handle != null) {
+            // Only the most recent handle stays usable
+            handle.closed = true;
+        }
+        handle = new LogicalHandle();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, handle);
+    }
+
+    private static boolean isWrapped(Class<?> type) {
+        return type == Statement.class || type == PreparedStatement.class || type == CallableStatement.class || type == ResultSet.class;
+    }
+
+    @Override
+    public synchronized void close() throws SQLException {
+        if (!closed) {
+            closed = true;
+            if (handle != null) {
+                handle.closed = true;
+            }
+            physical.close();
+        }
+    }
+
+    SalesforceConnection getPhysicalConnection() {
+        return physical;
+    }
+
+    @Override
+    public void addConnectionEventListener(ConnectionEventListener listener) {
+        connectionListeners.add(listener);
+    }
+
+    @Override
+    public void removeConnectionEventListener(ConnectionEventListener listener) {
+        connectionListeners.remove(listener);
+    }
+
+    @Override
+    public void addStatementEventListener(StatementEventListener listener) {
+        statementListeners.add(listener);
+    }
+
+    @Override
+    public void removeStatementEventListener(StatementEventListener listener) {
+        statementListeners.remove(listener);
+    }
+
+    private void handleClosed() {
+        try {
+            physical.reset();
+        } catch (SQLException e) {
+            fireConnectionError(e);
+            return;
+        }
+        ConnectionEvent event = new ConnectionEvent(this);
+        for (ConnectionEventListener listener : connectionListeners) {
+            listener.connectionClosed(event);
+        }
+    }
+
+    private void fireConnectionError(SQLException error) {
+        ConnectionEvent event = new ConnectionEvent(this, error);
+        for (ConnectionEventListener listener : connectionListeners) {
+            listener.connectionErrorOccurred(event);
+        }
+    }
+
+    // Errors after which the physical connection cannot be handed out again
+    private boolean isFatal(SQLException error) throws SQLException {
+        String state = error.getSQLState();
+        return physical.isClosed() || state != null && state.startsWith("08")
+                || "INVALID_SESSION_ID".equals(SalesforceApiException.apiErrorCode(error));
+    }
+
+    private final class LogicalHandle implements InvocationHandler {
+        private volatile boolean closed = false;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        handleClosed();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(physical);
+                case "unwrap":
+                    return ((Class<?>) args[0]).cast(physical);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Logical connection to " + physical;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            Object result = forward(physical, method, args);
+            if (method.getName().equals("abort")) {
+                closed = true;
+                fireConnectionError(new SQLException("Connection was aborted"));
+            }
+            return wrap(result, method.getReturnType(), proxy);
+        }
+
+        // Invokes the method on the target, retiring the connection if it fails fatally
+        private Object forward(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && !closed && isFatal((SQLException) cause)) {
+                    closed = true;
+                    fireConnectionError((SQLException) cause);
+                }
+                throw cause;
+            }
+        }
+
+        private Object wrap(Object result, Class<?> type, Object parent) {
+            if (result == null || !isWrapped(type)) {
+                return result;
+            }
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new ChildHandle(this, result, parent));
+        }
+    }
+
+    // A statement or result set of a logical handle; getConnection() and getStatement() return the wrapped parent
+    private static final class ChildHandle implements InvocationHandler {
+        private final LogicalHandle owner;
+        private final Object target;
+        private final Object parent;
+
+        private ChildHandle(LogicalHandle owner, Object target, Object parent) {
+            this.owner = owner;
+            this.target = target;
+            this.parent = parent;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                case "getStatement":
+                    if (method.getParameterCount() == 0) {
+                        return parent;
+                    }
+                    break;
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(target);
+                case "unwrap":
+                    return ((Class<?>) args[0]).cast(target);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return target.toString();
+                default:
+                    break;
+            }
+            return owner.wrap(owner.forward(target, method, args), method.getReturnType(), proxy);
+        }
+    }
+}
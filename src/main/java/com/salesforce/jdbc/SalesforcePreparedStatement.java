@@ -0,0 +1,418 @@
+package com.salesforce.jdbc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.concurrent.CompletableFuture;
+
+// The SQL is compiled once, when the statement is prepared, into a SOQL template with a
+// slot per ? marker. Each setXxx call encodes its value as a SOQL literal straight away,
+// so executing only splices the literals into the template.
+public class SalesforcePreparedStatement extends SalesforceStatement implements PreparedStatement {
+    private final TranslationPlan plan;
+    private final boolean bulkHint;
+    private final String[] values;
+    private final StringBuilder buffer;
+
+    public SalesforcePreparedStatement(SalesforceConnection connection, String sql) throws SQLException {
+        this(connection, sql, ResultSet.TYPE_FORWARD_ONLY);
+    }
+
+    public SalesforcePreparedStatement(SalesforceConnection connection, String sql, int resultSetType) throws SQLException {
+        super(connection, resultSetType);
+        setPoolable(true);
+        this.bulkHint = BulkPageSource.hasHint(sql);
+        this.plan = connection.translate(bulkHint ? BulkPageSource.stripHint(sql) : sql);
+        this.values = new String[plan.getParameterCount()];
+        this.buffer = new StringBuilder(plan.getSoql().length() + 16 * values.length);
+    }
+
+    // Splices the bound literals into the template; the buffer is reused across executions
+    private String bind() throws SQLException {
+        checkClosed();
+        buffer.setLength(0);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                throw new SQLException("No value specified for parameter " + (i + 1));
+            }
+        }
+        buffer.append(plan.getFragment(0));
+        for (int i = 0; i < plan.getSlotCount(); i++) {
+            buffer.append(values[plan.getSlotParameter(i)]).append(plan.getFragment(i + 1));
+        }
+        return buffer.toString();
+    }
+
+    private void set(int parameterIndex, String literal) throws SQLException {
+        checkClosed();
+        if (parameterIndex < 1 || parameterIndex > values.length) {
+            throw new SQLException("Parameter index " + parameterIndex + " is out of range (1.." + values.length + ")");
+        }
+        values[parameterIndex - 1] = literal;
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        begin();
+        try {
+            return runPlan(plan, bind(), bulkHint);
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+        begin();
+        try {
+            return runUpdate(bind());
+        } finally {
+            end();
+        }
+    }
+
+    @Override
+    public boolean execute() throws SQLException {
+        executeQuery();
+        return true;
+    }
+
+    @Override
+    public void addBatch() throws SQLException {
+        checkBatchable(plan);
+        addBatchRequest(CompositeBatch.query(bind(), plan.getColumns()));
+    }
+
+    @Override
+    public void clearParameters() throws SQLException {
+        checkClosed();
+        Arrays.fill(values, null);
+    }
+
+    // The SQL was fixed at prepare time; JDBC forbids passing other SQL to a PreparedStatement
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        throw new SQLException("Cannot pass SQL to executeQuery on a PreparedStatement");
+    }
+
+    @Override
+    public CompletableFuture<ResultSet> executeQueryAsync(String sql) {
+        return CompletableFuture.failedFuture(new SQLException("Cannot pass SQL to executeQueryAsync on a PreparedStatement"));
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        throw new SQLException("Cannot pass SQL to executeUpdate on a PreparedStatement");
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        throw new SQLException("Cannot pass SQL to execute on a PreparedStatement");
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        throw new SQLException("Cannot pass SQL to addBatch on a PreparedStatement");
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        set(parameterIndex, "null");
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+        set(parameterIndex, "null");
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        set(parameterIndex, SoqlLiterals.bool(x));
+    }
+
+    @Override
+    public void setByte(int parameterIndex, byte x) throws SQLException {
+        set(parameterIndex, SoqlLiterals.integer(x));
+    }
+
+    @Override
+    public void setShort(int parameterIndex, short x) throws SQLException {
+        set(parameterIndex, SoqlLiterals.integer(x));
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        set(parameterIndex, SoqlLiterals.integer(x));
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        set(parameterIndex, SoqlLiterals.integer(x));
+    }
+
+    @Override
+    public void setFloat(int parameterIndex, float x) throws SQLException {
+        set(parameterIndex, SoqlLiterals.number(x));
+    }
+
+    @Override
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+        set(parameterIndex, SoqlLiterals.number(x));
+    }
+
+    @Override
+    public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+        set(parameterIndex, SoqlLiterals.decimal(x));
+    }
+
+    @Override
+    public void setString(int parameterIndex, String x) throws SQLException {
+        set(parameterIndex, SoqlLiterals.string(x));
+    }
+
+    @Override
+    public void setNString(int parameterIndex, String value) throws SQLException {
+        setString(parameterIndex, value);
+    }
+
+    @Override
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Binary values cannot be used in SOQL");
+    }
+
+    @Override
+    public void setDate(int parameterIndex, Date x) throws SQLException {
+        set(parameterIndex, x == null ? "null" : SoqlLiterals.date(x.toLocalDate()));
+    }
+
+    // The calendar supplies the time zone the date is read in
+    @Override
+    public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+        if (x == null || cal == null) {
+            setDate(parameterIndex, x);
+            return;
+        }
+        set(parameterIndex, SoqlLiterals.date(Instant.ofEpochMilli(x.getTime()).atZone(cal.getTimeZone().toZoneId()).toLocalDate()));
+    }
+
+    @Override
+    public void setTime(int parameterIndex, Time x) throws SQLException {
+        set(parameterIndex, x == null ? "null" : SoqlLiterals.time(x.toLocalTime()));
+    }
+
+    @Override
+    public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+        if (x == null || cal == null) {
+            setTime(parameterIndex, x);
+            return;
+        }
+        set(parameterIndex, SoqlLiterals.time(Instant.ofEpochMilli(x.getTime()).atZone(cal.getTimeZone().toZoneId()).toLocalTime()));
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+        set(parameterIndex, x == null ? "null" : SoqlLiterals.dateTime(x.toInstant()));
+    }
+
+    // The timestamp's wall-clock time is read in the calendar's time zone
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+        if (x == null || cal == null) {
+            setTimestamp(parameterIndex, x);
+            return;
+        }
+        ZoneId zone = cal.getTimeZone().toZoneId();
+        set(parameterIndex, SoqlLiterals.dateTime(x.toLocalDateTime().atZone(zone).toInstant()));
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+        set(parameterIndex, SoqlLiterals.of(x));
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+        setObject(parameterIndex, x);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+        if (x instanceof BigDecimal && (targetSqlType == Types.DECIMAL || targetSqlType == Types.NUMERIC)) {
+            x = ((BigDecimal) x).setScale(scaleOrLength, RoundingMode.HALF_UP);
+        }
+        setObject(parameterIndex, x);
+    }
+
+    @Override
+    public void setURL(int parameterIndex, URL x) throws SQLException {
+        set(parameterIndex, x == null ? "null" : SoqlLiterals.string(x.toString()));
+    }
+
+    @Override
+    public void setRowId(int parameterIndex, RowId x) throws SQLException {
+        set(parameterIndex, x == null ? "null" : SoqlLiterals.string(new String(x.getBytes(), StandardCharsets.US_ASCII)));
+    }
+
+    // Character streams are read in full: the value ends up inside the query text anyway
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException {
+        setCharacterStream(parameterIndex, reader, (long) length);
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, long length) throws SQLException {
+        set(parameterIndex, reader == null ? "null" : SoqlLiterals.string(read(reader, length)));
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+        setCharacterStream(parameterIndex, reader, -1L);
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader value, long length) throws SQLException {
+        setCharacterStream(parameterIndex, value, length);
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+        setCharacterStream(parameterIndex, value, -1L);
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        setAsciiStream(parameterIndex, x, (long) length);
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        setCharacterStream(parameterIndex, x == null ? null : new InputStreamReader(x, StandardCharsets.US_ASCII), length);
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+        setAsciiStream(parameterIndex, x, -1L);
+    }
+
+    @Override
+    @Deprecated
+    public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        throw new SQLFeatureNotSupportedException("setUnicodeStream is not supported");
+    }
+
+    private static String read(Reader reader, long length) throws SQLException {
+        StringBuilder value = new StringBuilder();
+        char[] chunk = new char[4096];
+        try {
+            while (length < 0 || value.length() < length) {
+                int max = length < 0 ? chunk.length : (int) Math.min(chunk.length, length - value.length());
+                int read = reader.read(chunk, 0, max);
+                if (read < 0) {
+                    break;
+                }
+                value.append(chunk, 0, read);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to read parameter value", e);
+        }
+        return value.toString();
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Binary values cannot be used in SOQL");
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Binary values cannot be used in SOQL");
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Binary values cannot be used in SOQL");
+    }
+
+    @Override
+    public void setRef(int parameterIndex, Ref x) throws SQLException {
+        throw new SQLFeatureNotSupportedException("setRef is not supported");
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, Blob x) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Binary values cannot be used in SOQL");
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream inputStream, long length) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Binary values cannot be used in SOQL");
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Binary values cannot be used in SOQL");
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Clob x) throws SQLException {
+        setCharacterStream(parameterIndex, x == null ? null : x.getCharacterStream(), -1L);
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        setCharacterStream(parameterIndex, reader, length);
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader reader) throws SQLException {
+        setCharacterStream(parameterIndex, reader, -1L);
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, NClob value) throws SQLException {
+        setClob(parameterIndex, value);
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+        setCharacterStream(parameterIndex, reader, length);
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+        setCharacterStream(parameterIndex, reader, -1L);
+    }
+
+    // java.sql.Array values bind like a list, for IN (?)
+    @Override
+    public void setArray(int parameterIndex, Array x) throws SQLException {
+        setObject(parameterIndex, x == null ? null : x.getArray());
+    }
+
+    @Override
+    public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+        throw new SQLFeatureNotSupportedException("setSQLXML is not supported");
+    }
+
+    // Columns are only known once the query has run
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        checkClosed();
+        return null;
+    }
+
+    @Override
+    public ParameterMetaData getParameterMetaData() throws SQLException {
+        throw new SQLFeatureNotSupportedException("ParameterMetaData is not supported");
+    }
+}
@@ -1,55 +1,174 @@
 package com.salesforce.jdbc;
 
 import com.salesforce.api.ForceResult;
-import com.salesforce.api.ForceRecord;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Calendar;
 import java.util.Map;
 
 public class SalesforceResultSet implements ResultSet {
     private final SalesforceStatement statement;
-    private final ForceResult forceResult;
-    private final List<ForceRecord> records;
-    private int currentRow = -1;
+    private final PageSource pages;
+    private final int maxRows;
+    private final int type;
+    private final PageSpool spool;
+    private int fetchDirection = FETCH_FORWARD;
+    private ColumnarPage page;
+    private int pageRow = -1;
+    private int rowNumber = 0;
+    private boolean afterLast = false;
+    private boolean lastWasNull = false;
     private boolean closed = false;
-    private final Map<String, Integer> columnMap;
+    private final ColumnPlan plan;
 
-    public SalesforceResultSet(SalesforceStatement statement, ForceResult forceResult) {
+    public SalesforceResultSet(SalesforceStatement statement, ForceResult forceResult) throws SQLException {
+        this(statement, QueryCursor.fromForceResult(statement != null ? statement.getSalesforceConnection() : null, forceResult), 0);
+    }
+
+    SalesforceResultSet(SalesforceStatement statement, PageSource pages, int maxRows) throws SQLException {
+        this(statement, pages, maxRows, TYPE_FORWARD_ONLY);
+    }
+
+    // Scroll-insensitive results read their pages through a disk spool so any row can be revisited.
+    // The first page is read here, so a query that fails outright fails the execute call.
+    SalesforceResultSet(SalesforceStatement statement, PageSource pages, int maxRows, int type) throws SQLException {
         this.statement = statement;
-        this.forceResult = forceResult;
-        this.records = forceResult.getRecords();
-        this.columnMap = createColumnMap();
+        this.pages = pages;
+        this.maxRows = maxRows;
+        this.type = type;
+        this.spool = type == TYPE_FORWARD_ONLY ? null : new PageSpool(pages, maxRows);
+        try {
+            this.plan = createColumnPlan();
+        } catch (SQLException | RuntimeException e) {
+            if (spool != null) {
+                spool.close();
+            } else {
+                pages.close();
+            }
+            throw e;
+        }
     }
 
-    private Map<String, Integer> createColumnMap() {
-        if (records.isEmpty()) {
-            return Map.of();
+    private ColumnPlan createColumnPlan() throws SQLException {
+        if (spool != null) {
+            spool.fill(1);
+            ColumnPlan columnPlan = spool.getColumnPlan();
+            return columnPlan != null ? columnPlan : ColumnPlan.EMPTY;
         }
-        ForceRecord firstRecord = records.get(0);
-        Map<String, Object> fields = firstRecord.getFields();
-        Map<String, Integer> map = new java.util.HashMap<>();
-        int columnIndex = 1;
-        for (String fieldName : fields.keySet()) {
-            map.put(fieldName, columnIndex++);
+        // Plans read from the first record need a non-empty page
+        while (pages.getColumnPlan() == null && (page == null || page.getRowCount() == 0)) {
+            if (!advancePage()) {
+                break;
+            }
         }
-        return map;
+        ColumnPlan columnPlan = pages.getColumnPlan();
+        return columnPlan != null ? columnPlan : ColumnPlan.EMPTY;
+    }
+
+    ColumnPlan getColumnPlan() {
+        return plan;
     }
 
     @Override
     public boolean next() throws SQLException {
         checkClosed();
-        if (currentRow < records.size() - 1) {
-            currentRow++;
-            return true;
+        if (afterLast) {
+            return false;
         }
-        return false;
+        if (spool != null) {
+            return scrollTo(rowNumber + 1);
+        }
+        if (maxRows > 0 && rowNumber >= maxRows) {
+            release();
+            return false;
+        }
+        while (page == null || pageRow + 1 >= page.getRowCount()) {
+            if (!advancePage()) {
+                release();
+                return false;
+            }
+        }
+        pageRow++;
+        rowNumber++;
+        return true;
+    }
+
+    // Drops the consumed page before asking the source for the next one
+    private boolean advancePage() throws SQLException {
+        page = null;
+        pageRow = -1;
+        ColumnarPage nextPage = pages.nextPage();
+        if (nextPage == null) {
+            return false;
+        }
+        page = nextPage;
+        return true;
+    }
+
+    // Positions a scrollable result on a 1-based row, paging it in from the spool
+    private boolean scrollTo(int row) throws SQLException {
+        if (row <= 0) {
+            positionBeforeFirst();
+            return false;
+        }
+        if (spool.fill(row) < row) {
+            positionAfterLast();
+            return false;
+        }
+        int pageIndex = spool.pageIndexOf(row - 1);
+        page = spool.page(pageIndex);
+        pageRow = row - 1 - spool.firstRowOf(pageIndex);
+        rowNumber = row;
+        afterLast = false;
+        return true;
+    }
+
+    private void positionBeforeFirst() {
+        page = null;
+        pageRow = -1;
+        rowNumber = 0;
+        afterLast = false;
+    }
+
+    // Only reached once the spool is complete, so the row count is final
+    private void positionAfterLast() {
+        page = null;
+        pageRow = -1;
+        rowNumber = spool.getRowCount() + 1;
+        afterLast = true;
+    }
+
+    private void release() {
+        afterLast = true;
+        page = null;
+        pageRow = -1;
+        pages.close();
     }
 
     @Override
     public void close() throws SQLException {
         if (!closed) {
+            page = null;
+            if (spool != null) {
+                spool.close();
+            } else {
+                pages.close();
+            }
             closed = true;
         }
     }
@@ -57,263 +176,210 @@ public class SalesforceResultSet implements ResultSet {
     @Override
     public boolean wasNull() throws SQLException {
         checkClosed();
-        return false; // Not supported
+        return lastWasNull;
     }
 
     @Override
     public String getString(int columnIndex) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getString(columnName);
+        int column = readColumn(columnIndex);
+        return lastWasNull ? null : page.getString(column, pageRow);
     }
 
     @Override
     public boolean getBoolean(int columnIndex) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getBoolean(columnName);
+        int column = readColumn(columnIndex);
+        return lastWasNull ? false : page.getBoolean(column, pageRow);
     }
 
     @Override
     public byte getByte(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getByte(columnName);
+        long value = getLong(columnIndex);
+        if (value != (byte) value) {
+            throw outOfRange(columnIndex, "byte", value);
+        }
+        return (byte) value;
     }
 
     @Override
     public short getShort(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getShort(columnName);
+        long value = getLong(columnIndex);
+        if (value != (short) value) {
+            throw outOfRange(columnIndex, "short", value);
+        }
+        return (short) value;
     }
 
     @Override
     public int getInt(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getInt(columnName);
+        long value = getLong(columnIndex);
+        if (value != (int) value) {
+            throw outOfRange(columnIndex, "int", value);
+        }
+        return (int) value;
     }
 
     @Override
     public long getLong(int columnIndex) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getLong(columnName);
+        int column = readColumn(columnIndex);
+        if (lastWasNull) {
+            return 0;
+        }
+        try {
+            return page.getLong(column, pageRow);
+        } catch (NumberFormatException e) {
+            throw conversionError(columnIndex, "long", e);
+        }
     }
 
     @Override
     public float getFloat(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getFloat(columnName);
+        return (float) getDouble(columnIndex);
     }
 
     @Override
     public double getDouble(int columnIndex) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getDouble(columnName);
+        int column = readColumn(columnIndex);
+        if (lastWasNull) {
+            return 0;
+        }
+        try {
+            return page.getDouble(column, pageRow);
+        } catch (NumberFormatException e) {
+            throw conversionError(columnIndex, "double", e);
+        }
     }
 
     @Override
     public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getBigDecimal(columnName, scale);
+        BigDecimal value = getBigDecimal(columnIndex);
+        return value != null ? value.setScale(scale) : null;
     }
 
     @Override
     public byte[] getBytes(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getBytes(columnName);
+        String value = getString(columnIndex);
+        return value != null ? value.getBytes() : null;
     }
 
     @Override
     public Date getDate(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getDate(columnName);
+        return getDate(columnIndex, null);
     }
 
     @Override
     public Time getTime(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getTime(columnName);
+        return getTime(columnIndex, null);
     }
 
     @Override
     public Timestamp getTimestamp(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getTimestamp(columnName);
+        return getTimestamp(columnIndex, null);
     }
 
     @Override
     public InputStream getAsciiStream(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getAsciiStream(columnName);
+        String value = getString(columnIndex);
+        return value != null ? new ByteArrayInputStream(value.getBytes(StandardCharsets.US_ASCII)) : null;
     }
 
     @Override
     public InputStream getUnicodeStream(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getUnicodeStream(columnName);
+        String value = getString(columnIndex);
+        return value != null ? new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_16)) : null;
     }
 
     @Override
     public InputStream getBinaryStream(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getBinaryStream(columnName);
+        String value = getString(columnIndex);
+        return value != null ? new ByteArrayInputStream(value.getBytes()) : null;
     }
 
     @Override
     public String getString(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? value.toString() : null;
+        return getString(findColumn(columnLabel));
     }
 
     @Override
     public boolean getBoolean(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null && Boolean.parseBoolean(value.toString());
+        return getBoolean(findColumn(columnLabel));
     }
 
     @Override
     public byte getByte(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? Byte.parseByte(value.toString()) : 0;
+        return getByte(findColumn(columnLabel));
     }
 
     @Override
     public short getShort(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? Short.parseShort(value.toString()) : 0;
+        return getShort(findColumn(columnLabel));
     }
 
     @Override
     public int getInt(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? Integer.parseInt(value.toString()) : 0;
+        return getInt(findColumn(columnLabel));
     }
 
     @Override
     public long getLong(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? Long.parseLong(value.toString()) : 0;
+        return getLong(findColumn(columnLabel));
     }
 
     @Override
     public float getFloat(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? Float.parseFloat(value.toString()) : 0;
+        return getFloat(findColumn(columnLabel));
     }
 
     @Override
     public double getDouble(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? Double.parseDouble(value.toString()) : 0;
+        return getDouble(findColumn(columnLabel));
     }
 
     @Override
     public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? new BigDecimal(value.toString()).setScale(scale) : null;
+        return getBigDecimal(findColumn(columnLabel), scale);
     }
 
     @Override
     public byte[] getBytes(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? value.toString().getBytes() : null;
+        return getBytes(findColumn(columnLabel));
     }
 
     @Override
     public Date getDate(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? Date.valueOf(value.toString()) : null;
+        return getDate(findColumn(columnLabel));
     }
 
     @Override
     public Time getTime(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? Time.valueOf(value.toString()) : null;
+        return getTime(findColumn(columnLabel));
     }
 
     @Override
     public Timestamp getTimestamp(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? Timestamp.valueOf(value.toString()) : null;
+        return getTimestamp(findColumn(columnLabel));
     }
 
     @Override
     public InputStream getAsciiStream(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? new ByteArrayInputStream(value.toString().getBytes(StandardCharsets.US_ASCII)) : null;
+        return getAsciiStream(findColumn(columnLabel));
     }
 
     @Override
     public InputStream getUnicodeStream(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? new ByteArrayInputStream(value.toString().getBytes(StandardCharsets.UTF_16)) : null;
+        return getUnicodeStream(findColumn(columnLabel));
     }
 
     @Override
     public InputStream getBinaryStream(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? new ByteArrayInputStream(value.toString().getBytes()) : null;
+        return getBinaryStream(findColumn(columnLabel));
     }
 
     @Override
@@ -343,180 +409,233 @@ public class SalesforceResultSet implements ResultSet {
     public Object getObject(int columnIndex) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getObject(columnName);
+        int column = readColumn(columnIndex);
+        if (lastWasNull) {
+            return null;
+        }
+        switch (page.getKind(column)) {
+            case LONG:
+                // Described int fields are reported as INTEGER, so they come back as Integer
+                return plan.getType(column) == FieldType.INTEGER ? (Object) getInt(columnIndex) : page.getObject(column, pageRow);
+            case DATE:
+                return getDate(columnIndex);
+            case DATETIME:
+                return getTimestamp(columnIndex);
+            case TIME:
+                return getTime(columnIndex);
+            default:
+                return page.getObject(column, pageRow);
+        }
     }
 
     @Override
     public Object getObject(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        return getFieldValue(columnLabel);
+        return getObject(findColumn(columnLabel));
     }
 
     @Override
     public int findColumn(String columnLabel) throws SQLException {
         checkClosed();
-        Integer columnIndex = columnMap.get(columnLabel);
-        if (columnIndex == null) {
+        int column = columnLabel != null ? plan.indexOf(columnLabel) : -1;
+        if (column < 0) {
             throw new SQLException("Column not found: " + columnLabel);
         }
-        return columnIndex;
+        return column + 1;
     }
 
     @Override
     public Reader getCharacterStream(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getCharacterStream(columnName);
+        String value = getString(columnIndex);
+        return value != null ? new StringReader(value) : null;
     }
 
     @Override
     public Reader getCharacterStream(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? new StringReader(value.toString()) : null;
+        return getCharacterStream(findColumn(columnLabel));
     }
 
     @Override
     public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getBigDecimal(columnName);
+        int column = readColumn(columnIndex);
+        if (lastWasNull) {
+            return null;
+        }
+        try {
+            return page.getBigDecimal(column, pageRow);
+        } catch (NumberFormatException e) {
+            throw conversionError(columnIndex, "BigDecimal", e);
+        }
     }
 
     @Override
     public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? new BigDecimal(value.toString()) : null;
+        return getBigDecimal(findColumn(columnLabel));
     }
 
     @Override
     public boolean isBeforeFirst() throws SQLException {
         checkClosed();
-        return currentRow == -1;
+        if (spool != null) {
+            return rowNumber == 0 && !afterLast && spool.fill(1) > 0;
+        }
+        if (rowNumber != 0 || afterLast) {
+            return false;
+        }
+        // Reads ahead to the first non-empty page; next() starts from it
+        while ((page == null || page.getRowCount() == 0) && !pages.isDone()) {
+            if (!advancePage()) {
+                break;
+            }
+        }
+        return page != null && page.getRowCount() > 0;
     }
 
     @Override
     public boolean isAfterLast() throws SQLException {
         checkClosed();
-        return currentRow >= records.size();
+        if (spool != null) {
+            return afterLast && spool.getRowCount() > 0;
+        }
+        return afterLast && rowNumber > 0;
     }
 
     @Override
     public boolean isFirst() throws SQLException {
         checkClosed();
-        return currentRow == 0;
+        return rowNumber == 1 && !afterLast;
     }
 
     @Override
     public boolean isLast() throws SQLException {
         checkClosed();
-        return currentRow == records.size() - 1;
+        if (spool != null) {
+            return !afterLast && rowNumber > 0 && spool.fill(rowNumber + 1) == rowNumber;
+        }
+        if (afterLast || page == null || pageRow != page.getRowCount() - 1) {
+            return false;
+        }
+        return pages.isDone() || (maxRows > 0 && rowNumber >= maxRows);
     }
 
     @Override
     public void beforeFirst() throws SQLException {
         checkClosed();
-        currentRow = -1;
+        if (spool == null) {
+            throw forwardOnly();
+        }
+        positionBeforeFirst();
     }
 
     @Override
     public void afterLast() throws SQLException {
         checkClosed();
-        currentRow = records.size();
+        if (spool == null) {
+            throw forwardOnly();
+        }
+        spool.fillAll();
+        positionAfterLast();
     }
 
     @Override
     public boolean first() throws SQLException {
         checkClosed();
-        if (!records.isEmpty()) {
-            currentRow = 0;
-            return true;
+        if (spool == null) {
+            throw forwardOnly();
         }
-        return false;
+        return scrollTo(1);
     }
 
     @Override
     public boolean last() throws SQLException {
         checkClosed();
-        if (!records.isEmpty()) {
-            currentRow = records.size() - 1;
-            return true;
+        if (spool == null) {
+            throw forwardOnly();
         }
-        return false;
+        return scrollTo(spool.fillAll());
     }
 
     @Override
     public int getRow() throws SQLException {
         checkClosed();
-        return currentRow + 1;
+        return afterLast ? 0 : rowNumber;
     }
 
     @Override
     public boolean absolute(int row) throws SQLException {
         checkClosed();
-        if (row < 1 || row > records.size()) {
-            return false;
+        if (spool != null) {
+            // Negative rows count back from the end, -1 being the last row
+            return scrollTo(row >= 0 ? row : spool.fillAll() + row + 1);
         }
-        currentRow = row - 1;
-        return true;
+        if (row <= rowNumber) {
+            throw forwardOnly();
+        }
+        return relative(row - rowNumber);
     }
 
     @Override
     public boolean relative(int rows) throws SQLException {
         checkClosed();
-        int newRow = currentRow + rows;
-        if (newRow < -1 || newRow >= records.size()) {
-            return false;
+        if (spool != null) {
+            return scrollTo(rowNumber + rows);
         }
-        currentRow = newRow;
-        return true;
+        if (rows < 0) {
+            throw forwardOnly();
+        }
+        for (int i = 0; i < rows; i++) {
+            if (!next()) {
+                return false;
+            }
+        }
+        return !afterLast && rowNumber > 0;
     }
 
     @Override
     public boolean previous() throws SQLException {
         checkClosed();
-        if (currentRow > 0) {
-            currentRow--;
-            return true;
+        if (spool == null) {
+            throw forwardOnly();
         }
-        return false;
+        return scrollTo(rowNumber - 1);
     }
 
     @Override
     public void setFetchDirection(int direction) throws SQLException {
         checkClosed();
-        // Not supported
+        if (direction != FETCH_FORWARD && (spool == null
+                || direction != FETCH_REVERSE && direction != FETCH_UNKNOWN)) {
+            throw new SQLFeatureNotSupportedException("Only FETCH_FORWARD is supported");
+        }
+        this.fetchDirection = direction;
     }
 
     @Override
     public int getFetchDirection() throws SQLException {
         checkClosed();
-        return FETCH_FORWARD;
+        return fetchDirection;
     }
 
     @Override
     public void setFetchSize(int rows) throws SQLException {
         checkClosed();
-        // Not supported
+        if (rows < 0) {
+            throw new SQLException("Fetch size must be >= 0");
+        }
+        pages.setBatchSize(rows);
     }
 
     @Override
     public int getFetchSize() throws SQLException {
         checkClosed();
-        return 0;
+        return pages.getBatchSize();
     }
 
     @Override
     public int getType() throws SQLException {
         checkClosed();
-        return TYPE_FORWARD_ONLY;
+        return type;
     }
 
     @Override
@@ -821,165 +940,193 @@ public class SalesforceResultSet implements ResultSet {
 
     @Override
     public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getObject(columnName, map);
+        return getObject(columnIndex);
     }
 
     @Override
     public Ref getRef(int columnIndex) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getRef(columnName);
+        throw new SQLFeatureNotSupportedException("REF type is not supported");
     }
 
     @Override
     public Blob getBlob(int columnIndex) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getBlob(columnName);
+        throw new SQLFeatureNotSupportedException("BLOB type is not supported");
     }
 
     @Override
     public Clob getClob(int columnIndex) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getClob(columnName);
+        throw new SQLFeatureNotSupportedException("CLOB type is not supported");
     }
 
     @Override
     public Array getArray(int columnIndex) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getArray(columnName);
+        throw new SQLFeatureNotSupportedException("Array type is not supported");
     }
 
     @Override
     public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
-        checkClosed();
-        checkRow();
-        return getFieldValue(columnLabel);
+        return getObject(findColumn(columnLabel), map);
     }
 
     @Override
     public Ref getRef(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        throw new SQLFeatureNotSupportedException("REF type is not supported");
+        return getRef(findColumn(columnLabel));
     }
 
     @Override
     public Blob getBlob(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        throw new SQLFeatureNotSupportedException("BLOB type is not supported");
+        return getBlob(findColumn(columnLabel));
     }
 
     @Override
     public Clob getClob(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        throw new SQLFeatureNotSupportedException("CLOB type is not supported");
+        return getClob(findColumn(columnLabel));
     }
 
     @Override
     public Array getArray(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        throw new SQLFeatureNotSupportedException("Array type is not supported");
+        return getArray(findColumn(columnLabel));
     }
 
     @Override
     public Date getDate(int columnIndex, Calendar cal) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getDate(columnName, cal);
+        int column = readColumn(columnIndex);
+        if (lastWasNull) {
+            return null;
+        }
+        ZoneId zone = zoneOf(cal);
+        return new Date(localDateValue(column, columnIndex, zone).atStartOfDay(zone).toInstant().toEpochMilli());
     }
 
     @Override
     public Date getDate(String columnLabel, Calendar cal) throws SQLException {
-        checkClosed();
-        checkRow();
-        Date date = getDate(columnLabel);
-        if (date == null) {
-            return null;
-        }
-        Calendar resultCal = Calendar.getInstance();
-        resultCal.setTime(date);
-        return new Date(resultCal.getTimeInMillis());
+        return getDate(findColumn(columnLabel), cal);
     }
 
     @Override
     public Time getTime(int columnIndex, Calendar cal) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getTime(columnName, cal);
+        int column = readColumn(columnIndex);
+        if (lastWasNull) {
+            return null;
+        }
+        ZoneId zone = zoneOf(cal);
+        LocalTime time = localTimeValue(column, columnIndex, zone);
+        return new Time(LocalDate.EPOCH.atTime(time).atZone(zone).toInstant().toEpochMilli());
     }
 
     @Override
     public Time getTime(String columnLabel, Calendar cal) throws SQLException {
-        checkClosed();
-        checkRow();
-        Time time = getTime(columnLabel);
-        if (time == null) {
-            return null;
-        }
-        Calendar resultCal = Calendar.getInstance();
-        resultCal.setTime(time);
-        return new Time(resultCal.getTimeInMillis());
+        return getTime(findColumn(columnLabel), cal);
     }
 
     @Override
     public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getTimestamp(columnName, cal);
+        int column = readColumn(columnIndex);
+        if (lastWasNull) {
+            return null;
+        }
+        return Timestamp.from(instantValue(column, columnIndex, zoneOf(cal)));
     }
 
     @Override
     public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {
+        return getTimestamp(findColumn(columnLabel), cal);
+    }
+
+    @Override
+    public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+        if (type == null) {
+            throw new SQLException("Type must not be null");
+        }
         checkClosed();
         checkRow();
-        Timestamp timestamp = getTimestamp(columnLabel);
-        if (timestamp == null) {
+        int column = readColumn(columnIndex);
+        if (lastWasNull) {
             return null;
         }
-        Calendar resultCal = Calendar.getInstance();
-        resultCal.setTime(timestamp);
-        return new Timestamp(resultCal.getTimeInMillis());
+        Object value;
+        if (type == String.class) {
+            value = page.getString(column, pageRow);
+        } else if (type == Instant.class) {
+            value = instantValue(column, columnIndex, ZoneOffset.UTC);
+        } else if (type == OffsetDateTime.class) {
+            value = instantValue(column, columnIndex, ZoneOffset.UTC).atOffset(ZoneOffset.UTC);
+        } else if (type == ZonedDateTime.class) {
+            value = instantValue(column, columnIndex, ZoneOffset.UTC).atZone(ZoneOffset.UTC);
+        } else if (type == LocalDate.class) {
+            value = localDateValue(column, columnIndex, ZoneId.systemDefault());
+        } else if (type == LocalDateTime.class) {
+            value = LocalDateTime.ofInstant(instantValue(column, columnIndex, ZoneId.systemDefault()), ZoneId.systemDefault());
+        } else if (type == LocalTime.class) {
+            value = localTimeValue(column, columnIndex, ZoneId.systemDefault());
+        } else if (type == Date.class) {
+            value = getDate(columnIndex);
+        } else if (type == Time.class) {
+            value = getTime(columnIndex);
+        } else if (type == Timestamp.class) {
+            value = getTimestamp(columnIndex);
+        } else if (type == Boolean.class) {
+            value = getBoolean(columnIndex);
+        } else if (type == Byte.class) {
+            value = getByte(columnIndex);
+        } else if (type == Short.class) {
+            value = getShort(columnIndex);
+        } else if (type == Integer.class) {
+            value = getInt(columnIndex);
+        } else if (type == Long.class) {
+            value = getLong(columnIndex);
+        } else if (type == Float.class) {
+            value = getFloat(columnIndex);
+        } else if (type == Double.class) {
+            value = getDouble(columnIndex);
+        } else if (type == BigDecimal.class) {
+            value = getBigDecimal(columnIndex);
+        } else {
+            value = getObject(columnIndex);
+            if (!type.isInstance(value)) {
+                throw conversionError(columnIndex, type.getName(), null);
+            }
+        }
+        return type.cast(value);
     }
 
     @Override
-    public URL getURL(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getURL(columnName);
+    public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+        return getObject(findColumn(columnLabel), type);
     }
 
     @Override
-    public URL getURL(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
+    public URL getURL(int columnIndex) throws SQLException {
+        String value = getString(columnIndex);
         if (value == null) {
             return null;
         }
         try {
-            return new URL(value.toString());
+            return new URL(value);
         } catch (java.net.MalformedURLException e) {
             throw new SQLException("Invalid URL format", e);
         }
     }
 
+    @Override
+    public URL getURL(String columnLabel) throws SQLException {
+        return getURL(findColumn(columnLabel));
+    }
+
     @Override
     public void updateRef(int columnIndex, Ref x) throws SQLException {
         checkClosed();
@@ -1030,18 +1177,13 @@ public class SalesforceResultSet implements ResultSet {
 
     @Override
     public RowId getRowId(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getRowId(columnName);
+        String value = getString(columnIndex);
+        return value != null ? RowId.valueOf(value) : null;
     }
 
     @Override
     public RowId getRowId(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        Object value = getFieldValue(columnLabel);
-        return value != null ? RowId.valueOf(value.toString()) : null;
+        return getRowId(findColumn(columnLabel));
     }
 
     @Override
@@ -1095,30 +1237,24 @@ public class SalesforceResultSet implements ResultSet {
     public NClob getNClob(int columnIndex) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getNClob(columnName);
+        throw new SQLFeatureNotSupportedException("NCLOB type is not supported");
     }
 
     @Override
     public NClob getNClob(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        throw new SQLFeatureNotSupportedException("NCLOB type is not supported");
+        return getNClob(findColumn(columnLabel));
     }
 
     @Override
     public SQLXML getSQLXML(int columnIndex) throws SQLException {
         checkClosed();
         checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getSQLXML(columnName);
+        throw new SQLFeatureNotSupportedException("SQLXML type is not supported");
     }
 
     @Override
     public SQLXML getSQLXML(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        throw new SQLFeatureNotSupportedException("SQLXML type is not supported");
+        return getSQLXML(findColumn(columnLabel));
     }
 
     @Override
@@ -1135,32 +1271,22 @@ public class SalesforceResultSet implements ResultSet {
 
     @Override
     public String getNString(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getNString(columnName);
+        return getString(columnIndex);
     }
 
     @Override
     public String getNString(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        return getString(columnLabel);
+        return getNString(findColumn(columnLabel));
     }
 
     @Override
     public Reader getNCharacterStream(int columnIndex) throws SQLException {
-        checkClosed();
-        checkRow();
-        String columnName = getColumnName(columnIndex);
-        return getNCharacterStream(columnName);
+        return getCharacterStream(columnIndex);
     }
 
     @Override
     public Reader getNCharacterStream(String columnLabel) throws SQLException {
-        checkClosed();
-        checkRow();
-        return getCharacterStream(columnLabel);
+        return getNCharacterStream(findColumn(columnLabel));
     }
 
     @Override
@@ -1338,23 +1464,99 @@ public class SalesforceResultSet implements ResultSet {
     }
 
     private void checkRow() throws SQLException {
-        if (currentRow < 0 || currentRow >= records.size()) {
+        if (page == null || pageRow < 0 || pageRow >= page.getRowCount()) {
             throw new SQLException("No current row");
         }
     }
 
-    private String getColumnName(int columnIndex) throws SQLException {
-        for (Map.Entry<String, Integer> entry : columnMap.entrySet()) {
-            if (entry.getValue() == columnIndex) {
-                return entry.getKey();
-            }
+    private SQLException forwardOnly() {
+        return new SQLException("ResultSet is TYPE_FORWARD_ONLY");
+    }
+
+    // Validates a 1-based column index and returns the 0-based page column
+    private int checkColumn(int columnIndex) throws SQLException {
+        if (columnIndex < 1 || columnIndex > plan.getColumnCount()) {
+            throw new SQLException("Invalid column index: " + columnIndex);
+        }
+        return columnIndex - 1;
+    }
+
+    // Resolves the page column and records whether the current cell is null for wasNull()
+    private int readColumn(int columnIndex) throws SQLException {
+        int column = checkColumn(columnIndex);
+        lastWasNull = page.isNull(column, pageRow);
+        return column;
+    }
+
+    // Salesforce dates and times carry no zone; they are placed in the calendar's zone, or the JVM's without one
+    private static ZoneId zoneOf(Calendar cal) {
+        return cal != null ? cal.getTimeZone().toZoneId() : ZoneId.systemDefault();
+    }
+
+    // Temporal cells are read from their stored epoch value; text cells are parsed as they are read
+    private LocalDate localDateValue(int column, int columnIndex, ZoneId zone) throws SQLException {
+        switch (page.getKind(column)) {
+            case DATE:
+                return LocalDate.ofEpochDay(page.getEpoch(column, pageRow));
+            case DATETIME:
+                return Instant.ofEpochMilli(page.getEpoch(column, pageRow)).atZone(zone).toLocalDate();
+            default:
+                long day = IsoTemporal.parseDate(page.getString(column, pageRow));
+                if (day == IsoTemporal.INVALID) {
+                    throw conversionError(columnIndex, "date", null);
+                }
+                return LocalDate.ofEpochDay(day);
         }
-        throw new SQLException("Invalid column index: " + columnIndex);
     }
 
-    private Object getFieldValue(String columnLabel) throws SQLException {
-        checkRow();
-        ForceRecord record = records.get(currentRow);
-        return record.getField(columnLabel);
+    private LocalTime localTimeValue(int column, int columnIndex, ZoneId zone) throws SQLException {
+        switch (page.getKind(column)) {
+            case TIME:
+                return LocalTime.ofNanoOfDay(page.getEpoch(column, pageRow) * 1_000_000L);
+            case DATETIME:
+                return Instant.ofEpochMilli(page.getEpoch(column, pageRow)).atZone(zone).toLocalTime();
+            default:
+                String text = page.getString(column, pageRow);
+                long time = IsoTemporal.parseTime(text);
+                if (time != IsoTemporal.INVALID) {
+                    return LocalTime.ofNanoOfDay(time * 1_000_000L);
+                }
+                long millis = IsoTemporal.parseDateTime(text);
+                if (millis == IsoTemporal.INVALID) {
+                    throw conversionError(columnIndex, "time", null);
+                }
+                return Instant.ofEpochMilli(millis).atZone(zone).toLocalTime();
+        }
+    }
+
+    private Instant instantValue(int column, int columnIndex, ZoneId zone) throws SQLException {
+        switch (page.getKind(column)) {
+            case DATETIME:
+                return Instant.ofEpochMilli(page.getEpoch(column, pageRow));
+            case DATE:
+                return LocalDate.ofEpochDay(page.getEpoch(column, pageRow)).atStartOfDay(zone).toInstant();
+            case TIME:
+                return LocalDate.EPOCH.atTime(localTimeValue(column, columnIndex, zone)).atZone(zone).toInstant();
+            default:
+                String text = page.getString(column, pageRow);
+                long millis = IsoTemporal.parseDateTime(text);
+                if (millis != IsoTemporal.INVALID) {
+                    return Instant.ofEpochMilli(millis);
+                }
+                try {
+                    // JDBC escape form, yyyy-mm-dd hh:mm:ss[.f...], in the local zone
+                    return Timestamp.valueOf(text).toInstant();
+                } catch (IllegalArgumentException e) {
+                    throw conversionError(columnIndex, "timestamp", e);
+                }
+        }
+    }
+
+    private SQLException conversionError(int columnIndex, String type, RuntimeException cause) {
+        return new SQLException("Cannot convert column " + columnIndex + " to " + type, cause);
+    }
+
+    private static SQLException outOfRange(int columnIndex, String type, long value) {
+        return new SQLDataException("Value " + value + " of column " + columnIndex + " is out of range for " + type, "22003");
     }
 } 
\ No newline at end of file
@@ -4,16 +4,16 @@ import java.sql.*;
 
 public class SalesforceResultSetMetaData implements ResultSetMetaData {
     private final SalesforceResultSet resultSet;
-    private final Map<String, Integer> columnMap;
+    private final ColumnPlan plan;
 
     public SalesforceResultSetMetaData(SalesforceResultSet resultSet) {
         this.resultSet = resultSet;
-        this.columnMap = resultSet.getColumnMap();
+        this.plan = resultSet.getColumnPlan();
     }
 
     @Override
     public int getColumnCount() throws SQLException {
-        return columnMap.size();
+        return plan.getColumnCount();
     }
 
     @Override
@@ -33,7 +33,7 @@ public class SalesforceResultSetMetaData implements ResultSetMetaData {
 
     @Override
     public boolean isCurrency(int column) throws SQLException {
-        return false;
+        return typeOf(column) == FieldType.DECIMAL;
     }
 
     @Override
@@ -58,12 +58,10 @@ public class SalesforceResultSetMetaData implements ResultSetMetaData {
 
     @Override
     public String getColumnName(int column) throws SQLException {
-        for (Map.Entry<String, Integer> entry : columnMap.entrySet()) {
-            if (entry.getValue() == column) {
-                return entry.getKey();
-            }
+        if (column < 1 || column > plan.getColumnCount()) {
+            throw new SQLException("Invalid column index: " + column);
         }
-        throw new SQLException("Invalid column index: " + column);
+        return plan.getLabel(column - 1);
     }
 
     @Override
@@ -93,12 +91,12 @@ public class SalesforceResultSetMetaData implements ResultSetMetaData {
 
     @Override
     public int getColumnType(int column) throws SQLException {
-        return Types.VARCHAR; // Default to VARCHAR for all types
+        return typeOf(column).getSqlType();
     }
 
     @Override
     public String getColumnTypeName(int column) throws SQLException {
-        return "VARCHAR";
+        return typeOf(column).getSqlTypeName();
     }
 
     @Override
@@ -118,6 +116,15 @@ public class SalesforceResultSetMetaData implements ResultSetMetaData {
 
     @Override
     public String getColumnClassName(int column) throws SQLException {
-        return String.class.getName();
+        return typeOf(column).getJavaClassName();
+    }
+
+    // Columns without a describe type are reported as VARCHAR
+    private FieldType typeOf(int column) throws SQLException {
+        if (column < 1 || column > plan.getColumnCount()) {
+            throw new SQLException("Invalid column index: " + column);
+        }
+        FieldType type = plan.getType(column - 1);
+        return type != null ? type : FieldType.STRING;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.salesforce.jdbc;
+
+import com.salesforce.api.ForceApi;
+import com.salesforce.api.ForceConnection;
+import com.salesforce.api.ForceException;
+
+import java.sql.SQLException;
+
+// One logged-in Salesforce session, shared by every connection of the same
+// user. The access token can be replaced underneath the connections: callers
+// read it per request and hand back the token that was rejected, so a burst
+// of failures after a timeout costs a single re-login.
+class SalesforceSession {
+    private final String loginUrl;
+    private final String username;
+    private final String secret;
+    private final Object loginLock = new Object();
+    private volatile String instanceUrl;
+    private volatile String sessionId;
+    private volatile ForceApi forceApi;
+    private volatile long loggedInAt;
+    private volatile long timeoutMillis = Long.MAX_VALUE;
+    private int references = 0;
+    private long lastReleased = System.currentTimeMillis();
+
+    SalesforceSession(String loginUrl, String username, String secret) {
+        this.loginUrl = loginUrl;
+        this.username = username;
+        this.secret = secret;
+    }
+
+    // A session obtained elsewhere; it cannot log in again once the token expires
+    SalesforceSession(String instanceUrl, String sessionId) {
+        this(null, null, null);
+        this.instanceUrl = instanceUrl;
+        this.sessionId = sessionId;
+        this.loggedInAt = System.currentTimeMillis();
+    }
+
+    String getInstanceUrl() {
+        return instanceUrl;
+    }
+
+    String getSessionId() {
+        return sessionId;
+    }
+
+    ForceApi getForceApi() {
+        return forceApi;
+    }
+
+    boolean canRenew() {
+        return username != null;
+    }
+
+    long getLoggedInAt() {
+        return loggedInAt;
+    }
+
+    void ensureLoggedIn() throws SQLException {
+        synchronized (loginLock) {
+            if (sessionId == null) {
+                login();
+            }
+        }
+    }
+
+    // Returns the token to retry with, or null when the rejected one cannot be replaced.
+    // Only the first caller holding a stale token logs in; the rest pick up its result.
+    String renew(String staleSessionId) throws SQLException {
+        synchronized (loginLock) {
+            if (sessionId != null && !sessionId.equals(staleSessionId)) {
+                return sessionId;
+            }
+            if (!canRenew()) {
+                return null;
+            }
+            login();
+            return sessionId;
+        }
+    }
+
+    // Logs in ahead of expiry; the old token keeps working for requests already in flight
+    void refreshIfOlderThan(long maxAgeMillis) throws SQLException {
+        synchronized (loginLock) {
+            if (canRenew() && sessionId != null && System.currentTimeMillis() - loggedInAt >= maxAgeMillis) {
+                login();
+            }
+        }
+    }
+
+    private void login() throws SQLException {
+        Login login = authenticate();
+        forceApi = login.forceApi;
+        instanceUrl = login.instanceUrl;
+        loggedInAt = System.currentTimeMillis();
+        sessionId = login.sessionId;
+    }
+
+    // The login request itself; only ever made while holding the login lock
+    Login authenticate() throws SQLException {
+        try {
+            ForceConnection connection = new ForceConnection(loginUrl, username, secret);
+            return new Login(connection.getInstanceUrl(), connection.getSessionId(), new ForceApi(connection));
+        } catch (ForceException e) {
+            throw new SQLException("Failed to connect to Salesforce", e);
+        }
+    }
+
+    // The org's session timeout as the connections sharing this session configured it; the shortest one wins
+    long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    synchronized void requestTimeout(long millis) {
+        timeoutMillis = Math.min(timeoutMillis, millis);
+    }
+
+    synchronized void retain() {
+        references++;
+    }
+
+    synchronized void release() {
+        references--;
+        lastReleased = System.currentTimeMillis();
+    }
+
+    synchronized boolean isInUse() {
+        return references > 0;
+    }
+
+    synchronized long getLastReleased() {
+        return lastReleased;
+    }
+
+    static final class Login {
+        private final String instanceUrl;
+        private final String sessionId;
+        private final ForceApi forceApi;
+
+        Login(String instanceUrl, String sessionId, ForceApi forceApi) {
+            this.instanceUrl = instanceUrl;
+            this.sessionId = sessionId;
+            this.forceApi = forceApi;
+        }
+    }
+
+    static boolean isExpiredSession(ForceException e) {
+        return e.getMessage() != null && e.getMessage().contains("INVALID_SESSION_ID");
+    }
+}
@@ -1,51 +1,281 @@
 package com.salesforce.jdbc;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 public class SalesforceStatement implements Statement {
+    // Who gives way when the org's API allocation runs low: LOW statements are refused
+    // first, then NORMAL ones are slowed down, and HIGH ones run until it is gone
+    public enum ApiPriority { LOW, NORMAL, HIGH }
+
     private final SalesforceConnection connection;
-    private boolean closed = false;
+    private volatile boolean closed = false;
+    // Set while an execution runs; an asynchronous query holds it until its future completes
+    private volatile boolean executing = false;
+    // The control an asynchronous query was submitted with, so cancelling its future reaches it
+    private volatile QueryControl reserved;
+    private boolean poolable = false;
     private int maxRows = 0;
     private int fetchSize = 0;
     private int queryTimeout = 0;
+    private final int resultSetType;
+    private int prefetchDepth;
+    private int chunkParallelism;
+    private boolean chunkOrdered;
+    private int bulkThreshold;
     private final List<ResultSet> resultSets = new ArrayList<>();
+    // What getResultSet/getUpdateCount report, in execution order: a ResultSet or an Integer update count
+    private final List<Object> results = new ArrayList<>();
+    private int currentResult;
+    private final List<CompositeBatch.Subrequest> batch = new ArrayList<>();
+    private volatile QueryControl control;
+    private ApiPriority apiPriority;
+    private final AtomicLong apiCalls = new AtomicLong();
 
-    public SalesforceStatement(SalesforceConnection connection) {
+    public SalesforceStatement(SalesforceConnection connection) throws SQLException {
+        this(connection, ResultSet.TYPE_FORWARD_ONLY);
+    }
+
+    public SalesforceStatement(SalesforceConnection connection, int resultSetType) throws SQLException {
         this.connection = connection;
+        this.resultSetType = resultSetType;
+        this.prefetchDepth = connection.getIntProperty("prefetchDepth", 0);
+        this.chunkParallelism = connection.getIntProperty("chunkParallelism", 0);
+        this.chunkOrdered = connection.getBooleanProperty("chunkOrdered", true);
+        this.bulkThreshold = connection.getIntProperty("bulkThreshold", 0);
+        this.apiPriority = connection.getApiPriority();
     }
 
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
-        checkClosed();
-        String soql = connection.nativeSQL(sql);
-        ForceResult result = connection.executeQuery(soql);
-        SalesforceResultSet resultSet = new SalesforceResultSet(this, result);
+        begin();
+        try {
+            return query(sql);
+        } finally {
+            end();
+        }
+    }
+
+    private ResultSet query(String sql) throws SQLException {
+        boolean bulkHint = BulkPageSource.hasHint(sql);
+        TranslationPlan translation = translate(bulkHint ? BulkPageSource.stripHint(sql) : sql);
+        return runPlan(translation, translation.getSoql(), bulkHint);
+    }
+
+    // Runs a translated statement whose parameters are bound into soql. Plans with an
+    // operator have their SOQL read and post-processed in the driver.
+    ResultSet runPlan(TranslationPlan plan, String soql, boolean bulkHint) throws SQLException {
+        if (plan.getOperator() == null) {
+            return runQuery(soql, plan.getColumns(), bulkHint);
+        }
+        closeResultSets();
+        RestClient client = startExecution();
+        return register(new SalesforceResultSet(this, plan.getOperator().open(this, client, soql, bulkHint), maxRows, resultSetType));
+    }
+
+    // Every request of an execution, including later pages, is cancellable and bound by queryTimeout
+    private RestClient startExecution() {
+        QueryControl execution = reserved != null ? reserved : new QueryControl(queryTimeout, apiPriority, apiCalls);
+        reserved = null;
+        control = execution;
+        return connection.getRestClient().withControl(execution);
+    }
+
+    private ResultSet register(SalesforceResultSet resultSet) {
         resultSets.add(resultSet);
+        results.add(resultSet);
         return resultSet;
     }
 
+    // A REST cursor over SOQL an operator reads, with its columns typed like those of any query
+    QueryCursor openCursor(RestClient client, String soql, ColumnPlan columns) throws SQLException {
+        ColumnPlan plan = connection.typeColumns(columns, soql);
+        QueryResponseDecoder decoder = new QueryResponseDecoder(plan);
+        return new QueryCursor(client, client.query(soql, decoder, QueryCursor.clampBatchSize(fetchSize)), decoder, fetchSize);
+    }
+
+    PageSource prefetch(PageSource pages) {
+        return prefetchDepth > 0 ? new PrefetchingPageSource(pages, prefetchDepth) : pages;
+    }
+
+    // Runs SOQL that is ready to send; columns come from its translation plan and may be null
+    ResultSet runQuery(String soql, ColumnPlan columns, boolean bulkHint) throws SQLException {
+        closeResultSets();
+        RestClient client = startExecution();
+        return register(new SalesforceResultSet(this, openPages(client, soql, columns, bulkHint, maxRows), maxRows, resultSetType));
+    }
+
+    // The pages of a query, read over REST or, where configured, through the Bulk API or in
+    // parallel chunks. rowLimit is how many rows will be read, or 0 for all of them.
+    PageSource openPages(RestClient client, String soql, ColumnPlan columns, boolean bulkHint, int rowLimit) throws SQLException {
+        ColumnPlan plan = connection.typeColumns(columns, soql);
+        boolean bulkSupported = BulkPageSource.isSupported(soql, plan);
+        if (bulkSupported && (bulkHint || connection.getBooleanProperty("useBulkQuery", false))) {
+            return BulkPageSource.start(client, soql, plan, fetchSize);
+        }
+        if (chunkParallelism > 1 && rowLimit == 0) {
+            PageSource chunks = ChunkedPageSource.open(client, soql, plan, chunkParallelism, chunkOrdered, fetchSize);
+            if (chunks != null) {
+                return chunks;
+            }
+        }
+        QueryResponseDecoder decoder = new QueryResponseDecoder(plan);
+        QueryPage first = client.query(soql, decoder, QueryCursor.clampBatchSize(fetchSize));
+        if (bulkSupported && bulkThreshold > 0 && rowLimit == 0 && !first.isDone() && first.getTotalSize() > bulkThreshold) {
+            // The first REST page tells us the row count; past the threshold the rest is read in bulk
+            return BulkPageSource.start(client, soql, plan, fetchSize);
+        }
+        return prefetch(new QueryCursor(client, first, decoder, fetchSize));
+    }
+
+    // Runs executeQuery on the connection's async executor, by default one virtual thread per query.
+    // The future completes once the first page has arrived. Until then the statement refuses other
+    // executions, and cancelling the future cancels the query's requests.
+    public CompletableFuture<ResultSet> executeQueryAsync(String sql) {
+        try {
+            begin();
+        } catch (SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        QueryControl execution = new QueryControl(queryTimeout, apiPriority, apiCalls);
+        reserved = execution;
+        CompletableFuture<ResultSet> future = new CompletableFuture<>();
+        future.whenComplete((resultSet, failure) -> {
+            if (future.isCancelled()) {
+                execution.cancel();
+            }
+        });
+        try {
+            connection.getAsyncExecutor().execute(() -> {
+                ResultSet resultSet = null;
+                Throwable failure = null;
+                try {
+                    resultSet = query(sql);
+                } catch (SQLException | RuntimeException e) {
+                    failure = e;
+                } finally {
+                    end();
+                }
+                if (failure != null) {
+                    future.completeExceptionally(failure);
+                } else if (!future.complete(resultSet)) {
+                    // Cancelled after the first page arrived; nobody will read it
+                    closeQuietly(resultSet);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            reserved = null;
+            execution.finish();
+            end();
+            future.completeExceptionally(new SQLException("Async executor rejected the query", e));
+        }
+        return future;
+    }
+
+    // Claims the statement for one execution at a time
+    synchronized void begin() throws SQLException {
+        checkClosed();
+        if (executing) {
+            throw new SQLException("Statement is already executing a query", "HY010");
+        }
+        executing = true;
+    }
+
+    // A statement closed while its query ran is cleaned up once the query is done
+    synchronized void end() {
+        executing = false;
+        reserved = null;
+        if (closed) {
+            try {
+                closeResultSets();
+            } catch (SQLException e) {
+                // Closing result sets does not fail in practice; the statement is closed either way
+            }
+        }
+    }
+
+    // Result accessors may not race an execution that is still filling them in
+    void checkIdle() throws SQLException {
+        checkClosed();
+        if (executing) {
+            throw new SQLException("Statement is still executing a query", "HY010");
+        }
+    }
+
+    private static void closeQuietly(ResultSet resultSet) {
+        try {
+            resultSet.close();
+        } catch (SQLException e) {
+            // The result was never handed out
+        }
+    }
+
     @Override
     public int executeUpdate(String sql) throws SQLException {
+        begin();
+        try {
+            return runUpdate(translate(sql).getSoql());
+        } finally {
+            end();
+        }
+    }
+
+    int runUpdate(String soql) throws SQLException {
+        QueryControl execution = new QueryControl(queryTimeout, apiPriority, apiCalls);
+        control = execution;
+        try {
+            return connection.getRestClient().withControl(execution).query(soql, new QueryResponseDecoder(null), 0).getTotalSize();
+        } finally {
+            execution.finish();
+        }
+    }
+
+    // Plain statements have no values to bind, so placeholders are an error here rather than at the server
+    private TranslationPlan translate(String sql) throws SQLException {
         checkClosed();
-        // Convert SQL to Salesforce REST API call
-        // This is a simplified version and should be enhanced based on requirements
-        String soql = connection.nativeSQL(sql);
-        ForceResult result = connection.executeQuery(soql);
-        return result.getTotalSize();
+        TranslationPlan translation = connection.translate(sql);
+        if (translation.getParameterCount() > 0) {
+            throw new SQLException("Parameter markers (?) need a PreparedStatement: " + sql);
+        }
+        return translation;
     }
 
     @Override
     public void close() throws SQLException {
-        if (!closed) {
-            for (ResultSet rs : resultSets) {
-                rs.close();
+        synchronized (this) {
+            if (closed) {
+                return;
             }
-            resultSets.clear();
             closed = true;
+            if (executing) {
+                // The asynchronous query is cancelled and closes its results when it ends
+                cancelExecution();
+                return;
+            }
         }
+        closeResultSets();
+    }
+
+    // A new execution closes the previous results so their pages can be released
+    private void closeResultSets() throws SQLException {
+        QueryControl previous = control;
+        if (previous != null) {
+            previous.finish();
+        }
+        for (ResultSet rs : resultSets) {
+            rs.close();
+        }
+        resultSets.clear();
+        results.clear();
+        currentResult = 0;
     }
 
     @Override
@@ -87,13 +317,28 @@ public class SalesforceStatement implements Statement {
     @Override
     public void setQueryTimeout(int seconds) throws SQLException {
         checkClosed();
+        if (seconds < 0) {
+            throw new SQLException("Query timeout must be >= 0");
+        }
         this.queryTimeout = seconds;
     }
 
+    // Aborts the requests in flight and fails any further page fetches, including prefetch and chunk workers
     @Override
     public void cancel() throws SQLException {
         checkClosed();
-        // Not supported
+        cancelExecution();
+    }
+
+    private void cancelExecution() {
+        QueryControl pending = reserved;
+        if (pending != null) {
+            pending.cancel();
+        }
+        QueryControl current = control;
+        if (current != null) {
+            current.cancel();
+        }
     }
 
     @Override
@@ -123,20 +368,25 @@ public class SalesforceStatement implements Statement {
 
     @Override
     public ResultSet getResultSet() throws SQLException {
-        checkClosed();
-        return resultSets.isEmpty() ? null : resultSets.get(resultSets.size() - 1);
+        checkIdle();
+        Object current = currentResult();
+        return current instanceof ResultSet ? (ResultSet) current : null;
     }
 
     @Override
     public int getUpdateCount() throws SQLException {
-        checkClosed();
-        return -1;
+        checkIdle();
+        Object current = currentResult();
+        return current instanceof Integer ? (Integer) current : -1;
     }
 
     @Override
     public boolean getMoreResults() throws SQLException {
-        checkClosed();
-        return false;
+        return getMoreResults(CLOSE_CURRENT_RESULT);
+    }
+
+    private Object currentResult() {
+        return currentResult < results.size() ? results.get(currentResult) : null;
     }
 
     @Override
@@ -172,25 +422,104 @@ public class SalesforceStatement implements Statement {
     @Override
     public int getResultSetType() throws SQLException {
         checkClosed();
-        return ResultSet.TYPE_FORWARD_ONLY;
+        return resultSetType;
     }
 
     @Override
     public void addBatch(String sql) throws SQLException {
         checkClosed();
-        throw new SQLFeatureNotSupportedException("Batch operations are not supported");
+        batch.add(CompositeBatch.isQuery(sql) ? query(translate(sql)) : CompositeBatch.dml(sql));
+    }
+
+    private static CompositeBatch.Subrequest query(TranslationPlan translation) throws SQLException {
+        checkBatchable(translation);
+        return CompositeBatch.query(translation.getSoql(), translation.getColumns());
+    }
+
+    // A batch entry is a single SOQL request; the server cannot do the driver's part of a plan
+    static void checkBatchable(TranslationPlan translation) throws SQLException {
+        if (translation.getOperator() != null) {
+            throw new SQLFeatureNotSupportedException("Joins the driver completes itself cannot be batched");
+        }
+    }
+
+    void addBatchRequest(CompositeBatch.Subrequest subrequest) {
+        batch.add(subrequest);
     }
 
     @Override
     public void clearBatch() throws SQLException {
         checkClosed();
-        throw new SQLFeatureNotSupportedException("Batch operations are not supported");
+        batch.clear();
     }
 
+    // Sends the batch as Composite Batch requests of up to 25 statements each. Query results and
+    // update counts are then available in order through getResultSet/getUpdateCount/getMoreResults;
+    // queries report SUCCESS_NO_INFO in the returned counts.
     @Override
     public int[] executeBatch() throws SQLException {
-        checkClosed();
-        throw new SQLFeatureNotSupportedException("Batch operations are not supported");
+        begin();
+        try {
+            return runBatch();
+        } finally {
+            end();
+        }
+    }
+
+    private int[] runBatch() throws SQLException {
+        closeResultSets();
+        List<CompositeBatch.Subrequest> subrequests = new ArrayList<>(batch);
+        batch.clear();
+        QueryControl execution = new QueryControl(queryTimeout, apiPriority, apiCalls);
+        control = execution;
+        RestClient client = connection.getRestClient().withControl(execution);
+        int[] counts = new int[subrequests.size()];
+        SQLException failures = null;
+        for (int from = 0; from < subrequests.size(); from += CompositeBatch.MAX_SUBREQUESTS) {
+            List<CompositeBatch.Subrequest> group = subrequests.subList(from, Math.min(from + CompositeBatch.MAX_SUBREQUESTS, subrequests.size()));
+            ColumnPlan[] plans = new ColumnPlan[group.size()];
+            List<JsonNode> groupResults;
+            try {
+                for (int i = 0; i < group.size(); i++) {
+                    if (group.get(i).isQuery()) {
+                        String soql = group.get(i).getSoql();
+                        plans[i] = connection.typeColumns(group.get(i).getColumns(), soql);
+                    }
+                }
+                groupResults = CompositeBatch.execute(client, group);
+            } catch (SQLException e) {
+                // Earlier groups have already run; report their counts with the failure
+                throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), Arrays.copyOf(counts, from), e);
+            }
+            for (int i = 0; i < group.size(); i++) {
+                JsonNode result = groupResults.get(i);
+                if (!CompositeBatch.succeeded(result)) {
+                    counts[from + i] = EXECUTE_FAILED;
+                    // Keeps the results in step with the batch, so later entries are not misattributed
+                    results.add(EXECUTE_FAILED);
+                    SQLException failure = CompositeBatch.failure(result);
+                    if (failures == null) {
+                        failures = failure;
+                    } else {
+                        failures.setNextException(failure);
+                    }
+                } else if (group.get(i).isQuery()) {
+                    counts[from + i] = SUCCESS_NO_INFO;
+                    QueryResponseDecoder decoder = new QueryResponseDecoder(plans[i]);
+                    PageSource pages = prefetch(new QueryCursor(client, CompositeBatch.decodeQuery(result, decoder), decoder, fetchSize));
+                    SalesforceResultSet resultSet = new SalesforceResultSet(this, pages, maxRows, resultSetType);
+                    resultSets.add(resultSet);
+                    results.add(resultSet);
+                } else {
+                    counts[from + i] = 1;
+                    results.add(1);
+                }
+            }
+        }
+        if (failures != null) {
+            throw new BatchUpdateException(failures.getMessage(), failures.getSQLState(), failures.getErrorCode(), counts, failures);
+        }
+        return counts;
     }
 
     @Override
@@ -201,8 +530,20 @@ public class SalesforceStatement implements Statement {
 
     @Override
     public boolean getMoreResults(int current) throws SQLException {
-        checkClosed();
-        return false;
+        checkIdle();
+        if (current == CLOSE_ALL_RESULTS) {
+            for (int i = 0; i <= currentResult && i < results.size(); i++) {
+                if (results.get(i) instanceof ResultSet) {
+                    ((ResultSet) results.get(i)).close();
+                }
+            }
+        } else if (current != KEEP_CURRENT_RESULT && currentResult() instanceof ResultSet) {
+            ((ResultSet) currentResult()).close();
+        }
+        if (currentResult < results.size()) {
+            currentResult++;
+        }
+        return currentResult() instanceof ResultSet;
     }
 
     @Override
@@ -253,15 +594,16 @@ public class SalesforceStatement implements Statement {
     }
 
     @Override
+    // Only a hint: the driver keeps no statement cache, see SalesforceDataSource
     public void setPoolable(boolean poolable) throws SQLException {
         checkClosed();
-        // Not supported
+        this.poolable = poolable;
     }
 
     @Override
     public boolean isPoolable() throws SQLException {
         checkClosed();
-        return false;
+        return poolable;
     }
 
     @Override
@@ -276,7 +618,95 @@ public class SalesforceStatement implements Statement {
         return false;
     }
 
-    private void checkClosed() throws SQLException {
+    // Number of pages fetched ahead of the caller in the background; 0 disables prefetching
+    public void setPrefetchDepth(int pages) throws SQLException {
+        checkClosed();
+        if (pages < 0) {
+            throw new SQLException("Prefetch depth must be >= 0");
+        }
+        this.prefetchDepth = pages;
+    }
+
+    public int getPrefetchDepth() throws SQLException {
+        checkClosed();
+        return prefetchDepth;
+    }
+
+    // Number of chunk queries run at once for full-object SELECTs; 0 or 1 reads with a single cursor
+    public void setChunkParallelism(int workers) throws SQLException {
+        checkClosed();
+        if (workers < 0) {
+            throw new SQLException("Chunk parallelism must be >= 0");
+        }
+        this.chunkParallelism = workers;
+    }
+
+    public int getChunkParallelism() throws SQLException {
+        checkClosed();
+        return chunkParallelism;
+    }
+
+    // When false, chunked results are returned in whichever order the chunks complete
+    public void setChunkOrdered(boolean ordered) throws SQLException {
+        checkClosed();
+        this.chunkOrdered = ordered;
+    }
+
+    public boolean isChunkOrdered() throws SQLException {
+        checkClosed();
+        return chunkOrdered;
+    }
+
+    // Queries whose total size exceeds this many rows are read through the Bulk API; 0 disables the switch
+    public void setBulkThreshold(int rows) throws SQLException {
+        checkClosed();
+        if (rows < 0) {
+            throw new SQLException("Bulk threshold must be >= 0");
+        }
+        this.bulkThreshold = rows;
+    }
+
+    public int getBulkThreshold() throws SQLException {
+        checkClosed();
+        return bulkThreshold;
+    }
+
+    public void setApiPriority(ApiPriority priority) throws SQLException {
+        checkClosed();
+        if (priority == null) {
+            throw new SQLException("API priority must not be null");
+        }
+        this.apiPriority = priority;
+    }
+
+    public ApiPriority getApiPriority() throws SQLException {
+        checkClosed();
+        return apiPriority;
+    }
+
+    // REST calls this statement has made over all its executions, including later pages
+    public long getApiCallCount() {
+        return apiCalls.get();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    SalesforceConnection getSalesforceConnection() {
+        return connection;
+    }
+
+    void checkClosed() throws SQLException {
         if (closed) {
             throw new SQLException("Statement is closed");
         }
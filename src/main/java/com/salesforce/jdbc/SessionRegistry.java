@@ -0,0 +1,104 @@
+package com.salesforce.jdbc;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Process-wide sessions keyed by login URL, user and a digest of the
+// password, so connections for the same principal share one access token.
+// A background task logs in again before sessions time out and drops
+// sessions nobody has used for a full timeout.
+final class SessionRegistry {
+    static final int DEFAULT_SESSION_TIMEOUT_MINUTES = 120;
+
+    private static final long REFRESH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final Map<String, SalesforceSession> SESSIONS = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService refresher;
+
+    private SessionRegistry() {
+    }
+
+    static SalesforceSession acquire(String loginUrl, String username, String password, String securityToken,
+                                     int sessionTimeoutMinutes) throws SQLException {
+        String secret = password + (securityToken != null ? securityToken : "");
+        return acquire(key(loginUrl, username, secret), () -> new SalesforceSession(loginUrl, username, secret),
+                sessionTimeoutMinutes);
+    }
+
+    // Shares the session registered under key, creating it on first use
+    static SalesforceSession acquire(String key, Supplier<SalesforceSession> create, int sessionTimeoutMinutes) throws SQLException {
+        long timeoutMillis = TimeUnit.MINUTES.toMillis(sessionTimeoutMinutes > 0 ? sessionTimeoutMinutes : DEFAULT_SESSION_TIMEOUT_MINUTES);
+        // Retained under the map's lock for the key, so the refresher cannot drop it in between
+        SalesforceSession session = SESSIONS.compute(key, (k, existing) -> {
+            SalesforceSession shared = existing != null ? existing : create.get();
+            shared.requestTimeout(timeoutMillis);
+            shared.retain();
+            return shared;
+        });
+        try {
+            session.ensureLoggedIn();
+        } catch (SQLException | RuntimeException e) {
+            session.release();
+            throw e;
+        }
+        startRefresher();
+        return session;
+    }
+
+    // A session for one connection only, still renewed on expiry but never shared
+    static SalesforceSession unshared(String loginUrl, String username, String password, String securityToken) throws SQLException {
+        SalesforceSession session = new SalesforceSession(loginUrl, username, password + (securityToken != null ? securityToken : ""));
+        session.retain();
+        session.ensureLoggedIn();
+        return session;
+    }
+
+    private static synchronized void startRefresher() {
+        if (refresher == null) {
+            refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "salesforce-session-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refresher.scheduleWithFixedDelay(SessionRegistry::refresh,
+                    REFRESH_INTERVAL_MILLIS, REFRESH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void refresh() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, SalesforceSession> entry : SESSIONS.entrySet()) {
+            SalesforceSession session = entry.getValue();
+            long timeout = session.getTimeoutMillis();
+            if (!session.isInUse()) {
+                SESSIONS.computeIfPresent(entry.getKey(), (key, current) -> current == session && !current.isInUse()
+                        && now - current.getLastReleased() >= timeout ? null : current);
+                continue;
+            }
+            try {
+                // Renew at three quarters of the timeout so the token never lapses while in use
+                session.refreshIfOlderThan(timeout - timeout / 4);
+            } catch (SQLException | RuntimeException e) {
+                // Keep the current token; a rejected request renews it on demand
+            }
+        }
+    }
+
+    private static String key(String loginUrl, String username, String secret) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(secret.getBytes(StandardCharsets.UTF_8));
+            return loginUrl + '\n' + username + '\n' + Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package com.salesforce.jdbc;
+
+import com.salesforce.jdbc.SqlAst.Expr;
+
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Writes a parsed SELECT out as SOQL. Anything Salesforce would reject, such as a join inside
+// a subquery, arithmetic or comparing two fields, fails here before a request is sent.
+final class SoqlGenerator {
+    // The fields an sObject offers, for expanding *; backed by the connection's describes
+    interface FieldSource {
+        List<String> fieldsOf(String sObject) throws SQLException;
+
+        // The sObject behind a child relationship such as Account.Contacts
+        String childSObject(String parentSObject, String relationshipName) throws SQLException;
+
+        // The relationship name of a lookup field, e.g. Account for Contact.AccountId, or null
+        // when the field does not point to parentSObject alone
+        String parentRelationship(String sObject, String field, String parentSObject) throws SQLException;
+
+        // The child relationship through which childSObject's lookup field points to the parent, or null
+        String childRelationship(String parentSObject, String childSObject, String field) throws SQLException;
+    }
+
+    // Where a SELECT sits: the statement itself, a child relationship in the select list, or IN (SELECT ...)
+    private enum Context { TOP, CHILD, SEMI_JOIN }
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z][A-Za-z0-9_]*");
+    // Functions SOQL itself evaluates; anything else would only fail on the server
+    private static final Set<String> SOQL_FUNCTIONS = Set.of(
+            "AVG", "COUNT", "COUNT_DISTINCT", "MIN", "MAX", "SUM", "GROUPING", "ROLLUP", "CUBE",
+            "CALENDAR_MONTH", "CALENDAR_QUARTER", "CALENDAR_YEAR", "DAY_IN_MONTH", "DAY_IN_WEEK", "DAY_IN_YEAR",
+            "DAY_ONLY", "FISCAL_MONTH", "FISCAL_QUARTER", "FISCAL_YEAR", "HOUR_IN_DAY", "WEEK_IN_MONTH",
+            "WEEK_IN_YEAR", "CONVERTTIMEZONE", "TOLABEL", "CONVERTCURRENCY", "FORMAT", "DISTANCE", "GEOLOCATION");
+    private static final Pattern DATE_LITERAL = Pattern.compile(
+            "YESTERDAY|TODAY|TOMORROW|(LAST|THIS|NEXT)_(WEEK|MONTH|QUARTER|YEAR|FISCAL_QUARTER|FISCAL_YEAR)|LAST_90_DAYS|NEXT_90_DAYS",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final Pattern TIMESTAMP = Pattern.compile(
+            "(\\d{4}-\\d{2}-\\d{2})[ T](\\d{2}:\\d{2}:\\d{2}(?:\\.\\d{1,3})?)(Z|[+-]\\d{2}:?\\d{2})?");
+    // /*+ COLUMNS(Name, Industry) */ narrows * to the columns the caller will read
+    private static final Pattern COLUMNS_HINT = Pattern.compile("\\bCOLUMNS\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+
+    private final String sql;
+    private final FieldSource fields;
+    private final List<String> fragments = new ArrayList<>();
+    private final List<Integer> slots = new ArrayList<>();
+    private final List<String> labels = new ArrayList<>();
+    // Per output column, the top-level SOQL item it reads; per SOQL item, the field it selects or null
+    private final List<Integer> outputs = new ArrayList<>();
+    private final List<String> selected = new ArrayList<>();
+    private StringBuilder out = new StringBuilder();
+    private SqlAst.TableRef table;
+    private boolean star;
+
+    private SoqlGenerator(String sql, FieldSource fields) {
+        this.sql = sql;
+        this.fields = fields;
+    }
+
+    // Without a field source * is written as Id and the plan is marked for expansion
+    static TranslationPlan generate(String sql, SqlAst.Select select, FieldSource fields) throws SQLException {
+        if (!select.joins.isEmpty()) {
+            // Whether a join becomes one query depends on the relationships in the describes
+            return fields != null ? JoinPlanner.plan(sql, select, fields) : TranslationPlan.deferred(sql, select);
+        }
+        if (AggregatePlanner.isRequired(select)) {
+            return AggregatePlanner.plan(sql, select, fields);
+        }
+        SoqlGenerator generator = new SoqlGenerator(sql, fields);
+        try {
+            generator.select(select, Context.TOP);
+        } catch (SQLFeatureNotSupportedException e) {
+            // Grouping by an expression, SUM(Amount * 2) and the like are left to the driver
+            if (!AggregatePlanner.groups(select)) {
+                throw e;
+            }
+            return AggregatePlanner.plan(sql, select, fields);
+        }
+        generator.fragments.add(generator.out.toString());
+        return new TranslationPlan(sql, select, generator.fragments, generator.slots, generator.labels.toArray(new String[0]),
+                generator.outputs, generator.star);
+    }
+
+    private void select(SqlAst.Select select, Context context) throws SQLException {
+        if (!select.joins.isEmpty()) {
+            throw unsupported("JOIN is only supported in the outermost SELECT");
+        }
+        if (select.distinct) {
+            throw unsupported("SELECT DISTINCT is only supported in the outermost SELECT");
+        }
+        SqlAst.TableRef outer = table;
+        table = select.from;
+        out.append("SELECT ");
+        int columns = 0;
+        for (SqlAst.SelectItem item : select.items) {
+            if (item.expr instanceof SqlAst.Star && fields != null) {
+                for (String field : expandStar(select, (SqlAst.Star) item.expr, outer, context)) {
+                    if (!selectedBefore(context, field, null)) {
+                        out.append(columns++ > 0 ? ", " : "").append(field);
+                        output(context, field, null);
+                    }
+                }
+                continue;
+            }
+            if (item.expr instanceof SqlAst.Column && selectedBefore(context, field((SqlAst.Column) item.expr), item.alias)) {
+                continue;
+            }
+            out.append(columns++ > 0 ? ", " : "");
+            selectItem(item, context);
+        }
+        if (columns == 0) {
+            throw new SQLSyntaxErrorException("No columns left to select in: " + sql);
+        }
+        out.append(" FROM ").append(name(select.from.name));
+        if (select.where != null) {
+            out.append(" WHERE ");
+            condition(select.where, null);
+        }
+        if (!select.groupBy.isEmpty()) {
+            out.append(" GROUP BY ");
+            for (int i = 0; i < select.groupBy.size(); i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                value(select.groupBy.get(i));
+            }
+        }
+        if (select.having != null) {
+            out.append(" HAVING ");
+            condition(select.having, null);
+        }
+        if (!select.orderBy.isEmpty()) {
+            out.append(" ORDER BY ");
+            for (int i = 0; i < select.orderBy.size(); i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                SqlAst.OrderItem item = select.orderBy.get(i);
+                value(orderTarget(select, item.expr));
+                if (item.descending) {
+                    out.append(" DESC");
+                }
+                if (item.nulls != null) {
+                    out.append(" NULLS ").append(item.nulls);
+                }
+            }
+        }
+        if (select.limit != null) {
+            out.append(" LIMIT ");
+            count(select.limit);
+        }
+        if (select.offset != null) {
+            out.append(" OFFSET ");
+            count(select.offset);
+        }
+        for (String modifier : select.modifiers) {
+            out.append(' ').append(modifier);
+        }
+        table = outer;
+    }
+
+    // Each top-level select-list entry is an output column reading the SOQL item just written.
+    // SOQL only allows aliases on aggregates, so a field's alias lives on in the column label alone.
+    private void output(Context context, String field, String label) {
+        if (context == Context.TOP) {
+            outputs.add(selected.size());
+            selected.add(field);
+            labels.add(label);
+        }
+    }
+
+    // SOQL rejects a field selected twice, so a repeat at the top level, e.g. Name next to *,
+    // becomes another output column over the item already written
+    private boolean selectedBefore(Context context, String field, String label) {
+        if (context != Context.TOP) {
+            return false;
+        }
+        for (int i = 0; i < selected.size(); i++) {
+            if (field.equalsIgnoreCase(selected.get(i))) {
+                outputs.add(i);
+                labels.add(label);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void selectItem(SqlAst.SelectItem item, Context context) throws SQLException {
+        Expr expr = item.expr;
+        if (expr instanceof SqlAst.Star) {
+            checkQualifier((SqlAst.Star) expr);
+            // Stands in until the plan is expanded against the org's describe
+            star = true;
+            out.append("Id");
+            output(context, null, null);
+        } else if (expr instanceof SqlAst.Column) {
+            String field = field((SqlAst.Column) expr);
+            out.append(field);
+            output(context, field, item.alias);
+        } else if (expr instanceof SqlAst.Function) {
+            function((SqlAst.Function) expr);
+            if (item.alias != null) {
+                out.append(' ').append(name(item.alias));
+            }
+            output(context, null, null);
+        } else if (expr instanceof SqlAst.Subquery) {
+            // Child relationship query, e.g. (SELECT LastName FROM Contacts)
+            out.append('(');
+            select(((SqlAst.Subquery) expr).select, Context.CHILD);
+            out.append(')');
+            output(context, null, null);
+        } else {
+            throw unsupported("Only fields, functions and relationship subqueries can be selected");
+        }
+    }
+
+    private void checkQualifier(SqlAst.Star star) throws SQLException {
+        if (star.qualifier != null && !table.matches(star.qualifier)) {
+            throw new SQLSyntaxErrorException("Unknown table " + star.qualifier + " in: " + sql);
+        }
+    }
+
+    // Every field of the object, or only those named by a COLUMNS hint. In a child subquery,
+    // whose columns are not output one by one, fields it already selects by name are left out.
+    private List<String> expandStar(SqlAst.Select select, SqlAst.Star star, SqlAst.TableRef parent, Context context) throws SQLException {
+        checkQualifier(star);
+        String sObject;
+        switch (context) {
+            case CHILD:
+                sObject = fields.childSObject(parent.name, select.from.name);
+                break;
+            case SEMI_JOIN:
+                throw unsupported("SELECT * cannot be used in an IN subquery");
+            default:
+                sObject = select.from.name;
+                break;
+        }
+        List<String> available = fields.fieldsOf(sObject);
+        List<String> chosen = available;
+        List<String> requested = projection(select);
+        if (requested != null) {
+            chosen = new ArrayList<>(requested.size());
+            for (String column : requested) {
+                String field = find(available, column);
+                if (field == null) {
+                    throw new SQLSyntaxErrorException("No field " + column + " on " + sObject + " in COLUMNS hint: " + sql);
+                }
+                chosen.add(field);
+            }
+        }
+        List<String> explicit = new ArrayList<>();
+        for (SqlAst.SelectItem item : select.items) {
+            if (item.expr instanceof SqlAst.Column && context != Context.TOP) {
+                explicit.add(field((SqlAst.Column) item.expr));
+            }
+        }
+        List<String> expanded = new ArrayList<>(chosen.size());
+        for (String field : chosen) {
+            if (find(explicit, field) == null && find(expanded, field) == null) {
+                expanded.add(field);
+            }
+        }
+        return expanded;
+    }
+
+    private static List<String> projection(SqlAst.Select select) {
+        for (String hint : select.hints) {
+            Matcher matcher = COLUMNS_HINT.matcher(hint);
+            if (matcher.find()) {
+                List<String> columns = new ArrayList<>();
+                for (String column : matcher.group(1).split(",")) {
+                    if (!column.trim().isEmpty()) {
+                        columns.add(column.trim());
+                    }
+                }
+                return columns;
+            }
+        }
+        return null;
+    }
+
+    private static String find(List<String> names, String name) {
+        for (String candidate : names) {
+            if (candidate.equalsIgnoreCase(name)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // ORDER BY 2 and ORDER BY alias refer back to the select list
+    private static Expr orderTarget(SqlAst.Select select, Expr expr) throws SQLException {
+        if (expr instanceof SqlAst.Literal && ((SqlAst.Literal) expr).kind == SqlAst.Literal.Kind.NUMBER) {
+            int ordinal;
+            try {
+                ordinal = Integer.parseInt(((SqlAst.Literal) expr).text);
+            } catch (NumberFormatException e) {
+                ordinal = 0;
+            }
+            if (ordinal < 1 || ordinal > select.items.size() || select.items.get(ordinal - 1).expr instanceof SqlAst.Star) {
+                throw new SQLSyntaxErrorException("ORDER BY position " + ((SqlAst.Literal) expr).text + " is not in the select list");
+            }
+            return select.items.get(ordinal - 1).expr;
+        }
+        if (expr instanceof SqlAst.Column && ((SqlAst.Column) expr).path.size() == 1) {
+            String name = ((SqlAst.Column) expr).path.get(0);
+            for (SqlAst.SelectItem item : select.items) {
+                if (item.alias != null && item.alias.equalsIgnoreCase(name)) {
+                    return item.expr;
+                }
+            }
+        }
+        return expr;
+    }
+
+    private void condition(Expr expr, String parent) throws SQLException {
+        if (expr instanceof SqlAst.Binary && isLogical(((SqlAst.Binary) expr).operator)) {
+            SqlAst.Binary binary = (SqlAst.Binary) expr;
+            // SOQL refuses to mix AND and OR without parentheses
+            boolean parenthesize = parent != null && !parent.equals(binary.operator);
+            if (parenthesize) {
+                out.append('(');
+            }
+            condition(binary.left, binary.operator);
+            out.append(' ').append(binary.operator).append(' ');
+            condition(binary.right, binary.operator);
+            if (parenthesize) {
+                out.append(')');
+            }
+        } else if (expr instanceof SqlAst.Unary && ((SqlAst.Unary) expr).operator.equals("NOT")) {
+            out.append("NOT ");
+            condition(((SqlAst.Unary) expr).operand, "NOT");
+        } else if (expr instanceof SqlAst.Binary) {
+            comparison((SqlAst.Binary) expr);
+        } else if (expr instanceof SqlAst.IsNull) {
+            SqlAst.IsNull isNull = (SqlAst.IsNull) expr;
+            operand(isNull.operand);
+            out.append(isNull.negated ? " != null" : " = null");
+        } else if (expr instanceof SqlAst.Between) {
+            SqlAst.Between between = (SqlAst.Between) expr;
+            out.append('(');
+            operand(between.operand);
+            out.append(between.negated ? " < " : " >= ");
+            comparand(between.low);
+            out.append(between.negated ? " OR " : " AND ");
+            operand(between.operand);
+            out.append(between.negated ? " > " : " <= ");
+            comparand(between.high);
+            out.append(')');
+        } else if (expr instanceof SqlAst.In) {
+            in((SqlAst.In) expr);
+        } else if (expr instanceof SqlAst.Column) {
+            // A bare checkbox field reads as a condition in SQL
+            out.append(field((SqlAst.Column) expr)).append(" = true");
+        } else {
+            throw unsupported("Unsupported condition");
+        }
+    }
+
+    private static boolean isLogical(String operator) {
+        return operator.equals("AND") || operator.equals("OR");
+    }
+
+    private void comparison(SqlAst.Binary binary) throws SQLException {
+        String operator = binary.operator;
+        Expr left = binary.left;
+        Expr right = binary.right;
+        if (operator.equals("+") || operator.equals("-") || operator.equals("*") || operator.equals("/")) {
+            throw unsupported("Arithmetic expressions are not supported");
+        }
+        if (!isFieldSide(left) && isFieldSide(right) && !operator.equals("LIKE")) {
+            // SOQL wants the field first: 5 < NumberOfEmployees becomes NumberOfEmployees > 5
+            left = binary.right;
+            right = binary.left;
+            operator = flip(operator);
+        }
+        operand(left);
+        out.append(' ').append(operator).append(' ');
+        comparand(right);
+    }
+
+    private static boolean isFieldSide(Expr expr) {
+        return (expr instanceof SqlAst.Column && !isDateLiteral(expr)) || expr instanceof SqlAst.Function;
+    }
+
+    private static String flip(String operator) {
+        switch (operator) {
+            case "<":
+                return ">";
+            case "<=":
+                return ">=";
+            case ">":
+                return "<";
+            case ">=":
+                return "<=";
+            default:
+                return operator;
+        }
+    }
+
+    private void in(SqlAst.In in) throws SQLException {
+        operand(in.operand);
+        out.append(' ').append(in.operator).append(" (");
+        if (in.subquery != null) {
+            select(in.subquery, Context.SEMI_JOIN);
+        } else {
+            for (int i = 0; i < in.values.size(); i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                comparand(in.values.get(i));
+            }
+        }
+        out.append(')');
+    }
+
+    // The field side of a condition
+    private void operand(Expr expr) throws SQLException {
+        if (!isFieldSide(expr)) {
+            throw unsupported("A condition must compare a field with a value");
+        }
+        value(expr);
+    }
+
+    // The value side of a condition: a literal, a parameter or a SOQL date literal
+    private void comparand(Expr expr) throws SQLException {
+        if (isDateLiteral(expr)) {
+            out.append(((SqlAst.Column) expr).path.get(0).toUpperCase(Locale.ROOT));
+        } else if (expr instanceof SqlAst.Column) {
+            throw unsupported("Comparing two fields is not supported");
+        } else if (expr instanceof SqlAst.Function) {
+            throw unsupported("A condition must compare a field with a value");
+        } else {
+            value(expr);
+        }
+    }
+
+    static boolean isDateLiteral(Expr expr) {
+        return expr instanceof SqlAst.Column && ((SqlAst.Column) expr).path.size() == 1
+                && DATE_LITERAL.matcher(((SqlAst.Column) expr).path.get(0)).matches();
+    }
+
+    private void value(Expr expr) throws SQLException {
+        if (expr instanceof SqlAst.Column) {
+            out.append(field((SqlAst.Column) expr));
+        } else if (expr instanceof SqlAst.Function) {
+            function((SqlAst.Function) expr);
+        } else if (expr instanceof SqlAst.Literal) {
+            literal((SqlAst.Literal) expr);
+        } else if (expr instanceof SqlAst.Parameter) {
+            slots.add(((SqlAst.Parameter) expr).index);
+            fragments.add(out.toString());
+            out = new StringBuilder();
+        } else if (expr instanceof SqlAst.Binary || expr instanceof SqlAst.Unary) {
+            throw unsupported("Arithmetic expressions are not supported");
+        } else {
+            throw unsupported("Unsupported expression");
+        }
+    }
+
+    private void function(SqlAst.Function function) throws SQLException {
+        String name = name(function.name);
+        if (!SOQL_FUNCTIONS.contains(name.toUpperCase(Locale.ROOT))) {
+            throw unsupported(name + "() is not a SOQL function");
+        }
+        if (function.star || name.equalsIgnoreCase("COUNT") && function.arguments.isEmpty()) {
+            if (!name.equalsIgnoreCase("COUNT")) {
+                throw new SQLSyntaxErrorException(name + "(*) is not valid in: " + sql);
+            }
+            // SOQL's COUNT() answers with totalSize and no records; COUNT(Id) returns the count as a row
+            out.append("COUNT(Id)");
+            return;
+        }
+        if (function.distinct) {
+            if (!name.equalsIgnoreCase("COUNT") || function.arguments.size() != 1) {
+                throw unsupported(name + "(DISTINCT ...) is not supported");
+            }
+            name = "COUNT_DISTINCT";
+        }
+        out.append(name).append('(');
+        for (int i = 0; i < function.arguments.size(); i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            value(function.arguments.get(i));
+        }
+        out.append(')');
+    }
+
+    private void literal(SqlAst.Literal literal) throws SQLException {
+        switch (literal.kind) {
+            case STRING:
+                out.append('\'').append(literal.text).append('\'');
+                break;
+            case DATE:
+                if (!DATE.matcher(literal.text).matches()) {
+                    throw new SQLSyntaxErrorException("Invalid DATE literal '" + literal.text + "' in: " + sql);
+                }
+                out.append(literal.text);
+                break;
+            case TIMESTAMP:
+                Matcher matcher = TIMESTAMP.matcher(literal.text);
+                if (!matcher.matches()) {
+                    throw new SQLSyntaxErrorException("Invalid TIMESTAMP literal '" + literal.text + "' in: " + sql);
+                }
+                String zone = matcher.group(3);
+                if (zone == null) {
+                    zone = "Z";
+                } else if (zone.length() == 5) {
+                    zone = zone.substring(0, 3) + ":" + zone.substring(3);
+                }
+                out.append(matcher.group(1)).append('T').append(matcher.group(2)).append(zone);
+                break;
+            default:
+                out.append(literal.text);
+                break;
+        }
+    }
+
+    private void count(Expr expr) throws SQLException {
+        if (expr instanceof SqlAst.Parameter) {
+            value(expr);
+        } else if (expr instanceof SqlAst.Literal && ((SqlAst.Literal) expr).kind == SqlAst.Literal.Kind.NUMBER
+                && ((SqlAst.Literal) expr).text.chars().allMatch(Character::isDigit)) {
+            out.append(((SqlAst.Literal) expr).text);
+        } else {
+            throw new SQLSyntaxErrorException("LIMIT and OFFSET take a whole number in: " + sql);
+        }
+    }
+
+    // Qualifiers naming the queried object are dropped: a.Name and Account.Name on Account are Name
+    private String field(SqlAst.Column column) throws SQLException {
+        List<String> path = column.path;
+        if (path.size() > 1 && table.matches(path.get(0))) {
+            path = path.subList(1, path.size());
+        }
+        StringBuilder field = new StringBuilder();
+        for (String segment : path) {
+            if (field.length() > 0) {
+                field.append('.');
+            }
+            field.append(name(segment));
+        }
+        return field.toString();
+    }
+
+    private String name(String name) throws SQLException {
+        if (!NAME.matcher(name).matches()) {
+            throw new SQLSyntaxErrorException("Invalid Salesforce name \"" + name + "\" in: " + sql);
+        }
+        return name;
+    }
+
+    private SQLFeatureNotSupportedException unsupported(String message) {
+        return new SQLFeatureNotSupportedException(message + ": " + sql);
+    }
+}
@@ -0,0 +1,172 @@
+package com.salesforce.jdbc;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.UUID;
+
+// Encodes bound parameter values as SOQL literals. Strings are escaped so a value can
+// never end the literal early; numbers are written in plain notation; dates and
+// dateTimes use the ISO forms SOQL expects, with dateTimes always in UTC.
+final class SoqlLiterals {
+    private SoqlLiterals() {
+    }
+
+    static String string(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder out = new StringBuilder(value.length() + 8).append('\'');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\'':
+                    out.append("\\'");
+                    break;
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\b':
+                    out.append("\\b");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                default:
+                    out.append(c);
+                    break;
+            }
+        }
+        return out.append('\'').toString();
+    }
+
+    static String bool(boolean value) {
+        return value ? "true" : "false";
+    }
+
+    static String integer(long value) {
+        return Long.toString(value);
+    }
+
+    static String decimal(BigDecimal value) {
+        return value == null ? "null" : value.toPlainString();
+    }
+
+    static String number(double value) throws SQLException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new SQLException("Cannot bind " + value + " in SOQL");
+        }
+        return BigDecimal.valueOf(value).toPlainString();
+    }
+
+    // Widening to double first would bind 0.1f as 0.10000000149011612
+    static String number(float value) throws SQLException {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            throw new SQLException("Cannot bind " + value + " in SOQL");
+        }
+        return new BigDecimal(Float.toString(value)).toPlainString();
+    }
+
+    static String date(LocalDate value) {
+        return value == null ? "null" : IsoTemporal.formatDate(value.toEpochDay());
+    }
+
+    // 2024-01-01T10:00:00Z, with milliseconds only when there are any
+    static String dateTime(Instant value) {
+        if (value == null) {
+            return "null";
+        }
+        long millis = value.toEpochMilli();
+        String formatted = IsoTemporal.formatDateTime(millis);
+        return Math.floorMod(millis, 1000L) == 0 ? formatted.substring(0, 19) + "Z" : formatted.substring(0, 23) + "Z";
+    }
+
+    static String time(LocalTime value) {
+        return value == null ? "null" : IsoTemporal.formatTime(value.toNanoOfDay() / 1_000_000L);
+    }
+
+    // Values bound with setObject. A collection or array becomes a comma-separated list for IN (?).
+    static String of(Object value) throws SQLException {
+        if (value == null) {
+            return "null";
+        } else if (value instanceof String || value instanceof Character || value instanceof UUID) {
+            return string(value.toString());
+        } else if (value instanceof Boolean) {
+            return bool((Boolean) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return integer(((Number) value).longValue());
+        } else if (value instanceof BigDecimal) {
+            return decimal((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            return value.toString();
+        } else if (value instanceof Float) {
+            return number((float) (Float) value);
+        } else if (value instanceof Double) {
+            return number((double) (Double) value);
+        } else if (value instanceof java.sql.Date) {
+            return date(((java.sql.Date) value).toLocalDate());
+        } else if (value instanceof java.sql.Time) {
+            return time(((java.sql.Time) value).toLocalTime());
+        } else if (value instanceof java.util.Date) {
+            // Timestamp and plain Date both mark an instant
+            return dateTime(((java.util.Date) value).toInstant());
+        } else if (value instanceof LocalDate) {
+            return date((LocalDate) value);
+        } else if (value instanceof LocalTime) {
+            return time((LocalTime) value);
+        } else if (value instanceof LocalDateTime) {
+            return dateTime(((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant());
+        } else if (value instanceof Instant) {
+            return dateTime((Instant) value);
+        } else if (value instanceof OffsetDateTime) {
+            return dateTime(((OffsetDateTime) value).toInstant());
+        } else if (value instanceof ZonedDateTime) {
+            return dateTime(((ZonedDateTime) value).toInstant());
+        } else if (value instanceof Collection) {
+            return list(((Collection<?>) value).iterator());
+        } else if (value instanceof Object[]) {
+            return list(Arrays.asList((Object[]) value).iterator());
+        }
+        throw new SQLException("Cannot bind a " + value.getClass().getName() + " in SOQL");
+    }
+
+    private static String list(Iterator<?> values) throws SQLException {
+        if (!values.hasNext()) {
+            throw new SQLException("Cannot bind an empty list in SOQL");
+        }
+        StringBuilder out = new StringBuilder();
+        while (values.hasNext()) {
+            Object value = values.next();
+            if (value instanceof Collection || value instanceof Object[]) {
+                throw new SQLException("Cannot bind a nested list in SOQL");
+            }
+            if (out.length() > 0) {
+                out.append(", ");
+            }
+            out.append(of(value));
+        }
+        return out.toString();
+    }
+}
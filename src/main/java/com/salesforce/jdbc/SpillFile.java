@@ -0,0 +1,188 @@
+package com.salesforce.jdbc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Rows of values written to a temp file and read back once, in order, for operators whose
+// state outgrows memory. Values are the types ColumnarPage.getObject returns.
+final class SpillFile implements AutoCloseable {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final byte NULL = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte DECIMAL = 4;
+    private static final byte STRING = 5;
+    private static final byte DATE = 6;
+    private static final byte DATETIME = 7;
+    private static final byte TIME = 8;
+    private static final byte JSON = 9;
+
+    private final Path file;
+    private final int width;
+    private DataOutputStream out;
+    private DataInputStream in;
+    private long rows = 0;
+    private long unread = 0;
+
+    private SpillFile(Path file, int width, DataOutputStream out) {
+        this.file = file;
+        this.width = width;
+        this.out = out;
+    }
+
+    // A new file for rows of width values each
+    static SpillFile create(int width) throws SQLException {
+        try {
+            Path file = Files.createTempFile("salesforce-spill-", ".rows");
+            return new SpillFile(file, width, new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)));
+        } catch (IOException e) {
+            throw new SQLException("Failed to create spill file", e);
+        }
+    }
+
+    void write(Object[] row) throws SQLException {
+        try {
+            for (int i = 0; i < width; i++) {
+                writeValue(row[i]);
+            }
+            rows++;
+        } catch (IOException e) {
+            throw new SQLException("Failed to write spill file", e);
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            out.writeUTF(value.toString());
+        } else if (value instanceof String) {
+            // writeUTF is capped at 64 KB, which a long text area can pass
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeByte(STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value instanceof LocalDate) {
+            out.writeByte(DATE);
+            out.writeLong(((LocalDate) value).toEpochDay());
+        } else if (value instanceof Instant) {
+            out.writeByte(DATETIME);
+            out.writeLong(((Instant) value).toEpochMilli());
+        } else if (value instanceof LocalTime) {
+            out.writeByte(TIME);
+            out.writeLong(((LocalTime) value).toNanoOfDay());
+        } else {
+            byte[] json = MAPPER.writeValueAsBytes(value);
+            out.writeByte(JSON);
+            out.writeInt(json.length);
+            out.write(json);
+        }
+    }
+
+    long getRowCount() {
+        return rows;
+    }
+
+    // The next row, or null once every row written has been read; the first call ends writing
+    Object[] read() throws SQLException {
+        try {
+            if (out != null) {
+                out.close();
+                out = null;
+                in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+                unread = rows;
+            }
+            if (unread == 0) {
+                return null;
+            }
+            unread--;
+            Object[] row = new Object[width];
+            for (int i = 0; i < width; i++) {
+                row[i] = readValue();
+            }
+            return row;
+        } catch (IOException e) {
+            throw new SQLException("Failed to read spill file", e);
+        }
+    }
+
+    private Object readValue() throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case BOOLEAN:
+                return in.readBoolean();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case DECIMAL:
+                return new BigDecimal(in.readUTF());
+            case STRING:
+                return new String(readBytes(), StandardCharsets.UTF_8);
+            case DATE:
+                return LocalDate.ofEpochDay(in.readLong());
+            case DATETIME:
+                return Instant.ofEpochMilli(in.readLong());
+            case TIME:
+                return LocalTime.ofNanoOfDay(in.readLong());
+            case JSON:
+                return MAPPER.readValue(readBytes(), Object.class);
+            default:
+                throw new IOException("Corrupt spill file: unknown value tag " + tag);
+        }
+    }
+
+    private byte[] readBytes() throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (out != null) {
+                out.close();
+            }
+            if (in != null) {
+                in.close();
+            }
+        } catch (IOException e) {
+            // Nothing more can be done with the file; it is deleted below
+        }
+        out = null;
+        in = null;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+}
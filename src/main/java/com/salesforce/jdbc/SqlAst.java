@@ -0,0 +1,227 @@
+package com.salesforce.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+// Syntax tree produced by SqlParser. Nodes only record what was written; deciding
+// what Salesforce can run is left to SoqlGenerator.
+final class SqlAst {
+    private SqlAst() {
+    }
+
+    abstract static class Expr {
+    }
+
+    // A possibly qualified name such as Name, a.Name or c.Account.Name
+    static final class Column extends Expr {
+        final List<String> path;
+
+        Column(List<String> path) {
+            this.path = Collections.unmodifiableList(new ArrayList<>(path));
+        }
+
+        String dotted() {
+            return String.join(".", path);
+        }
+    }
+
+    // * or alias.*
+    static final class Star extends Expr {
+        final String qualifier;
+
+        Star(String qualifier) {
+            this.qualifier = qualifier;
+        }
+    }
+
+    static final class Literal extends Expr {
+        // SOQL covers the bare date literals such as TODAY and LAST_N_DAYS:30
+        enum Kind { STRING, NUMBER, BOOLEAN, NULL, DATE, TIMESTAMP, SOQL }
+
+        final Kind kind;
+        final String text;
+
+        Literal(Kind kind, String text) {
+            this.kind = kind;
+            this.text = text;
+        }
+    }
+
+    // A ? placeholder; index is 0-based in order of appearance
+    static final class Parameter extends Expr {
+        final int index;
+
+        Parameter(int index) {
+            this.index = index;
+        }
+    }
+
+    static final class Function extends Expr {
+        final String name;
+        final List<Expr> arguments;
+        final boolean distinct;
+        final boolean star;
+
+        Function(String name, List<Expr> arguments, boolean distinct, boolean star) {
+            this.name = name;
+            this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments));
+            this.distinct = distinct;
+            this.star = star;
+        }
+
+        boolean isAggregate() {
+            switch (name.toUpperCase(Locale.ROOT)) {
+                case "COUNT":
+                case "COUNT_DISTINCT":
+                case "SUM":
+                case "AVG":
+                case "MIN":
+                case "MAX":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    // AND, OR, comparisons, LIKE and arithmetic
+    static final class Binary extends Expr {
+        final String operator;
+        final Expr left;
+        final Expr right;
+
+        Binary(String operator, Expr left, Expr right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    static final class Unary extends Expr {
+        final String operator;
+        final Expr operand;
+
+        Unary(String operator, Expr operand) {
+            this.operator = operator;
+            this.operand = operand;
+        }
+    }
+
+    // IN, NOT IN, INCLUDES or EXCLUDES over a value list or a subquery
+    static final class In extends Expr {
+        final Expr operand;
+        final String operator;
+        final List<Expr> values;
+        final Select subquery;
+
+        In(Expr operand, String operator, List<Expr> values, Select subquery) {
+            this.operand = operand;
+            this.operator = operator;
+            this.values = values != null ? Collections.unmodifiableList(new ArrayList<>(values)) : null;
+            this.subquery = subquery;
+        }
+    }
+
+    static final class Between extends Expr {
+        final Expr operand;
+        final Expr low;
+        final Expr high;
+        final boolean negated;
+
+        Between(Expr operand, Expr low, Expr high, boolean negated) {
+            this.operand = operand;
+            this.low = low;
+            this.high = high;
+            this.negated = negated;
+        }
+    }
+
+    static final class IsNull extends Expr {
+        final Expr operand;
+        final boolean negated;
+
+        IsNull(Expr operand, boolean negated) {
+            this.operand = operand;
+            this.negated = negated;
+        }
+    }
+
+    // A parenthesized SELECT used as a value, e.g. a child relationship in the select list
+    static final class Subquery extends Expr {
+        final Select select;
+
+        Subquery(Select select) {
+            this.select = select;
+        }
+    }
+
+    static final class SelectItem {
+        final Expr expr;
+        final String alias;
+
+        SelectItem(Expr expr, String alias) {
+            this.expr = expr;
+            this.alias = alias;
+        }
+    }
+
+    static final class TableRef {
+        final String name;
+        final String alias;
+
+        TableRef(String name, String alias) {
+            this.name = name;
+            this.alias = alias;
+        }
+
+        // Whether a column qualifier refers to this table
+        boolean matches(String qualifier) {
+            return qualifier.equalsIgnoreCase(alias != null ? alias : name);
+        }
+    }
+
+    static final class Join {
+        // INNER, LEFT, RIGHT, FULL or CROSS; FROM a, b is a CROSS join
+        final String type;
+        final TableRef table;
+        final Expr condition;
+
+        Join(String type, TableRef table, Expr condition) {
+            this.type = type;
+            this.table = table;
+            this.condition = condition;
+        }
+    }
+
+    static final class OrderItem {
+        final Expr expr;
+        final boolean descending;
+        // FIRST, LAST or null
+        final String nulls;
+
+        OrderItem(Expr expr, boolean descending, String nulls) {
+            this.expr = expr;
+            this.descending = descending;
+            this.nulls = nulls;
+        }
+    }
+
+    static final class Select {
+        // Bodies of /*+ ... */ comments written right after SELECT
+        final List<String> hints = new ArrayList<>();
+        boolean distinct;
+        final List<SelectItem> items = new ArrayList<>();
+        TableRef from;
+        final List<Join> joins = new ArrayList<>();
+        Expr where;
+        final List<Expr> groupBy = new ArrayList<>();
+        Expr having;
+        final List<OrderItem> orderBy = new ArrayList<>();
+        Expr limit;
+        Expr offset;
+        // Trailing SOQL clauses kept as written: WITH SECURITY_ENFORCED, FOR VIEW, USING SCOPE mine
+        final List<String> modifiers = new ArrayList<>();
+    }
+}
@@ -0,0 +1,186 @@
+package com.salesforce.jdbc;
+
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Splits SQL text into tokens for SqlParser. Comments are dropped, except a /*+ hint */
+// right after SELECT, which is kept as a HINT token. String literals are kept in
+// SOQL-escaped form: '' becomes \' and backslash escapes pass through untouched, so
+// the generator can emit them as they are.
+final class SqlLexer {
+    enum Kind { IDENTIFIER, QUOTED_IDENTIFIER, STRING, NUMBER, PARAMETER, SYMBOL, HINT, END }
+
+    static final class Token {
+        final Kind kind;
+        final String text;
+        final int position;
+
+        Token(Kind kind, String text, int position) {
+            this.kind = kind;
+            this.text = text;
+            this.position = position;
+        }
+
+        // Keywords are ordinary identifiers compared case-insensitively
+        boolean isKeyword(String keyword) {
+            return kind == Kind.IDENTIFIER && text.equalsIgnoreCase(keyword);
+        }
+
+        boolean isSymbol(String symbol) {
+            return kind == Kind.SYMBOL && text.equals(symbol);
+        }
+
+        String upper() {
+            return text.toUpperCase(Locale.ROOT);
+        }
+    }
+
+    private static final String[] SYMBOLS = {"<=", ">=", "<>", "!=", "=", "<", ">", "(", ")", ",", ".", "*", "+", "-", "/", ":", ";"};
+
+    private final String sql;
+    private int pos;
+
+    private SqlLexer(String sql) {
+        this.sql = sql;
+    }
+
+    static List<Token> tokenize(String sql) throws SQLSyntaxErrorException {
+        return new SqlLexer(sql).run();
+    }
+
+    private List<Token> run() throws SQLSyntaxErrorException {
+        List<Token> tokens = new ArrayList<>();
+        while (true) {
+            skipSpaceAndComments(tokens);
+            if (pos >= sql.length()) {
+                tokens.add(new Token(Kind.END, "", pos));
+                return tokens;
+            }
+            tokens.add(next());
+        }
+    }
+
+    private void skipSpaceAndComments(List<Token> tokens) throws SQLSyntaxErrorException {
+        while (pos < sql.length()) {
+            char c = sql.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (sql.startsWith("--", pos)) {
+                int end = sql.indexOf('\n', pos);
+                pos = end < 0 ? sql.length() : end + 1;
+            } else if (sql.startsWith("/*", pos)) {
+                int end = sql.indexOf("*/", pos + 2);
+                if (end < 0) {
+                    throw error("Unterminated comment", pos);
+                }
+                if (sql.startsWith("/*+", pos) && !tokens.isEmpty() && tokens.get(tokens.size() - 1).isKeyword("SELECT")) {
+                    tokens.add(new Token(Kind.HINT, sql.substring(pos + 3, end).trim(), pos));
+                }
+                pos = end + 2;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private Token next() throws SQLSyntaxErrorException {
+        int start = pos;
+        char c = sql.charAt(pos);
+        if (Character.isLetter(c) || c == '_') {
+            while (pos < sql.length() && (Character.isLetterOrDigit(sql.charAt(pos)) || sql.charAt(pos) == '_')) {
+                pos++;
+            }
+            return new Token(Kind.IDENTIFIER, sql.substring(start, pos), start);
+        }
+        if (Character.isDigit(c) || (c == '.' && pos + 1 < sql.length() && Character.isDigit(sql.charAt(pos + 1)))) {
+            return number(start);
+        }
+        switch (c) {
+            case '\'':
+                return string(start);
+            case '"':
+            case '`':
+                return quotedIdentifier(start, c);
+            case '?':
+                pos++;
+                return new Token(Kind.PARAMETER, "?", start);
+            default:
+                for (String symbol : SYMBOLS) {
+                    if (sql.startsWith(symbol, pos)) {
+                        pos += symbol.length();
+                        return new Token(Kind.SYMBOL, symbol, start);
+                    }
+                }
+                throw error("Unexpected character '" + c + "'", start);
+        }
+    }
+
+    private Token number(int start) {
+        while (pos < sql.length() && (Character.isDigit(sql.charAt(pos)) || sql.charAt(pos) == '.')) {
+            pos++;
+        }
+        if (pos < sql.length() && (sql.charAt(pos) == 'e' || sql.charAt(pos) == 'E')) {
+            int exponent = pos + 1;
+            if (exponent < sql.length() && (sql.charAt(exponent) == '+' || sql.charAt(exponent) == '-')) {
+                exponent++;
+            }
+            if (exponent < sql.length() && Character.isDigit(sql.charAt(exponent))) {
+                pos = exponent;
+                while (pos < sql.length() && Character.isDigit(sql.charAt(pos))) {
+                    pos++;
+                }
+            }
+        }
+        return new Token(Kind.NUMBER, sql.substring(start, pos), start);
+    }
+
+    private Token string(int start) throws SQLSyntaxErrorException {
+        StringBuilder body = new StringBuilder();
+        for (pos++; pos < sql.length(); pos++) {
+            char c = sql.charAt(pos);
+            if (c == '\\' && pos + 1 < sql.length()) {
+                body.append(c).append(sql.charAt(++pos));
+            } else if (c == '\'') {
+                if (pos + 1 < sql.length() && sql.charAt(pos + 1) == '\'') {
+                    body.append("\\'");
+                    pos++;
+                } else {
+                    pos++;
+                    return new Token(Kind.STRING, body.toString(), start);
+                }
+            } else if (c == '\n') {
+                body.append("\\n");
+            } else if (c == '\r') {
+                body.append("\\r");
+            } else {
+                body.append(c);
+            }
+        }
+        throw error("Unterminated string literal", start);
+    }
+
+    private Token quotedIdentifier(int start, char quote) throws SQLSyntaxErrorException {
+        StringBuilder name = new StringBuilder();
+        for (pos++; pos < sql.length(); pos++) {
+            char c = sql.charAt(pos);
+            if (c == quote) {
+                if (pos + 1 < sql.length() && sql.charAt(pos + 1) == quote) {
+                    name.append(c);
+                    pos++;
+                } else {
+                    pos++;
+                    return new Token(Kind.QUOTED_IDENTIFIER, name.toString(), start);
+                }
+            } else {
+                name.append(c);
+            }
+        }
+        throw error("Unterminated quoted identifier", start);
+    }
+
+    private SQLSyntaxErrorException error(String message, int position) {
+        return new SQLSyntaxErrorException(message + " at position " + position + " in: " + sql);
+    }
+}
@@ -0,0 +1,510 @@
+package com.salesforce.jdbc;
+
+import com.salesforce.jdbc.SqlAst.Expr;
+import com.salesforce.jdbc.SqlLexer.Kind;
+import com.salesforce.jdbc.SqlLexer.Token;
+
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Recursive-descent parser for the SELECT statements the driver accepts: standard SQL
+// plus the SOQL forms users already write, such as COUNT(), LAST_N_DAYS:30, INCLUDES
+// and trailing WITH/FOR/USING SCOPE clauses.
+final class SqlParser {
+    // Words that end an expression or a table reference, so they are never taken as aliases
+    private static final Set<String> RESERVED = new HashSet<>(Arrays.asList(
+            "SELECT", "DISTINCT", "ALL", "FROM", "WHERE", "GROUP", "BY", "HAVING", "ORDER", "LIMIT", "OFFSET", "FETCH",
+            "JOIN", "INNER", "LEFT", "RIGHT", "FULL", "OUTER", "CROSS", "ON", "AND", "OR", "NOT", "IN", "IS", "LIKE",
+            "BETWEEN", "AS", "UNION", "INTERSECT", "EXCEPT", "WITH", "FOR", "USING", "ASC", "DESC", "NULLS",
+            "INCLUDES", "EXCLUDES", "ESCAPE", "CASE"));
+
+    private final String sql;
+    private final List<Token> tokens;
+    private int pos;
+    private int parameters;
+
+    private SqlParser(String sql) throws SQLSyntaxErrorException {
+        this.sql = sql;
+        this.tokens = SqlLexer.tokenize(sql);
+    }
+
+    static SqlAst.Select parse(String sql) throws SQLException {
+        SqlParser parser = new SqlParser(sql);
+        SqlAst.Select select = parser.select();
+        parser.accept(";");
+        parser.expectEnd();
+        return select;
+    }
+
+    private SqlAst.Select select() throws SQLException {
+        expectKeyword("SELECT");
+        SqlAst.Select select = new SqlAst.Select();
+        while (peek().kind == Kind.HINT) {
+            select.hints.add(tokens.get(pos++).text);
+        }
+        if (acceptKeyword("DISTINCT")) {
+            select.distinct = true;
+        } else {
+            acceptKeyword("ALL");
+        }
+        do {
+            select.items.add(selectItem());
+        } while (accept(","));
+        expectKeyword("FROM");
+        select.from = tableRef();
+        joins(select);
+        if (acceptKeyword("WHERE")) {
+            select.where = expr();
+        }
+        if (acceptKeyword("GROUP")) {
+            expectKeyword("BY");
+            do {
+                select.groupBy.add(expr());
+            } while (accept(","));
+        }
+        if (acceptKeyword("HAVING")) {
+            select.having = expr();
+        }
+        if (acceptKeyword("ORDER")) {
+            expectKeyword("BY");
+            do {
+                select.orderBy.add(orderItem());
+            } while (accept(","));
+        }
+        limitAndOffset(select);
+        modifiers(select);
+        if (peek().isKeyword("UNION") || peek().isKeyword("INTERSECT") || peek().isKeyword("EXCEPT")) {
+            throw new SQLFeatureNotSupportedException(peek().upper() + " is not supported: " + sql);
+        }
+        return select;
+    }
+
+    private SqlAst.SelectItem selectItem() throws SQLException {
+        if (accept("*")) {
+            return new SqlAst.SelectItem(new SqlAst.Star(null), null);
+        }
+        if (peek().kind != Kind.END && isName(peek()) && peekAt(1).isSymbol(".") && peekAt(2).isSymbol("*")) {
+            String qualifier = name();
+            pos += 2;
+            return new SqlAst.SelectItem(new SqlAst.Star(qualifier), null);
+        }
+        Expr expr = expr();
+        return new SqlAst.SelectItem(expr, alias());
+    }
+
+    private String alias() throws SQLException {
+        if (acceptKeyword("AS")) {
+            return name();
+        }
+        Token token = peek();
+        if (token.kind == Kind.QUOTED_IDENTIFIER || (token.kind == Kind.IDENTIFIER && !RESERVED.contains(token.upper()))) {
+            pos++;
+            return token.text;
+        }
+        return null;
+    }
+
+    private SqlAst.TableRef tableRef() throws SQLException {
+        String name = name();
+        while (accept(".")) {
+            // A schema or catalog qualifier carries no meaning for Salesforce; keep the object name
+            name = name();
+        }
+        return new SqlAst.TableRef(name, alias());
+    }
+
+    private void joins(SqlAst.Select select) throws SQLException {
+        while (true) {
+            if (accept(",")) {
+                select.joins.add(new SqlAst.Join("CROSS", tableRef(), null));
+                continue;
+            }
+            String type;
+            if (acceptKeyword("JOIN")) {
+                type = "INNER";
+            } else {
+                if (acceptKeyword("INNER")) {
+                    type = "INNER";
+                } else if (acceptKeyword("CROSS")) {
+                    type = "CROSS";
+                } else if (acceptKeyword("LEFT")) {
+                    type = "LEFT";
+                } else if (acceptKeyword("RIGHT")) {
+                    type = "RIGHT";
+                } else if (acceptKeyword("FULL")) {
+                    type = "FULL";
+                } else {
+                    return;
+                }
+                if (!type.equals("INNER") && !type.equals("CROSS")) {
+                    acceptKeyword("OUTER");
+                }
+                expectKeyword("JOIN");
+            }
+            SqlAst.TableRef table = tableRef();
+            Expr condition = null;
+            if (!type.equals("CROSS")) {
+                expectKeyword("ON");
+                condition = expr();
+            }
+            select.joins.add(new SqlAst.Join(type, table, condition));
+        }
+    }
+
+    private SqlAst.OrderItem orderItem() throws SQLException {
+        Expr expr = expr();
+        boolean descending = false;
+        if (acceptKeyword("DESC")) {
+            descending = true;
+        } else {
+            acceptKeyword("ASC");
+        }
+        String nulls = null;
+        if (acceptKeyword("NULLS")) {
+            if (acceptKeyword("FIRST")) {
+                nulls = "FIRST";
+            } else {
+                expectKeyword("LAST");
+                nulls = "LAST";
+            }
+        }
+        return new SqlAst.OrderItem(expr, descending, nulls);
+    }
+
+    // LIMIT n, OFFSET n [ROWS] and FETCH FIRST|NEXT n ROW|ROWS ONLY, in either order
+    private void limitAndOffset(SqlAst.Select select) throws SQLException {
+        while (true) {
+            if (select.limit == null && acceptKeyword("LIMIT")) {
+                select.limit = expr();
+            } else if (select.offset == null && acceptKeyword("OFFSET")) {
+                select.offset = expr();
+                if (!acceptKeyword("ROWS")) {
+                    acceptKeyword("ROW");
+                }
+            } else if (select.limit == null && acceptKeyword("FETCH")) {
+                if (!acceptKeyword("FIRST")) {
+                    expectKeyword("NEXT");
+                }
+                select.limit = expr();
+                if (!acceptKeyword("ROWS")) {
+                    expectKeyword("ROW");
+                }
+                expectKeyword("ONLY");
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void modifiers(SqlAst.Select select) throws SQLException {
+        while (true) {
+            if (acceptKeyword("WITH")) {
+                select.modifiers.add("WITH " + keywordName());
+            } else if (acceptKeyword("FOR")) {
+                select.modifiers.add("FOR " + keywordName());
+            } else if (acceptKeyword("USING")) {
+                expectKeyword("SCOPE");
+                select.modifiers.add("USING SCOPE " + keywordName());
+            } else {
+                return;
+            }
+        }
+    }
+
+    private String keywordName() throws SQLException {
+        Token token = peek();
+        if (token.kind != Kind.IDENTIFIER) {
+            throw unexpected("a keyword");
+        }
+        pos++;
+        return token.upper();
+    }
+
+    // Precedence from loosest: OR, AND, NOT, predicates, + -, * /, unary minus
+    private Expr expr() throws SQLException {
+        Expr left = and();
+        while (acceptKeyword("OR")) {
+            left = new SqlAst.Binary("OR", left, and());
+        }
+        return left;
+    }
+
+    private Expr and() throws SQLException {
+        Expr left = not();
+        while (acceptKeyword("AND")) {
+            left = new SqlAst.Binary("AND", left, not());
+        }
+        return left;
+    }
+
+    private Expr not() throws SQLException {
+        if (acceptKeyword("NOT")) {
+            return new SqlAst.Unary("NOT", not());
+        }
+        return predicate();
+    }
+
+    private Expr predicate() throws SQLException {
+        Expr left = additive();
+        Token token = peek();
+        if (token.kind == Kind.SYMBOL) {
+            switch (token.text) {
+                case "=":
+                case "!=":
+                case "<>":
+                case "<":
+                case "<=":
+                case ">":
+                case ">=":
+                    pos++;
+                    return new SqlAst.Binary(token.text.equals("<>") ? "!=" : token.text, left, additive());
+                default:
+                    return left;
+            }
+        }
+        if (acceptKeyword("IS")) {
+            boolean negated = acceptKeyword("NOT");
+            expectKeyword("NULL");
+            return new SqlAst.IsNull(left, negated);
+        }
+        if (acceptKeyword("INCLUDES")) {
+            return in(left, "INCLUDES");
+        }
+        if (acceptKeyword("EXCLUDES")) {
+            return in(left, "EXCLUDES");
+        }
+        boolean negated = acceptKeyword("NOT");
+        if (acceptKeyword("LIKE")) {
+            Expr like = new SqlAst.Binary("LIKE", left, additive());
+            if (peek().isKeyword("ESCAPE")) {
+                throw new SQLFeatureNotSupportedException("LIKE ... ESCAPE is not supported; escape with a backslash instead: " + sql);
+            }
+            return negated ? new SqlAst.Unary("NOT", like) : like;
+        }
+        if (acceptKeyword("IN")) {
+            return in(left, negated ? "NOT IN" : "IN");
+        }
+        if (acceptKeyword("BETWEEN")) {
+            Expr low = additive();
+            expectKeyword("AND");
+            return new SqlAst.Between(left, low, additive(), negated);
+        }
+        if (negated) {
+            throw unexpected("LIKE, IN or BETWEEN");
+        }
+        return left;
+    }
+
+    private Expr in(Expr operand, String operator) throws SQLException {
+        expect("(");
+        if (peek().isKeyword("SELECT")) {
+            SqlAst.Select subquery = select();
+            expect(")");
+            return new SqlAst.In(operand, operator, null, subquery);
+        }
+        List<Expr> values = new ArrayList<>();
+        do {
+            values.add(additive());
+        } while (accept(","));
+        expect(")");
+        return new SqlAst.In(operand, operator, values, null);
+    }
+
+    private Expr additive() throws SQLException {
+        Expr left = multiplicative();
+        while (peek().isSymbol("+") || peek().isSymbol("-")) {
+            String operator = tokens.get(pos++).text;
+            left = new SqlAst.Binary(operator, left, multiplicative());
+        }
+        return left;
+    }
+
+    private Expr multiplicative() throws SQLException {
+        Expr left = unary();
+        while (peek().isSymbol("*") || peek().isSymbol("/")) {
+            String operator = tokens.get(pos++).text;
+            left = new SqlAst.Binary(operator, left, unary());
+        }
+        return left;
+    }
+
+    private Expr unary() throws SQLException {
+        if (accept("-")) {
+            Expr operand = unary();
+            if (operand instanceof SqlAst.Literal && ((SqlAst.Literal) operand).kind == SqlAst.Literal.Kind.NUMBER) {
+                String text = ((SqlAst.Literal) operand).text;
+                return new SqlAst.Literal(SqlAst.Literal.Kind.NUMBER, text.startsWith("-") ? text.substring(1) : "-" + text);
+            }
+            return new SqlAst.Unary("-", operand);
+        }
+        if (accept("+")) {
+            return unary();
+        }
+        return primary();
+    }
+
+    private Expr primary() throws SQLException {
+        Token token = peek();
+        switch (token.kind) {
+            case STRING:
+                pos++;
+                return new SqlAst.Literal(SqlAst.Literal.Kind.STRING, token.text);
+            case NUMBER:
+                pos++;
+                return new SqlAst.Literal(SqlAst.Literal.Kind.NUMBER, token.text);
+            case PARAMETER:
+                pos++;
+                return new SqlAst.Parameter(parameters++);
+            case SYMBOL:
+                if (accept("(")) {
+                    if (peek().isKeyword("SELECT")) {
+                        SqlAst.Select subquery = select();
+                        expect(")");
+                        return new SqlAst.Subquery(subquery);
+                    }
+                    Expr inner = expr();
+                    expect(")");
+                    return inner;
+                }
+                throw unexpected("an expression");
+            case IDENTIFIER:
+                return identifierExpr(token);
+            case QUOTED_IDENTIFIER:
+                return column();
+            default:
+                throw unexpected("an expression");
+        }
+    }
+
+    private Expr identifierExpr(Token token) throws SQLException {
+        String word = token.upper();
+        switch (word) {
+            case "NULL":
+                pos++;
+                return new SqlAst.Literal(SqlAst.Literal.Kind.NULL, "null");
+            case "TRUE":
+            case "FALSE":
+                pos++;
+                return new SqlAst.Literal(SqlAst.Literal.Kind.BOOLEAN, word.toLowerCase(Locale.ROOT));
+            case "DATE":
+            case "TIMESTAMP":
+                if (peekAt(1).kind == Kind.STRING) {
+                    pos += 2;
+                    return new SqlAst.Literal(word.equals("DATE") ? SqlAst.Literal.Kind.DATE : SqlAst.Literal.Kind.TIMESTAMP,
+                            tokens.get(pos - 1).text);
+                }
+                break;
+            case "CASE":
+                throw new SQLFeatureNotSupportedException("CASE expressions are not supported: " + sql);
+            default:
+                break;
+        }
+        if (RESERVED.contains(word)) {
+            throw unexpected("an expression");
+        }
+        if (peekAt(1).isSymbol(":") && peekAt(2).kind == Kind.NUMBER) {
+            // SOQL relative date literal such as LAST_N_DAYS:30
+            pos += 3;
+            return new SqlAst.Literal(SqlAst.Literal.Kind.SOQL, word + ":" + tokens.get(pos - 1).text);
+        }
+        if (peekAt(1).isSymbol("(")) {
+            pos += 2;
+            return function(token.text);
+        }
+        return column();
+    }
+
+    private Expr function(String name) throws SQLException {
+        List<Expr> arguments = new ArrayList<>();
+        if (accept("*")) {
+            expect(")");
+            return new SqlAst.Function(name, arguments, false, true);
+        }
+        boolean distinct = acceptKeyword("DISTINCT");
+        if (!accept(")")) {
+            do {
+                arguments.add(expr());
+            } while (accept(","));
+            expect(")");
+        }
+        return new SqlAst.Function(name, arguments, distinct, false);
+    }
+
+    private Expr column() throws SQLException {
+        List<String> path = new ArrayList<>();
+        path.add(name());
+        while (peek().isSymbol(".") && isName(peekAt(1))) {
+            pos++;
+            path.add(name());
+        }
+        return new SqlAst.Column(path);
+    }
+
+    private static boolean isName(Token token) {
+        return token.kind == Kind.IDENTIFIER || token.kind == Kind.QUOTED_IDENTIFIER;
+    }
+
+    private String name() throws SQLException {
+        Token token = peek();
+        if (!isName(token)) {
+            throw unexpected("a name");
+        }
+        pos++;
+        return token.text;
+    }
+
+    private Token peek() {
+        return tokens.get(pos);
+    }
+
+    private Token peekAt(int offset) {
+        return tokens.get(Math.min(pos + offset, tokens.size() - 1));
+    }
+
+    private boolean accept(String symbol) {
+        if (peek().isSymbol(symbol)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String symbol) throws SQLException {
+        if (!accept(symbol)) {
+            throw unexpected("'" + symbol + "'");
+        }
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (peek().isKeyword(keyword)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expectKeyword(String keyword) throws SQLException {
+        if (!acceptKeyword(keyword)) {
+            throw unexpected(keyword);
+        }
+    }
+
+    private void expectEnd() throws SQLException {
+        if (peek().kind != Kind.END) {
+            throw unexpected("end of statement");
+        }
+    }
+
+    private SQLSyntaxErrorException unexpected(String expected) {
+        Token token = peek();
+        String found = token.kind == Kind.END ? "end of statement" : "'" + token.text + "'";
+        return new SQLSyntaxErrorException("Expected " + expected + " but found " + found + " at position " + token.position + " in: " + sql);
+    }
+}
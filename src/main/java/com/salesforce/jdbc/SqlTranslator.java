@@ -0,0 +1,99 @@
+package com.salesforce.jdbc;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Compiles SQL into TranslationPlans and keeps the most recently used ones, keyed by
+// the statement text with runs of whitespace collapsed. A dashboard repeating the same
+// query skips tokenizing and parsing entirely. Statements that fail to compile are not
+// cached, so they fail the same way every time.
+final class SqlTranslator {
+    static final int DEFAULT_CACHE_SIZE = 512;
+
+    // Shared by all connections: plans hold nothing specific to a session or org
+    static final SqlTranslator SHARED = new SqlTranslator(Integer.getInteger("salesforce.jdbc.planCacheSize", DEFAULT_CACHE_SIZE));
+
+    private final int capacity;
+    private final Map<String, TranslationPlan> plans;
+
+    SqlTranslator(int capacity) {
+        this.capacity = capacity;
+        this.plans = new LinkedHashMap<String, TranslationPlan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TranslationPlan> eldest) {
+                return size() > SqlTranslator.this.capacity;
+            }
+        };
+    }
+
+    TranslationPlan translate(String sql) throws SQLException {
+        if (sql == null) {
+            throw new SQLException("SQL must not be null");
+        }
+        String key = normalize(sql);
+        synchronized (plans) {
+            TranslationPlan plan = plans.get(key);
+            if (plan != null) {
+                return plan;
+            }
+        }
+        TranslationPlan plan = SoqlGenerator.generate(sql, SqlParser.parse(sql), null);
+        if (capacity > 0) {
+            synchronized (plans) {
+                plans.put(key, plan);
+            }
+        }
+        return plan;
+    }
+
+    int size() {
+        synchronized (plans) {
+            return plans.size();
+        }
+    }
+
+    // Collapses whitespace outside quotes and line comments and drops a trailing semicolon; literals are left as written
+    static String normalize(String sql) {
+        StringBuilder key = new StringBuilder(sql.length());
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                key.append(c);
+                if (c == '\\' && quote == '\'' && i + 1 < sql.length()) {
+                    key.append(sql.charAt(++i));
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (Character.isWhitespace(c)) {
+                space = key.length() > 0;
+            } else if (sql.startsWith("--", i)) {
+                // The line break ends the comment, so it has to survive
+                int end = sql.indexOf('\n', i);
+                end = end < 0 ? sql.length() : end;
+                key.append(space ? " " : "").append(sql, i, end).append('\n');
+                space = false;
+                i = end;
+            } else {
+                if (space) {
+                    key.append(' ');
+                    space = false;
+                }
+                if (c == '\'' || c == '"' || c == '`') {
+                    quote = c;
+                }
+                key.append(c);
+            }
+        }
+        int end = key.length();
+        if (end > 0 && key.charAt(end - 1) == ';') {
+            end--;
+        }
+        while (end > 0 && key.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return key.substring(0, end);
+    }
+}
@@ -0,0 +1,115 @@
+package com.salesforce.jdbc;
+
+import java.sql.SQLException;
+import java.util.List;
+
+// What a SQL statement compiles to, shared by every execution of the same text.
+// The SOQL is held as the fragments around its ? placeholders. A SELECT * or a join is
+// only runnable once it has been expanded against an org's describe.
+final class TranslationPlan {
+    // Work the driver does itself on top of the SOQL, such as a join SOQL cannot express
+    interface Operator {
+        // soql is the plan's SOQL with any parameters bound; bulkHint is set by /*+ BULK */
+        PageSource open(SalesforceStatement statement, RestClient client, String soql, boolean bulkHint) throws SQLException;
+    }
+
+    private final String sql;
+    private final SqlAst.Select select;
+    private final String[] fragments;
+    private final int[] slots;
+    private final String soql;
+    private final ColumnPlan columns;
+    private final boolean needsExpansion;
+    private final Operator operator;
+
+    // labels holds, per output column, the SQL alias SOQL cannot carry itself, or null, and
+    // outputs the SOQL column each output column reads; a field selected twice is sent once.
+    // slots holds the SQL parameter each placeholder takes, in SOQL order.
+    TranslationPlan(String sql, SqlAst.Select select, List<String> fragments, List<Integer> slots, String[] labels,
+                    List<Integer> outputs, boolean needsExpansion) {
+        this.sql = sql;
+        this.select = select;
+        this.fragments = fragments.toArray(new String[0]);
+        this.slots = slots.stream().mapToInt(Integer::intValue).toArray();
+        this.soql = String.join("?", fragments);
+        ColumnPlan plan = ColumnPlan.fromSoql(soql);
+        this.columns = plan != null ? plan.project(outputs.stream().mapToInt(Integer::intValue).toArray()).withLabels(labels) : null;
+        this.needsExpansion = needsExpansion;
+        this.operator = null;
+    }
+
+    private TranslationPlan(TranslationPlan plan, String soql, ColumnPlan columns, Operator operator) {
+        this.sql = plan.sql;
+        this.select = plan.select;
+        this.fragments = soql != null ? new String[] {soql} : plan.fragments;
+        this.slots = soql != null ? new int[0] : plan.slots;
+        this.soql = soql != null ? soql : plan.soql;
+        this.columns = columns;
+        this.needsExpansion = false;
+        this.operator = operator;
+    }
+
+    // A join is planned only once the describes of its objects can be read
+    static TranslationPlan deferred(String sql, SqlAst.Select select) {
+        return new TranslationPlan(sql, select, List.of(""), List.of(), new String[0], List.of(), true);
+    }
+
+    boolean needsExpansion() {
+        return needsExpansion;
+    }
+
+    // The same statement with * and joins resolved through the source's describes
+    TranslationPlan expand(SoqlGenerator.FieldSource fields) throws SQLException {
+        return SoqlGenerator.generate(sql, select, fields);
+    }
+
+    TranslationPlan withLabels(String[] labels) {
+        return new TranslationPlan(this, null, columns != null ? columns.withLabels(labels) : null, operator);
+    }
+
+    // The same SOQL, read through an operator rather than returned as it is
+    TranslationPlan withOperator(Operator operator) {
+        return new TranslationPlan(this, null, columns, operator);
+    }
+
+    // A statement the operator runs entirely by itself; soql only describes it, e.g. for nativeSQL
+    TranslationPlan withOperator(Operator operator, String soql) {
+        return new TranslationPlan(this, soql, null, operator);
+    }
+
+    // The SOQL text, with ? where parameters go
+    String getSoql() {
+        return soql;
+    }
+
+    // The number of distinct SQL parameters; a parameter may fill several SOQL placeholders
+    int getParameterCount() {
+        int count = 0;
+        for (int slot : slots) {
+            count = Math.max(count, slot + 1);
+        }
+        return count;
+    }
+
+    int getSlotCount() {
+        return slots.length;
+    }
+
+    // The 0-based SQL parameter that fills the placeholder after fragment index
+    int getSlotParameter(int index) {
+        return slots[index];
+    }
+
+    String getFragment(int index) {
+        return fragments[index];
+    }
+
+    // Untyped columns of the SOQL result, or null when they are only known from the first record
+    ColumnPlan getColumns() {
+        return columns;
+    }
+
+    Operator getOperator() {
+        return operator;
+    }
+}
@@ -0,0 +1,214 @@
+package com.salesforce.jdbc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AggregatePlannerTest {
+    // Every query on Opportunity gets these records, whatever fields it selects
+    private static final String OPPORTUNITIES = "{\"totalSize\":7,\"done\":true,\"records\":["
+            + "{\"StageName\":\"Prospecting\",\"Amount\":100,\"Probability\":10},"
+            + "{\"StageName\":\"Closed Won\",\"Amount\":200,\"Probability\":100},"
+            + "{\"StageName\":\"Prospecting\",\"Amount\":300,\"Probability\":20},"
+            + "{\"StageName\":\"Negotiation\",\"Amount\":null,\"Probability\":50},"
+            + "{\"StageName\":\"Closed Won\",\"Amount\":50.5,\"Probability\":100},"
+            + "{\"StageName\":\"Qualification\",\"Amount\":10,\"Probability\":10},"
+            + "{\"StageName\":\"Closed Lost\",\"Amount\":0,\"Probability\":0}]}";
+
+    private HttpServer server;
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String soql = URLDecoder.decode(exchange.getRequestURI().getRawQuery().substring("q=".length()), StandardCharsets.UTF_8);
+        queries.add(soql);
+        String body = soql.contains("FROM Opportunity") ? OPPORTUNITIES : "{\"totalSize\":0,\"done\":true,\"records\":[]}";
+        if (soql.startsWith("SELECT COUNT(Id) FROM Opportunity")) {
+            body = "{\"totalSize\":1,\"done\":true,\"records\":[{\"attributes\":{\"type\":\"AggregateResult\"},\"expr0\":7}]}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private SalesforceConnection connect(int maxGroups) throws SQLException {
+        Properties info = new Properties();
+        info.setProperty("describeTypes", "false");
+        info.setProperty("localAggregateGroups", String.valueOf(maxGroups));
+        return new SalesforceConnection(new SalesforceSession("http://127.0.0.1:" + server.getAddress().getPort(), "test-session"), info);
+    }
+
+    private static TranslationPlan plan(String sql) throws SQLException {
+        return SoqlGenerator.generate(sql, SqlParser.parse(sql), null);
+    }
+
+    private static List<String> rows(ResultSet rs) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        int columns = rs.getMetaData().getColumnCount();
+        while (rs.next()) {
+            StringBuilder row = new StringBuilder();
+            for (int i = 1; i <= columns; i++) {
+                row.append(i > 1 ? "|" : "").append(rs.getString(i));
+            }
+            rows.add(row.toString());
+        }
+        return rows;
+    }
+
+    @Test
+    void testPushesDownOnlyWhatSoqlCanGroup() throws SQLException {
+        TranslationPlan plan = plan("SELECT StageName, COUNT(Id) FROM Opportunity GROUP BY StageName");
+        assertNull(plan.getOperator());
+        assertEquals("SELECT StageName, COUNT(Id) FROM Opportunity GROUP BY StageName", plan.getSoql());
+
+        plan = plan("SELECT /*+ LOCAL_AGGREGATE */ StageName, COUNT(Id) n FROM Opportunity WHERE Amount > ? GROUP BY StageName"
+                + " ORDER BY n DESC");
+        assertNotNull(plan.getOperator());
+        assertEquals("SELECT StageName, Id FROM Opportunity WHERE Amount > ?", plan.getSoql());
+        assertEquals(1, plan.getParameterCount());
+
+        plan = plan("SELECT o.StageName, SUM(o.Amount * Probability / 100) FROM Opportunity o WHERE IsClosed = false"
+                + " GROUP BY StageName");
+        assertNotNull(plan.getOperator());
+        assertEquals("SELECT StageName, Amount, Probability FROM Opportunity WHERE IsClosed = false", plan.getSoql());
+
+        assertEquals("SELECT Id FROM Opportunity", plan("SELECT /*+ LOCAL_AGGREGATE */ COUNT(*) FROM Opportunity").getSoql());
+        assertEquals("SELECT StageName FROM Opportunity", plan("SELECT DISTINCT StageName FROM Opportunity").getSoql());
+        assertTrue(plan("SELECT DISTINCT * FROM Opportunity").needsExpansion());
+    }
+
+    @Test
+    void testRejectsWhatCannotBeGrouped() {
+        assertThrows(SQLSyntaxErrorException.class,
+                () -> plan("SELECT /*+ LOCAL_AGGREGATE */ Name, COUNT(Id) FROM Opportunity GROUP BY StageName"));
+        assertThrows(SQLSyntaxErrorException.class, () -> plan("SELECT DISTINCT StageName FROM Opportunity ORDER BY Amount"));
+        assertThrows(SQLSyntaxErrorException.class, () -> plan("SELECT StageName, SUM(COUNT(Id) + 1) FROM Opportunity GROUP BY StageName"));
+        assertThrows(SQLFeatureNotSupportedException.class,
+                () -> plan("SELECT StageName, SUM(Amount * 2) FROM Opportunity GROUP BY StageName HAVING SUM(Amount) > ?"));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> plan("SELECT DISTINCT StageName, COUNT(Id) FROM Opportunity"));
+        assertThrows(SQLFeatureNotSupportedException.class,
+                () -> plan("SELECT StageName, SUM(Amount * 2) FROM Opportunity WHERE Amount + 1 > 5 GROUP BY StageName"));
+    }
+
+    @Test
+    void testLocalAggregateKnowsItsLastRow() throws SQLException {
+        try (SalesforceConnection connection = connect(AggregatePlanner.DEFAULT_MAX_GROUPS)) {
+            ResultSet rs = connection.createStatement()
+                    .executeQuery("SELECT /*+ LOCAL_AGGREGATE */ StageName, COUNT(Id) FROM Opportunity GROUP BY StageName");
+            for (int row = 1; row <= 5; row++) {
+                assertTrue(rs.next());
+                assertEquals(row == 5, rs.isLast());
+            }
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    void testCountStarReturnsARow() throws SQLException {
+        try (SalesforceConnection connection = connect(AggregatePlanner.DEFAULT_MAX_GROUPS)) {
+            ResultSet rs = connection.createStatement().executeQuery("SELECT COUNT(*) FROM Opportunity");
+            assertEquals("expr0", rs.getMetaData().getColumnLabel(1));
+            assertTrue(rs.next());
+            assertEquals(7, rs.getLong(1));
+            assertFalse(rs.next());
+        }
+        assertEquals(List.of("SELECT COUNT(Id) FROM Opportunity"), queries);
+    }
+
+    @Test
+    void testAggregatesExpressionsWithHaving() throws SQLException {
+        String sql = "SELECT StageName, SUM(Amount * Probability / 100) expected, COUNT(*) FROM Opportunity GROUP BY StageName"
+                + " HAVING COUNT(*) > 1 OR SUM(Amount) IS NULL ORDER BY expected DESC NULLS LAST";
+        List<String> expected = List.of("Closed Won|250.5|2", "Prospecting|70.0|2", "Negotiation|null|1");
+        try (SalesforceConnection connection = connect(AggregatePlanner.DEFAULT_MAX_GROUPS)) {
+            ResultSet rs = connection.createStatement().executeQuery(sql);
+            assertEquals("expected", rs.getMetaData().getColumnLabel(2));
+            assertEquals("expr0", rs.getMetaData().getColumnLabel(3));
+            assertEquals(expected, rows(rs));
+        }
+        assertEquals("SELECT StageName, Amount, Probability FROM Opportunity", queries.get(0));
+        // Two groups fit in memory: the rest are spilled, aggregated later and merged back in order
+        try (SalesforceConnection connection = connect(2)) {
+            assertEquals(expected, rows(connection.createStatement().executeQuery(sql)));
+        }
+    }
+
+    @Test
+    void testAggregatesWithoutGroupBy() throws SQLException {
+        try (SalesforceConnection connection = connect(AggregatePlanner.DEFAULT_MAX_GROUPS)) {
+            ResultSet rs = connection.createStatement().executeQuery("SELECT /*+ LOCAL_AGGREGATE */ COUNT(*), COUNT(DISTINCT StageName),"
+                    + " MAX(StageName), MIN(Amount), AVG(Probability) FROM Opportunity");
+            assertTrue(rs.next());
+            assertEquals(7, rs.getLong(1));
+            assertEquals(5, rs.getLong(2));
+            assertEquals("Qualification", rs.getString(3));
+            assertEquals(0, rs.getInt(4));
+            assertTrue(rs.getString(5).startsWith("41.42857"));
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    void testBoundsValuesHeldForDistinctAggregates() throws SQLException {
+        String sql = "SELECT /*+ LOCAL_AGGREGATE */ COUNT(DISTINCT StageName), SUM(DISTINCT Probability) FROM Opportunity";
+        try (SalesforceConnection connection = connect(4)) {
+            SQLException e = assertThrows(SQLException.class, () -> connection.createStatement().executeQuery(sql).next());
+            assertEquals("54000", e.getSQLState());
+        }
+        // Five stages and five probabilities, counted across both aggregates
+        try (SalesforceConnection connection = connect(10)) {
+            ResultSet rs = connection.createStatement().executeQuery(sql);
+            assertTrue(rs.next());
+            assertEquals(5, rs.getLong(1));
+            assertEquals(180, rs.getLong(2));
+        }
+    }
+
+    @Test
+    void testDistinctSpillsAndSortsOnDisk() throws SQLException {
+        try (SalesforceConnection connection = connect(2)) {
+            assertEquals(List.of("Closed Lost", "Closed Won", "Negotiation", "Prospecting", "Qualification"),
+                    rows(connection.createStatement().executeQuery("SELECT DISTINCT StageName FROM Opportunity ORDER BY 1")));
+            assertEquals(List.of("Closed Won", "Negotiation", "Prospecting"), rows(connection.createStatement()
+                    .executeQuery("SELECT DISTINCT o.StageName FROM Opportunity o ORDER BY StageName LIMIT 3 OFFSET 1")));
+
+            PreparedStatement statement = connection.prepareStatement("SELECT DISTINCT StageName FROM Opportunity WHERE Probability > ?");
+            statement.setInt(1, 15);
+            assertEquals(5, rows(statement.executeQuery()).size());
+            assertTrue(queries.contains("SELECT StageName FROM Opportunity WHERE Probability > 15"));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.salesforce.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+
+import static com.salesforce.jdbc.SalesforceStatement.ApiPriority.HIGH;
+import static com.salesforce.jdbc.SalesforceStatement.ApiPriority.LOW;
+import static com.salesforce.jdbc.SalesforceStatement.ApiPriority.NORMAL;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ApiLimitGovernorTest {
+    @Test
+    void testUnknownAllocationIsNotGoverned() throws SQLException {
+        ApiLimitGovernor governor = new ApiLimitGovernor();
+
+        assertEquals(0, governor.acquire(LOW));
+        assertEquals(-1, governor.getRemaining());
+    }
+
+    @Test
+    void testParsesLimitInfoAndCountsCalls() throws SQLException {
+        ApiLimitGovernor governor = new ApiLimitGovernor();
+        governor.report("api-usage=18/5000; per-app-api-usage=17/250(appName=sample-app)");
+
+        assertEquals(5000, governor.getLimit());
+        assertEquals(4982, governor.getRemaining());
+        governor.acquire(NORMAL);
+        assertEquals(4981, governor.getRemaining());
+        governor.report("api-usage=20/5000");
+        assertEquals(4980, governor.getRemaining());
+    }
+
+    @Test
+    void testLowPriorityIsRefusedInsideReserve() throws SQLException {
+        ApiLimitGovernor governor = new ApiLimitGovernor();
+        governor.report("api-usage=8100/10000");
+
+        SQLException e = assertThrows(SQLTransientException.class, () -> governor.acquire(LOW));
+        assertEquals("API_BUDGET_RESERVED", e.getSQLState());
+        assertEquals(0, governor.acquire(NORMAL));
+        assertEquals(0, governor.acquire(HIGH));
+    }
+
+    @Test
+    void testNormalPriorityIsPacedNearExhaustion() throws SQLException {
+        ApiLimitGovernor governor = new ApiLimitGovernor();
+        governor.report("api-usage=9990/10000");
+
+        long first = governor.acquire(NORMAL);
+        long second = governor.acquire(NORMAL);
+        // 10000 calls a day come back one every 8.64 seconds
+        assertTrue(first < 1_000_000_000L);
+        assertTrue(second > 8_000_000_000L);
+        assertEquals(0, governor.acquire(HIGH));
+    }
+}
@@ -0,0 +1,173 @@
+package com.salesforce.jdbc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkPageSourceTest {
+    private static final String JOBS = "/services/data/" + RestClient.API_VERSION + "/jobs/query";
+
+    private HttpServer server;
+    private RestClient client;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger polls = new AtomicInteger();
+    private volatile String finalState = "JobComplete";
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        client = new RestClient("http://127.0.0.1:" + server.getAddress().getPort(), "test-session");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getRawQuery();
+        requests.add(exchange.getRequestMethod() + " " + path + (query != null ? "?" + query : ""));
+        if (exchange.getRequestMethod().equals("POST") && path.equals(JOBS)) {
+            respond(exchange, 200, "application/json", "{\"id\":\"750J\",\"state\":\"UploadComplete\"}", null);
+        } else if (path.equals(JOBS + "/750J")) {
+            String state = polls.incrementAndGet() < 2 ? "InProgress" : finalState;
+            respond(exchange, 200, "application/json",
+                    "{\"id\":\"750J\",\"state\":\"" + state + "\",\"errorMessage\":\"INVALID_FIELD\"}", null);
+        } else if (path.equals(JOBS + "/750J/results") && query != null && query.contains("locator=L2")) {
+            respond(exchange, 200, "text/csv", "\"Id\",\"Name\",\"NumberOfEmployees\"\n\"001C\",\"Line\nBreak\",\"\"\n", "null");
+        } else if (path.equals(JOBS + "/750J/results")) {
+            respond(exchange, 200, "text/csv",
+                    "\"Id\",\"Name\",\"NumberOfEmployees\"\n\"001A\",\"Acme, Inc.\",\"12\"\n\"001B\",\"Say \"\"hi\"\"\",\"40\"\n", "L2");
+        } else {
+            respond(exchange, 404, "application/json", "[{\"message\":\"Not found\",\"errorCode\":\"NOT_FOUND\"}]", null);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body, String locator) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if (locator != null) {
+            exchange.getResponseHeaders().set("Sforce-Locator", locator);
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void testStreamsResultChunksFollowingLocator() throws SQLException {
+        ColumnPlan plan = ColumnPlan.fromSoql("SELECT Id, Name, NumberOfEmployees FROM Account")
+                .withTypes(new FieldType[] {FieldType.STRING, FieldType.STRING, FieldType.INTEGER});
+        BulkPageSource pages = BulkPageSource.start(client, "SELECT Id, Name, NumberOfEmployees FROM Account", plan, 0);
+
+        ColumnarPage first = pages.nextPage();
+        assertFalse(pages.isDone());
+        assertEquals(2, first.getRowCount());
+        assertEquals("Acme, Inc.", first.getString(1, 0));
+        assertEquals("Say \"hi\"", first.getString(1, 1));
+        assertEquals(40L, first.getLong(2, 1));
+
+        ColumnarPage second = pages.nextPage();
+        assertEquals(1, second.getRowCount());
+        assertEquals("Line\nBreak", second.getString(1, 0));
+        assertTrue(second.isNull(2, 0));
+        // The last chunk had no locator, so that was the last page
+        assertTrue(pages.isDone());
+
+        assertNull(pages.nextPage());
+        assertTrue(polls.get() >= 2);
+        assertTrue(requests.contains("GET " + JOBS + "/750J/results?locator=L2"));
+    }
+
+    @Test
+    void testSplitsLargeChunksIntoPages() throws SQLException {
+        BulkPageSource pages = BulkPageSource.start(client, "SELECT Id, Name, NumberOfEmployees FROM Account", null, 1);
+
+        int rows = 0;
+        ColumnarPage page;
+        while ((page = pages.nextPage()) != null) {
+            assertEquals(1, page.getRowCount());
+            rows++;
+        }
+        assertEquals(3, rows);
+        assertEquals("NumberOfEmployees", pages.getColumnPlan().getLabel(2));
+    }
+
+    @Test
+    void testFailedJobRaisesSQLException() throws SQLException {
+        finalState = "Failed";
+        BulkPageSource pages = BulkPageSource.start(client, "SELECT Id FROM Account", null, 0);
+
+        SQLException e = assertThrows(SQLException.class, pages::nextPage);
+        assertTrue(e.getMessage().contains("INVALID_FIELD"));
+    }
+
+    @Test
+    void testCancelEndsWaitForJob() throws Exception {
+        finalState = "InProgress";
+        QueryControl control = new QueryControl(0);
+        BulkPageSource pages = BulkPageSource.start(client.withControl(control), "SELECT Id FROM Account", null, 0);
+        long[] cancelledAt = new long[1];
+        Thread canceller = new Thread(() -> {
+            try {
+                // By now the source is in the middle of a two-second wait between polls
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            cancelledAt[0] = System.nanoTime();
+            control.cancel();
+        });
+        canceller.start();
+
+        SQLException e = assertThrows(SQLException.class, pages::nextPage);
+        long waited = System.nanoTime() - cancelledAt[0];
+        canceller.join();
+        assertEquals("57014", e.getSQLState());
+        assertTrue(waited < 1_000_000_000L, "waited " + waited + " ns after cancel");
+    }
+
+    @Test
+    void testClosedWhileWaitingReturnsNoPage() throws Exception {
+        finalState = "InProgress";
+        BulkPageSource pages = BulkPageSource.start(client, "SELECT Id FROM Account", null, 0);
+        Thread closer = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                return;
+            }
+            pages.close();
+        });
+        closer.start();
+
+        assertNull(pages.nextPage());
+        closer.join();
+        assertTrue(requests.contains("PATCH " + JOBS + "/750J"));
+        assertTrue(requests.stream().noneMatch(request -> request.contains("/results")));
+    }
+
+    @Test
+    void testRecognizesBulkHint() {
+        assertTrue(BulkPageSource.hasHint("SELECT /*+ BULK */ Id FROM Account"));
+        assertEquals("SELECT   Id FROM Account", BulkPageSource.stripHint("SELECT /*+ bulk */ Id FROM Account"));
+        assertFalse(BulkPageSource.isSupported("SELECT COUNT(Id) FROM Account", ColumnPlan.fromSoql("SELECT COUNT(Id) FROM Account")));
+    }
+}
@@ -0,0 +1,75 @@
+package com.salesforce.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnPlanTest {
+
+    private static void assertColumn(ColumnPlan plan, int column, String label, String source, String responsePath) {
+        assertEquals(label, plan.getLabel(column));
+        assertEquals(source, plan.getSource(column));
+        assertEquals(responsePath, plan.getResponsePath(column));
+    }
+
+    @Test
+    void testReadsFieldsAndAliases() {
+        ColumnPlan plan = ColumnPlan.fromSoql("SELECT Id, Name n, Account.Industry FROM Contact WHERE Name != null");
+        assertEquals(3, plan.getColumnCount());
+        assertColumn(plan, 0, "Id", "Id", "Id");
+        assertColumn(plan, 1, "n", "Name", "n");
+        assertColumn(plan, 2, "Account.Industry", "Account.Industry", "Account.Industry");
+        assertEquals(1, plan.indexOf("N"));
+        assertEquals(-1, plan.indexOf("Name"));
+    }
+
+    @Test
+    void testNamesUnaliasedAggregatesExprN() {
+        ColumnPlan plan = ColumnPlan.fromSoql(
+                "SELECT StageName, COUNT(Id), SUM(Amount) total, MAX(CloseDate) FROM Opportunity GROUP BY StageName");
+        assertColumn(plan, 0, "StageName", "StageName", "StageName");
+        assertColumn(plan, 1, "expr0", "COUNT(Id)", "expr0");
+        assertColumn(plan, 2, "total", "SUM(Amount)", "total");
+        // Aliased aggregates do not use up an exprN name
+        assertColumn(plan, 3, "expr1", "MAX(CloseDate)", "expr1");
+    }
+
+    @Test
+    void testWrappedFieldsKeepTheirName() {
+        ColumnPlan plan = ColumnPlan.fromSoql("SELECT toLabel(Status), convertCurrency(Amount) amt, FORMAT(CloseDate) FROM Opportunity");
+        assertColumn(plan, 0, "Status", "Status", "Status");
+        assertColumn(plan, 1, "amt", "Amount", "amt");
+        assertColumn(plan, 2, "CloseDate", "CloseDate", "CloseDate");
+    }
+
+    @Test
+    void testNamesChildSubqueriesAfterTheRelationship() {
+        ColumnPlan plan = ColumnPlan.fromSoql(
+                "SELECT Name, (SELECT LastName, Email FROM Contacts WHERE Email != null), Id FROM Account");
+        assertEquals(3, plan.getColumnCount());
+        assertColumn(plan, 1, "Contacts", null, "Contacts");
+        assertColumn(plan, 2, "Id", "Id", "Id");
+    }
+
+    @Test
+    void testLeavesUnreadableSelectListsToTheFirstRecord() {
+        assertNull(ColumnPlan.fromSoql("SELECT * FROM Account"));
+        assertNull(ColumnPlan.fromSoql("SELECT Id Name Extra FROM Account"));
+        assertNull(ColumnPlan.fromSoql("UPDATE Account"));
+    }
+
+    @Test
+    void testFindsKeywordsOnlyAtTopLevel() {
+        String soql = "SELECT Name, (SELECT Id FROM Contacts) FROM Account WHERE Name = 'Order from us'";
+        int from = ColumnPlan.indexOfKeyword(soql, "FROM", 0);
+        assertEquals(soql.indexOf(") FROM") + 2, from);
+        // Neither the quoted word nor the subquery's FROM counts
+        assertEquals(-1, ColumnPlan.indexOfKeyword(soql, "FROM", from + 1));
+        assertEquals(-1, ColumnPlan.indexOfKeyword("SELECT Id FROM Account WHERE Name = 'it\\'s from'", "FROM", 12));
+        // Whole words only, in any case
+        assertEquals(-1, ColumnPlan.indexOfKeyword("SELECT Fromage__c, Date_From__c FROMX", "FROM", 0));
+        assertColumn(ColumnPlan.fromSoql("SELECT Date_From__c FROM Booking__c"), 0, "Date_From__c", "Date_From__c", "Date_From__c");
+        assertEquals(10, ColumnPlan.indexOfKeyword("SELECT Id from Account", "FROM", 0));
+        assertEquals("Account", ColumnPlan.sObjectOf("SELECT (SELECT Id FROM Contacts) FROM Account WHERE Id != null"));
+    }
+}
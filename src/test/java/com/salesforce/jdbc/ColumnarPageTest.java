@@ -0,0 +1,123 @@
+package com.salesforce.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarPageTest {
+    private static final ColumnPlan ONE_COLUMN = ColumnPlan.fromSoql("SELECT Value__c FROM Widget__c");
+
+    // One untyped column holding the given values, one per row
+    private static ColumnarPage column(Object... values) {
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(ONE_COLUMN, values.length);
+        for (Object value : values) {
+            builder.set(0, value);
+            builder.endRow();
+        }
+        return builder.build();
+    }
+
+    @Test
+    void testTakesKindFromFirstValue() {
+        assertEquals(ColumnarPage.Kind.BOOLEAN, column(true, null).getKind(0));
+        assertEquals(ColumnarPage.Kind.LONG, column(null, 12).getKind(0));
+        assertEquals(ColumnarPage.Kind.DOUBLE, column(1.5).getKind(0));
+        assertEquals(ColumnarPage.Kind.DECIMAL, column(new BigDecimal("1.50")).getKind(0));
+        assertEquals(ColumnarPage.Kind.STRING, column("12").getKind(0));
+        assertEquals(ColumnarPage.Kind.EMPTY, column(null, null).getKind(0));
+    }
+
+    @Test
+    void testWidensLongToDouble() {
+        ColumnarPage page = column(3L, 2.5, null);
+        assertEquals(ColumnarPage.Kind.DOUBLE, page.getKind(0));
+        assertEquals(3.0, page.getDouble(0, 0));
+        assertEquals(2.5, page.getDouble(0, 1));
+        assertEquals(3L, page.getLong(0, 0));
+        assertTrue(page.isNull(0, 2));
+    }
+
+    @Test
+    void testWidensLongToDecimal() {
+        ColumnarPage page = column(3L, new BigDecimal("1.25"));
+        assertEquals(ColumnarPage.Kind.DECIMAL, page.getKind(0));
+        assertEquals(BigDecimal.valueOf(3), page.getBigDecimal(0, 0));
+        assertEquals(new BigDecimal("1.25"), page.getBigDecimal(0, 1));
+        assertEquals(1.25, page.getDouble(0, 1));
+        // Numbers of either width stay in a decimal column
+        assertEquals(ColumnarPage.Kind.DECIMAL, column(new BigDecimal("1.25"), 4L, 0.5).getKind(0));
+    }
+
+    @Test
+    void testWidensNumbersToStringAndStringsToObject() {
+        ColumnarPage page = column(2.5, "n/a", 7L);
+        assertEquals(ColumnarPage.Kind.STRING, page.getKind(0));
+        assertEquals("2.5", page.getString(0, 0));
+        assertEquals("n/a", page.getString(0, 1));
+        // Scalars arriving after the column became text are kept as text
+        assertEquals("7", page.getObject(0, 2));
+
+        Map<String, Object> address = Map.of("city", "Paris");
+        page = column("n/a", 12L, address);
+        assertEquals(ColumnarPage.Kind.OBJECT, page.getKind(0));
+        assertEquals("n/a", page.getObject(0, 0));
+        assertEquals("12", page.getObject(0, 1));
+        assertEquals(address, page.getObject(0, 2));
+        // A scalar column meeting a structured value keeps its earlier values as they were
+        page = column(true, address);
+        assertEquals(Boolean.TRUE, page.getObject(0, 0));
+    }
+
+    @Test
+    void testDescribedTypeDecodesTextOnce() {
+        ColumnPlan plan = ColumnPlan.fromSoql("SELECT Amount, NumberOfEmployees FROM Account")
+                .withTypes(new FieldType[] {FieldType.DECIMAL, FieldType.INTEGER});
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(plan, 2);
+        builder.set(0, "12.30");
+        builder.set(1, "40");
+        builder.endRow();
+        builder.set(0, "7");
+        builder.set(1, "lots");
+        builder.endRow();
+        ColumnarPage page = builder.build();
+
+        assertEquals(ColumnarPage.Kind.DECIMAL, page.getKind(0));
+        assertEquals(new BigDecimal("12.30"), page.getBigDecimal(0, 0));
+        assertEquals("12.30", page.getString(0, 0));
+        assertEquals(12.3, page.getDouble(0, 0));
+        assertEquals(new BigDecimal("7"), page.getBigDecimal(0, 1));
+        // Text that does not parse as the described type turns the column into text
+        assertEquals(ColumnarPage.Kind.STRING, page.getKind(1));
+        assertEquals("40", page.getString(1, 0));
+        assertEquals("lots", page.getString(1, 1));
+    }
+
+    @Test
+    void testNullBitmapAcrossWordsAndGrowth() {
+        // Starts with room for 16 rows, so the vectors and the bitmap grow on the way
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(ONE_COLUMN, 1);
+        int rows = 200;
+        for (int row = 0; row < rows; row++) {
+            if (row % 3 == 0) {
+                builder.set(0, (long) row);
+            }
+            builder.endRow();
+        }
+        ColumnarPage page = builder.build();
+
+        assertEquals(rows, page.getRowCount());
+        for (int row = 0; row < rows; row++) {
+            if (row % 3 == 0) {
+                assertFalse(page.isNull(0, row));
+                assertEquals(row, page.getLong(0, row));
+            } else {
+                assertTrue(page.isNull(0, row));
+                assertNull(page.getObject(0, row));
+                assertNull(page.getString(0, row));
+            }
+        }
+    }
+}
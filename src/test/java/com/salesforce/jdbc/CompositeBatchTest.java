@@ -0,0 +1,149 @@
+package com.salesforce.jdbc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.BatchUpdateException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompositeBatchTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private HttpServer server;
+    private SalesforceConnection connection;
+    private final List<JsonNode> batches = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        Properties info = new Properties();
+        info.setProperty("describeTypes", "false");
+        info.setProperty("compression", "false");
+        connection = new SalesforceConnection(new SalesforceSession("http://127.0.0.1:" + server.getAddress().getPort(), "test-session"), info);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.close();
+        server.stop(0);
+    }
+
+    // Answers each subrequest in order: queries with one record, DML as the sObject resources do,
+    // and anything aimed at record 001000000000000BAD with an error
+    private void handle(HttpExchange exchange) throws IOException {
+        JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+        batches.add(request);
+        StringBuilder results = new StringBuilder();
+        for (JsonNode subrequest : request.path("batchRequests")) {
+            String method = subrequest.path("method").asText();
+            String url = subrequest.path("url").asText();
+            String result;
+            if (url.endsWith("001000000000000BAD")) {
+                result = "{\"statusCode\":404,\"result\":[{\"errorCode\":\"NOT_FOUND\",\"message\":\"The requested resource does not exist\"}]}";
+            } else if (method.equals("GET")) {
+                result = "{\"statusCode\":200,\"result\":{\"totalSize\":1,\"done\":true,\"records\":[{\"attributes\":{\"type\":\"Account\"},\"Id\":\"001A\",\"Name\":\"Acme\"}]}}";
+            } else if (method.equals("POST")) {
+                result = "{\"statusCode\":201,\"result\":{\"id\":\"001N\",\"success\":true,\"errors\":[]}}";
+            } else {
+                result = "{\"statusCode\":204,\"result\":null}";
+            }
+            results.append(results.length() > 0 ? "," : "").append(result);
+        }
+        byte[] bytes = ("{\"hasErrors\":false,\"results\":[" + results + "]}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void testMapsDmlOntoSObjectResources() throws SQLException {
+        assertTrue(CompositeBatch.isQuery("  select Id FROM Account"));
+        assertFalse(CompositeBatch.isQuery("SELECTED"));
+        assertFalse(CompositeBatch.dml("INSERT INTO Account (Name, NumberOfEmployees, IsActive__c) VALUES ('O''Neil', 12, TRUE)").isQuery());
+        assertThrows(SQLFeatureNotSupportedException.class, () -> CompositeBatch.dml("UPDATE Account SET Name = 'x' WHERE Name = 'y'"));
+        assertThrows(SQLException.class, () -> CompositeBatch.dml("DELETE FROM Account WHERE Id = '../../limits'"));
+        assertThrows(SQLException.class, () -> CompositeBatch.dml("INSERT INTO Account (Name) VALUES ('a', 'b')"));
+    }
+
+    @Test
+    void testRunsMixedBatchAsOneRequestAndExposesResultsInOrder() throws SQLException {
+        Statement statement = connection.createStatement();
+        statement.addBatch("SELECT Id, Name FROM Account");
+        statement.addBatch("INSERT INTO Account (Name) VALUES ('O''Neil')");
+        statement.addBatch("UPDATE Account SET Name = 'Acme' WHERE Id = '001000000000001'");
+        statement.addBatch("SELECT Id, Name FROM Account WHERE Name = 'Acme'");
+
+        int[] counts = statement.executeBatch();
+        assertArrayEquals(new int[] {Statement.SUCCESS_NO_INFO, 1, 1, Statement.SUCCESS_NO_INFO}, counts);
+        assertEquals(1, batches.size());
+        JsonNode subrequests = batches.get(0).path("batchRequests");
+        assertEquals("O'Neil", subrequests.get(1).path("richInput").path("Name").asText());
+        assertEquals("PATCH", subrequests.get(2).path("method").asText());
+        assertEquals(RestClient.API_VERSION + "/sobjects/Account/001000000000001", subrequests.get(2).path("url").asText());
+
+        ResultSet first = statement.getResultSet();
+        assertTrue(first.next());
+        assertEquals("Acme", first.getString("Name"));
+        assertFalse(statement.getMoreResults());
+        assertTrue(first.isClosed());
+        assertEquals(1, statement.getUpdateCount());
+        assertFalse(statement.getMoreResults());
+        assertEquals(1, statement.getUpdateCount());
+        assertTrue(statement.getMoreResults());
+        assertTrue(statement.getResultSet().next());
+        assertFalse(statement.getMoreResults());
+        assertNull(statement.getResultSet());
+        assertEquals(-1, statement.getUpdateCount());
+    }
+
+    @Test
+    void testSplitsLargeBatchesAndReportsFailedStatements() throws SQLException {
+        Statement statement = connection.createStatement();
+        for (int i = 0; i < 30; i++) {
+            statement.addBatch("DELETE FROM Account WHERE Id = '" + (i == 27 ? "001000000000000BAD" : "001000000000000") + "'");
+        }
+
+        BatchUpdateException e = assertThrows(BatchUpdateException.class, statement::executeBatch);
+        assertEquals(2, batches.size());
+        assertEquals(CompositeBatch.MAX_SUBREQUESTS, batches.get(0).path("batchRequests").size());
+        assertEquals(5, batches.get(1).path("batchRequests").size());
+        int[] counts = e.getUpdateCounts();
+        assertEquals(30, counts.length);
+        assertEquals(Statement.EXECUTE_FAILED, counts[27]);
+        assertEquals(1, counts[29]);
+        assertTrue(e.getMessage().contains("does not exist"));
+
+        // The failed entry keeps its place among the results
+        assertEquals(1, statement.getUpdateCount());
+        for (int i = 0; i < 27; i++) {
+            assertFalse(statement.getMoreResults());
+        }
+        assertEquals(Statement.EXECUTE_FAILED, statement.getUpdateCount());
+        assertFalse(statement.getMoreResults());
+        assertEquals(1, statement.getUpdateCount());
+        assertFalse(statement.getMoreResults());
+        assertFalse(statement.getMoreResults());
+        assertEquals(-1, statement.getUpdateCount());
+    }
+}
@@ -0,0 +1,93 @@
+package com.salesforce.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyLimiterTest {
+    private static final long MILLIS = 1_000_000L;
+
+    @Test
+    void testGrowsWhileSaturatedAndLatencyStable() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        int initial = limiter.getLimit();
+        for (int round = 0; round < 20; round++) {
+            int slots = limiter.getLimit();
+            for (int i = 0; i < slots; i++) {
+                limiter.acquire(null);
+            }
+            for (int i = 0; i < slots; i++) {
+                limiter.release(100 * MILLIS, false);
+            }
+        }
+        assertTrue(limiter.getLimit() > initial);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testHalvesOnThrottlingAndBacksOffOnLatency() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.acquire(null);
+        limiter.release(100 * MILLIS, true);
+        assertEquals(2, limiter.getLimit());
+
+        limiter.setMaxLimit(10);
+        ConcurrencyLimiter slowing = new ConcurrencyLimiter();
+        slowing.acquire(null);
+        slowing.release(100 * MILLIS, false);
+        for (int i = 0; i < 30; i++) {
+            slowing.acquire(null);
+            slowing.release(1000 * MILLIS, false);
+        }
+        assertEquals(1, slowing.getLimit());
+    }
+
+    @Test
+    void testQueuesExcessRequestsInArrivalOrder() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setMaxLimit(1);
+        limiter.acquire(null);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        Thread[] waiters = new Thread[3];
+        for (int i = 0; i < waiters.length; i++) {
+            int id = i;
+            waiters[i] = new Thread(() -> {
+                try {
+                    limiter.acquire(null);
+                    order.add(id);
+                    limiter.release(MILLIS, false);
+                } catch (SQLException | InterruptedException e) {
+                    order.add(-1);
+                }
+            });
+            waiters[i].start();
+            while (waiters[i].getState() != Thread.State.TIMED_WAITING) {
+                Thread.sleep(1);
+            }
+        }
+        limiter.release(MILLIS, false);
+        for (Thread waiter : waiters) {
+            waiter.join(5000);
+        }
+        assertEquals(List.of(0, 1, 2), order);
+    }
+
+    @Test
+    void testCancelledRequestLeavesTheQueue() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+        limiter.setMaxLimit(1);
+        limiter.acquire(null);
+        QueryControl control = new QueryControl(0);
+        control.cancel();
+
+        SQLException e = assertThrows(SQLException.class, () -> limiter.acquire(control));
+        assertEquals("57014", e.getSQLState());
+        limiter.release(MILLIS, false);
+        limiter.acquire(null);
+        assertEquals(1, limiter.getInFlight());
+    }
+}
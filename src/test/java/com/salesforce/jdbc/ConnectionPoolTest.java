@@ -0,0 +1,202 @@
+package com.salesforce.jdbc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+    private HttpServer server;
+    private ExecutorService handlers;
+    private ConnectionPool pool;
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger pings = new AtomicInteger();
+    private final List<SalesforceConnection> physical = new CopyOnWriteArrayList<>();
+    private volatile long pingDelayMillis = 0;
+    private volatile boolean sessionExpired = false;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    // The resource list answers isValid; queries return one row until the session is expired
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = 200;
+        String body = "{\"totalSize\":1,\"done\":true,\"records\":[{\"attributes\":{\"type\":\"Account\"},\"Id\":\"001A\"}]}";
+        if (exchange.getRequestURI().getPath().equals(RestClient.dataPath("/"))) {
+            pings.incrementAndGet();
+            try {
+                Thread.sleep(pingDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            body = "{\"query\":\"/services/data/v57.0/query\"}";
+        } else if (sessionExpired) {
+            status = 401;
+            body = "[{\"message\":\"Session expired or invalid\",\"errorCode\":\"INVALID_SESSION_ID\"}]";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // The client gave up on this exchange
+        }
+    }
+
+    // Physical connections on a session that cannot be renewed, so a rejected token is fatal
+    private SalesforcePooledConnection create() throws SQLException {
+        created.incrementAndGet();
+        Properties info = new Properties();
+        info.setProperty("describeTypes", "false");
+        info.setProperty("maxRetries", "0");
+        SalesforceConnection connection = new SalesforceConnection(
+                new SalesforceSession("http://127.0.0.1:" + server.getAddress().getPort(), "test-session"), info);
+        physical.add(connection);
+        return new SalesforcePooledConnection(connection);
+    }
+
+    private ConnectionPool pool(ConnectionPool.Config config) {
+        pool = new ConnectionPool(this::create, config);
+        return pool;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testReusesReturnedConnection() throws SQLException {
+        ConnectionPool pool = pool(new ConnectionPool.Config());
+        Connection first = pool.borrow();
+        SalesforceConnection underlying = first.unwrap(SalesforceConnection.class);
+        first.close();
+        assertTrue(first.isClosed());
+        assertEquals(1, pool.getIdleCount());
+
+        Connection second = pool.borrow();
+        assertSame(underlying, second.unwrap(SalesforceConnection.class));
+        assertEquals(1, created.get());
+        assertEquals(0, pings.get());
+    }
+
+    @Test
+    void testBorrowTimesOutWhenExhausted() throws SQLException {
+        ConnectionPool.Config config = new ConnectionPool.Config();
+        config.maxPoolSize = 1;
+        config.borrowTimeoutMillis = 100;
+        ConnectionPool pool = pool(config);
+        Connection held = pool.borrow();
+
+        long start = System.nanoTime();
+        assertThrows(SQLTransientConnectionException.class, pool::borrow);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+
+        // A returned connection is handed to the next borrower
+        held.close();
+        assertNotNull(pool.borrow());
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    void testRetiresConnectionsPastMaxLifetime() throws Exception {
+        ConnectionPool.Config config = new ConnectionPool.Config();
+        config.maxLifetimeMillis = 50;
+        ConnectionPool pool = pool(config);
+        pool.borrow().close();
+        Thread.sleep(100);
+
+        Connection replacement = pool.borrow();
+        assertEquals(2, created.get());
+        assertSame(physical.get(1), replacement.unwrap(SalesforceConnection.class));
+        assertTrue(physical.get(0).isClosed());
+        assertEquals(1, pool.getTotalCount());
+    }
+
+    @Test
+    void testTopsUpToMinIdle() throws Exception {
+        ConnectionPool.Config config = new ConnectionPool.Config();
+        config.minIdle = 2;
+        ConnectionPool pool = pool(config);
+        awaitTrue(() -> pool.getIdleCount() == 2);
+
+        pool.borrow();
+        pool.borrow();
+        assertEquals(2, created.get());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    void testEvictsConnectionAfterFatalError() throws SQLException {
+        ConnectionPool pool = pool(new ConnectionPool.Config());
+        Connection connection = pool.borrow();
+        sessionExpired = true;
+
+        SQLException e = assertThrows(SQLException.class, () -> connection.createStatement().executeQuery("SELECT Id FROM Account"));
+        assertEquals("08006", e.getSQLState());
+        assertTrue(connection.isClosed());
+        assertEquals(0, pool.getTotalCount());
+        assertTrue(physical.get(0).isClosed());
+
+        sessionExpired = false;
+        pool.borrow();
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void testValidationIsBoundedByItsTimeout() throws Exception {
+        ConnectionPool.Config config = new ConnectionPool.Config();
+        config.validateAfterIdleMillis = 0;
+        config.validationTimeoutSeconds = 1;
+        ConnectionPool pool = pool(config);
+        pool.borrow().close();
+        pingDelayMillis = 3000;
+
+        // The idle connection does not answer in time, so a new one is created in its place
+        long start = System.nanoTime();
+        Connection connection = pool.borrow();
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(2500));
+        assertEquals(1, pings.get());
+        assertSame(physical.get(1), connection.unwrap(SalesforceConnection.class));
+    }
+}
@@ -0,0 +1,35 @@
+package com.salesforce.jdbc;
+
+import com.salesforce.api.DescribeSObject;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DescribeCacheTest {
+    @Test
+    void testFailedDescribeIsNotRepeatedForEveryQuery() throws SQLException {
+        AtomicInteger describes = new AtomicInteger();
+        // A connection on a made-up session whose describes always fail
+        SalesforceConnection connection = new SalesforceConnection(new SalesforceSession("http://127.0.0.1:1", "test-session"), null) {
+            @Override
+            DescribeSObject describeSObject(String sObject) throws SQLException {
+                describes.incrementAndGet();
+                throw new SQLException("Failed to describe " + sObject);
+            }
+        };
+        DescribeCache cache = new DescribeCache(connection);
+        ColumnPlan plan = ColumnPlan.fromSoql("SELECT Id, Name FROM Widget__c");
+
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(new FieldType[2], cache.resolveTypes("Widget__c", plan));
+        }
+        assertEquals(1, describes.get());
+        // Other sObjects are still described
+        cache.resolveTypes("Account", ColumnPlan.fromSoql("SELECT Id FROM Account"));
+        assertEquals(2, describes.get());
+        connection.close();
+    }
+}
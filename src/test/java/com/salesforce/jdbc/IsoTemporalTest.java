@@ -0,0 +1,61 @@
+package com.salesforce.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IsoTemporalTest {
+
+    @Test
+    void testParsesSalesforceDates() {
+        assertEquals(LocalDate.of(2024, 1, 1).toEpochDay(), IsoTemporal.parseDate("2024-01-01"));
+        assertEquals(LocalDate.of(2024, 2, 29).toEpochDay(), IsoTemporal.parseDate("2024-02-29"));
+        assertEquals(LocalDate.of(1899, 12, 31).toEpochDay(), IsoTemporal.parseDate("1899-12-31"));
+        assertEquals(IsoTemporal.INVALID, IsoTemporal.parseDate("2023-02-29"));
+        assertEquals(IsoTemporal.INVALID, IsoTemporal.parseDate("2024-13-01"));
+        assertEquals(IsoTemporal.INVALID, IsoTemporal.parseDate("not a date"));
+    }
+
+    @Test
+    void testParsesSalesforceDateTimes() {
+        assertEquals(Instant.parse("2024-01-01T10:00:00Z").toEpochMilli(),
+                IsoTemporal.parseDateTime("2024-01-01T10:00:00.000+0000"));
+        assertEquals(OffsetDateTime.parse("2024-06-30T23:15:30.123-07:00").toInstant().toEpochMilli(),
+                IsoTemporal.parseDateTime("2024-06-30T23:15:30.123-07:00"));
+        assertEquals(Instant.parse("2024-03-10T05:06:07.890Z").toEpochMilli(),
+                IsoTemporal.parseDateTime("2024-03-10T05:06:07.890123Z"));
+        assertEquals(Instant.parse("1969-12-31T23:59:59Z").toEpochMilli(),
+                IsoTemporal.parseDateTime("1969-12-31T23:59:59Z"));
+        assertEquals(IsoTemporal.INVALID, IsoTemporal.parseDateTime("2024-01-01T25:00:00Z"));
+        assertEquals(IsoTemporal.INVALID, IsoTemporal.parseDateTime("2024-01-01T10:00:00+0000junk"));
+    }
+
+    @Test
+    void testParsesSalesforceTimes() {
+        assertEquals(LocalTime.of(10, 0).toNanoOfDay() / 1_000_000, IsoTemporal.parseTime("10:00:00.000Z"));
+        assertEquals(LocalTime.of(8, 30, 15).toNanoOfDay() / 1_000_000, IsoTemporal.parseTime("08:30:15"));
+        assertEquals(IsoTemporal.INVALID, IsoTemporal.parseTime("8:30"));
+    }
+
+    @Test
+    void testFormatsInSalesforceForm() {
+        long millis = Instant.parse("2024-01-01T10:00:00.5Z").toEpochMilli();
+        assertEquals("2024-01-01T10:00:00.500+0000", IsoTemporal.formatDateTime(millis));
+        assertEquals("1969-07-20", IsoTemporal.formatDate(LocalDate.of(1969, 7, 20).toEpochDay()));
+        assertEquals("23:59:59.999Z", IsoTemporal.formatTime(IsoTemporal.MILLIS_PER_DAY - 1));
+    }
+
+    @Test
+    void testEpochDaysMatchJavaTime() {
+        for (long day = LocalDate.of(1600, 1, 1).toEpochDay(); day <= LocalDate.of(2400, 12, 31).toEpochDay(); day += 37) {
+            String text = IsoTemporal.formatDate(day);
+            assertEquals(LocalDate.ofEpochDay(day).toString(), text);
+            assertEquals(day, IsoTemporal.parseDate(text));
+        }
+    }
+}
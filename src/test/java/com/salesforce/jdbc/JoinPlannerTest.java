@@ -0,0 +1,245 @@
+package com.salesforce.jdbc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JoinPlannerTest {
+    // Contact looks up Account through AccountId; Account's Opportunities point back through AccountId.
+    // Lead has no relationship to Account.
+    private static final SoqlGenerator.FieldSource FIELDS = new SoqlGenerator.FieldSource() {
+        private final Map<String, List<String>> objects = Map.of(
+                "Account", Arrays.asList("Id", "Name", "Industry", "OwnerId"),
+                "Contact", Arrays.asList("Id", "LastName", "AccountId"),
+                "Opportunity", Arrays.asList("Id", "Amount", "AccountId"),
+                "User", Arrays.asList("Id", "Alias"),
+                "Lead", Arrays.asList("Id", "Company", "Status"));
+
+        @Override
+        public List<String> fieldsOf(String sObject) {
+            return objects.get(sObject);
+        }
+
+        @Override
+        public String childSObject(String parentSObject, String relationshipName) {
+            return "Opportunity";
+        }
+
+        @Override
+        public String parentRelationship(String sObject, String field, String parentSObject) {
+            if (sObject.equals("Contact") && field.equalsIgnoreCase("AccountId") && parentSObject.equals("Account")) {
+                return "Account";
+            }
+            return sObject.equals("Account") && field.equalsIgnoreCase("OwnerId") && parentSObject.equals("User") ? "Owner" : null;
+        }
+
+        @Override
+        public String childRelationship(String parentSObject, String childSObject, String field) {
+            return parentSObject.equals("Account") && childSObject.equals("Opportunity") && field.equalsIgnoreCase("AccountId")
+                    ? "Opportunities" : null;
+        }
+    };
+
+    private HttpServer server;
+    private SalesforceConnection connection;
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        Properties info = new Properties();
+        info.setProperty("describeTypes", "false");
+        connection = new SalesforceConnection(new SalesforceSession("http://127.0.0.1:" + server.getAddress().getPort(), "test-session"), info);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.close();
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        String soql = query != null ? URLDecoder.decode(query.substring("q=".length()), StandardCharsets.UTF_8) : exchange.getRequestURI().getPath();
+        queries.add(soql);
+        String body;
+        if (soql.startsWith("SELECT Name, Id FROM Account")) {
+            body = "{\"totalSize\":2,\"done\":true,\"records\":["
+                    + "{\"Name\":\"Acme\",\"Id\":\"001A\"},{\"Name\":\"Globex\",\"Id\":\"001B\"}]}";
+        } else if (soql.equals("SELECT Company, Status FROM Lead WHERE Status != 'Closed'")) {
+            body = "{\"totalSize\":2,\"done\":true,\"records\":["
+                    + "{\"Company\":\"Acme\",\"Status\":\"Open\"},{\"Company\":\"Initech\",\"Status\":\"New\"}]}";
+        } else if (soql.startsWith("SELECT LastName FROM Contact")) {
+            body = "{\"totalSize\":4,\"done\":true,\"records\":["
+                    + "{\"LastName\":\"Acme\"},{\"LastName\":\"Smith\"},{\"LastName\":\"Jones\"},{\"LastName\":\"Brown\"}]}";
+        } else if (soql.equals("SELECT Company, Status FROM Lead")) {
+            body = "{\"totalSize\":3,\"done\":true,\"records\":["
+                    + "{\"Company\":\"Acme\",\"Status\":\"Open\"},{\"Company\":\"Initech\",\"Status\":\"New\"},"
+                    + "{\"Company\":\"Acme\",\"Status\":\"Closed\"}]}";
+        } else if (soql.contains("FROM Account WHERE Name = 'Big'")) {
+            body = "{\"totalSize\":1,\"done\":true,\"records\":[{\"Name\":\"Big\",\"Opportunities\":"
+                    + amounts(0, "/services/data/v57.0/query/01gB-200") + "}]}";
+        } else if (soql.contains("/query/01gB-")) {
+            int from = Integer.parseInt(soql.substring(soql.lastIndexOf('-') + 1));
+            body = amounts(from, from < 400 ? "/services/data/v57.0/query/01gB-" + (from + 200) : null);
+        } else if (soql.startsWith("SELECT Name, (SELECT Amount FROM Opportunities)")) {
+            body = "{\"totalSize\":2,\"done\":true,\"records\":["
+                    + "{\"Name\":\"Acme\",\"Opportunities\":{\"totalSize\":3,\"done\":false,\"nextRecordsUrl\":\"/services/data/v57.0/query/01gA-2\","
+                    + "\"records\":[{\"Amount\":100},{\"Amount\":200}]}},"
+                    + "{\"Name\":\"Globex\",\"Opportunities\":null}]}";
+        } else if (soql.endsWith("/query/01gA-2")) {
+            body = "{\"totalSize\":3,\"done\":true,\"records\":[{\"Amount\":300}]}";
+        } else {
+            body = "{\"totalSize\":0,\"done\":true,\"records\":[]}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // A batch of 200 child records with amounts from, from + 1, ..., continued at next when it is not null
+    private static String amounts(int from, String next) {
+        StringBuilder records = new StringBuilder();
+        for (int i = from; i < from + 200; i++) {
+            records.append(i > from ? "," : "").append("{\"Amount\":").append(i).append('}');
+        }
+        return "{\"totalSize\":600,\"done\":" + (next == null) + (next != null ? ",\"nextRecordsUrl\":\"" + next + "\"" : "")
+                + ",\"records\":[" + records + "]}";
+    }
+
+    private static TranslationPlan plan(String sql) throws SQLException {
+        return SoqlGenerator.generate(sql, SqlParser.parse(sql), FIELDS);
+    }
+
+    private static List<String> rows(ResultSet rs) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        while (rs.next()) {
+            rows.add(rs.getString(1) + "|" + rs.getString(2));
+        }
+        return rows;
+    }
+
+    @Test
+    void testFollowsLookupsAsRelationshipPaths() throws SQLException {
+        TranslationPlan plan = plan("SELECT c.LastName, a.Name, u.Alias FROM Contact c JOIN Account a ON c.AccountId = a.Id"
+                + " LEFT JOIN User u ON a.OwnerId = u.Id WHERE a.Industry = ? ORDER BY 2");
+        assertNull(plan.getOperator());
+        assertEquals("SELECT LastName, Account.Name, Account.Owner.Alias FROM Contact WHERE AccountId != null"
+                + " AND Account.Industry = ? ORDER BY Account.Name", plan.getSoql());
+        assertEquals(1, plan.getParameterCount());
+        assertEquals("Name", plan.getColumns().getLabel(1));
+        assertEquals("Alias", plan.getColumns().getLabel(2));
+        assertTrue(SoqlGenerator.generate("SELECT c.LastName FROM Contact c JOIN Account a ON c.AccountId = a.Id",
+                SqlParser.parse("SELECT c.LastName FROM Contact c JOIN Account a ON c.AccountId = a.Id"), null).needsExpansion());
+    }
+
+    @Test
+    void testCompilesChildJoinsIntoSubqueries() throws SQLException {
+        TranslationPlan plan = plan("SELECT a.Name, o.Amount FROM Account a LEFT JOIN Opportunity o ON a.Id = o.AccountId"
+                + " WHERE o.Amount > 10000");
+        assertNotNull(plan.getOperator());
+        assertEquals("SELECT Name, (SELECT Amount FROM Opportunities WHERE Amount > 10000) FROM Account"
+                + " WHERE Id IN (SELECT AccountId FROM Opportunity WHERE Amount > 10000)", plan.getSoql());
+        assertEquals("SELECT Name, (SELECT Amount FROM Opportunities WHERE Amount > ?) FROM Account"
+                        + " WHERE Id IN (SELECT AccountId FROM Opportunity WHERE Amount > ?)",
+                plan("SELECT a.Name, o.Amount FROM Account a JOIN Opportunity o ON a.Id = o.AccountId AND o.Amount > ?").getSoql());
+        assertEquals(1, plan("SELECT a.Name, o.Amount FROM Account a JOIN Opportunity o ON a.Id = o.AccountId AND o.Amount > ?")
+                .getParameterCount());
+    }
+
+    @Test
+    void testFlattensChildRecordsIncludingLaterBatches() throws SQLException {
+        TranslationPlan plan = plan("SELECT a.Name, o.Amount FROM Account a LEFT JOIN Opportunity o ON a.Id = o.AccountId");
+        assertEquals("SELECT Name, (SELECT Amount FROM Opportunities) FROM Account", plan.getSoql());
+        SalesforceStatement statement = (SalesforceStatement) connection.createStatement();
+        ResultSet rs = statement.runPlan(plan, plan.getSoql(), false);
+        assertEquals("Amount", rs.getMetaData().getColumnLabel(2));
+        assertEquals(List.of("Acme|100", "Acme|200", "Acme|300", "Globex|null"), rows(rs));
+
+        plan = plan("SELECT a.Name, o.Amount FROM Account a LEFT JOIN Opportunity o ON a.Id = o.AccountId LIMIT 2 OFFSET 1");
+        assertEquals(List.of("Acme|200", "Acme|300"), rows(statement.runPlan(plan, plan.getSoql(), false)));
+    }
+
+    @Test
+    void testPagesThroughChildBatchesOfOneParent() throws SQLException {
+        TranslationPlan plan = plan("SELECT a.Name, o.Amount FROM Account a JOIN Opportunity o ON a.Id = o.AccountId WHERE a.Name = 'Big'");
+        SalesforceStatement statement = (SalesforceStatement) connection.createStatement();
+        statement.setFetchSize(200);
+        ResultSet rs = statement.runPlan(plan, plan.getSoql(), false);
+        // Each page holds one batch of children; the next batch is fetched when the caller gets to it
+        for (int row = 0; row < 200; row++) {
+            assertTrue(rs.next());
+            assertEquals(row, rs.getInt(2));
+        }
+        assertFalse(queries.stream().anyMatch(query -> query.contains("/query/01gB-")));
+        assertTrue(rs.next());
+        assertEquals(200, rs.getInt(2));
+        assertFalse(queries.stream().anyMatch(query -> query.endsWith("/query/01gB-400")));
+        int rows = 201;
+        while (rs.next()) {
+            assertEquals(rows++, rs.getInt(2));
+        }
+        assertEquals(600, rows);
+    }
+
+    @Test
+    void testHashJoinKnowsItsLastRow() throws SQLException {
+        TranslationPlan plan = plan("SELECT a.Name, a.Id, l.Status FROM Account a JOIN Lead l ON a.Name = l.Company");
+        ResultSet rs = ((SalesforceStatement) connection.createStatement()).runPlan(plan, null, false);
+        assertTrue(rs.next());
+        assertFalse(rs.isLast());
+        assertTrue(rs.next());
+        assertTrue(rs.isLast());
+        assertFalse(rs.next());
+    }
+
+    @Test
+    void testHashJoinsObjectsWithoutRelationship() throws SQLException {
+        TranslationPlan plan = plan("SELECT a.Name, a.Id, l.Status FROM Account a JOIN Lead l ON a.Name = l.Company");
+        assertEquals("SELECT Name, Id FROM Account;\nSELECT Company, Status FROM Lead", plan.getSoql());
+        SalesforceStatement statement = (SalesforceStatement) connection.createStatement();
+        List<String> rows = rows(statement.runPlan(plan, null, false));
+        rows.sort(null);
+        assertEquals(List.of("Acme|001A", "Acme|001A"), rows);
+
+        plan = plan("SELECT l.Status, a.Id FROM Account a RIGHT JOIN Lead l ON a.Name = l.Company WHERE l.Status != 'Closed'");
+        rows = rows(statement.runPlan(plan, null, false));
+        rows.sort(null);
+        assertEquals(List.of("New|null", "Open|001A"), rows);
+        assertTrue(queries.contains("SELECT Company, Status FROM Lead WHERE Status != 'Closed'"));
+
+        // The smaller Lead side is indexed; its matches come back in the order the server returned them
+        plan = plan("SELECT c.LastName, l.Status FROM Contact c JOIN Lead l ON c.LastName = l.Company");
+        assertEquals(List.of("Acme|Open", "Acme|Closed"), rows(statement.runPlan(plan, null, false)));
+
+        assertThrows(SQLFeatureNotSupportedException.class, () -> plan("SELECT a.Name FROM Account a LEFT JOIN Lead l ON a.Name = l.Company"
+                + " WHERE l.Status IS NULL"));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> plan("SELECT a.Name FROM Account a JOIN Lead l ON a.Name > l.Company"));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> plan("SELECT a.Name FROM Account a JOIN Lead l ON a.Name = l.Company"
+                + " WHERE l.Status = ?"));
+    }
+}
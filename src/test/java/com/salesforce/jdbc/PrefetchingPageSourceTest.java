@@ -0,0 +1,142 @@
+package com.salesforce.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrefetchingPageSourceTest {
+    private static final ColumnPlan PLAN = ColumnPlan.fromSoql("SELECT Id FROM Account");
+
+    // Serves `count` one-row pages, then fails if a failure is given; reports isDone as soon as the last page is out
+    private static class StubPages implements PageSource {
+        final int count;
+        final SQLException failure;
+        int next = 0;
+        volatile boolean inFlight = false;
+        volatile boolean closedWhileInFlight = false;
+        volatile boolean closed = false;
+
+        StubPages(int count, SQLException failure) {
+            this.count = count;
+            this.failure = failure;
+        }
+
+        @Override
+        public ColumnarPage nextPage() throws SQLException {
+            if (next < count) {
+                return page(next++);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isDone() {
+            return next >= count && failure == null;
+        }
+
+        @Override
+        public ColumnPlan getColumnPlan() {
+            return PLAN;
+        }
+
+        @Override
+        public int getBatchSize() {
+            return 0;
+        }
+
+        @Override
+        public void setBatchSize(int fetchSize) {
+        }
+
+        @Override
+        public void close() {
+            closedWhileInFlight = inFlight;
+            closed = true;
+        }
+    }
+
+    private static ColumnarPage page(int id) {
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(PLAN, 1);
+        builder.set(0, "001" + id);
+        builder.endRow();
+        return builder.build();
+    }
+
+    private static List<String> drain(PageSource pages) throws SQLException {
+        List<String> ids = new ArrayList<>();
+        ColumnarPage page;
+        while ((page = pages.nextPage()) != null) {
+            ids.add(page.getString(0, 0));
+        }
+        return ids;
+    }
+
+    @Test
+    void testHandsOverPagesInOrder() throws SQLException {
+        PrefetchingPageSource pages = new PrefetchingPageSource(new StubPages(5, null), 2);
+        assertEquals(List.of("0010", "0011", "0012", "0013", "0014"), drain(pages));
+        assertTrue(pages.isDone());
+        assertNull(pages.nextPage());
+    }
+
+    @Test
+    void testIsDoneOnceTheLastPageIsHandedOut() throws SQLException {
+        PrefetchingPageSource pages = new PrefetchingPageSource(new StubPages(2, null), 4);
+        assertNotNull(pages.nextPage());
+        assertFalse(pages.isDone());
+        assertNotNull(pages.nextPage());
+        // Known without another nextPage() call, however far the fetcher has got
+        assertTrue(pages.isDone());
+    }
+
+    @Test
+    void testHandsOverTheFetchError() throws SQLException {
+        PrefetchingPageSource pages = new PrefetchingPageSource(new StubPages(2, new SQLException("Bad page")), 1);
+        assertNotNull(pages.nextPage());
+        assertNotNull(pages.nextPage());
+        assertFalse(pages.isDone());
+        SQLException e = assertThrows(SQLException.class, pages::nextPage);
+        assertEquals("Bad page", e.getMessage());
+        assertTrue(pages.isDone());
+        assertNull(pages.nextPage());
+    }
+
+    @Test
+    void testCloseWaitsForThePageInFlight() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        StubPages delegate = new StubPages(1, null) {
+            @Override
+            public ColumnarPage nextPage() throws SQLException {
+                inFlight = true;
+                fetching.countDown();
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                    return null;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted", e);
+                } finally {
+                    inFlight = false;
+                }
+            }
+        };
+        PrefetchingPageSource pages = new PrefetchingPageSource(delegate, 1);
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        pages.close();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertTrue(delegate.closed);
+        assertFalse(delegate.closedWhileInFlight);
+        assertNull(pages.nextPage());
+    }
+}
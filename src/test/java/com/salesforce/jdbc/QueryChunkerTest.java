@@ -0,0 +1,138 @@
+package com.salesforce.jdbc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryChunkerTest {
+    private static final ColumnPlan PLAN = ColumnPlan.fromSoql("SELECT Id, Name FROM Account");
+
+    private HttpServer server;
+    private RestClient client;
+    // The single record each probe query answers with; anything else gets no rows
+    private final Map<String, String> answers = new ConcurrentHashMap<>();
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        client = new RestClient("http://127.0.0.1:" + server.getAddress().getPort(), "test-session");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String soql = URLDecoder.decode(exchange.getRequestURI().getRawQuery().substring("q=".length()), StandardCharsets.UTF_8);
+        queries.add(soql);
+        String record = answers.get(soql);
+        byte[] bytes = (record != null ? "{\"totalSize\":1,\"done\":true,\"records\":[" + record + "]}"
+                : "{\"totalSize\":0,\"done\":true,\"records\":[]}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void testChunkedSourceIsDoneWithItsLastPage() throws SQLException {
+        answers.put("SELECT Id, Name FROM Account WHERE Id < 'M'", "{\"Id\":\"001A\",\"Name\":\"Acme\"}");
+        answers.put("SELECT Id, Name FROM Account WHERE Id >= 'M'", "{\"Id\":\"001Z\",\"Name\":\"Zeta\"}");
+        ChunkedPageSource pages = new ChunkedPageSource(client, List.of("SELECT Id, Name FROM Account WHERE Id < 'M'",
+                "SELECT Id, Name FROM Account WHERE Id >= 'M'"), PLAN, 2, true, 0);
+
+        assertEquals("Acme", pages.nextPage().getString(1, 0));
+        assertFalse(pages.isDone());
+        assertEquals("Zeta", pages.nextPage().getString(1, 0));
+        assertTrue(pages.isDone());
+        assertNull(pages.nextPage());
+        pages.close();
+    }
+
+    @Test
+    void testEncodesIdCountersInBase62() {
+        assertEquals(0, QueryChunker.decodeBase62("000000000"));
+        assertEquals(61, QueryChunker.decodeBase62("00000000z"));
+        assertEquals(62, QueryChunker.decodeBase62("000000010"));
+        assertEquals(36 * 62 + 10, QueryChunker.decodeBase62("0000000aA"));
+        assertEquals(-1, QueryChunker.decodeBase62("00000000-"));
+
+        assertEquals("000000000", QueryChunker.encodeBase62(0));
+        assertEquals("00000000z", QueryChunker.encodeBase62(61));
+        assertEquals("000000010", QueryChunker.encodeBase62(62));
+        for (long value : new long[] {1, 3843, 123_456_789, 916_132_831}) {
+            assertEquals(value, QueryChunker.decodeBase62(QueryChunker.encodeBase62(value)));
+        }
+    }
+
+    @Test
+    void testRangesAreOpenAtBothEnds() {
+        assertNull(QueryChunker.rangePredicates("Id", List.of()));
+        assertEquals(List.of("Id < 'a'", "Id >= 'a'"), QueryChunker.rangePredicates("Id", List.of("'a'")));
+        assertEquals(List.of("CreatedDate < 1", "CreatedDate >= 1 AND CreatedDate < 2", "CreatedDate >= 2"),
+                QueryChunker.rangePredicates("CreatedDate", List.of("1", "2")));
+    }
+
+    @Test
+    void testSplitsByIdRange() {
+        answers.put("SELECT Id FROM Account ORDER BY Id ASC LIMIT 1", "{\"Id\":\"001A00000000001\"}");
+        answers.put("SELECT Id FROM Account ORDER BY Id DESC LIMIT 1", "{\"Id\":\"001A0000000000A\"}");
+
+        assertEquals(List.of("SELECT Id, Name FROM Account WHERE Id < '001A00000000005'",
+                        "SELECT Id, Name FROM Account WHERE Id >= '001A00000000005'"),
+                QueryChunker.split(client, "SELECT Id, Name FROM Account", PLAN, 2));
+    }
+
+    @Test
+    void testKeepsExistingFilterInEveryChunk() {
+        String filter = " WHERE Industry = 'Energy' OR Name LIKE 'A%'";
+        answers.put("SELECT Id FROM Account" + filter + " ORDER BY Id ASC LIMIT 1", "{\"Id\":\"001A00000000001\"}");
+        answers.put("SELECT Id FROM Account" + filter + " ORDER BY Id DESC LIMIT 1", "{\"Id\":\"001A0000000000A\"}");
+
+        // The filter is parenthesized so its OR cannot swallow the range
+        assertEquals(List.of("SELECT Id, Name FROM Account WHERE (Industry = 'Energy' OR Name LIKE 'A%') AND Id < '001A00000000005'",
+                        "SELECT Id, Name FROM Account WHERE (Industry = 'Energy' OR Name LIKE 'A%') AND Id >= '001A00000000005'"),
+                QueryChunker.split(client, "SELECT Id, Name FROM Account" + filter, PLAN, 2));
+    }
+
+    @Test
+    void testFallsBackToCreatedDateWhenIdsSpanPods() {
+        answers.put("SELECT Id FROM Account ORDER BY Id ASC LIMIT 1", "{\"Id\":\"001A00000000001\"}");
+        answers.put("SELECT Id FROM Account ORDER BY Id DESC LIMIT 1", "{\"Id\":\"001B0000000000A\"}");
+        answers.put("SELECT MIN(CreatedDate) lo, MAX(CreatedDate) hi FROM Account",
+                "{\"lo\":\"2024-01-01T00:00:00.000+0000\",\"hi\":\"2024-01-03T00:00:00.000+0000\"}");
+
+        assertEquals(List.of("SELECT Id, Name FROM Account WHERE CreatedDate < 2024-01-02T00:00:00Z",
+                        "SELECT Id, Name FROM Account WHERE CreatedDate >= 2024-01-02T00:00:00Z"),
+                QueryChunker.split(client, "SELECT Id, Name FROM Account", PLAN, 2));
+    }
+
+    @Test
+    void testLeavesOrderedAndUnprobeableQueriesWhole() {
+        assertNull(QueryChunker.split(client, "SELECT Id, Name FROM Account ORDER BY Name", PLAN, 4));
+        assertNull(QueryChunker.split(client, "SELECT Id, Name FROM Account LIMIT 10", PLAN, 4));
+        assertTrue(queries.isEmpty());
+        // No rows to sample, so there are no ranges either
+        assertNull(QueryChunker.split(client, "SELECT Id, Name FROM Account", PLAN, 4));
+    }
+}
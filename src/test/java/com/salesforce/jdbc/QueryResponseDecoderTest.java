@@ -0,0 +1,101 @@
+package com.salesforce.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryResponseDecoderTest {
+
+    private static QueryPage decode(QueryResponseDecoder decoder, String json) throws IOException {
+        return decoder.decode(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testDecodesSelectedColumnsInPlanOrder() throws IOException {
+        ColumnPlan plan = ColumnPlan.fromSoql("SELECT Name, Id, Account.Industry, NumberOfEmployees FROM Contact");
+        QueryPage page = decode(new QueryResponseDecoder(plan),
+                "{\"totalSize\":2,\"done\":false,\"nextRecordsUrl\":\"/services/data/v57.0/query/01g-2000\",\"records\":["
+                        + "{\"attributes\":{\"type\":\"Contact\",\"url\":\"/x\"},\"Id\":\"003A\",\"Name\":\"Ada\","
+                        + "\"Account\":{\"attributes\":{\"type\":\"Account\"},\"Industry\":\"Energy\"},\"NumberOfEmployees\":12,\"Extra\":[1,2]},"
+                        + "{\"attributes\":{\"type\":\"Contact\"},\"Id\":\"003B\",\"Name\":\"Grace\",\"Account\":null,\"NumberOfEmployees\":null}]}");
+
+        assertEquals(2, page.getTotalSize());
+        assertFalse(page.isDone());
+        assertEquals("/services/data/v57.0/query/01g-2000", page.getNextRecordsUrl());
+
+        ColumnarPage rows = page.getPage();
+        assertEquals(2, rows.getRowCount());
+        assertEquals("Ada", rows.getString(0, 0));
+        assertEquals("003A", rows.getString(1, 0));
+        assertEquals("Energy", rows.getString(2, 0));
+        assertEquals(ColumnarPage.Kind.LONG, rows.getKind(3));
+        assertEquals(12L, rows.getLong(3, 0));
+        assertTrue(rows.isNull(2, 1));
+        assertTrue(rows.isNull(3, 1));
+    }
+
+    @Test
+    void testMatchesFieldNamesCaseInsensitively() throws IOException {
+        ColumnPlan plan = ColumnPlan.fromSoql("select name from account");
+        QueryPage page = decode(new QueryResponseDecoder(plan),
+                "{\"totalSize\":1,\"done\":true,\"records\":[{\"attributes\":{},\"Name\":\"Acme\"}]}");
+
+        assertTrue(page.isDone());
+        assertEquals("Acme", page.getPage().getString(0, 0));
+    }
+
+    @Test
+    void testFillsEveryColumnReadingTheSameField() throws IOException {
+        ColumnPlan plan = ColumnPlan.fromSoql("SELECT Id, Name, BillingAddress FROM Account").project(new int[] {1, 0, 1, 2, 2});
+        ColumnarPage rows = decode(new QueryResponseDecoder(plan), "{\"totalSize\":1,\"done\":true,\"records\":[{\"Id\":\"001A\","
+                + "\"Name\":\"Acme\",\"BillingAddress\":{\"city\":\"Paris\"}}]}").getPage();
+
+        assertEquals(5, rows.getColumnCount());
+        assertEquals("Acme", rows.getString(0, 0));
+        assertEquals("001A", rows.getString(1, 0));
+        assertEquals("Acme", rows.getString(2, 0));
+        assertEquals("Paris", ((Map<?, ?>) rows.getObject(3, 0)).get("city"));
+        assertEquals(rows.getObject(3, 0), rows.getObject(4, 0));
+    }
+
+    @Test
+    void testKeepsDecimalPrecisionForCurrencyColumns() throws IOException {
+        ColumnPlan plan = ColumnPlan.fromSoql("SELECT Amount FROM Opportunity")
+                .withTypes(new FieldType[] {FieldType.DECIMAL});
+        QueryPage page = decode(new QueryResponseDecoder(plan),
+                "{\"totalSize\":1,\"done\":true,\"records\":[{\"Amount\":12345678901234.56}]}");
+
+        assertEquals(new BigDecimal("12345678901234.56"), page.getPage().getBigDecimal(0, 0));
+    }
+
+    @Test
+    void testDiscoversPlanFromFirstRecord() throws IOException {
+        QueryResponseDecoder decoder = new QueryResponseDecoder(null);
+        QueryPage page = decode(decoder,
+                "{\"totalSize\":1,\"done\":true,\"records\":[{\"attributes\":{},\"Id\":\"001A\",\"Contacts\":"
+                        + "{\"totalSize\":1,\"done\":true,\"records\":[{\"LastName\":\"Lovelace\"}]}}]}");
+
+        ColumnPlan plan = decoder.getPlan();
+        assertEquals(2, plan.getColumnCount());
+        assertEquals("Id", plan.getLabel(0));
+        assertEquals("001A", page.getPage().getString(0, 0));
+        Map<?, ?> contacts = (Map<?, ?>) page.getPage().getObject(1, 0);
+        assertEquals(1, ((List<?>) contacts.get("records")).size());
+    }
+
+    @Test
+    void testEmptyResponseHasNoRows() throws IOException {
+        ColumnPlan plan = ColumnPlan.fromSoql("SELECT Id FROM Account");
+        QueryPage page = decode(new QueryResponseDecoder(plan), "{\"totalSize\":0,\"done\":true,\"records\":[]}");
+
+        assertEquals(0, page.getPage().getRowCount());
+        assertTrue(page.isDone());
+    }
+}
@@ -0,0 +1,289 @@
+package com.salesforce.jdbc;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RestClientTest {
+    private HttpServer server;
+    private String instanceUrl;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+    private final List<String> requestEncodings = new CopyOnWriteArrayList<>();
+    private volatile long delayMillis = 0;
+    private final AtomicInteger flakyCalls = new AtomicInteger();
+    private final AtomicInteger garbledCalls = new AtomicInteger();
+    private volatile int flakyFailures = 0;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.createContext("/echo", this::echo);
+        server.createContext("/flaky", this::flaky);
+        server.createContext("/garbled", this::garbled);
+        server.start();
+        instanceUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    // Accepts only the renewed token, like an org whose session has just timed out
+    private void handle(HttpExchange exchange) throws IOException {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        authorizations.add(authorization);
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        boolean valid = "Bearer renewed".equals(authorization);
+        byte[] body = (valid ? "{\"ok\":true}" : "[{\"message\":\"Session expired or invalid\",\"errorCode\":\"INVALID_SESSION_ID\"}]")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(valid ? 200 : 401, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Returns the request body as {"echo": body}, gzipped when the client accepts it
+    private void echo(HttpExchange exchange) throws IOException {
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        requestEncodings.add(String.valueOf(encoding));
+        InputStream in = "gzip".equals(encoding) ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody();
+        String received = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        byte[] body = MAPPER.writeValueAsBytes(Map.of("echo", received));
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Answers 503 for the first flakyFailures calls, then a one-row query page
+    private void flaky(HttpExchange exchange) throws IOException {
+        boolean fail = flakyCalls.incrementAndGet() <= flakyFailures;
+        byte[] body = (fail ? "[{\"message\":\"Try again\",\"errorCode\":\"SERVER_UNAVAILABLE\"}]"
+                : "{\"totalSize\":1,\"done\":true,\"records\":[{\"attributes\":{\"type\":\"Account\"},\"Id\":\"001A\"}]}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(fail ? 503 : 200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Answers 200 with a body that is not JSON
+    private void garbled(HttpExchange exchange) throws IOException {
+        garbledCalls.incrementAndGet();
+        byte[] body = "{\"totalSize\":1,\"records\":[{\"Id\":".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    void testRetriesTransientFailuresOfPageFetches() throws SQLException {
+        flakyFailures = 2;
+        RestClient client = new RestClient(instanceUrl, "renewed");
+
+        QueryPage page = client.queryMore("/flaky/query/01gA-2000", new QueryResponseDecoder(null), 0);
+        assertEquals(1, page.getPage().getRowCount());
+        assertEquals("001A", page.getPage().getString(0, 0));
+        assertEquals(3, flakyCalls.get());
+    }
+
+    @Test
+    void testGivesUpAfterMaxRetriesAndOpensCircuit() {
+        flakyFailures = Integer.MAX_VALUE;
+        RestClient client = new RestClient(instanceUrl, "renewed");
+        client.getRetryPolicy().setMaxRetries(1);
+        client.getBreaker().configure(3, 60_000);
+
+        SQLException first = assertThrows(SQLException.class, () -> client.getJson("/flaky"));
+        assertEquals("SERVER_UNAVAILABLE", SalesforceApiException.apiErrorCode(first));
+        assertNull(first.getSQLState());
+        assertEquals(2, flakyCalls.get());
+        assertThrows(SQLException.class, () -> client.getJson("/flaky"));
+        // The third consecutive failure opened the circuit, so nothing more reaches the server
+        SQLException shed = assertThrows(SQLException.class, () -> client.getJson("/flaky"));
+        assertEquals("CIRCUIT_OPEN", shed.getSQLState());
+        assertEquals(3, flakyCalls.get());
+    }
+
+    @Test
+    void testDoesNotRetryResponsesThatFailToParse() {
+        RestClient client = new RestClient(instanceUrl, "renewed");
+
+        assertThrows(SQLException.class, () -> client.queryMore("/garbled/query/01gA-2000", new QueryResponseDecoder(null), 0));
+        assertThrows(SQLException.class, () -> client.getJson("/garbled"));
+        assertEquals(2, garbledCalls.get());
+    }
+
+    @Test
+    void testRetriesOnlyConnectionFailures() {
+        assertTrue(RetryPolicy.isRetryable(new SQLException("Request to Salesforce failed", new ConnectException("Connection refused"))));
+        assertTrue(RetryPolicy.isRetryable(new SQLException("Could not connect to Salesforce in time",
+                new HttpConnectTimeoutException("HTTP connect timed out"))));
+        // The request may still be running on the server
+        assertFalse(RetryPolicy.isRetryable(new SQLTimeoutException("Salesforce did not respond in time",
+                new HttpTimeoutException("request timed out"))));
+        assertTrue(RetryPolicy.isRetryable(new SQLException("Failed to read query response", new EOFException())));
+        assertTrue(RetryPolicy.isRetryable(new SQLException("Request to Salesforce failed", new IOException("Received RST_STREAM: Stream cancelled"))));
+        assertFalse(RetryPolicy.isRetryable(new SQLException("Failed to read query response", new JsonParseException(null, "Unexpected end-of-input"))));
+        assertFalse(RetryPolicy.isRetryable(new SQLException("Failed to read query response", new ZipException("invalid block type"))));
+    }
+
+    @Test
+    void testRetriesOnceWithRenewedSession() throws SQLException {
+        AtomicInteger renewals = new AtomicInteger();
+        SalesforceSession session = new SalesforceSession(instanceUrl, "expired") {
+            @Override
+            String renew(String staleSessionId) {
+                renewals.incrementAndGet();
+                return "renewed";
+            }
+        };
+        RestClient client = new RestClient(session, JdkHttpTransport.shared(1000), 0, true);
+
+        assertTrue(client.getJson(RestClient.dataPath("/")).path("ok").asBoolean());
+        assertEquals(List.of("Bearer expired", "Bearer renewed"), authorizations);
+        assertEquals(1, renewals.get());
+    }
+
+    @Test
+    void testSessionThatCannotRenewRaisesError() {
+        RestClient client = new RestClient(instanceUrl, "expired");
+
+        SQLException e = assertThrows(SQLException.class, () -> client.getJson(RestClient.dataPath("/")));
+        assertEquals("INVALID_SESSION_ID", ((SalesforceApiException) e).getApiErrorCode());
+        assertEquals("08006", e.getSQLState());
+        assertEquals(401, e.getErrorCode());
+        assertEquals(1, authorizations.size());
+    }
+
+    @Test
+    void testPluggedTransportAndReadTimeout() {
+        AtomicInteger sent = new AtomicInteger();
+        HttpTransport counting = request -> {
+            sent.incrementAndGet();
+            return JdkHttpTransport.shared(1000).send(request);
+        };
+        delayMillis = 500;
+        RestClient client = new RestClient(new SalesforceSession(instanceUrl, "renewed"), counting, 100, true);
+
+        assertThrows(SQLTimeoutException.class, () -> client.getJson(RestClient.dataPath("/")));
+        // The server may still be working on a request that timed out, so it is not sent again
+        assertEquals(1, sent.get());
+    }
+
+    @Test
+    void testQueryTimeoutAbortsSlowRequest() {
+        delayMillis = 3000;
+        QueryControl control = new QueryControl(1);
+        RestClient client = new RestClient(new SalesforceSession(instanceUrl, "renewed"), JdkHttpTransport.shared(1000), 0, true)
+                .withControl(control);
+
+        long start = System.nanoTime();
+        SQLException e = assertThrows(SQLTimeoutException.class, () -> client.getJson(RestClient.dataPath("/")));
+        assertEquals("HYT00", e.getSQLState());
+        assertTrue(System.nanoTime() - start < 2_500_000_000L);
+        assertThrows(SQLTimeoutException.class, () -> client.getJson(RestClient.dataPath("/")));
+    }
+
+    @Test
+    void testCancelAbortsRequestInFlight() throws Exception {
+        delayMillis = 3000;
+        QueryControl control = new QueryControl(0);
+        RestClient client = new RestClient(new SalesforceSession(instanceUrl, "renewed"), JdkHttpTransport.shared(1000), 0, true)
+                .withControl(control);
+        Thread canceller = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                return;
+            }
+            control.cancel();
+        });
+        canceller.start();
+
+        SQLException e = assertThrows(SQLException.class, () -> client.getJson(RestClient.dataPath("/")));
+        assertEquals("57014", e.getSQLState());
+        canceller.join();
+        // Requests that do not belong to the cancelled execution still go through
+        delayMillis = 0;
+        assertTrue(client.withControl(null).getJson(RestClient.dataPath("/")).path("ok").asBoolean());
+    }
+
+    @Test
+    void testInterruptAbortsTheExchange() {
+        QueryControl control = new QueryControl(0);
+        CompletableFuture<HttpResponse<InputStream>> exchange = new CompletableFuture<>();
+        Thread.currentThread().interrupt();
+
+        assertThrows(InterruptedException.class, () -> control.await(exchange));
+        assertTrue(exchange.isCancelled());
+    }
+
+    @Test
+    void testCompressesLargeBodiesAndInflatesResponses() throws SQLException {
+        RestClient client = new RestClient(new SalesforceSession(instanceUrl, "renewed"), JdkHttpTransport.shared(1000), 0, true);
+        String text = "x".repeat(5000);
+
+        assertEquals("{\"Name\":\"" + text + "\"}", client.sendJson("POST", "/echo", Map.of("Name", text)).path("echo").asText());
+        assertEquals("{\"Name\":\"small\"}", client.sendJson("POST", "/echo", Map.of("Name", "small")).path("echo").asText());
+        assertEquals(List.of("gzip", "null"), requestEncodings);
+    }
+
+    @Test
+    void testCompressionCanBeDisabled() throws SQLException {
+        RestClient client = new RestClient(new SalesforceSession(instanceUrl, "renewed"), JdkHttpTransport.shared(1000), 0, false);
+        String text = "x".repeat(5000);
+
+        assertEquals("{\"Name\":\"" + text + "\"}", client.sendJson("POST", "/echo", Map.of("Name", text)).path("echo").asText());
+        assertEquals(List.of("null"), requestEncodings);
+    }
+}
@@ -0,0 +1,97 @@
+package com.salesforce.jdbc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SalesforceDataSourceTest {
+    private final List<SalesforceConnection> physical = new CopyOnWriteArrayList<>();
+    private SalesforceDataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+
+    // Connections on a made-up session; nothing here sends a request
+    private SalesforceDataSource dataSource() {
+        dataSource = new SalesforceDataSource(() -> {
+            SalesforceConnection connection = new SalesforceConnection(new SalesforceSession("http://127.0.0.1:1", "test-session"), null);
+            physical.add(connection);
+            return new SalesforcePooledConnection(connection);
+        });
+        return dataSource;
+    }
+
+    @Test
+    void testPoolsConnectionsUpToMaxPoolSize() throws SQLException {
+        SalesforceDataSource dataSource = dataSource();
+        dataSource.setMaxPoolSize(1);
+        dataSource.setBorrowTimeout(50);
+
+        Connection first = dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        first.close();
+        Connection second = dataSource.getConnection();
+        assertSame(physical.get(0), second.unwrap(SalesforceConnection.class));
+        assertEquals(1, physical.size());
+    }
+
+    @Test
+    void testRetiresConnectionsPastMaxLifetime() throws Exception {
+        SalesforceDataSource dataSource = dataSource();
+        dataSource.setMaxLifetime(50);
+        dataSource.getConnection().close();
+        Thread.sleep(100);
+
+        Connection replacement = dataSource.getConnection();
+        assertSame(physical.get(1), replacement.unwrap(SalesforceConnection.class));
+        assertTrue(physical.get(0).isClosed());
+    }
+
+    @Test
+    void testCloseReleasesIdleConnections() throws SQLException {
+        SalesforceDataSource dataSource = dataSource();
+        Connection borrowed = dataSource.getConnection();
+        dataSource.getConnection().close();
+        dataSource.close();
+
+        assertTrue(physical.get(1).isClosed());
+        // Borrowed connections stay open until they are returned
+        assertFalse(physical.get(0).isClosed());
+        borrowed.close();
+        assertTrue(physical.get(0).isClosed());
+    }
+
+    @Test
+    void testLoginTimeoutBoundsTheWaitForAPooledConnection() throws SQLException {
+        SalesforceDataSource dataSource = dataSource();
+        dataSource.setMaxPoolSize(1);
+        dataSource.setBorrowTimeout(TimeUnit.SECONDS.toMillis(30));
+        dataSource.setLoginTimeout(1);
+        dataSource.getConnection();
+
+        long start = System.nanoTime();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    void testRequiresUrlForUnpooledConnections() {
+        SalesforceDataSource dataSource = new SalesforceDataSource();
+        dataSource.setUser("user@example.com");
+        dataSource.setPassword("secret");
+        assertThrows(SQLException.class, () -> dataSource.getConnection("other@example.com", "secret"));
+        assertThrows(SQLException.class, () -> new SalesforceDataSource().getPooledConnection());
+    }
+}
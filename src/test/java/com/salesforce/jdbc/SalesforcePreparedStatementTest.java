@@ -0,0 +1,137 @@
+package com.salesforce.jdbc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SalesforcePreparedStatementTest {
+    private HttpServer server;
+    private SalesforceConnection connection;
+    private final List<String> queries = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        Properties info = new Properties();
+        info.setProperty("describeTypes", "false");
+        connection = new SalesforceConnection(new SalesforceSession("http://127.0.0.1:" + server.getAddress().getPort(), "test-session"), info);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.close();
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        queries.add(URLDecoder.decode(query.substring("q=".length()), StandardCharsets.UTF_8));
+        byte[] bytes = "{\"totalSize\":1,\"done\":true,\"records\":[{\"attributes\":{\"type\":\"Account\"},\"Id\":\"001A\",\"Name\":\"Acme\"}]}"
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void testEncodesLiteralsSafely() throws SQLException {
+        assertEquals("'O\\'Neil\\\\ \\n'", SoqlLiterals.string("O'Neil\\ \n"));
+        assertEquals("0.00000012", SoqlLiterals.number(1.2e-7));
+        assertEquals("0.1", SoqlLiterals.number(0.1f));
+        assertEquals("0.1", SoqlLiterals.of(0.1f));
+        assertEquals("0.00000012", SoqlLiterals.number(1.2e-7f));
+        assertEquals("12345678901234567890.50", SoqlLiterals.decimal(new BigDecimal("12345678901234567890.50")));
+        assertEquals("2024-02-29", SoqlLiterals.date(LocalDate.of(2024, 2, 29)));
+        assertEquals("2024-01-01T10:00:00Z", SoqlLiterals.dateTime(Instant.parse("2024-01-01T10:00:00Z")));
+        assertEquals("2024-01-01T10:00:00.250Z", SoqlLiterals.dateTime(Instant.parse("2024-01-01T10:00:00.250Z")));
+        assertEquals("'a', 2, null", SoqlLiterals.of(Arrays.asList("a", 2, null)));
+        assertThrows(SQLException.class, () -> SoqlLiterals.number(Double.NaN));
+        assertThrows(SQLException.class, () -> SoqlLiterals.number(Float.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void testBindsIntoTemplateAndReexecutes() throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(
+                "SELECT Id, Name FROM Account WHERE Name = ? AND CreatedDate > ? AND Id IN (?) LIMIT ?");
+        statement.setString(1, "x' OR Name != '");
+        statement.setTimestamp(2, Timestamp.from(Instant.parse("2024-01-01T00:00:00Z")));
+        statement.setObject(3, Arrays.asList("001A", "001B"));
+        statement.setInt(4, 5);
+        ResultSet rs = statement.executeQuery();
+        assertTrue(rs.next());
+        assertEquals("Acme", rs.getString("Name"));
+        assertEquals("SELECT Id, Name FROM Account WHERE Name = 'x\\' OR Name != \\'' AND CreatedDate > 2024-01-01T00:00:00Z"
+                + " AND Id IN ('001A', '001B') LIMIT 5", queries.get(0));
+
+        statement.setString(1, "Acme");
+        statement.executeQuery();
+        assertTrue(queries.get(1).startsWith("SELECT Id, Name FROM Account WHERE Name = 'Acme' AND"));
+    }
+
+    @Test
+    void testPreparedStatementsArePoolableByDefault() throws SQLException {
+        PreparedStatement statement = connection.prepareStatement("SELECT Id FROM Account WHERE Name = ?");
+        assertTrue(statement.isPoolable());
+        statement.setPoolable(false);
+        assertFalse(statement.isPoolable());
+        assertFalse(connection.createStatement().isPoolable());
+    }
+
+    @Test
+    void testRequiresEveryParameter() throws SQLException {
+        PreparedStatement statement = connection.prepareStatement("SELECT Id FROM Account WHERE Name = ? AND Site = ?");
+        statement.setString(1, "Acme");
+        assertThrows(SQLException.class, statement::executeQuery);
+        assertThrows(SQLException.class, () -> statement.setString(3, "x"));
+        statement.setNull(2, java.sql.Types.VARCHAR);
+        statement.executeQuery();
+        assertEquals("SELECT Id FROM Account WHERE Name = 'Acme' AND Site = null", queries.get(0));
+        statement.clearParameters();
+        assertThrows(SQLException.class, statement::executeQuery);
+        assertThrows(SQLException.class, () -> statement.executeQuery("SELECT Id FROM Account"));
+    }
+
+    @Test
+    void testHonoursResultSetTypeAndConcurrency() throws SQLException {
+        PreparedStatement statement = connection.prepareStatement("SELECT Id, Name FROM Account WHERE Name = ?",
+                ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        assertEquals(ResultSet.TYPE_SCROLL_INSENSITIVE, statement.getResultSetType());
+        statement.setString(1, "Acme");
+        ResultSet rs = statement.executeQuery();
+        assertEquals(ResultSet.TYPE_SCROLL_INSENSITIVE, rs.getType());
+        assertTrue(rs.last());
+        assertTrue(rs.first());
+        assertEquals("Acme", rs.getString("Name"));
+
+        assertThrows(SQLFeatureNotSupportedException.class, () -> connection.prepareStatement("SELECT Id FROM Account",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> connection.prepareStatement("SELECT Id FROM Account",
+                ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_UPDATABLE, ResultSet.HOLD_CURSORS_OVER_COMMIT));
+    }
+}
@@ -0,0 +1,244 @@
+package com.salesforce.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SalesforceResultSetTest {
+    private static final ColumnPlan PLAN = ColumnPlan.fromSoql("SELECT Id, Name FROM Account");
+
+    // Serves the given pages in order, then fails with the given error if there is one
+    private static final class StubPages implements PageSource {
+        private final List<ColumnarPage> pages;
+        private final SQLException failure;
+        private ColumnPlan plan = PLAN;
+        private int next = 0;
+        private boolean closed = false;
+
+        StubPages(List<ColumnarPage> pages, SQLException failure) {
+            this.pages = pages;
+            this.failure = failure;
+        }
+
+        @Override
+        public ColumnarPage nextPage() throws SQLException {
+            if (next < pages.size()) {
+                return pages.get(next++);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isDone() {
+            return next >= pages.size() && failure == null;
+        }
+
+        @Override
+        public ColumnPlan getColumnPlan() {
+            return plan;
+        }
+
+        @Override
+        public int getBatchSize() {
+            return 0;
+        }
+
+        @Override
+        public void setBatchSize(int fetchSize) {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static ColumnarPage page(int firstId, int rows) {
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(PLAN, rows);
+        for (int i = 0; i < rows; i++) {
+            builder.set(0, "001" + (firstId + i));
+            builder.set(1, "Account " + (firstId + i));
+            builder.endRow();
+        }
+        return builder.build();
+    }
+
+    @Test
+    void testFailedFirstPageFailsTheQuery() throws SQLException {
+        // Scrollable results and plans read from the first record fetch it up front
+        StubPages pages = new StubPages(List.of(), new SQLTimeoutException("Query timed out", "HYT00"));
+        SQLException e = assertThrows(SQLTimeoutException.class,
+                () -> new SalesforceResultSet(null, pages, 0, ResultSet.TYPE_SCROLL_INSENSITIVE));
+        assertEquals("HYT00", e.getSQLState());
+        assertTrue(pages.closed);
+
+        StubPages unplanned = new StubPages(List.of(), new SQLException("Session expired", "08006"));
+        unplanned.plan = null;
+        assertThrows(SQLException.class, () -> new SalesforceResultSet(null, unplanned, 0, ResultSet.TYPE_FORWARD_ONLY));
+        assertTrue(unplanned.closed);
+
+        // Otherwise the first next() reports it rather than an empty result
+        ResultSet rs = new SalesforceResultSet(null, new StubPages(List.of(), new SQLException("Bulk job failed")), 0,
+                ResultSet.TYPE_FORWARD_ONLY);
+        assertEquals(2, rs.getMetaData().getColumnCount());
+        assertThrows(SQLException.class, rs::next);
+    }
+
+    @Test
+    void testFailedLaterPageFailsNext() throws SQLException {
+        StubPages pages = new StubPages(new ArrayList<>(List.of(page(1, 2))), new SQLException("Bad chunk"));
+        ResultSet rs = new SalesforceResultSet(null, pages, 0, ResultSet.TYPE_FORWARD_ONLY);
+        assertEquals(2, rs.getMetaData().getColumnCount());
+        assertTrue(rs.next());
+        assertTrue(rs.next());
+        assertThrows(SQLException.class, rs::next);
+    }
+
+    // Pages of `size` rows numbered from 1 up to count * size
+    private static StubPages pages(int count, int size) {
+        List<ColumnarPage> pages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            pages.add(page(1 + i * size, size));
+        }
+        return new StubPages(pages, null);
+    }
+
+    @Test
+    void testScrollsAcrossSpooledPages() throws SQLException {
+        ResultSet rs = new SalesforceResultSet(null, pages(3, 3), 0, ResultSet.TYPE_SCROLL_INSENSITIVE);
+        assertTrue(rs.isBeforeFirst());
+        assertTrue(rs.absolute(5));
+        assertEquals("0015", rs.getString(1));
+        assertTrue(rs.relative(-2));
+        assertEquals("0013", rs.getString("Id"));
+        assertTrue(rs.previous());
+        assertEquals("0012", rs.getString(1));
+        assertEquals(2, rs.getRow());
+
+        assertTrue(rs.last());
+        assertEquals(9, rs.getRow());
+        assertEquals("Account 9", rs.getString(2));
+        assertTrue(rs.absolute(-3));
+        assertEquals("0017", rs.getString(1));
+        assertTrue(rs.first());
+        assertEquals("0011", rs.getString(1));
+
+        assertFalse(rs.relative(100));
+        assertTrue(rs.isAfterLast());
+        assertTrue(rs.previous());
+        assertEquals("0019", rs.getString(1));
+        assertFalse(rs.absolute(0));
+        assertTrue(rs.isBeforeFirst());
+        assertTrue(rs.next());
+        assertEquals("0011", rs.getString(1));
+        assertFalse(rs.absolute(10));
+        assertTrue(rs.isAfterLast());
+    }
+
+    @Test
+    void testIntegerColumnsReadAsIntegerAndCheckRange() throws SQLException {
+        ColumnPlan plan = ColumnPlan.fromSoql("SELECT NumberOfEmployees, AnnualRevenue FROM Account")
+                .withTypes(new FieldType[] {FieldType.INTEGER, FieldType.LONG});
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(plan, 1);
+        builder.set(0, "300");
+        builder.set(1, "3000000000");
+        builder.endRow();
+        StubPages pages = new StubPages(List.of(builder.build()), null);
+        pages.plan = plan;
+        ResultSet rs = new SalesforceResultSet(null, pages, 0, ResultSet.TYPE_FORWARD_ONLY);
+        assertTrue(rs.next());
+
+        assertEquals(Integer.valueOf(300), rs.getObject(1));
+        assertEquals(Long.valueOf(3_000_000_000L), rs.getObject(2));
+        assertEquals(300, rs.getShort(1));
+        SQLException e = assertThrows(SQLDataException.class, () -> rs.getByte(1));
+        assertEquals("22003", e.getSQLState());
+        assertEquals("22003", assertThrows(SQLDataException.class, () -> rs.getInt(2)).getSQLState());
+        assertThrows(SQLDataException.class, () -> rs.getShort(2));
+        assertEquals(3_000_000_000L, rs.getLong(2));
+    }
+
+    @Test
+    void testScrollingRespectsMaxRows() throws SQLException {
+        ResultSet rs = new SalesforceResultSet(null, pages(3, 3), 4, ResultSet.TYPE_SCROLL_INSENSITIVE);
+        assertTrue(rs.last());
+        assertEquals(4, rs.getRow());
+        assertEquals("0014", rs.getString(1));
+        assertFalse(rs.absolute(5));
+    }
+
+    @Test
+    void testForwardOnlyResultsCannotScroll() throws SQLException {
+        ResultSet rs = new SalesforceResultSet(null, pages(1, 3), 0, ResultSet.TYPE_FORWARD_ONLY);
+        assertTrue(rs.next());
+        assertThrows(SQLException.class, rs::previous);
+        assertThrows(SQLException.class, () -> rs.absolute(1));
+    }
+
+    @Test
+    void testSpoolKeepsOnlyRecentPagesDecoded() throws SQLException {
+        StubPages source = pages(6, 3);
+        List<ColumnarPage> originals = new ArrayList<>(source.pages);
+        try (PageSpool spool = new PageSpool(source, 0)) {
+            assertEquals(3, spool.fill(2));
+            assertFalse(spool.isComplete());
+            assertEquals(18, spool.fillAll());
+            assertTrue(spool.isComplete());
+            assertTrue(source.closed);
+            assertEquals(0, spool.pageIndexOf(2));
+            assertEquals(1, spool.pageIndexOf(3));
+            assertEquals(5, spool.pageIndexOf(17));
+            assertEquals(15, spool.firstRowOf(5));
+
+            // The most recently appended pages are still on the heap; older ones are mapped back in
+            assertSame(originals.get(5), spool.page(5));
+            ColumnarPage reread = spool.page(0);
+            assertTrue(reread != originals.get(0));
+            assertEquals(3, reread.getRowCount());
+            assertEquals("0011", reread.getString(0, 0));
+            assertEquals("Account 3", reread.getString(1, 2));
+            assertSame(reread, spool.page(0));
+
+            // Reading four other pages pushes it out again
+            for (int page = 1; page <= 4; page++) {
+                spool.page(page);
+            }
+            assertTrue(reread != spool.page(0));
+        }
+    }
+
+    @Test
+    void testSpoolRoundTripsObjectCells() throws SQLException {
+        Map<String, Object> children = Map.of("totalSize", 1, "done", true, "records", List.of(Map.of("Amount", 5, "StageName", "Won")));
+        ColumnarPage.Builder builder = new ColumnarPage.Builder(PLAN, 2);
+        builder.set(0, "001A");
+        builder.set(1, children);
+        builder.endRow();
+        builder.set(0, "001B");
+        builder.endRow();
+        List<ColumnarPage> pages = new ArrayList<>(List.of(builder.build()));
+        for (int i = 0; i < 4; i++) {
+            pages.add(page(10 + i, 1));
+        }
+        try (PageSpool spool = new PageSpool(new StubPages(pages, null), 0)) {
+            spool.fillAll();
+            ColumnarPage reread = spool.page(0);
+            assertTrue(reread != pages.get(0));
+            assertEquals(ColumnarPage.Kind.OBJECT, reread.getKind(1));
+            assertEquals(children, reread.getObject(1, 0));
+            assertTrue(reread.isNull(1, 1));
+            assertEquals("001B", reread.getString(0, 1));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.salesforce.jdbc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SalesforceStatementTest {
+    private HttpServer server;
+    private ExecutorService handlers;
+    private SalesforceConnection connection;
+    private final CountDownLatch slowArrived = new CountDownLatch(1);
+    private final CountDownLatch releaseSlow = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+        server.createContext("/", this::handle);
+        server.start();
+        Properties info = new Properties();
+        info.setProperty("describeTypes", "false");
+        connection = new SalesforceConnection(new SalesforceSession("http://127.0.0.1:" + server.getAddress().getPort(), "test-session"), info);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        releaseSlow.countDown();
+        connection.close();
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    // Queries on Contact hang until the test releases them; queries on Case are malformed
+    private void handle(HttpExchange exchange) throws IOException {
+        String soql = URLDecoder.decode(exchange.getRequestURI().getRawQuery().substring("q=".length()), StandardCharsets.UTF_8);
+        int status = 200;
+        String body = "{\"totalSize\":1,\"done\":true,\"records\":[{\"attributes\":{\"type\":\"Account\"},\"Id\":\"001A\"}]}";
+        if (soql.contains("FROM Contact")) {
+            slowArrived.countDown();
+            try {
+                releaseSlow.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } else if (soql.contains("FROM Case")) {
+            status = 400;
+            body = "[{\"message\":\"unexpected token: FORM\",\"errorCode\":\"MALFORMED_QUERY\"}]";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        try {
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // The client gave up on this exchange
+        }
+    }
+
+    // The statement accepts new executions once the asynchronous one has ended
+    private static void awaitIdle(Statement statement) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (true) {
+            try {
+                statement.getResultSet();
+                return;
+            } catch (SQLException e) {
+                if (!"HY010".equals(e.getSQLState()) || System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    @Test
+    void testAsyncQueryCompletesWithResultSet() throws Exception {
+        SalesforceStatement statement = (SalesforceStatement) connection.createStatement();
+        ResultSet rs = statement.executeQueryAsync("SELECT Id FROM Account").get(5, TimeUnit.SECONDS);
+        assertTrue(rs.next());
+        assertEquals("001A", rs.getString(1));
+        assertSame(rs, statement.getResultSet());
+    }
+
+    @Test
+    void testAsyncQueryFailureCompletesExceptionally() throws SQLException {
+        SalesforceStatement statement = (SalesforceStatement) connection.createStatement();
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> statement.executeQueryAsync("SELECT Id FROM Case").get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof SQLException);
+        assertTrue(e.getCause().getMessage().contains("MALFORMED_QUERY"));
+    }
+
+    @Test
+    void testCancellingFutureCancelsQueryAndFreesStatement() throws Exception {
+        SalesforceStatement statement = (SalesforceStatement) connection.createStatement();
+        CompletableFuture<ResultSet> future = statement.executeQueryAsync("SELECT Id FROM Contact");
+        assertTrue(slowArrived.await(5, TimeUnit.SECONDS));
+
+        // One execution at a time, whether it is asynchronous or not
+        SQLException busy = assertThrows(SQLException.class, () -> statement.executeQuery("SELECT Id FROM Account"));
+        assertEquals("HY010", busy.getSQLState());
+        ExecutionException second = assertThrows(ExecutionException.class,
+                () -> statement.executeQueryAsync("SELECT Id FROM Account").get(5, TimeUnit.SECONDS));
+        assertEquals("HY010", ((SQLException) second.getCause()).getSQLState());
+
+        assertTrue(future.cancel(true));
+        // The slow response is still held back, so only aborting the request frees the statement
+        awaitIdle(statement);
+        assertTrue(statement.executeQuery("SELECT Id FROM Account").next());
+    }
+}
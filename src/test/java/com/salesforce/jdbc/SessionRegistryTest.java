@@ -0,0 +1,107 @@
+package com.salesforce.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionRegistryTest {
+    // Logs in without a network, handing out token-1, token-2, ... and taking a while about it
+    private static final class CountingSession extends SalesforceSession {
+        private final AtomicInteger logins = new AtomicInteger();
+
+        CountingSession() {
+            super("https://login.example.com", "user@example.com", "secret");
+        }
+
+        @Override
+        Login authenticate() {
+            int login = logins.incrementAndGet();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Login("https://example.my.salesforce.com", "token-" + login, null);
+        }
+    }
+
+    @Test
+    void testSharesOneSessionPerKey() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        List<CountingSession> sessions = new ArrayList<>();
+        String key = "reuse-" + System.nanoTime();
+        SalesforceSession first = SessionRegistry.acquire(key, () -> {
+            created.incrementAndGet();
+            CountingSession session = new CountingSession();
+            sessions.add(session);
+            return session;
+        }, 0);
+        SalesforceSession second = SessionRegistry.acquire(key, CountingSession::new, 0);
+
+        assertSame(first, second);
+        assertEquals(1, created.get());
+        assertEquals(1, sessions.get(0).logins.get());
+        assertEquals("token-1", second.getSessionId());
+        assertTrue(first.isInUse());
+        first.release();
+        assertTrue(first.isInUse());
+        second.release();
+        assertFalse(first.isInUse());
+
+        assertTrue(first != SessionRegistry.acquire(key + "-other", CountingSession::new, 0));
+    }
+
+    @Test
+    void testKeepsTimeoutPerSession() throws Exception {
+        String key = "timeout-" + System.nanoTime();
+        SalesforceSession shortLived = SessionRegistry.acquire(key + "-short", CountingSession::new, 30);
+        SalesforceSession defaulted = SessionRegistry.acquire(key + "-default", CountingSession::new, 0);
+
+        assertEquals(TimeUnit.MINUTES.toMillis(30), shortLived.getTimeoutMillis());
+        assertEquals(TimeUnit.MINUTES.toMillis(SessionRegistry.DEFAULT_SESSION_TIMEOUT_MINUTES), defaulted.getTimeoutMillis());
+        // A connection sharing the session with a shorter timeout shortens it for everyone
+        SessionRegistry.acquire(key + "-default", CountingSession::new, 15);
+        assertEquals(TimeUnit.MINUTES.toMillis(15), defaulted.getTimeoutMillis());
+        assertEquals(TimeUnit.MINUTES.toMillis(30), shortLived.getTimeoutMillis());
+    }
+
+    @Test
+    void testRenewLogsInOnceForConcurrentRejections() throws Exception {
+        CountingSession session = new CountingSession();
+        session.ensureLoggedIn();
+        int callers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> renewed = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                Callable<String> renew = () -> {
+                    start.await();
+                    return session.renew("token-1");
+                };
+                renewed.add(threads.submit(renew));
+            }
+            start.countDown();
+            for (Future<String> token : renewed) {
+                assertEquals("token-2", token.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+        assertEquals(2, session.logins.get());
+
+        // A caller still holding the older token gets the current one without another login
+        assertEquals("token-2", session.renew("token-1"));
+        assertEquals("token-3", session.renew("token-2"));
+    }
+}
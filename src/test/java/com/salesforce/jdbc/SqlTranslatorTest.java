@@ -0,0 +1,127 @@
+package com.salesforce.jdbc;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLSyntaxErrorException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlTranslatorTest {
+    private final SqlTranslator translator = new SqlTranslator(2);
+
+    private String soql(String sql) throws SQLException {
+        return translator.translate(sql).getSoql();
+    }
+
+    @Test
+    void testTranslatesStandardSql() throws SQLException {
+        assertEquals("SELECT Id, Name FROM Account WHERE Name = 'Acme' AND (NumberOfEmployees > 10 OR Industry != null)",
+                soql("select a.Id, \"Name\" from Account a where a.Name = 'Acme' and (10 < NumberOfEmployees or Industry is not null);"));
+        assertEquals("SELECT Id FROM Account WHERE (CreatedDate >= 2024-01-01T00:00:00Z AND CreatedDate <= 2024-01-31T23:59:59.500+01:00)",
+                soql("SELECT Id FROM Account WHERE CreatedDate BETWEEN TIMESTAMP '2024-01-01 00:00:00' AND TIMESTAMP '2024-01-31 23:59:59.500+0100'"));
+        assertEquals("SELECT COUNT(Id) FROM Contact WHERE IsDeleted = true AND NOT Email LIKE '%@example.com'",
+                soql("SELECT COUNT(*) FROM Contact WHERE IsDeleted AND Email NOT LIKE '%@example.com'"));
+        assertEquals("SELECT Name FROM Account WHERE Name = 'O\\'Neil' ORDER BY Name DESC NULLS LAST LIMIT 10 OFFSET 20",
+                soql("SELECT Name AS n FROM Account WHERE Name = 'O''Neil' ORDER BY 1 DESC NULLS LAST OFFSET 20 ROWS FETCH FIRST 10 ROWS ONLY"));
+    }
+
+    @Test
+    void testKeepsSoqlForms() throws SQLException {
+        assertEquals("SELECT Account.Name, COUNT_DISTINCT(Id) total FROM Contact WHERE CreatedDate = LAST_N_DAYS:30 AND CloseDate < TODAY"
+                        + " AND Id IN (SELECT ContactId FROM Case) GROUP BY Account.Name HAVING COUNT_DISTINCT(Id) > 1 WITH SECURITY_ENFORCED",
+                soql("SELECT Account.Name, COUNT(DISTINCT Id) total FROM Contact WHERE CreatedDate = LAST_N_DAYS:30 AND CloseDate < today"
+                        + " AND Id IN (SELECT ContactId FROM Case) GROUP BY Account.Name HAVING COUNT(DISTINCT Id) > 1 WITH SECURITY_ENFORCED"));
+        assertEquals("SELECT Name, (SELECT LastName FROM Contacts) FROM Account WHERE Tags__c INCLUDES ('a;b', 'c')",
+                soql("SELECT Name, (SELECT LastName FROM Contacts) FROM Account /*+ hint */ WHERE Tags__c INCLUDES ('a;b', 'c')"));
+    }
+
+    @Test
+    void testLabelsAliasedFieldsAndKeepsPlaceholders() throws SQLException {
+        TranslationPlan plan = translator.translate("SELECT Name AS accountName, Owner.Name FROM Account WHERE Id = ? LIMIT ?");
+        assertEquals(2, plan.getParameterCount());
+        assertEquals("SELECT Name, Owner.Name FROM Account WHERE Id = ", plan.getFragment(0));
+        assertEquals(" LIMIT ", plan.getFragment(1));
+        assertEquals("accountName", plan.getColumns().getLabel(0));
+        assertEquals("Name", plan.getColumns().getResponsePath(0));
+        assertEquals("Owner.Name", plan.getColumns().getLabel(1));
+    }
+
+    @Test
+    void testExpandsStarFromDescribedFields() throws SQLException {
+        SoqlGenerator.FieldSource fields = new SoqlGenerator.FieldSource() {
+            @Override
+            public List<String> fieldsOf(String sObject) {
+                return sObject.equals("Account") ? Arrays.asList("Id", "Name", "Industry") : Arrays.asList("Id", "LastName");
+            }
+
+            @Override
+            public String childSObject(String parentSObject, String relationshipName) {
+                return "Contact";
+            }
+
+            @Override
+            public String parentRelationship(String sObject, String field, String parentSObject) {
+                return null;
+            }
+
+            @Override
+            public String childRelationship(String parentSObject, String childSObject, String field) {
+                return null;
+            }
+        };
+        TranslationPlan plan = translator.translate("SELECT a.*, Name AS n FROM Account a");
+        assertTrue(plan.needsExpansion());
+        assertEquals("SELECT Id, Name FROM Account", plan.getSoql());
+
+        TranslationPlan expanded = plan.expand(fields);
+        assertFalse(expanded.needsExpansion());
+        assertEquals("SELECT Id, Name, Industry FROM Account", expanded.getSoql());
+        // Name is sent once but read into both the column * stands for and Name AS n
+        assertArrayEquals(new String[] {"Id", "Name", "Industry", "n"}, expanded.getColumns().getLabels());
+        assertEquals("Name", expanded.getColumns().getResponsePath(3));
+        TranslationPlan nameFirst = translator.translate("SELECT Name, * FROM Account").expand(fields);
+        assertEquals("SELECT Name, Id, Industry FROM Account", nameFirst.getSoql());
+        assertArrayEquals(new String[] {"Name", "Id", "Name", "Industry"}, nameFirst.getColumns().getLabels());
+        assertEquals("SELECT Name, (SELECT Id, LastName FROM Contacts) FROM Account",
+                translator.translate("SELECT Name, (SELECT * FROM Contacts) FROM Account").expand(fields).getSoql());
+        assertEquals("SELECT Industry FROM Account",
+                translator.translate("SELECT /*+ COLUMNS(industry) */ * FROM Account").expand(fields).getSoql());
+        assertEquals("SELECT Name, Id FROM Account",
+                translator.translate("SELECT /*+ COLUMNS(name, ID) */ * FROM Account").expand(fields).getSoql());
+        assertThrows(SQLSyntaxErrorException.class, () -> translator.translate("SELECT /*+ COLUMNS(Website) */ * FROM Account").expand(fields));
+    }
+
+    @Test
+    void testRejectsUnsupportedConstructsUpFront() {
+        assertThrows(SQLFeatureNotSupportedException.class, () -> soql("SELECT Id FROM Account WHERE Id IN"
+                + " (SELECT c.AccountId FROM Contact c JOIN Case x ON x.ContactId = c.Id)"));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> soql("SELECT Id FROM Account WHERE NumberOfEmployees + 1 > 5"));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> soql("SELECT Id FROM Account WHERE Name = Site"));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> soql("SELECT Id FROM Account UNION SELECT Id FROM Contact"));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> soql("SELECT UPPER(Name) FROM Account"));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> soql("SELECT Id FROM Account WHERE COALESCE(Site, Name) = 'x'"));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> soql("SELECT SUBSTRING(Name, 1, 2) FROM Account"));
+        assertThrows(SQLSyntaxErrorException.class, () -> soql("SELECT Id FROM Account WHERE"));
+        assertThrows(SQLSyntaxErrorException.class, () -> soql("SELECT Id FROM Account WHERE Name = 'unterminated"));
+    }
+
+    @Test
+    void testCachesPlansByNormalizedText() throws SQLException {
+        TranslationPlan plan = translator.translate("SELECT Id FROM Account");
+        assertSame(plan, translator.translate("  SELECT   Id\n FROM Account ;"));
+        assertNotEquals(SqlTranslator.normalize("SELECT Id FROM Account WHERE Name = 'a  b'"),
+                SqlTranslator.normalize("SELECT Id FROM Account WHERE Name = 'a b'"));
+        assertNotEquals(SqlTranslator.normalize("SELECT Id -- note\nFROM Account"), SqlTranslator.normalize("SELECT Id -- note FROM Account"));
+
+        translator.translate("SELECT Id FROM Contact");
+        translator.translate("SELECT Id FROM Account");
+        translator.translate("SELECT Id FROM Lead");
+        assertEquals(2, translator.size());
+        // Account was used more recently than Contact, so Contact was evicted
+        assertSame(plan, translator.translate("SELECT Id FROM Account"));
+    }
+}